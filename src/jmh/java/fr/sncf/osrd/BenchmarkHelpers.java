@@ -0,0 +1,87 @@
+package fr.sncf.osrd;
+
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RJSSimulationParser;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.SimulationError;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
+import fr.sncf.osrd.train.events.TrainCreatedEvent;
+import okio.BufferedSource;
+import okio.Okio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Loads the inputs of benchmarks, which are packaged as resources of the benchmark jar */
+public final class BenchmarkHelpers {
+    private BenchmarkHelpers() {
+    }
+
+    /** Opens a resource of the benchmarks */
+    public static BufferedSource openResource(String resourcePath) throws IOException {
+        var stream = BenchmarkHelpers.class.getClassLoader().getResourceAsStream(resourcePath);
+        if (stream == null)
+            throw new IOException(String.format("missing benchmark resource '%s'", resourcePath));
+        return Okio.buffer(Okio.source(stream));
+    }
+
+    /** Reads a whole resource of the benchmarks */
+    public static String readResource(String resourcePath) throws IOException {
+        try (var source = openResource(resourcePath)) {
+            return source.readUtf8();
+        }
+    }
+
+    /** Parses a RailJSON infrastructure from the resources of the benchmarks */
+    public static Infra loadInfra(String resourcePath) throws IOException, InvalidInfraException {
+        try (var source = openResource(resourcePath)) {
+            return RailJSONParser.parse(source, false);
+        }
+    }
+
+    /**
+     * Streams an in memory document, the same way files and HTTP responses are.
+     * Moshi gets very slow when parsing a large string with polymorphic adapters, as it copies the rest of the
+     * document each time it peeks at the type of an object.
+     */
+    public static BufferedSource streamDocument(byte[] document) {
+        return Okio.buffer(Okio.source(new ByteArrayInputStream(document)));
+    }
+
+    /** Parses a RailJSON infrastructure */
+    public static Infra parseInfra(String json) throws IOException, InvalidInfraException {
+        try (var source = streamDocument(json.getBytes(StandardCharsets.UTF_8))) {
+            return RailJSONParser.parse(source, false);
+        }
+    }
+
+    /** Parses a simulation from the resources of the benchmarks */
+    public static RJSSimulation loadSimulation(String resourcePath) throws IOException {
+        try (var source = openResource(resourcePath)) {
+            var simulation = RJSSimulation.adapter.fromJson(source);
+            if (simulation == null)
+                throw new IOException(String.format("empty simulation resource '%s'", resourcePath));
+            return simulation;
+        }
+    }
+
+    /** Runs a simulation of the given trains until all of them reached their destination */
+    public static Simulation runSimulation(
+            Infra infra,
+            RJSSimulation rjsSimulation,
+            ChangeConsumer changeConsumer
+    ) throws InvalidSchedule, InvalidRollingStock, SimulationError {
+        var sim = Simulation.createFromInfraAndEmptySuccessions(infra, 0, changeConsumer);
+        for (var schedule : RJSSimulationParser.parse(infra, rjsSimulation))
+            TrainCreatedEvent.plan(sim, schedule);
+        while (!sim.isSimulationOver())
+            sim.step();
+        return sim;
+    }
+}
@@ -0,0 +1,551 @@
+package fr.sncf.osrd;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Generates RailJSON infrastructures of arbitrary size, for benchmarks which need more than the bundled examples.
+ * The infrastructure is a grid of parallel lines, with crossovers between neighbouring lines.</p>
+ * <p>Detectors, TVD sections, routes and signals follow the rules of examples_generator/libgen.py, and so does
+ * naming: track ends are numbered 2 * track for the beginning, and 2 * track + 1 for the end.
+ * Aspects, signaling functions and rolling stocks are the ones of tiny_infra.</p>
+ */
+public final class GridInfraGenerator {
+    private static final JsonAdapter<Object> jsonAdapter = new Moshi.Builder().build().adapter(Object.class);
+
+    private static final double SPACE_TDE = 200;
+    private static final double SPACE_SIG = 25;
+    private static final double SIGHT_DISTANCE = 400;
+    private static final double POSITION_CHANGE_DELAY = 6;
+
+    /** The distance between lines */
+    private static final double LINE_SPACING = 500;
+
+    /** The length of the tracks of crossovers, which must be longer than the distance between lines */
+    private static final double CROSSOVER_LENGTH = 600;
+
+    private final int rows;
+    private final int columns;
+    private final double trackLength;
+
+    private final List<Double> lengths = new ArrayList<>();
+    private final List<int[]> links = new ArrayList<>();
+    private final List<int[]> switches = new ArrayList<>();
+    private int[] degree;
+    private double[][] coordinates;
+
+    /** The track of each column of each line */
+    private final int[][] lineTracks;
+
+    private GridInfraGenerator(int rows, int columns, double trackLength) {
+        this.rows = rows;
+        this.columns = columns;
+        this.trackLength = trackLength;
+        this.lineTracks = new int[rows][columns];
+    }
+
+    /** Generates a grid of the given number of lines, each made of the given number of tracks */
+    public static GridInfraGenerator generate(int rows, int columns, double trackLength) {
+        if (rows < 1 || columns < 2)
+            throw new IllegalArgumentException("the grid needs at least one line of two tracks");
+        var generator = new GridInfraGenerator(rows, columns, trackLength);
+        generator.buildTopology();
+        return generator;
+    }
+
+    // region TOPOLOGY
+
+    private static int getBegin(int track) {
+        return 2 * track;
+    }
+
+    private static int getEnd(int track) {
+        return 2 * track + 1;
+    }
+
+    private static int getTrack(int point) {
+        return point / 2;
+    }
+
+    private static boolean isBegin(int point) {
+        return point % 2 == 0;
+    }
+
+    private static int getOtherSide(int point) {
+        return point ^ 1;
+    }
+
+    private int addTrack(double length) {
+        lengths.add(length);
+        return lengths.size() - 1;
+    }
+
+    /** Tracks start where they are first connected, and end where they are connected next */
+    private int newPoint(int track) {
+        assert degree[track] <= 1;
+        degree[track]++;
+        if (degree[track] == 1)
+            return getBegin(track);
+        return getEnd(track);
+    }
+
+    private void setCoordinates(int point, double x, double y) {
+        coordinates[point] = new double[] {x, y};
+    }
+
+    private void addLink(int first, int second, double x, double y) {
+        var link = new int[] {newPoint(first), newPoint(second)};
+        for (var point : link)
+            setCoordinates(point, x, y);
+        links.add(link);
+    }
+
+    private void addSwitch(int base, int left, int right, double x, double y) {
+        var switchPoints = new int[] {newPoint(base), newPoint(left), newPoint(right)};
+        for (var point : switchPoints)
+            setCoordinates(point, x, y);
+        switches.add(switchPoints);
+    }
+
+    private void buildTopology() {
+        for (int row = 0; row < rows; row++)
+            for (int column = 0; column < columns; column++)
+                lineTracks[row][column] = addTrack(trackLength);
+
+        // at each junction between columns, every other pair of lines is linked by a crossover
+        var crossovers = new ArrayList<Integer>();
+        for (int column = 0; column + 1 < columns; column++)
+            for (int row = column % 2; row + 1 < rows; row += 2)
+                crossovers.add(addTrack(CROSSOVER_LENGTH));
+
+        degree = new int[lengths.size()];
+        coordinates = new double[2 * lengths.size()][];
+        var nextCrossover = 0;
+        for (int column = 0; column + 1 < columns; column++) {
+            var x = (column + 1) * trackLength;
+            for (int row = 0; row < rows; row++) {
+                var y = row * LINE_SPACING;
+                var before = lineTracks[row][column];
+                var after = lineTracks[row][column + 1];
+                if (row % 2 != column % 2 || row + 1 == rows) {
+                    addLink(before, after, x, y);
+                    continue;
+                }
+
+                var crossover = crossovers.get(nextCrossover++);
+                addSwitch(before, after, crossover, x, y);
+                row++;
+                addSwitch(lineTracks[row][column + 1], lineTracks[row][column], crossover, x, y + LINE_SPACING);
+            }
+        }
+        assert nextCrossover == crossovers.size();
+
+        // the remaining ends of lines are buffer stops
+        for (int row = 0; row < rows; row++) {
+            var y = row * LINE_SPACING;
+            setCoordinates(getEnd(lineTracks[row][0]), 0, y);
+            setCoordinates(getEnd(lineTracks[row][columns - 1]), columns * trackLength, y);
+        }
+    }
+
+    /** Returns the identifier of the track at some column of a line */
+    public String getLineTrackID(int row, int column) {
+        return getTrackName(lineTracks[row][column]);
+    }
+
+    /** The track end on the side of the beginning of the line */
+    private int getLineEntry(int track, int column) {
+        if (column == 0)
+            return getEnd(track);
+        return getBegin(track);
+    }
+
+    // endregion
+
+    // region NAMING
+
+    private static String getTrackName(int track) {
+        return String.format("ne.micro.%d", track);
+    }
+
+    private static String getPointName(int point) {
+        return String.format("%d_%s", getTrack(point), isBegin(point) ? "BEGIN" : "END");
+    }
+
+    private static String getDetectorName(int point) {
+        return "tde." + getPointName(point);
+    }
+
+    private static String getBufferStopName(int track) {
+        return String.format("buffer_stop.%d", track);
+    }
+
+    private static String getTrackTVDName(int track) {
+        return String.format("tvd.%d", track);
+    }
+
+    private static String getLinkTVDName(int[] link) {
+        return String.format("tvd.%d-%d", getTrack(link[0]), getTrack(link[1]));
+    }
+
+    private static String getSwitchName(int[] switchPoints) {
+        return String.format("il.switch.%d-%d-%d",
+                getTrack(switchPoints[0]), getTrack(switchPoints[1]), getTrack(switchPoints[2]));
+    }
+
+    private static String getSwitchTVDName(int[] switchPoints) {
+        return String.format("tvd.%d-%d-%d",
+                getTrack(switchPoints[0]), getTrack(switchPoints[1]), getTrack(switchPoints[2]));
+    }
+
+    private static String getRouteName(int first, int second) {
+        return String.format("rt.%s-%s", getPointName(first), getPointName(second));
+    }
+
+    private static String getSignalName(int first, int second) {
+        return String.format("il.sig.bal3.%s-%s", getPointName(first), getPointName(second));
+    }
+
+    private static String getSwitchSignalName(int[] switchPoints) {
+        return String.format("il.sig.switch.%d-%d-%d",
+                getTrack(switchPoints[0]), getTrack(switchPoints[1]), getTrack(switchPoints[2]));
+    }
+
+    // endregion
+
+    // region JSON
+
+    private static Map<String, Object> object(Object... keyValues) {
+        var res = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < keyValues.length; i += 2)
+            res.put((String) keyValues[i], keyValues[i + 1]);
+        return res;
+    }
+
+    private static Map<String, Object> endpoint(int point) {
+        return object("endpoint", isBegin(point) ? "BEGIN" : "END", "section", getTrackName(getTrack(point)));
+    }
+
+    private static Map<String, Object> route(String id, String entryPoint, Map<String, Object> switchesPosition,
+                                             String tvdSection) {
+        return object(
+                "id", id,
+                "entry_point", entryPoint,
+                "switches_position", switchesPosition,
+                "release_groups", List.of(List.of(tvdSection))
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> loadJson(String resourcePath) throws IOException {
+        try (var source = BenchmarkHelpers.openResource(resourcePath)) {
+            return (Map<String, Object>) jsonAdapter.fromJson(source);
+        }
+    }
+
+    private static String getDirection(int first, int second) {
+        if (getTrack(first) == getTrack(second))
+            return isBegin(first) ? "NORMAL" : "REVERSE";
+        return isBegin(first) ? "REVERSE" : "NORMAL";
+    }
+
+    private double getSignalPosition(int first, int second) {
+        var length = lengths.get(getTrack(first));
+        var isNormal = getDirection(first, second).equals("NORMAL");
+        if (isBegin(first))
+            return isNormal ? SPACE_TDE - SPACE_SIG : SPACE_TDE + SPACE_SIG;
+        return isNormal ? length - SPACE_TDE - SPACE_SIG : length - SPACE_TDE + SPACE_SIG;
+    }
+
+    private Map<String, Object> makeSignal(String id, int first, int second, String function, Object... arguments) {
+        return object(
+                "expr", object("type", "call", "function", function, "arguments", List.of(arguments)),
+                "id", id,
+                "linked_detector", getDetectorName(first),
+                "applicable_direction", getDirection(first, second),
+                "position", getSignalPosition(first, second),
+                "sight_distance", SIGHT_DISTANCE
+        );
+    }
+
+    /** Finds the signal protecting the route which starts at the given track end */
+    private String getNextSignal(int point) {
+        for (var link : links) {
+            if (link[0] == point)
+                return getSignalName(link[0], link[1]);
+            if (link[1] == point)
+                return getSignalName(link[1], link[0]);
+        }
+        for (var switchPoints : switches) {
+            if (switchPoints[0] == point)
+                return getSwitchSignalName(switchPoints);
+            if (switchPoints[1] == point || switchPoints[2] == point)
+                return getSignalName(point, switchPoints[0]);
+        }
+        throw new IllegalStateException("dangling track end");
+    }
+
+    /** Builds the signal protecting the route from a track end to another */
+    private void addLineSignal(List<List<Object>> signals, int first, int second) {
+        var firstTrack = getTrack(first);
+        var route = object("type", "route", "route", getRouteName(first, second));
+        var id = getSignalName(first, second);
+        if (firstTrack == getTrack(second) && degree[firstTrack] == 1 && !isBegin(second)) {
+            signals.get(firstTrack).add(makeSignal(id, first, second, "check_route", route));
+            return;
+        }
+
+        String nextSignal;
+        if (firstTrack != getTrack(second))
+            nextSignal = getSignalName(second, getOtherSide(second));
+        else
+            nextSignal = getNextSignal(second);
+        var masterSignal = object("type", "signal", "signal", nextSignal);
+        signals.get(firstTrack).add(makeSignal(id, first, second, "bal3_line_signal", masterSignal, route));
+    }
+
+    private List<List<Object>> makeSignals() {
+        var signals = new ArrayList<List<Object>>();
+        for (int track = 0; track < lengths.size(); track++)
+            signals.add(new ArrayList<>());
+
+        for (int track = 0; track < lengths.size(); track++) {
+            addLineSignal(signals, getBegin(track), getEnd(track));
+            if (degree[track] == 2)
+                addLineSignal(signals, getEnd(track), getBegin(track));
+        }
+        for (var link : links) {
+            addLineSignal(signals, link[0], link[1]);
+            addLineSignal(signals, link[1], link[0]);
+        }
+        for (var switchPoints : switches) {
+            var base = switchPoints[0];
+            var left = switchPoints[1];
+            var right = switchPoints[2];
+            signals.get(getTrack(base)).add(makeSignal(
+                    getSwitchSignalName(switchPoints), base, left, "switch_signal",
+                    object("type", "switch", "switch", getSwitchName(switchPoints)),
+                    object("type", "route", "route", getRouteName(base, left)),
+                    object("type", "route", "route", getRouteName(base, right))
+            ));
+            addLineSignal(signals, left, base);
+            addLineSignal(signals, right, base);
+        }
+        return signals;
+    }
+
+    private List<Object> makeTrackSections() {
+        var signals = makeSignals();
+        var trackSections = new ArrayList<Object>();
+        for (int track = 0; track < lengths.size(); track++) {
+            var length = lengths.get(track);
+            var endDetector = object(
+                    "type", "detector",
+                    "applicable_direction", "BOTH",
+                    "id", getDetectorName(getEnd(track)),
+                    "position", length - SPACE_TDE
+            );
+            if (degree[track] == 1)
+                endDetector = object(
+                        "type", "buffer_stop",
+                        "applicable_direction", "NORMAL",
+                        "id", getBufferStopName(track),
+                        "position", length
+                );
+            var waypoints = List.of(
+                    object(
+                            "type", "detector",
+                            "applicable_direction", "BOTH",
+                            "id", getDetectorName(getBegin(track)),
+                            "position", SPACE_TDE
+                    ),
+                    endDetector
+            );
+            trackSections.add(object(
+                    "id", getTrackName(track),
+                    "length", length,
+                    "operational_points", List.of(),
+                    "route_waypoints", waypoints,
+                    "signals", signals.get(track),
+                    "speed_sections", List.of(),
+                    "endpoints_coords", List.of(
+                            Arrays.asList(coordinates[getBegin(track)][0], coordinates[getBegin(track)][1]),
+                            Arrays.asList(coordinates[getEnd(track)][0], coordinates[getEnd(track)][1]))
+            ));
+        }
+        return trackSections;
+    }
+
+    private List<Object> makeTVDSections() {
+        var tvdSections = new ArrayList<Object>();
+        for (int track = 0; track < lengths.size(); track++) {
+            var detectors = new ArrayList<String>();
+            var bufferStops = new ArrayList<String>();
+            detectors.add(getDetectorName(getBegin(track)));
+            if (degree[track] == 1)
+                bufferStops.add(getBufferStopName(track));
+            else
+                detectors.add(getDetectorName(getEnd(track)));
+            tvdSections.add(object(
+                    "id", getTrackTVDName(track),
+                    "is_berthing_track", true,
+                    "buffer_stops", bufferStops,
+                    "train_detectors", detectors
+            ));
+        }
+        for (var link : links)
+            tvdSections.add(object(
+                    "id", getLinkTVDName(link),
+                    "is_berthing_track", true,
+                    "buffer_stops", List.of(),
+                    "train_detectors", List.of(getDetectorName(link[0]), getDetectorName(link[1]))
+            ));
+        for (var switchPoints : switches)
+            tvdSections.add(object(
+                    "id", getSwitchTVDName(switchPoints),
+                    "is_berthing_track", true,
+                    "buffer_stops", List.of(),
+                    "train_detectors", List.of(
+                            getDetectorName(switchPoints[0]),
+                            getDetectorName(switchPoints[1]),
+                            getDetectorName(switchPoints[2]))
+            ));
+        return tvdSections;
+    }
+
+    private List<Object> makeRoutes() {
+        var routes = new ArrayList<Object>();
+        for (int track = 0; track < lengths.size(); track++) {
+            var begin = getBegin(track);
+            var end = getEnd(track);
+            var tvdSection = getTrackTVDName(track);
+            routes.add(route(getRouteName(begin, end), getDetectorName(begin), Map.of(), tvdSection));
+            var reverseEntry = degree[track] == 2 ? getDetectorName(end) : getBufferStopName(track);
+            routes.add(route(getRouteName(end, begin), reverseEntry, Map.of(), tvdSection));
+        }
+        for (var link : links) {
+            var tvdSection = getLinkTVDName(link);
+            routes.add(route(getRouteName(link[0], link[1]), getDetectorName(link[0]), Map.of(), tvdSection));
+            routes.add(route(getRouteName(link[1], link[0]), getDetectorName(link[1]), Map.of(), tvdSection));
+        }
+        for (var switchPoints : switches) {
+            var base = switchPoints[0];
+            var tvdSection = getSwitchTVDName(switchPoints);
+            var switchName = getSwitchName(switchPoints);
+            var positions = new String[] {"LEFT", "RIGHT"};
+            for (int branch = 1; branch <= 2; branch++) {
+                var point = switchPoints[branch];
+                var switchesPosition = object(switchName, positions[branch - 1]);
+                routes.add(route(getRouteName(base, point), getDetectorName(base), switchesPosition, tvdSection));
+                routes.add(route(getRouteName(point, base), getDetectorName(point), switchesPosition, tvdSection));
+            }
+        }
+        return routes;
+    }
+
+    private List<Object> makeSwitches() {
+        var res = new ArrayList<Object>();
+        for (var switchPoints : switches)
+            res.add(object(
+                    "base", endpoint(switchPoints[0]),
+                    "left", endpoint(switchPoints[1]),
+                    "right", endpoint(switchPoints[2]),
+                    "id", getSwitchName(switchPoints),
+                    "position_change_delay", POSITION_CHANGE_DELAY
+            ));
+        return res;
+    }
+
+    private List<Object> makeTrackSectionLinks() {
+        var res = new ArrayList<Object>();
+        for (var link : links)
+            res.add(object("begin", endpoint(link[0]), "end", endpoint(link[1]), "navigability", "BOTH"));
+        for (var switchPoints : switches) {
+            for (int branch = 1; branch <= 2; branch++)
+                res.add(object(
+                        "begin", endpoint(switchPoints[0]),
+                        "end", endpoint(switchPoints[branch]),
+                        "navigability", "BOTH"
+                ));
+        }
+        return res;
+    }
+
+    /** Serializes the infrastructure to RailJSON */
+    public String toInfraJson() throws IOException {
+        var tinyInfra = loadJson("tiny_infra/infra.json");
+        var infra = object(
+                "version", 1,
+                "aspects", tinyInfra.get("aspects"),
+                "script_functions", tinyInfra.get("script_functions"),
+                "operational_points", List.of(),
+                "speed_sections", List.of(),
+                "routes", makeRoutes(),
+                "switches", makeSwitches(),
+                "track_section_links", makeTrackSectionLinks(),
+                "track_sections", makeTrackSections(),
+                "tvd_sections", makeTVDSections()
+        );
+        return jsonAdapter.toJson(infra);
+    }
+
+    /**
+     * Serializes a simulation of trains going along lines, from their beginning.
+     * Lines are used in turn, and trains running on the same line leave one after the other.
+     * Trains stay where they stop, so each train stops one track before the one which left just before it.
+     * @param trainCount the number of trains
+     * @param headway the time between the departures of trains running on the same line, in seconds
+     */
+    public String toSimulationJson(int trainCount, double headway) throws IOException {
+        if ((trainCount - 1) / rows + 1 >= columns)
+            throw new IllegalArgumentException("too many trains for the length of lines");
+        var tinySimulation = loadJson("tiny_infra/simulation.json");
+        @SuppressWarnings("unchecked")
+        var rollingStocks = (List<Map<String, Object>>) tinySimulation.get("rolling_stocks");
+
+        var schedules = new ArrayList<Object>();
+        for (int i = 0; i < trainCount; i++) {
+            var row = i % rows;
+            var lastColumn = columns - 1 - i / rows;
+            var routes = new ArrayList<String>();
+            var previousExit = -1;
+            for (int column = 0; column <= lastColumn; column++) {
+                var track = lineTracks[row][column];
+                var entry = getLineEntry(track, column);
+                var exit = getOtherSide(entry);
+                if (previousExit != -1)
+                    routes.add(getRouteName(previousExit, entry));
+                routes.add(getRouteName(entry, exit));
+                previousExit = exit;
+            }
+
+            var firstTrack = lineTracks[row][0];
+            var lastTrack = lineTracks[row][lastColumn];
+            schedules.add(object(
+                    "id", String.format("train.%d", i),
+                    "rolling_stock", rollingStocks.get(0).get("id"),
+                    "departure_time", (i / rows) * headway,
+                    "initial_head_location", object(
+                            "track_section", getTrackName(firstTrack),
+                            "offset", lengths.get(firstTrack) / 2),
+                    "initial_speed", 0,
+                    "routes", routes,
+                    "phases", List.of(object(
+                            "type", "navigate",
+                            "driver_sight_distance", SIGHT_DISTANCE,
+                            "end_location", object(
+                                    "track_section", getTrackName(lastTrack),
+                                    "offset", lengths.get(lastTrack) / 2)
+                    ))
+            ));
+        }
+        return jsonAdapter.toJson(object("rolling_stocks", rollingStocks, "train_schedules", schedules));
+    }
+}
@@ -0,0 +1,62 @@
+package fr.sncf.osrd.infra.railscript;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.GridInfraGenerator;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.infra.railscript.value.RSAspectSet;
+import fr.sncf.osrd.infra_state.InfraState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/** Measures how long it takes to evaluate the aspects of all the signals of a generated infrastructure */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalEvaluationBenchmark {
+    /** Whether signal expressions are compiled, or evaluated by walking their tree */
+    @Param({"compiled", "interpreted"})
+    public String evaluation;
+
+    private InfraState infraState;
+    private final ArrayList<RSExprState<RSAspectSet>> exprStates = new ArrayList<>();
+
+    /** Loads the infrastructure, and creates the state of the expression of each signal */
+    @Setup
+    public void setup() throws IOException, InvalidInfraException {
+        var infra = BenchmarkHelpers.parseInfra(GridInfraGenerator.generate(8, 20, 2000).toInfraJson());
+        infraState = InfraState.from(infra);
+        for (var signal : infra.signals) {
+            var expr = signal.expr;
+            var compiledExpr = expr.compiledExpr;
+            if (evaluation.equals("interpreted"))
+                compiledExpr = RSCompiledExpr.interpreted(expr.rootExpr);
+            var exprState = new RSExprState<>(expr.rootExpr, compiledExpr, expr.argSlotCount, expr.delaySlotCount);
+            exprState.evalInit(infraState);
+            exprStates.add(exprState);
+        }
+    }
+
+    /** Evaluates the aspects of all signals, as if one of their inputs had changed */
+    @Benchmark
+    public void evalInputChange(Blackhole blackhole) {
+        for (var exprState : exprStates)
+            blackhole.consume(exprState.evalInputChange(infraState, (delaySlot, value, delay) -> { }));
+    }
+}
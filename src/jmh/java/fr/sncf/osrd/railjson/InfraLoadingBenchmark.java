@@ -0,0 +1,76 @@
+package fr.sncf.osrd.railjson;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.GridInfraGenerator;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to load an infrastructure, which is split between the parsing of the RailJSON
+ * document, and the building of the infrastructure graphs, or done in a single pass over the document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InfraLoadingBenchmark {
+    /** The name of a bundled infrastructure, or grid for a generated one */
+    @Param({"tiny_infra", "groenland_infra", "grid"})
+    public String infra;
+
+    private byte[] infraJson;
+    private RJSInfra rjsInfra;
+
+    /** Reads or generates the RailJSON document, and parses it once for the graph building benchmark */
+    @Setup
+    public void setup() throws IOException {
+        String json;
+        if (infra.equals("grid"))
+            json = GridInfraGenerator.generate(20, 100, 2000).toInfraJson();
+        else
+            json = BenchmarkHelpers.readResource(infra + "/infra.json");
+        infraJson = json.getBytes(StandardCharsets.UTF_8);
+        rjsInfra = parseJson();
+    }
+
+    /** Parses the RailJSON document */
+    @Benchmark
+    public RJSInfra parseJson() throws IOException {
+        try (var source = BenchmarkHelpers.streamDocument(infraJson)) {
+            return RJSInfra.adapter.fromJson(source);
+        }
+    }
+
+    /** Builds the infrastructure graphs from the parsed RailJSON document */
+    @Benchmark
+    public Infra buildInfra() throws InvalidInfraException {
+        return RailJSONParser.parse(rjsInfra);
+    }
+
+    /** Builds the infrastructure graphs while the RailJSON document is being read */
+    @Benchmark
+    public Infra streamInfra() throws InvalidInfraException, IOException {
+        try (var source = BenchmarkHelpers.streamDocument(infraJson)) {
+            return RailJSONParser.parse(source, false);
+        }
+    }
+}
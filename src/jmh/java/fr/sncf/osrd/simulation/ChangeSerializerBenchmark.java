@@ -0,0 +1,53 @@
+package fr.sncf.osrd.simulation;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.GridInfraGenerator;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import fr.sncf.osrd.simulation.changelog.ArrayChangeLog;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Measures how long it takes to serialize the changelog of a simulation to JSON */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeSerializerBenchmark {
+    private ArrayChangeLog changelog;
+
+    /** Records the changes of a simulation of a few trains */
+    @Setup
+    public void setup()
+            throws IOException, InvalidInfraException, InvalidSchedule, InvalidRollingStock, SimulationError {
+        var grid = GridInfraGenerator.generate(4, 10, 2000);
+        var infra = BenchmarkHelpers.parseInfra(grid.toInfraJson());
+        var rjsSimulation = RJSSimulation.adapter.fromJson(grid.toSimulationJson(8, 240));
+        changelog = new ArrayChangeLog();
+        BenchmarkHelpers.runSimulation(infra, rjsSimulation, changelog);
+    }
+
+    /** Serializes the changelog, and returns the size of the output in bytes */
+    @Benchmark
+    public long serialize() throws IOException {
+        var buffer = new Buffer();
+        ChangeSerializer.serializeChangeLog(changelog, buffer);
+        return buffer.size();
+    }
+}
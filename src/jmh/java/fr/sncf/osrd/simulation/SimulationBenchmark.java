@@ -0,0 +1,55 @@
+package fr.sncf.osrd.simulation;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.GridInfraGenerator;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to simulate trains running along the lines of a generated infrastructure.
+ * When there are more trains than lines, trains follow each other, and are slowed down by signals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulationBenchmark {
+    @Param({"1", "32"})
+    public int trains;
+
+    private Infra infra;
+    private RJSSimulation rjsSimulation;
+
+    /** Generates and loads the infrastructure and the schedules */
+    @Setup
+    public void setup() throws IOException, InvalidInfraException {
+        var grid = GridInfraGenerator.generate(8, 20, 2000);
+        infra = BenchmarkHelpers.parseInfra(grid.toInfraJson());
+        rjsSimulation = RJSSimulation.adapter.fromJson(grid.toSimulationJson(trains, 240));
+    }
+
+    /** Runs the simulation until all trains reached their destination */
+    @Benchmark
+    public Simulation simulate() throws InvalidSchedule, InvalidRollingStock, SimulationError {
+        return BenchmarkHelpers.runSimulation(infra, rjsSimulation, null);
+    }
+}
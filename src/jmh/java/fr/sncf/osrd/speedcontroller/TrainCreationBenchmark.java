@@ -0,0 +1,90 @@
+package fr.sncf.osrd.speedcontroller;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RJSSimulationParser;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import fr.sncf.osrd.railjson.schema.schedule.RJSAllowance;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.SimulationError;
+import fr.sncf.osrd.train.Train;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to create a train, which is dominated by the generation of its speed instructions.
+ * Margins which run a dichotomy over the whole path are the slowest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainCreationBenchmark {
+    @Param({"none", "linear", "construction", "mareco"})
+    public String allowance;
+
+    private Infra infra;
+    private RJSSimulation rjsSimulation;
+
+    /** Loads the infrastructure and the schedules, and replaces the allowances of trains */
+    @Setup
+    public void setup() throws IOException, InvalidInfraException {
+        infra = BenchmarkHelpers.loadInfra("tiny_infra/infra.json");
+        rjsSimulation = BenchmarkHelpers.loadSimulation("tiny_infra/simulation.json");
+        var allowances = makeAllowances(allowance);
+        for (var trainSchedule : rjsSimulation.trainSchedules)
+            trainSchedule.allowances = allowances;
+    }
+
+    private static RJSAllowance[][] makeAllowances(String type) {
+        switch (type) {
+            case "none":
+                return null;
+            case "linear": {
+                var linear = new RJSAllowance.LinearAllowance();
+                linear.allowanceType = RJSAllowance.LinearAllowance.MarginType.TIME;
+                linear.allowanceValue = 10;
+                return new RJSAllowance[][] {{ linear }};
+            }
+            case "construction": {
+                var construction = new RJSAllowance.ConstructionAllowance();
+                construction.allowanceValue = 30;
+                return new RJSAllowance[][] {{ construction }};
+            }
+            case "mareco": {
+                var mareco = new RJSAllowance.MarecoAllowance();
+                mareco.allowanceType = RJSAllowance.MarecoAllowance.MarginType.TIME;
+                mareco.allowanceValue = 10;
+                return new RJSAllowance[][] {{ mareco }};
+            }
+            default:
+                throw new IllegalArgumentException(String.format("unknown allowance type '%s'", type));
+        }
+    }
+
+    /** Creates all the trains of the simulation */
+    @Benchmark
+    public Simulation createTrains() throws InvalidSchedule, InvalidRollingStock, SimulationError {
+        var sim = Simulation.createFromInfraAndEmptySuccessions(infra, 0, null);
+        for (var schedule : RJSSimulationParser.parse(infra, rjsSimulation))
+            Train.create(sim, schedule);
+        return sim;
+    }
+}
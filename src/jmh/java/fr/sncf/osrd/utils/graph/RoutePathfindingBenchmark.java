@@ -0,0 +1,180 @@
+package fr.sncf.osrd.utils.graph;
+
+import fr.sncf.osrd.BenchmarkHelpers;
+import fr.sncf.osrd.GridInfraGenerator;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.infra.routegraph.Route;
+import fr.sncf.osrd.infra.routegraph.RouteLocation;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/** Measures how long it takes to find a path on the route graph, the same way the pathfinding endpoint does */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutePathfindingBenchmark {
+    /**
+     * The name of a bundled infrastructure, or grid for a path between opposite corners of a generated one,
+     * and grid_center for a path between two points in the middle of the generated infrastructure
+     */
+    @Param({"groenland_infra", "grid", "grid_center"})
+    public String infra;
+
+    /**
+     * Whether the search is guided towards the destination, or uses the contraction hierarchy of the graph.
+     * Searches prefixed with indexed explore the compact view of the graph instead of path nodes.
+     */
+    @Param({"dijkstra", "astar", "indexed_dijkstra", "indexed_astar", "ch"})
+    public String search;
+
+    private Infra parsedInfra;
+    private List<RouteLocation> origins;
+    private List<RouteLocation> destinations;
+    private int[] goals;
+    private List<ContractionHierarchy.Goal<Route>> contractionHierarchyGoals;
+
+    /** Loads the infrastructure, and finds the routes of the origin and destination of the path */
+    private void loadInfra() throws IOException, InvalidInfraException {
+        if (infra.equals("grid")) {
+            // go from one corner of the grid to the opposite one
+            var grid = GridInfraGenerator.generate(20, 100, 2000);
+            parsedInfra = BenchmarkHelpers.parseInfra(grid.toInfraJson());
+            origins = findRouteLocations(grid.getLineTrackID(0, 0), 1000);
+            destinations = findRouteLocations(grid.getLineTrackID(19, 99), 1000);
+            return;
+        }
+        if (infra.equals("grid_center")) {
+            // go between two points in the middle of the grid, where there's room to explore in all directions
+            var grid = GridInfraGenerator.generate(20, 100, 2000);
+            parsedInfra = BenchmarkHelpers.parseInfra(grid.toInfraJson());
+            origins = findRouteLocations(grid.getLineTrackID(5, 40), 1000);
+            destinations = findRouteLocations(grid.getLineTrackID(15, 60), 1000);
+            return;
+        }
+
+        // go from the start to the end of the first train of the bundled simulation
+        parsedInfra = BenchmarkHelpers.loadInfra(infra + "/infra.json");
+        var schedule = BenchmarkHelpers.loadSimulation(infra + "/simulation.json").trainSchedules.iterator().next();
+        var start = schedule.initialHeadLocation;
+        var end = schedule.phases[schedule.phases.length - 1].endLocation;
+        origins = findRouteLocations(start.trackSection.id, start.offset);
+        destinations = findRouteLocations(end.trackSection.id, end.offset);
+    }
+
+    /** Loads the infrastructure, and builds the data which makes the search faster */
+    @Setup
+    public void setup() throws IOException, InvalidInfraException {
+        loadInfra();
+        parsedInfra.routeGraph.getDistanceEstimator();
+        goals = new int[destinations.size()];
+        for (int i = 0; i < goals.length; i++)
+            goals[i] = DistanceEstimator.getGoalID(destinations.get(i).route, EdgeDirection.START_TO_STOP);
+        if (search.equals("ch")) {
+            parsedInfra.routeGraph.buildContractionHierarchy();
+            contractionHierarchyGoals = new ArrayList<>();
+            for (var destination : destinations)
+                contractionHierarchyGoals.add(
+                        new ContractionHierarchy.Goal<>(destination.route, destination.offset, destination.offset));
+        }
+    }
+
+    /** Finds the routes which go over a track section location, in both directions */
+    private List<RouteLocation> findRouteLocations(String trackSectionID, double offset) {
+        var res = new ArrayList<RouteLocation>();
+        var edge = parsedInfra.trackGraph.trackSectionMap.get(trackSectionID);
+        for (var direction : EdgeDirection.values()) {
+            edge.getRoutes(direction).findOverlappingIntervals(
+                    routeFragment -> {
+                        var trackOffset = offset - routeFragment.begin;
+                        if (routeFragment.direction == EdgeDirection.STOP_TO_START)
+                            trackOffset = routeFragment.end - offset;
+                        res.add(new RouteLocation(routeFragment.route, routeFragment.routeOffset + trackOffset));
+                    },
+                    offset,
+                    offset
+            );
+        }
+        return res;
+    }
+
+    /** Finds the shortest path between the origin and the destination */
+    @Benchmark
+    public BasicPathNode<Route> findPath() {
+        if (search.equals("ch")) {
+            var startingPoints = new ArrayList<BasicPathNode<Route>>();
+            for (var origin : origins)
+                startingPoints.add(new BasicPathNode<>(origin.route, origin.offset));
+            var contractionHierarchy = parsedInfra.routeGraph.getContractionHierarchy();
+            var path = contractionHierarchy.findPath(startingPoints, contractionHierarchyGoals);
+            if (path == null)
+                throw new RuntimeException("no path could be found");
+            return path;
+        }
+
+        var costFunction = new DistCostFunction<Route>();
+        Dijkstra.GoalChecker<Route> goalChecker = (pathNode) -> {
+            for (var destination : destinations) {
+                if (destination.route != pathNode.edge)
+                    continue;
+                var addedCost = costFunction.evaluate(destination.route, pathNode.position, destination.offset);
+                return pathNode.end(addedCost, destination.route, destination.offset);
+            }
+            return null;
+        };
+
+        if (search.startsWith("indexed_")) {
+            var startingPoints = new ArrayList<BasicPathNode<Route>>();
+            for (var origin : origins)
+                startingPoints.add(new BasicPathNode<>(origin.route, origin.offset));
+            Heuristic<Route> heuristic = null;
+            if (search.equals("indexed_astar"))
+                heuristic = parsedInfra.routeGraph.getDistanceEstimator().towards(goals);
+            var path = Dijkstra.findPath(parsedInfra.routeGraph, startingPoints, heuristic, goals, goalChecker);
+            if (path == null)
+                throw new RuntimeException("no path could be found");
+            return path;
+        }
+
+        PriorityQueue<BasicPathNode<Route>> candidatePaths;
+        if (search.equals("astar"))
+            candidatePaths = Dijkstra.makePriorityQueue(parsedInfra.routeGraph.getDistanceEstimator().towards(goals));
+        else
+            candidatePaths = Dijkstra.makePriorityQueue();
+        for (var origin : origins)
+            candidatePaths.add(new BasicPathNode<>(origin.route, origin.offset));
+
+        var res = new ArrayList<BasicPathNode<Route>>();
+        Dijkstra.findPaths(
+                parsedInfra.routeGraph,
+                candidatePaths,
+                costFunction,
+                goalChecker,
+                (pathToGoal) -> {
+                    res.add(pathToGoal);
+                    return false;
+                });
+        if (res.isEmpty())
+            throw new RuntimeException("no path could be found");
+        return res.get(0);
+    }
+}
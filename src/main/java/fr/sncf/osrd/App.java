@@ -14,6 +14,7 @@ public class App {
     public static void main(String[] args) {
         var commands = new HashMap<String, CliCommand>();
         commands.put("simulate", new SimulateCommand());
+        commands.put("simulate-batch", new SimulateBatchCommand());
         commands.put("convert", new ConvertCommand());
         commands.put("pretty-print-signals", new PrettyPrintCommand());
         commands.put("api", new ApiServerCommand());
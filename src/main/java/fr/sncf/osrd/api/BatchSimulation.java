@@ -0,0 +1,178 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.Json;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import fr.sncf.osrd.api.SimulationEndpoint.SimulationResultChange;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.SuccessionTable;
+import fr.sncf.osrd.railjson.parser.RJSSimulationParser;
+import fr.sncf.osrd.railjson.parser.RJSSuccessionsParser;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
+import fr.sncf.osrd.railjson.parser.exceptions.InvalidSuccession;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import fr.sncf.osrd.railjson.schema.RJSSuccessions;
+import fr.sncf.osrd.railjson.schema.common.ID;
+import fr.sncf.osrd.railjson.schema.rollingstock.RJSRollingResistance;
+import fr.sncf.osrd.railjson.schema.rollingstock.RJSRollingStock;
+import fr.sncf.osrd.railjson.schema.schedule.RJSAllowance;
+import fr.sncf.osrd.railjson.schema.schedule.RJSTrainPhase;
+import fr.sncf.osrd.railjson.schema.schedule.RJSTrainSchedule;
+import fr.sncf.osrd.railjson.schema.successiontable.RJSSuccessionTable;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.SimulationError;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumerMultiplexer;
+import fr.sncf.osrd.train.events.TrainCreatedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * <p>Runs independent simulation scenarios in parallel, on a shared infrastructure.</p>
+ * <p>Simulations don't change the infrastructure, as all their state lives in their own InfraState:
+ * the infrastructure is loaded once for all scenarios, and each scenario runs on a thread of a fork-join pool.</p>
+ */
+public final class BatchSimulation {
+    static final Logger logger = LoggerFactory.getLogger(BatchSimulation.class);
+
+    public static final JsonAdapter<List<Scenario>> adapterScenarios = new Moshi
+            .Builder()
+            .add(ID.Adapter.FACTORY)
+            .add(RJSRollingResistance.adapter)
+            .add(RJSTrainPhase.adapter)
+            .add(RJSAllowance.adapter)
+            .build()
+            .adapter(Types.newParameterizedType(List.class, Scenario.class));
+
+    public static final JsonAdapter<ScenarioResult> adapterScenarioResult = new Moshi
+            .Builder()
+            .add(SimulationResultChange.adapter)
+            .build()
+            .adapter(ScenarioResult.class);
+
+    private BatchSimulation() {
+    }
+
+    /** A set of trains to simulate, independently from other scenarios */
+    public static final class Scenario {
+        /** The identifier of the scenario, which is given back along its results */
+        public final String id;
+
+        /** A list of rolling stocks involved in this scenario */
+        @Json(name = "rolling_stocks")
+        public final Collection<RJSRollingStock> rollingStocks;
+
+        /** A list of trains plannings */
+        @Json(name = "train_schedules")
+        public final Collection<RJSTrainSchedule> trainSchedules;
+
+        /** A list of trains successions tables */
+        public final Collection<RJSSuccessionTable> successions;
+
+        /** Create a scenario */
+        public Scenario(
+                String id,
+                Collection<RJSRollingStock> rollingStocks,
+                Collection<RJSTrainSchedule> trainSchedules,
+                Collection<RJSSuccessionTable> successions
+        ) {
+            this.id = id;
+            this.rollingStocks = rollingStocks;
+            this.trainSchedules = trainSchedules;
+            this.successions = successions;
+        }
+    }
+
+    /** The outcome of a scenario: either its result changes, or the error which stopped it */
+    public static final class ScenarioResult {
+        /** The identifier of the scenario */
+        public final String scenario;
+
+        /** The position of the scenario in the batch */
+        public final int index;
+
+        /** The result changes of the simulation, sorted by time, or null if the scenario failed */
+        public final SimulationResultChange[] changes;
+
+        /** The reason the scenario failed, or null if it succeeded */
+        public final String error;
+
+        ScenarioResult(String scenario, int index, SimulationResultChange[] changes, String error) {
+            this.scenario = scenario;
+            this.index = index;
+            this.changes = changes;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Starts simulating all the scenarios on the given pool.
+     * @param pool the pool scenarios are run on
+     * @param infra the infrastructure, which is shared by all scenarios
+     * @param scenarios the scenarios to simulate
+     * @param resultConsumer called from the pool threads with the result of each scenario, as soon as it completes
+     * @return the tasks of the scenarios, which can be cancelled
+     */
+    public static List<ForkJoinTask<?>> submit(
+            ForkJoinPool pool,
+            Infra infra,
+            List<Scenario> scenarios,
+            Consumer<ScenarioResult> resultConsumer
+    ) {
+        var tasks = new ArrayList<ForkJoinTask<?>>(scenarios.size());
+        for (int i = 0; i < scenarios.size(); i++) {
+            var index = i;
+            var scenario = scenarios.get(i);
+            tasks.add(pool.submit(() -> resultConsumer.accept(run(infra, index, scenario))));
+        }
+        return tasks;
+    }
+
+    /**
+     * Simulates a single scenario. Errors are reported in the result, so that they don't stop other scenarios,
+     * and so that consumers waiting for all results are always given one per scenario.
+     */
+    static ScenarioResult run(Infra infra, int index, Scenario scenario) {
+        try {
+            return new ScenarioResult(scenario.id, index, simulate(infra, scenario), null);
+        } catch (InvalidRollingStock | InvalidSchedule | InvalidSuccession | SimulationError
+                | RuntimeException | AssertionError e) {
+            logger.warn("scenario {} ({}) failed", index, scenario.id, e);
+            return new ScenarioResult(scenario.id, index, null, e.toString());
+        }
+    }
+
+    private static SimulationResultChange[] simulate(Infra infra, Scenario scenario)
+            throws InvalidRollingStock, InvalidSchedule, InvalidSuccession, SimulationError {
+        // load train schedules
+        var rjsSimulation = new RJSSimulation(scenario.rollingStocks, scenario.trainSchedules);
+        var trainSchedules = RJSSimulationParser.parse(infra, rjsSimulation);
+
+        // load trains successions tables
+        var successions = new ArrayList<SuccessionTable>();
+        if (scenario.successions != null)
+            successions = RJSSuccessionsParser.parse(new RJSSuccessions(scenario.successions));
+
+        // the simulation creates its own infra state, which isn't shared with other scenarios
+        var changeConsumers = new ArrayList<ChangeConsumer>();
+        var multiplexer = new ChangeConsumerMultiplexer(changeConsumers);
+        var sim = Simulation.createFromInfraAndSuccessions(infra, successions, 0, multiplexer);
+        var resultLog = new SimulationEndpoint.ArrayResultLog(infra, sim);
+        multiplexer.add(resultLog);
+
+        for (var trainSchedule : trainSchedules)
+            TrainCreatedEvent.plan(sim, trainSchedule);
+        while (!sim.isSimulationOver())
+            sim.step();
+        return resultLog.getResults();
+    }
+}
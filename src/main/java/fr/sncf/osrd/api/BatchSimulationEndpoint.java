@@ -0,0 +1,163 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.Json;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import fr.sncf.osrd.api.BatchSimulation.Scenario;
+import fr.sncf.osrd.api.BatchSimulation.ScenarioResult;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.schema.common.ID;
+import fr.sncf.osrd.railjson.schema.rollingstock.RJSRollingResistance;
+import fr.sncf.osrd.railjson.schema.schedule.RJSAllowance;
+import fr.sncf.osrd.railjson.schema.schedule.RJSTrainPhase;
+import okio.Buffer;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqPrint;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>Simulates many independent scenarios on the same infrastructure, in parallel.</p>
+ * <p>The response is a JSON array of scenario results, which are sent in the order scenarios complete.</p>
+ */
+public class BatchSimulationEndpoint implements Take {
+    private final InfraHandler infraHandler;
+    private final ForkJoinPool pool;
+
+    public static final JsonAdapter<BatchSimulationRequest> adapterRequest = new Moshi
+            .Builder()
+            .add(ID.Adapter.FACTORY)
+            .add(RJSRollingResistance.adapter)
+            .add(RJSTrainPhase.adapter)
+            .add(RJSAllowance.adapter)
+            .build()
+            .adapter(BatchSimulationRequest.class);
+
+    /** Creates a batch simulation endpoint, which runs scenarios on the given pool */
+    public BatchSimulationEndpoint(InfraHandler infraHandler, ForkJoinPool pool) {
+        this.infraHandler = infraHandler;
+        this.pool = pool;
+    }
+
+    @Override
+    public Response act(Request req) throws IOException {
+        var body = new RqPrint(req).printBody();
+        var request = adapterRequest.fromJson(body);
+        if (request == null || request.scenarios == null)
+            return new RsWithStatus(new RsText("missing request body"), 400);
+
+        // the infrastructure is loaded once, and shared by all scenarios
+        Infra infra;
+        try {
+            infra = infraHandler.load(request.infra, request.infraVersion);
+        } catch (InvalidInfraException | IOException e) {
+            return new RsWithStatus(new RsText(
+                    String.format("Error loading infrastructure '%s'%n%s", request.infra, e.getMessage())), 400);
+        }
+
+        var resultStream = new ScenarioResultStream(request.scenarios.size());
+        resultStream.tasks = BatchSimulation.submit(pool, infra, request.scenarios, resultStream.results::add);
+        return SimulationResultStream.streamedJson(resultStream);
+    }
+
+    public static final class BatchSimulationRequest {
+        /** Infra id */
+        public final String infra;
+
+        /** The expected version of the infra, or null if any version will do */
+        @Json(name = "infra_version")
+        public String infraVersion = null;
+
+        /** The scenarios to simulate */
+        public final List<Scenario> scenarios;
+
+        public BatchSimulationRequest(String infra, List<Scenario> scenarios) {
+            this.infra = infra;
+            this.scenarios = scenarios;
+        }
+    }
+
+    /** Encodes scenario results to JSON as they complete. Closing the stream cancels scenarios which didn't start */
+    static final class ScenarioResultStream extends InputStream {
+        final LinkedBlockingQueue<ScenarioResult> results = new LinkedBlockingQueue<>();
+        List<ForkJoinTask<?>> tasks = List.of();
+        private final int scenarioCount;
+        private int sentCount = 0;
+        private final Buffer buffer = new Buffer();
+        private final JsonWriter writer = JsonWriter.of(buffer);
+        private boolean started = false;
+        private boolean done = false;
+
+        ScenarioResultStream(int scenarioCount) {
+            this.scenarioCount = scenarioCount;
+        }
+
+        /** Waits for the next scenario to complete, unless all scenarios were sent */
+        private void fill() throws IOException {
+            if (!started) {
+                writer.beginArray();
+                started = true;
+            }
+
+            while (buffer.size() == 0 && !done) {
+                if (sentCount == scenarioCount) {
+                    writer.endArray();
+                    writer.close();
+                    done = true;
+                    break;
+                }
+
+                ScenarioResult result;
+                try {
+                    result = results.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for scenario results", e);
+                }
+                BatchSimulation.adapterScenarioResult.toJson(writer, result);
+                writer.flush();
+                sentCount++;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            fill();
+            if (buffer.size() == 0)
+                return -1;
+            return buffer.readByte() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] dest, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+            fill();
+            return buffer.read(dest, offset, length);
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(buffer.size(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() {
+            for (var task : tasks)
+                task.cancel(false);
+            buffer.clear();
+            done = true;
+        }
+    }
+}
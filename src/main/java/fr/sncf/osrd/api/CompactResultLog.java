@@ -0,0 +1,186 @@
+package fr.sncf.osrd.api;
+
+import fr.sncf.osrd.api.SimulationEndpoint.SimulationResultChange;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.train.Train;
+import fr.sncf.osrd.train.TrainSchedule;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import okio.Buffer;
+import org.takes.Request;
+import org.takes.rq.RqHeaders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * <p>Encodes simulation results in a compact binary format, where train trajectories are stored
+ * as columns of delta encoded integers instead of one JSON object per position update.</p>
+ *
+ * <p>Head and tail locations aren't computed: the path of each train and the length of its rolling stock are sent
+ * instead, so that the client can find them. All integers are unsigned LEB128 variable length integers,
+ * and all signed values are zigzag encoded. Doubles are big endian IEEE 754 values.</p>
+ *
+ * <pre>
+ * {@code
+ * magic             "OSRDTRAJ"
+ * version           u8
+ * track sections    count, then for each: string
+ * trains            count, then for each:
+ *     name          string
+ *     length        double, the length of the rolling stock
+ *     path          count, then for each: track section index, direction (u8), begin (double), end (double)
+ *     updates       count, then the columns of:
+ *         time      signed delta from the previous update, in milliseconds
+ *         position  signed delta from the previous update, in millimeters along the path
+ *         speed     signed delta from the previous update, in millimeters per second
+ * other changes     the JSON encoded array of all non train location changes, as a string
+ * }
+ * </pre>
+ * <p>Strings are encoded as their UTF-8 byte count, followed by the bytes.</p>
+ */
+final class CompactResultLog extends SimulationEndpoint.ResultLog {
+    public static final String MEDIA_TYPE = "application/x-osrd-trajectory";
+    private static final byte[] MAGIC = "OSRDTRAJ".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+
+    private static final double TIME_RESOLUTION = 1000;
+    private static final double POSITION_RESOLUTION = 1000;
+    private static final double SPEED_RESOLUTION = 1000;
+
+    private final ArrayList<SimulationResultChange> otherChanges = new ArrayList<>();
+    private final LinkedHashMap<String, TrainTrajectory> trajectories = new LinkedHashMap<>();
+
+    CompactResultLog(Infra infra, Simulation sim) {
+        super(infra, sim);
+    }
+
+    /** Checks whether the client accepts the compact format */
+    static boolean isAccepted(Request req) throws IOException {
+        for (var accept : new RqHeaders.Base(req).header("Accept"))
+            if (accept.contains(MEDIA_TYPE))
+                return true;
+        return false;
+    }
+
+    @Override
+    protected void add(SimulationResultChange change) {
+        otherChanges.add(change);
+    }
+
+    @Override
+    protected void addTrainLocation(TrainSchedule trainSchedule, Train.TrainStateChange.SpeedUpdate update) {
+        var trajectory = trajectories.get(trainSchedule.trainID);
+        if (trajectory == null) {
+            trajectory = new TrainTrajectory(trainSchedule);
+            trajectories.put(trainSchedule.trainID, trajectory);
+        }
+        trajectory.add(update);
+    }
+
+    /** Encodes the results of the simulation */
+    byte[] encode() {
+        var out = new Buffer();
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+
+        // build the track section dictionary
+        var trackIndexes = new HashMap<String, Integer>();
+        var trackIds = new ArrayList<String>();
+        for (var trajectory : trajectories.values()) {
+            for (var range : trajectory.schedule.plannedPath.trackSectionPath) {
+                if (trackIndexes.containsKey(range.edge.id))
+                    continue;
+                trackIndexes.put(range.edge.id, trackIds.size());
+                trackIds.add(range.edge.id);
+            }
+        }
+        writeVarInt(out, trackIds.size());
+        for (var trackId : trackIds)
+            writeString(out, trackId);
+
+        writeVarInt(out, trajectories.size());
+        for (var trajectory : trajectories.values()) {
+            var schedule = trajectory.schedule;
+            writeString(out, schedule.trainID);
+            out.writeLong(Double.doubleToLongBits(schedule.rollingStock.length));
+
+            var path = schedule.plannedPath.trackSectionPath;
+            writeVarInt(out, path.size());
+            for (var range : path) {
+                writeVarInt(out, trackIndexes.get(range.edge.id));
+                out.writeByte(range.direction == EdgeDirection.START_TO_STOP ? 0 : 1);
+                out.writeLong(Double.doubleToLongBits(range.getBeginPosition()));
+                out.writeLong(Double.doubleToLongBits(range.getEndPosition()));
+            }
+
+            writeVarInt(out, trajectory.size);
+            writeDeltaColumn(out, trajectory.times, trajectory.size);
+            writeDeltaColumn(out, trajectory.positions, trajectory.size);
+            writeDeltaColumn(out, trajectory.speeds, trajectory.size);
+        }
+
+        Collections.sort(otherChanges);
+        var otherChangesArray = otherChanges.toArray(new SimulationResultChange[0]);
+        writeString(out, SimulationEndpoint.adapterResult.toJson(otherChangesArray));
+        return out.readByteArray();
+    }
+
+    private static void writeDeltaColumn(Buffer out, long[] column, int size) {
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            var delta = column[i] - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = column[i];
+        }
+    }
+
+    private static void writeString(Buffer out, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(Buffer out, int value) {
+        writeVarLong(out, Integer.toUnsignedLong(value));
+    }
+
+    private static void writeVarLong(Buffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /** The quantized position updates of a train, stored as columns */
+    private static final class TrainTrajectory {
+        final TrainSchedule schedule;
+        long[] times = new long[16];
+        long[] positions = new long[16];
+        long[] speeds = new long[16];
+        int size = 0;
+
+        TrainTrajectory(TrainSchedule schedule) {
+            this.schedule = schedule;
+        }
+
+        void add(Train.TrainStateChange.SpeedUpdate update) {
+            if (size == times.length) {
+                var newCapacity = size * 2;
+                times = Arrays.copyOf(times, newCapacity);
+                positions = Arrays.copyOf(positions, newCapacity);
+                speeds = Arrays.copyOf(speeds, newCapacity);
+            }
+            times[size] = Math.round(update.time * TIME_RESOLUTION);
+            positions[size] = Math.round(update.pathPosition * POSITION_RESOLUTION);
+            speeds[size] = Math.round(update.speed * SPEED_RESOLUTION);
+            size++;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.Json;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.infra.Infra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A bounded cache of loaded infrastructures, used by the {@link InfraHandler}.</p>
+ * <p>The cache has both an entry budget and a memory budget, which relies on an estimate of the
+ * memory retained by each infrastructure. When either budget is exceeded, loaded entries are
+ * evicted according to the configured policy. Entries which are still loading are never evicted.</p>
+ * <p>Each entry has its own {@link PathfindingCache}, which goes away when the entry is evicted or invalidated.</p>
+ * <p>All methods are short critical sections which never wait on a load.</p>
+ */
+public final class InfraCache {
+    static final Logger logger = LoggerFactory.getLogger(InfraCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024 * 1024;
+
+    // rough estimates of the memory retained by the building blocks of an infrastructure
+    private static final long INFRA_BASE_SIZE = 64 * 1024;
+    private static final long TRACK_SECTION_SIZE = 2048;
+    private static final long TRACK_NODE_SIZE = 256;
+    private static final long WAYPOINT_SIZE = 256;
+    private static final long TVD_SECTION_PATH_SIZE = 512;
+    private static final long ROUTE_SIZE = 1024;
+    private static final long SIGNAL_SIZE = 2048;
+
+    public enum EvictionPolicy {
+        /** Evict the least recently used infrastructure */
+        LRU,
+        /** Evict the least frequently used infrastructure */
+        LFU,
+    }
+
+    /** An infrastructure, along with the version the middleware gave it */
+    public static final class VersionedInfra {
+        public final Infra infra;
+        /** The version of the infrastructure, which is its normalized ETag, or null if there is none */
+        public final String version;
+
+        public VersionedInfra(Infra infra, String version) {
+            this.infra = infra;
+            this.version = version;
+        }
+    }
+
+    /** A cache slot, which may still be loading */
+    public static final class Entry {
+        public final String infraId;
+        final FutureTask<VersionedInfra> task;
+        final PathfindingCache pathfindingCache;
+        private Infra infra = null;
+        private boolean loaded = false;
+        private long estimatedSize = 0;
+        private long lastAccess = 0;
+        private long accessCount = 0;
+        /** The versions requests expected, which the middleware didn't serve when this entry was loaded */
+        private final HashSet<String> unservedVersions = new HashSet<>();
+
+        private Entry(String infraId, Callable<VersionedInfra> loader, PathfindingCache pathfindingCache) {
+            this.infraId = infraId;
+            this.task = new FutureTask<>(loader);
+            this.pathfindingCache = pathfindingCache;
+        }
+    }
+
+    /** The result of a lookup: the entry, and whether the caller is responsible for loading it */
+    public static final class Lookup {
+        public final Entry entry;
+        public final boolean mustLoad;
+
+        private Lookup(Entry entry, boolean mustLoad) {
+            this.entry = entry;
+            this.mustLoad = mustLoad;
+        }
+    }
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final EvictionPolicy policy;
+    private final int maxPathfindingEntries;
+    private long accessClock = 0;
+    private long usedBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final PathfindingCache.Metrics pathfindingMetrics = new PathfindingCache.Metrics();
+
+    /**
+     * Creates a new infrastructure cache
+     * @param maxPathfindingEntries how many pathfinding results and legs of each kind are cached per infra
+     */
+    public InfraCache(int maxEntries, long maxBytes, EvictionPolicy policy, int maxPathfindingEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("the infra cache must be able to hold at least one infra");
+        if (maxPathfindingEntries <= 0)
+            throw new IllegalArgumentException("the pathfinding cache must be able to hold at least one result");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.maxPathfindingEntries = maxPathfindingEntries;
+    }
+
+    /** Creates a new infrastructure cache */
+    public InfraCache(int maxEntries, long maxBytes, EvictionPolicy policy) {
+        this(maxEntries, maxBytes, policy, PathfindingCache.DEFAULT_MAX_ENTRIES);
+    }
+
+    public InfraCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, EvictionPolicy.LRU);
+    }
+
+    /** Finds the entry of an infrastructure, and creates it using the given loader if it's missing */
+    public synchronized Lookup lookup(String infraId, Callable<VersionedInfra> loader) {
+        var entry = entries.get(infraId);
+        var mustLoad = false;
+        if (entry == null) {
+            misses.incrementAndGet();
+            entry = new Entry(infraId, loader, new PathfindingCache(maxPathfindingEntries, pathfindingMetrics));
+            entries.put(infraId, entry);
+            mustLoad = true;
+        } else {
+            hits.incrementAndGet();
+        }
+        entry.lastAccess = ++accessClock;
+        entry.accessCount++;
+        return new Lookup(entry, mustLoad);
+    }
+
+    /** Records the size of a freshly loaded entry, and evicts other entries if the cache is over budget */
+    public synchronized void loaded(Entry entry, Infra infra) {
+        // the entry may have been invalidated while it was loading
+        if (entries.get(entry.infraId) != entry)
+            return;
+        entry.loaded = true;
+        entry.infra = infra;
+        entry.estimatedSize = estimateRetainedSize(infra);
+        usedBytes += entry.estimatedSize;
+        evict(entry);
+    }
+
+    /**
+     * Finds the pathfinding cache of an infrastructure
+     * @param infraId the identifier of the infrastructure
+     * @param infra the infrastructure the results are computed on
+     * @return the pathfinding cache, or null if this infrastructure isn't cached anymore
+     */
+    public synchronized PathfindingCache getPathfindingCache(String infraId, Infra infra) {
+        var entry = entries.get(infraId);
+        if (entry == null || entry.infra != infra)
+            return null;
+        return entry.pathfindingCache;
+    }
+
+    /** Records that the middleware served another version than some request expected when the entry was loaded */
+    public synchronized void addUnservedVersion(Entry entry, String expectedVersion) {
+        entry.unservedVersions.add(expectedVersion);
+    }
+
+    /** Checks whether the middleware was already asked for some version since the entry was loaded */
+    public synchronized boolean isUnservedVersion(Entry entry, String expectedVersion) {
+        return entry.unservedVersions.contains(expectedVersion);
+    }
+
+    /** Removes an entry from the cache, if it wasn't already replaced */
+    public synchronized void remove(Entry entry) {
+        if (!entries.remove(entry.infraId, entry))
+            return;
+        if (entry.loaded)
+            usedBytes -= entry.estimatedSize;
+    }
+
+    /** Removes an outdated entry from the cache */
+    public void invalidate(Entry entry) {
+        invalidations.incrementAndGet();
+        remove(entry);
+    }
+
+    /** Removes an infrastructure from the cache, if present */
+    public synchronized boolean invalidate(String infraId) {
+        var entry = entries.get(infraId);
+        if (entry == null)
+            return false;
+        invalidate(entry);
+        return true;
+    }
+
+    private void evict(Entry newEntry) {
+        while (entries.size() > maxEntries || usedBytes > maxBytes) {
+            Entry victim = null;
+            for (var entry : entries.values()) {
+                if (entry == newEntry || !entry.loaded)
+                    continue;
+                if (victim == null || isBetterVictim(entry, victim))
+                    victim = entry;
+            }
+
+            // only the new entry and loading entries remain
+            if (victim == null)
+                return;
+
+            logger.info("evicting infra {} (estimated size: {} bytes)", victim.infraId, victim.estimatedSize);
+            evictions.incrementAndGet();
+            remove(victim);
+        }
+    }
+
+    private boolean isBetterVictim(Entry candidate, Entry victim) {
+        if (policy == EvictionPolicy.LFU && candidate.accessCount != victim.accessCount)
+            return candidate.accessCount < victim.accessCount;
+        return candidate.lastAccess < victim.lastAccess;
+    }
+
+    /** Gives a rough estimate of the memory retained by an infrastructure, in bytes */
+    public static long estimateRetainedSize(Infra infra) {
+        var size = INFRA_BASE_SIZE;
+        size += infra.trackGraph.getEdgeCount() * TRACK_SECTION_SIZE;
+        size += infra.trackGraph.getNodeCount() * TRACK_NODE_SIZE;
+        size += infra.waypointGraph.getNodeCount() * WAYPOINT_SIZE;
+        size += infra.waypointGraph.getEdgeCount() * TVD_SECTION_PATH_SIZE;
+        size += infra.routeGraph.getEdgeCount() * ROUTE_SIZE;
+        size += infra.signals.size() * SIGNAL_SIZE;
+        return size;
+    }
+
+    /** Takes a snapshot of the cache metrics */
+    public synchronized Stats getStats() {
+        var cachedInfras = new ArrayList<String>(entries.keySet());
+        return new Stats(
+                hits.get(), misses.get(), evictions.get(), invalidations.get(), usedBytes, cachedInfras,
+                new PathfindingStats(pathfindingMetrics));
+    }
+
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long invalidations;
+        @Json(name = "estimated_bytes")
+        public final long estimatedBytes;
+        public final ArrayList<String> infras;
+        public final PathfindingStats pathfinding;
+
+        Stats(
+                long hits,
+                long misses,
+                long evictions,
+                long invalidations,
+                long estimatedBytes,
+                ArrayList<String> infras,
+                PathfindingStats pathfinding
+        ) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.estimatedBytes = estimatedBytes;
+            this.infras = infras;
+            this.pathfinding = pathfinding;
+        }
+    }
+
+    /** The metrics of the pathfinding caches of all infrastructures */
+    @SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
+    public static final class PathfindingStats {
+        @Json(name = "result_hits")
+        public final long resultHits;
+        @Json(name = "result_misses")
+        public final long resultMisses;
+        @Json(name = "result_hit_rate")
+        public final double resultHitRate;
+        @Json(name = "leg_hits")
+        public final long legHits;
+        @Json(name = "leg_misses")
+        public final long legMisses;
+        @Json(name = "leg_hit_rate")
+        public final double legHitRate;
+
+        PathfindingStats(PathfindingCache.Metrics metrics) {
+            resultHits = metrics.resultHits.get();
+            resultMisses = metrics.resultMisses.get();
+            resultHitRate = getHitRate(resultHits, resultMisses);
+            legHits = metrics.legHits.get();
+            legMisses = metrics.legMisses.get();
+            legHitRate = getHitRate(legHits, legMisses);
+        }
+
+        private static double getHitRate(long hits, long misses) {
+            if (hits + misses == 0)
+                return 0;
+            return (double) hits / (hits + misses);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsWithBody;
+
+/** Exposes the metrics of the infrastructure cache */
+public class InfraCacheEndpoint implements Take {
+    public static final JsonAdapter<InfraCache.Stats> adapterResult = new Moshi
+            .Builder()
+            .build()
+            .adapter(InfraCache.Stats.class);
+
+    private final InfraHandler infraHandler;
+
+    public InfraCacheEndpoint(InfraHandler infraHandler) {
+        this.infraHandler = infraHandler;
+    }
+
+    @Override
+    public Response act(Request req) {
+        var stats = infraHandler.getCache().getStats();
+        return new RsJson(new RsWithBody(adapterResult.toJson(stats)));
+    }
+}
@@ -1,27 +1,81 @@
 package fr.sncf.osrd.api;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.api.InfraCache.VersionedInfra;
 import fr.sncf.osrd.infra.Infra;
 import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.parser.RailJSONParser;
-import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
+/**
+ * <p>Loads infrastructures from the middleware, and caches them.</p>
+ * <p>This class is thread safe: when multiple requests need the same infrastructure at the same time,
+ * only the first one fetches and parses it, and the others wait for the result (single-flight).
+ * No monitor is held while waiting, so callers may run on virtual threads.</p>
+ * <p>Infrastructures are versioned using the ETag the middleware sends along the RailJSON, without its weakness
+ * indicator and quotes. When a request expects another version than the cached one, the cached infrastructure
+ * is reloaded once.</p>
+ * <p>When given an executor, the route graph of loaded infrastructures is preprocessed in the background,
+ * which makes later pathfinding requests faster.</p>
+ */
 public class InfraHandler {
-    private final HashMap<String, Infra> cache = new HashMap<>();
+    static final Logger logger = LoggerFactory.getLogger(InfraHandler.class);
+
+    private final InfraCache cache;
+    private final Executor preprocessingExecutor;
     private final OkHttpClient client = new OkHttpClient();
     private final String baseUrl;
     private final String authorizationToken;
 
-    public InfraHandler(String baseUrl, String authorizationToken) {
+    /**
+     * Creates an infra handler, which caches infrastructures in the given cache
+     * @param preprocessingExecutor where loaded infrastructures are preprocessed, or null to skip preprocessing
+     */
+    public InfraHandler(
+            String baseUrl,
+            String authorizationToken,
+            InfraCache cache,
+            Executor preprocessingExecutor
+    ) {
         this.baseUrl = baseUrl;
         this.authorizationToken = authorizationToken;
+        this.cache = cache;
+        this.preprocessingExecutor = preprocessingExecutor;
+    }
+
+    /** Creates an infra handler, which caches infrastructures in the given cache */
+    public InfraHandler(String baseUrl, String authorizationToken, InfraCache cache) {
+        this(baseUrl, authorizationToken, cache, null);
+    }
+
+    public InfraHandler(String baseUrl, String authorizationToken) {
+        this(baseUrl, authorizationToken, new InfraCache());
+    }
+
+    public InfraCache getCache() {
+        return cache;
     }
 
-    private Infra queryInfra(String infraId) throws IOException, InvalidInfraException {
+    /**
+     * Finds where the pathfinding results of a loaded infrastructure are cached
+     * @return the pathfinding cache, or null if the infrastructure isn't cached anymore
+     */
+    public PathfindingCache getPathfindingCache(String infraId, Infra infra) {
+        return cache.getPathfindingCache(infraId, infra);
+    }
+
+    @SuppressFBWarnings(
+            value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE",
+            justification = "that's a spotbugs bug :)"
+    )
+    private VersionedInfra queryInfra(String infraId) throws IOException, InvalidInfraException {
         // create a request
         var builder = new Request.Builder();
         if (authorizationToken != null)
@@ -29,29 +83,127 @@ public class InfraHandler {
         var request = builder.url(String.format("%sinfra/%s/railjson/", baseUrl, infraId)).build();
 
         // use the client to send the request
-        var response = client.newCall(request).execute();
-        if (!response.isSuccessful()) throw new IOException("Unexpected code " + response);
+        try (var response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) throw new IOException("Unexpected code " + response);
 
-        // Parse the response
-        var body = response.body();
-        assert body != null;
-        var rjsInfra = RJSInfra.adapter.fromJson(body.source());
-        if (rjsInfra == null)
-            throw new IOException("RJSInfra is null");
-        return RailJSONParser.parse(rjsInfra);
+            // Parse the response
+            var body = response.body();
+            assert body != null;
+            // build the infra while the body is being received
+            var infra = RailJSONParser.parse(body.source(), false);
+            return new VersionedInfra(infra, normalizeVersion(response.header("ETag")));
+        }
     }
 
     /** Load an infra given an id. Cache infra for optimized future call */
     public Infra load(String infraId) throws IOException, InvalidInfraException {
-        var cachedInfra = cache.get(infraId);
-        if (cachedInfra != null)
-            return cachedInfra;
+        return load(infraId, null);
+    }
+
+    /**
+     * Load an infra given an id and an expected version.
+     * If the cached infra has another version, it's reloaded from the middleware, once: when the middleware
+     * still serves another version, the reloaded infra is used, and later requests for the same version
+     * don't reload it again.
+     * @param infraId the identifier of the infrastructure
+     * @param expectedVersion the expected version of the infrastructure, or null if any version will do
+     */
+    public Infra load(String infraId, String expectedVersion) throws IOException, InvalidInfraException {
+        var lookup = cache.lookup(infraId, () -> queryInfra(infraId));
+        var versionedInfra = await(lookup);
+        expectedVersion = normalizeVersion(expectedVersion);
+        if (expectedVersion == null || expectedVersion.equals(versionedInfra.version))
+            return versionedInfra.infra;
+
+        // the middleware is the reference for which version is the latest
+        if (lookup.mustLoad) {
+            unservedVersion(lookup.entry, expectedVersion, versionedInfra.version);
+            return versionedInfra.infra;
+        }
+        if (cache.isUnservedVersion(lookup.entry, expectedVersion))
+            return versionedInfra.infra;
+
+        // the cached infra may be outdated, reload it
+        cache.invalidate(lookup.entry);
+        var reloadLookup = cache.lookup(infraId, () -> queryInfra(infraId));
+        var reloadedInfra = await(reloadLookup);
+        if (!expectedVersion.equals(reloadedInfra.version))
+            unservedVersion(reloadLookup.entry, expectedVersion, reloadedInfra.version);
+        return reloadedInfra.infra;
+    }
+
+    private void unservedVersion(InfraCache.Entry entry, String expectedVersion, String version) {
+        logger.warn("version {} of infra {} was expected, but the middleware served version {}",
+                expectedVersion, entry.infraId, version);
+        cache.addUnservedVersion(entry, expectedVersion);
+    }
+
+    /**
+     * Normalizes an ETag, so that versions can be compared
+     * @param etag an ETag, which may be weak or quoted, or null
+     * @return the opaque part of the ETag, or null
+     */
+    static String normalizeVersion(String etag) {
+        if (etag == null)
+            return null;
+        var version = etag.trim();
+        if (version.startsWith("W/"))
+            version = version.substring(2);
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\""))
+            version = version.substring(1, version.length() - 1);
+        return version;
+    }
+
+    /**
+     * Builds the distance estimators of the graphs and the contraction hierarchy of the route graph
+     * in the background, so that pathfinding requests don't have to wait for them
+     */
+    private void preprocess(String infraId, Infra infra) {
+        if (preprocessingExecutor == null)
+            return;
+        preprocessingExecutor.execute(() -> {
+            try {
+                var startTime = System.nanoTime();
+                infra.trackGraph.getDistanceEstimator();
+                infra.routeGraph.getDistanceEstimator();
+                var contractionHierarchy = infra.routeGraph.buildContractionHierarchy();
+                logger.info("preprocessed the route graph of infra {} in {} ms ({} shortcuts)",
+                        infraId, (System.nanoTime() - startTime) / 1_000_000, contractionHierarchy.getShortcutCount());
+            } catch (RuntimeException e) {
+                // pathfinding still works without preprocessing, only slower
+                logger.error("failed to preprocess the route graph of infra {}", infraId, e);
+            }
+        });
+    }
+
+    private VersionedInfra await(InfraCache.Lookup lookup) throws IOException, InvalidInfraException {
+        var entry = lookup.entry;
 
-        // Query infra
-        var infra = queryInfra(infraId);
+        // if no other thread is loading this infra, load it from this one
+        if (lookup.mustLoad)
+            entry.task.run();
 
-        // Cache the infra
-        cache.put(infraId, infra);
-        return infra;
+        try {
+            var versionedInfra = entry.task.get();
+            if (lookup.mustLoad) {
+                cache.loaded(entry, versionedInfra.infra);
+                preprocess(entry.infraId, versionedInfra.infra);
+            }
+            return versionedInfra;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the infrastructure", e);
+        } catch (ExecutionException e) {
+            // failed loads aren't cached, so that the next request can try again
+            cache.remove(entry);
+            var cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof InvalidInfraException)
+                throw (InvalidInfraException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        }
     }
 }
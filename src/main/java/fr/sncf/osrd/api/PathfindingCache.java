@@ -0,0 +1,150 @@
+package fr.sncf.osrd.api;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.infra.routegraph.Route;
+import fr.sncf.osrd.infra.trackgraph.TrackSection;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import fr.sncf.osrd.utils.graph.path.BasicDirPathNode;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A bounded cache of pathfinding results for a single infrastructure, which belongs to its {@link InfraCache}
+ * entry, and is thus dropped along with it.</p>
+ * <p>Whole responses are cached by their normalized waypoints, as well as the legs between consecutive
+ * waypoints, so that requests which share some legs don't search for them again.
+ * Each kind of result is evicted on its own, least recently used first.</p>
+ */
+public final class PathfindingCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /** Hit and miss counters, shared by the pathfinding caches of all infrastructures */
+    public static final class Metrics {
+        final AtomicLong resultHits = new AtomicLong();
+        final AtomicLong resultMisses = new AtomicLong();
+        final AtomicLong legHits = new AtomicLong();
+        final AtomicLong legMisses = new AtomicLong();
+    }
+
+    /** A map which evicts its least recently used entries once it's full */
+    private static final class LRUMap<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        LRUMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    private final Metrics metrics;
+    private final LRUMap<String> results;
+    private final LRUMap<BasicPathNode<Route>> routeLegs;
+    private final LRUMap<BasicDirPathNode<TrackSection>> trackLegs;
+
+    /** Creates a pathfinding cache, which holds up to the given number of results and legs of each kind */
+    public PathfindingCache(int maxEntries, Metrics metrics) {
+        this.metrics = metrics;
+        this.results = new LRUMap<>(maxEntries);
+        this.routeLegs = new LRUMap<>(maxEntries);
+        this.trackLegs = new LRUMap<>(maxEntries);
+    }
+
+    private static <V> V get(LRUMap<V> map, String key, AtomicLong hits, AtomicLong misses) {
+        V res;
+        synchronized (map) {
+            res = map.get(key);
+        }
+        if (res == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return res;
+    }
+
+    private static <V> void put(LRUMap<V> map, String key, V value) {
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+
+    /** Gets the response body of a request, given its key */
+    public String getResult(String key) {
+        return get(results, key, metrics.resultHits, metrics.resultMisses);
+    }
+
+    public void putResult(String key, String body) {
+        put(results, key, body);
+    }
+
+    /** Gets the end of the shortest path between routes, given the key of the leg */
+    public BasicPathNode<Route> getRouteLeg(String key) {
+        return get(routeLegs, key, metrics.legHits, metrics.legMisses);
+    }
+
+    public void putRouteLeg(String key, BasicPathNode<Route> pathToGoal) {
+        put(routeLegs, key, pathToGoal);
+    }
+
+    /** Gets the end of the shortest path between track sections, given the key of the leg */
+    public BasicDirPathNode<TrackSection> getTrackLeg(String key) {
+        return get(trackLegs, key, metrics.legHits, metrics.legMisses);
+    }
+
+    public void putTrackLeg(String key, BasicDirPathNode<TrackSection> pathToGoal) {
+        put(trackLegs, key, pathToGoal);
+    }
+
+    // region KEYS
+
+    private static String locationKey(String trackSection, double offset, EdgeDirection direction) {
+        return trackSection + ':' + offset + ':' + direction;
+    }
+
+    /** Gets the key of a set of alternative waypoints, which doesn't depend on their order */
+    public static String waypointsKey(PathfindingEndpoint.PathfindingWaypoint[] waypoints) {
+        var locations = new String[waypoints.length];
+        for (int i = 0; i < waypoints.length; i++) {
+            var waypoint = waypoints[i];
+            locations[i] = locationKey(waypoint.trackSection, waypoint.offset, waypoint.direction);
+        }
+        Arrays.sort(locations);
+        return String.join(",", locations);
+    }
+
+    /** Gets the key of a whole pathfinding request, given the kind of pathfinding */
+    public static String requestKey(String kind, PathfindingEndpoint.PathfindingWaypoint[][] waypoints) {
+        var res = new StringBuilder(kind);
+        for (var stopWaypoints : waypoints)
+            res.append('|').append(waypointsKey(stopWaypoints));
+        return res.toString();
+    }
+
+    /** Gets the key of the point a leg starts from, when it's where the previous leg ended */
+    @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
+    public static String pathEndKey(BasicPathNode<Route> pathToGoal) {
+        return "@" + pathToGoal.edge.id + ':' + pathToGoal.position;
+    }
+
+    /** Gets the key of the point a leg starts from, when it's where the previous leg ended */
+    @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
+    public static String pathEndKey(BasicDirPathNode<TrackSection> pathToGoal) {
+        return "@" + locationKey(pathToGoal.edge.id, pathToGoal.position, pathToGoal.direction);
+    }
+
+    /** Gets the key of a leg, given the key of where it starts from, and the waypoints it goes to */
+    public static String legKey(String startKey, PathfindingEndpoint.PathfindingWaypoint[] destinationWaypoints) {
+        return startKey + "->" + waypointsKey(destinationWaypoints);
+    }
+
+    // endregion
+}
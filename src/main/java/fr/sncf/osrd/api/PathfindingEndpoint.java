@@ -42,9 +42,19 @@ public abstract class PathfindingEndpoint implements Take {
         public final PathfindingWaypoint[][] waypoints;
         public final String infra;
 
-        public PathfindingRequest(PathfindingWaypoint[][] waypoints, String infra) {
+        /** The expected version of the infra, or null if any version will do */
+        @Json(name = "infra_version")
+        public final String infraVersion;
+
+        /** Creates a pathfinding request */
+        public PathfindingRequest(PathfindingWaypoint[][] waypoints, String infra, String infraVersion) {
             this.waypoints = waypoints;
             this.infra = infra;
+            this.infraVersion = infraVersion;
+        }
+
+        public PathfindingRequest(PathfindingWaypoint[][] waypoints, String infra) {
+            this(waypoints, infra, null);
         }
     }
 
@@ -0,0 +1,194 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.Json;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.infra.routegraph.Route;
+import fr.sncf.osrd.infra.routegraph.RouteLocation;
+import fr.sncf.osrd.utils.graph.Dijkstra;
+import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+import fr.sncf.osrd.utils.graph.path.FullPathArray;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.rq.RqPrint;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsText;
+import org.takes.rs.RsWithBody;
+import org.takes.rs.RsWithStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>Computes the length of the shortest path between each source and each target, using routes.</p>
+ * <p>Each source explores the route graph once, until all targets are reached. Sources run in parallel.</p>
+ */
+public class PathfindingMatrixEndpoint extends PathfindingEndpoint {
+    public static final JsonAdapter<MatrixRequest> adapterRequest = new Moshi
+            .Builder()
+            .build()
+            .adapter(MatrixRequest.class)
+            .failOnUnknown();
+
+    public static final JsonAdapter<MatrixResult> adapterResult = new Moshi
+            .Builder()
+            .build()
+            .adapter(MatrixResult.class)
+            .failOnUnknown();
+
+    private final ForkJoinPool pool;
+
+    /** Creates a distance matrix endpoint, which explores the graph from each source on the given pool */
+    public PathfindingMatrixEndpoint(InfraHandler infraHandler, ForkJoinPool pool) {
+        super(infraHandler);
+        this.pool = pool;
+    }
+
+    @Override
+    public Response act(Request req) throws IOException {
+        var body = new RqPrint(req).printBody();
+        var request = adapterRequest.fromJson(body);
+        if (request == null || request.sources == null || request.targets == null)
+            return new RsWithStatus(new RsText("missing request body"), 400);
+
+        // load infra
+        Infra infra;
+        try {
+            infra = infraHandler.load(request.infra, request.infraVersion);
+        } catch (InvalidInfraException | IOException e) {
+            return new RsWithStatus(new RsText(
+                    String.format("Error loading infrastructure '%s'%n%s", request.infra, e.getMessage())), 400);
+        }
+
+        // parse the sources and targets
+        var sources = new ArrayList<List<BasicPathNode<Route>>>();
+        for (var sourceWaypoints : request.sources) {
+            var locations = new ArrayList<RouteLocation>();
+            for (var waypoint : sourceWaypoints) {
+                var error = PathfindingRoutesEndpoint.findRouteLocations(infra, waypoint, locations);
+                if (error != null)
+                    return new RsWithStatus(new RsText(error), 400);
+            }
+            var startingPoints = new ArrayList<BasicPathNode<Route>>();
+            for (var location : locations)
+                startingPoints.add(new BasicPathNode<>(location.route, location.offset));
+            sources.add(startingPoints);
+        }
+
+        // each target may be on several routes, each of which is a goal of the search
+        var goalTargets = new ArrayList<Integer>();
+        var goalLocations = new ArrayList<RouteLocation>();
+        for (int j = 0; j < request.targets.length; j++) {
+            for (var waypoint : request.targets[j]) {
+                var error = PathfindingRoutesEndpoint.findRouteLocations(infra, waypoint, goalLocations);
+                if (error != null)
+                    return new RsWithStatus(new RsText(error), 400);
+                while (goalTargets.size() < goalLocations.size())
+                    goalTargets.add(j);
+            }
+        }
+        var goals = new int[goalLocations.size()];
+        var goalCheckers = new ArrayList<Dijkstra.GoalChecker<Route>>();
+        var costFunction = new DistCostFunction<Route>();
+        for (int k = 0; k < goals.length; k++) {
+            var goal = goalLocations.get(k);
+            goals[k] = DistanceEstimator.getGoalID(goal.route, EdgeDirection.START_TO_STOP);
+            goalCheckers.add((pathNode) -> {
+                if (pathNode.edge != goal.route || pathNode.position > goal.offset)
+                    return null;
+                var addedCost = costFunction.evaluate(goal.route, pathNode.position, goal.offset);
+                return pathNode.end(addedCost, goal.route, goal.offset);
+            });
+        }
+
+        // explore the graph from each source in parallel
+        var result = new MatrixResult(sources.size(), request.targets.length, request.withRoutes);
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int i = 0; i < sources.size(); i++) {
+            var sourceIndex = i;
+            var startingPoints = sources.get(i);
+            tasks.add(pool.submit(() -> {
+                var paths = Dijkstra.findPathsToEach(infra.routeGraph, startingPoints, goals, goalCheckers);
+                for (int k = 0; k < goals.length; k++)
+                    result.add(sourceIndex, goalTargets.get(k), paths.get(k));
+            }));
+        }
+        for (var task : tasks)
+            task.join();
+        return new RsJson(new RsWithBody(adapterResult.toJson(result)));
+    }
+
+    public static final class MatrixRequest {
+        /** The points paths start from, each of which is a list of alternative waypoints */
+        public final PathfindingWaypoint[][] sources;
+        /** The points paths go to, each of which is a list of alternative waypoints */
+        public final PathfindingWaypoint[][] targets;
+        public final String infra;
+
+        /** The expected version of the infra, or null if any version will do */
+        @Json(name = "infra_version")
+        public final String infraVersion;
+
+        /** Whether the routes of each path are part of the result */
+        @Json(name = "with_routes")
+        public final boolean withRoutes;
+
+        /** Creates a distance matrix request */
+        public MatrixRequest(
+                PathfindingWaypoint[][] sources,
+                PathfindingWaypoint[][] targets,
+                String infra,
+                String infraVersion,
+                boolean withRoutes
+        ) {
+            this.sources = sources;
+            this.targets = targets;
+            this.infra = infra;
+            this.infraVersion = infraVersion;
+            this.withRoutes = withRoutes;
+        }
+    }
+
+    @SuppressFBWarnings({"URF_UNREAD_FIELD", "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
+    public static final class MatrixResult {
+        /** The length of the shortest path from each source to each target, or -1 if there's none */
+        public final double[][] distances;
+        /** The identifiers of the routes of each shortest path, or null if they weren't requested */
+        public final String[][][] routes;
+
+        MatrixResult(int sourceCount, int targetCount, boolean withRoutes) {
+            distances = new double[sourceCount][targetCount];
+            for (var row : distances)
+                Arrays.fill(row, -1);
+            routes = withRoutes ? new String[sourceCount][targetCount][] : null;
+        }
+
+        /** Records a path from a source to a target, if it's shorter than the current one */
+        @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
+        void add(int source, int target, BasicPathNode<Route> path) {
+            if (path == null)
+                return;
+            var distance = distances[source][target];
+            if (distance != -1 && distance <= path.cost)
+                return;
+            distances[source][target] = path.cost;
+            if (routes == null)
+                return;
+            var pathRoutes = new ArrayList<String>();
+            for (var node : FullPathArray.from(path).pathNodes)
+                if (pathRoutes.isEmpty() || !pathRoutes.get(pathRoutes.size() - 1).equals(node.edge.id))
+                    pathRoutes.add(node.edge.id);
+            routes[source][target] = pathRoutes.toArray(new String[0]);
+        }
+    }
+}
@@ -13,8 +13,10 @@ import fr.sncf.osrd.infra.trackgraph.TrackSection;
 import fr.sncf.osrd.train.TrackSectionRange;
 import fr.sncf.osrd.utils.PointValue;
 import fr.sncf.osrd.utils.TrackSectionLocation;
+import fr.sncf.osrd.utils.graph.ContractionHierarchy;
 import fr.sncf.osrd.utils.graph.Dijkstra;
 import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import fr.sncf.osrd.utils.graph.path.BasicPathNode;
 import fr.sncf.osrd.utils.graph.path.FullPathArray;
@@ -57,82 +59,58 @@ public class PathfindingRoutesEndpoint extends PathfindingEndpoint {
         // load infra
         Infra infra;
         try {
-            infra = infraHandler.load(request.infra);
+            infra = infraHandler.load(request.infra, request.infraVersion);
         } catch (InvalidInfraException | IOException e) {
             return new RsWithStatus(new RsText(
                     String.format("Error loading infrastructure '%s'%n%s", request.infra, e.getMessage())), 400);
         }
 
+        // identical requests are frequent, and get the same response as long as the infra doesn't change
+        var pathfindingCache = infraHandler.getPathfindingCache(request.infra, infra);
+        var requestKey = PathfindingCache.requestKey("routes", reqWaypoints);
+        if (pathfindingCache != null) {
+            var cachedResult = pathfindingCache.getResult(requestKey);
+            if (cachedResult != null)
+                return new RsJson(new RsWithBody(cachedResult));
+        }
+
         // parse the waypoints
         var waypoints = (ArrayList<RouteLocation>[]) new ArrayList[reqWaypoints.length];
         for (int i = 0; i < waypoints.length; i++) {
             var stopWaypoints = new ArrayList<RouteLocation>();
             for (var stopWaypoint : reqWaypoints[i]) {
-                var edge = infra.trackGraph.trackSectionMap.get(stopWaypoint.trackSection);
-                if (edge == null)
-                    return new RsWithStatus(new RsText(
-                            String.format("Couldn't find track section '%s'", stopWaypoint.trackSection)), 400);
-                if (stopWaypoint.offset < 0 || stopWaypoint.offset > edge.length)
-                    return new RsWithStatus(new RsText(String.format(
-                            "'%f' is an invalid offset for the track section '%s'",
-                            stopWaypoint.offset,
-                            stopWaypoint.trackSection)),
-                            400);
-                edge.getRoutes(stopWaypoint.direction).findOverlappingIntervals(
-                        routeFragment -> {
-                            var trackOffset = stopWaypoint.offset - routeFragment.begin;
-                            if (routeFragment.direction == EdgeDirection.STOP_TO_START)
-                                trackOffset = routeFragment.end - stopWaypoint.offset;
-                            var offset = routeFragment.routeOffset + trackOffset;
-                            stopWaypoints.add(new RouteLocation(routeFragment.route, offset));
-                        },
-                        stopWaypoint.offset,
-                        stopWaypoint.offset
-                );
+                var error = findRouteLocations(infra, stopWaypoint, stopWaypoints);
+                if (error != null)
+                    return new RsWithStatus(new RsText(error), 400);
             }
             waypoints[i] = stopWaypoints;
         }
 
-        var costFunction = new DistCostFunction<Route>();
-        var candidatePaths = Dijkstra.<Route>makePriorityQueue();
+        var startingPoints = new ArrayList<BasicPathNode<Route>>();
         for (var startWaypoint : waypoints[0])
-            candidatePaths.add(new BasicPathNode<>(startWaypoint.route, startWaypoint.offset));
+            startingPoints.add(new BasicPathNode<>(startWaypoint.route, startWaypoint.offset));
 
         var pathsToGoal = new ArrayList<BasicPathNode<Route>>();
 
         // Compute the paths from the entry waypoint to the exit waypoint
+        var legStartKey = PathfindingCache.waypointsKey(reqWaypoints[0]);
         for (int i = 1; i < waypoints.length; i++) {
-            var destinationWaypoints = waypoints[i];
-
-            var found = Dijkstra.findPaths(
-                    infra.routeGraph,
-                    candidatePaths,
-                    costFunction,
-                    (pathNode) -> {
-                        for (var goalEdge : destinationWaypoints) {
-                            if (goalEdge.route != pathNode.edge)
-                                continue;
-                            var addedCost = costFunction.evaluate(
-                                    goalEdge.route,
-                                    pathNode.position,
-                                    goalEdge.route.length
-                            );
-                            return pathNode.end(addedCost, goalEdge.route, goalEdge.offset);
-                        }
-                        return null;
-                    },
-                    (pathToGoal) -> {
-                        pathsToGoal.add(pathToGoal);
-                        return false;
-                    });
-
-            if (found == 0)
-                return new RsWithStatus(new RsText("No path could be found"), 400);
-
-            candidatePaths.clear();
-            var lastStop = pathsToGoal.get(pathsToGoal.size() - 1);
-            var newCandidate = new BasicPathNode<>(lastStop.edge, lastStop.position);
-            candidatePaths.add(newCandidate);
+            // legs are cached on their own, as requests often share some of them
+            var legKey = PathfindingCache.legKey(legStartKey, reqWaypoints[i]);
+            var pathToGoal = pathfindingCache == null ? null : pathfindingCache.getRouteLeg(legKey);
+            if (pathToGoal == null) {
+                pathToGoal = findPath(infra, startingPoints, waypoints[i]);
+                if (pathToGoal == null)
+                    return new RsWithStatus(new RsText("No path could be found"), 400);
+                if (pathfindingCache != null)
+                    pathfindingCache.putRouteLeg(legKey, pathToGoal);
+            }
+            pathsToGoal.add(pathToGoal);
+            legStartKey = PathfindingCache.pathEndKey(pathToGoal);
+
+            startingPoints.clear();
+            var newCandidate = new BasicPathNode<>(pathToGoal.edge, pathToGoal.position);
+            startingPoints.add(newCandidate);
         }
 
         var res = new PathfindingResult();
@@ -176,7 +154,82 @@ public class PathfindingRoutesEndpoint extends PathfindingEndpoint {
                 }
             }
         }
-        return new RsJson(new RsWithBody(adapterResult.toJson(res)));
+        var result = adapterResult.toJson(res);
+        if (pathfindingCache != null)
+            pathfindingCache.putResult(requestKey, result);
+        return new RsJson(new RsWithBody(result));
+    }
+
+    /**
+     * Finds the locations on routes of a waypoint
+     * @param res where the locations of the waypoint are added
+     * @return an error message if the waypoint isn't on the infrastructure, or null
+     */
+    static String findRouteLocations(Infra infra, PathfindingWaypoint waypoint, List<RouteLocation> res) {
+        var edge = infra.trackGraph.trackSectionMap.get(waypoint.trackSection);
+        if (edge == null)
+            return String.format("Couldn't find track section '%s'", waypoint.trackSection);
+        if (waypoint.offset < 0 || waypoint.offset > edge.length)
+            return String.format(
+                    "'%f' is an invalid offset for the track section '%s'",
+                    waypoint.offset,
+                    waypoint.trackSection);
+        edge.getRoutes(waypoint.direction).findOverlappingIntervals(
+                routeFragment -> {
+                    var trackOffset = waypoint.offset - routeFragment.begin;
+                    if (routeFragment.direction == EdgeDirection.STOP_TO_START)
+                        trackOffset = routeFragment.end - waypoint.offset;
+                    var offset = routeFragment.routeOffset + trackOffset;
+                    res.add(new RouteLocation(routeFragment.route, offset));
+                },
+                waypoint.offset,
+                waypoint.offset
+        );
+        return null;
+    }
+
+    /**
+     * Finds the shortest path from the starting points to one of the destination waypoints.
+     * The contraction hierarchy of the route graph is used once it's built, and A* otherwise.
+     * @return the end node of the path, or null if no path could be found
+     */
+    private static BasicPathNode<Route> findPath(
+            Infra infra,
+            List<BasicPathNode<Route>> startingPoints,
+            List<RouteLocation> destinationWaypoints
+    ) {
+        // as with A* below, reaching a destination costs the length of its whole route
+        var contractionHierarchy = infra.routeGraph.getContractionHierarchy();
+        if (contractionHierarchy != null) {
+            var goals = new ArrayList<ContractionHierarchy.Goal<Route>>();
+            for (var goalEdge : destinationWaypoints)
+                goals.add(new ContractionHierarchy.Goal<>(goalEdge.route, goalEdge.offset, goalEdge.route.length));
+            return contractionHierarchy.findPath(startingPoints, goals);
+        }
+
+        // explore the graph towards the destination, using A*
+        var costFunction = new DistCostFunction<Route>();
+        var goals = new int[destinationWaypoints.size()];
+        for (int j = 0; j < goals.length; j++)
+            goals[j] = DistanceEstimator.getGoalID(destinationWaypoints.get(j).route, EdgeDirection.START_TO_STOP);
+        return Dijkstra.findPath(
+                infra.routeGraph,
+                startingPoints,
+                infra.routeGraph.getDistanceEstimator().towards(goals),
+                goals,
+                (pathNode) -> {
+                    for (var goalEdge : destinationWaypoints) {
+                        if (goalEdge.route != pathNode.edge)
+                            continue;
+                        var addedCost = costFunction.evaluate(
+                                goalEdge.route,
+                                pathNode.position,
+                                goalEdge.route.length
+                        );
+                        return pathNode.end(addedCost, goalEdge.route, goalEdge.offset);
+                    }
+                    return null;
+                });
     }
 
     @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
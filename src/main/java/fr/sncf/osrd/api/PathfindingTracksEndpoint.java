@@ -8,6 +8,7 @@ import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.infra.trackgraph.TrackSection;
 import fr.sncf.osrd.utils.graph.BiDijkstra;
 import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import fr.sncf.osrd.utils.graph.path.BasicDirPathNode;
 import fr.sncf.osrd.utils.graph.path.FullPathArray;
@@ -21,6 +22,7 @@ import org.takes.rs.RsWithStatus;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class PathfindingTracksEndpoint extends PathfindingEndpoint {
     public static final JsonAdapter<TrackSectionRangeResult[][]> adapterResult = new Moshi
@@ -47,12 +49,21 @@ public class PathfindingTracksEndpoint extends PathfindingEndpoint {
         // load infra
         Infra infra;
         try {
-            infra = infraHandler.load(request.infra);
+            infra = infraHandler.load(request.infra, request.infraVersion);
         } catch (InvalidInfraException | IOException e) {
             return new RsWithStatus(new RsText(
                     String.format("Error loading infrastructure '%s'%n%s", request.infra, e.getMessage())), 400);
         }
 
+        // identical requests are frequent, and get the same response as long as the infra doesn't change
+        var pathfindingCache = infraHandler.getPathfindingCache(request.infra, infra);
+        var requestKey = PathfindingCache.requestKey("tracks", reqWaypoints);
+        if (pathfindingCache != null) {
+            var cachedResult = pathfindingCache.getResult(requestKey);
+            if (cachedResult != null)
+                return new RsJson(new RsWithBody(cachedResult));
+        }
+
         // parse the waypoints
         @SuppressWarnings({"unchecked", "rawtypes"})
         var waypoints = (ArrayList<BasicDirPathNode<TrackSection>>[]) new ArrayList[reqWaypoints.length];
@@ -74,45 +85,29 @@ public class PathfindingTracksEndpoint extends PathfindingEndpoint {
             waypoints[i] = stopWaypoints;
         }
 
-        var costFunction = new DistCostFunction<TrackSection>();
-        var candidatePaths = BiDijkstra.<TrackSection>makePriorityQueue();
-        candidatePaths.addAll(waypoints[0]);
+        var startingPoints = new ArrayList<>(waypoints[0]);
 
         var pathsToGoal = new ArrayList<BasicDirPathNode<TrackSection>>();
 
         // Compute the paths from the entry waypoint to the exit waypoint
+        var legStartKey = PathfindingCache.waypointsKey(reqWaypoints[0]);
         for (int i = 1; i < waypoints.length; i++) {
-            var destinationWaypoints = waypoints[i];
-
-            var found = BiDijkstra.findPaths(
-                    infra.trackGraph,
-                    candidatePaths,
-                    costFunction,
-                    (pathNode) -> {
-                        for (var goalEdge : destinationWaypoints) {
-                            if (goalEdge.edge != pathNode.edge)
-                                continue;
-                            var addedCost = costFunction.evaluate(
-                                    goalEdge.edge,
-                                    pathNode.position,
-                                    goalEdge.edge.length
-                            );
-                            return pathNode.end(addedCost, goalEdge.edge, goalEdge.position, goalEdge.direction);
-                        }
-                        return null;
-                    },
-                    (pathToGoal) -> {
-                        pathsToGoal.add(pathToGoal);
-                        return false;
-                    });
-
-            if (found == 0)
-                return new RsWithStatus(new RsText("No path could be found"), 400);
-
-            candidatePaths.clear();
-            var lastStop = pathsToGoal.get(pathsToGoal.size() - 1);
-            var newCandidate = new BasicDirPathNode<>(lastStop.edge, lastStop.position, lastStop.direction);
-            candidatePaths.add(newCandidate);
+            // legs are cached on their own, as requests often share some of them
+            var legKey = PathfindingCache.legKey(legStartKey, reqWaypoints[i]);
+            var pathToGoal = pathfindingCache == null ? null : pathfindingCache.getTrackLeg(legKey);
+            if (pathToGoal == null) {
+                pathToGoal = findPath(infra, startingPoints, waypoints[i]);
+                if (pathToGoal == null)
+                    return new RsWithStatus(new RsText("No path could be found"), 400);
+                if (pathfindingCache != null)
+                    pathfindingCache.putTrackLeg(legKey, pathToGoal);
+            }
+            pathsToGoal.add(pathToGoal);
+            legStartKey = PathfindingCache.pathEndKey(pathToGoal);
+
+            startingPoints.clear();
+            var newCandidate = new BasicDirPathNode<>(pathToGoal.edge, pathToGoal.position, pathToGoal.direction);
+            startingPoints.add(newCandidate);
         }
 
         var result = new TrackSectionRangeResult[reqWaypoints.length - 1][];
@@ -121,7 +116,47 @@ public class PathfindingTracksEndpoint extends PathfindingEndpoint {
             var path = FullPathArray.from(pathsToGoal.get(i));
             result[i] = fullPathToTrackSectionRange(path);
         }
-        return new RsJson(new RsWithBody(adapterResult.toJson(result)));
+        var resultBody = adapterResult.toJson(result);
+        if (pathfindingCache != null)
+            pathfindingCache.putResult(requestKey, resultBody);
+        return new RsJson(new RsWithBody(resultBody));
+    }
+
+    /**
+     * Finds the shortest path from the starting points to one of the destination waypoints, using A*.
+     * Destinations are reached when going through their track section in any direction.
+     * @return the end node of the path, or null if no path could be found
+     */
+    private static BasicDirPathNode<TrackSection> findPath(
+            Infra infra,
+            List<BasicDirPathNode<TrackSection>> startingPoints,
+            List<BasicDirPathNode<TrackSection>> destinationWaypoints
+    ) {
+        var costFunction = new DistCostFunction<TrackSection>();
+        var goals = new int[destinationWaypoints.size() * 2];
+        for (int j = 0; j < destinationWaypoints.size(); j++) {
+            var destination = destinationWaypoints.get(j);
+            goals[2 * j] = DistanceEstimator.getGoalID(destination.edge, EdgeDirection.START_TO_STOP);
+            goals[2 * j + 1] = DistanceEstimator.getGoalID(destination.edge, EdgeDirection.STOP_TO_START);
+        }
+        return BiDijkstra.findPath(
+                infra.trackGraph,
+                startingPoints,
+                infra.trackGraph.getDistanceEstimator().towards(goals),
+                goals,
+                (pathNode) -> {
+                    for (var goalEdge : destinationWaypoints) {
+                        if (goalEdge.edge != pathNode.edge)
+                            continue;
+                        var addedCost = costFunction.evaluate(
+                                goalEdge.edge,
+                                pathNode.position,
+                                goalEdge.edge.length
+                        );
+                        return pathNode.end(addedCost, goalEdge.edge, goalEdge.position, goalEdge.direction);
+                    }
+                    return null;
+                });
     }
 
     @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
@@ -38,11 +38,13 @@ import fr.sncf.osrd.train.events.TrainCreatedEvent;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
+import org.takes.rq.RqHref;
 import org.takes.rq.RqPrint;
 import org.takes.rs.RsJson;
 import org.takes.rs.RsText;
 import org.takes.rs.RsWithBody;
 import org.takes.rs.RsWithStatus;
+import org.takes.rs.RsWithType;
 
 import java.io.IOException;
 import java.util.*;
@@ -65,11 +67,21 @@ public class SimulationEndpoint implements Take {
             .build()
             .adapter(SimulationResultChange[].class);
 
+    public static final JsonAdapter<SimulationResultChange> adapterResultChange = new Moshi
+            .Builder()
+            .add(SimulationResultChange.adapter)
+            .build()
+            .adapter(SimulationResultChange.class);
+
     public SimulationEndpoint(InfraHandler infraHandler) {
         this.infraHandler = infraHandler;
     }
 
     @Override
+    @SuppressFBWarnings(
+            value = "OS_OPEN_STREAM",
+            justification = "streamed response bodies are closed by the server once sent"
+    )
     public Response act(Request req) throws
             IOException,
             InvalidRollingStock,
@@ -82,10 +94,16 @@ public class SimulationEndpoint implements Take {
         if (request == null)
             return new RsWithStatus(new RsText("missing request body"), 400);
 
+        // the compact format is encoded once the simulation is over, and thus can't be streamed
+        var isCompact = CompactResultLog.isAccepted(req);
+        var isStreamed = isStreamingRequested(req);
+        if (isCompact && isStreamed)
+            return new RsWithStatus(new RsText("the compact format can't be streamed"), 400);
+
         // load infra
         Infra infra;
         try {
-            infra = infraHandler.load(request.infra);
+            infra = infraHandler.load(request.infra, request.infraVersion);
         } catch (InvalidInfraException | IOException e) {
             return new RsWithStatus(new RsText(
                     String.format("Error loading infrastructure '%s'%n%s", request.infra, e.getMessage())), 400);
@@ -106,6 +124,28 @@ public class SimulationEndpoint implements Take {
         var changeConsumers = new ArrayList<ChangeConsumer>();
         var multiplexer = new ChangeConsumerMultiplexer(changeConsumers);
         var sim = Simulation.createFromInfraAndSuccessions(infra, successions, 0, multiplexer);
+
+        // the compact trajectory format is only sent when asked for
+        if (isCompact) {
+            var compactLog = new CompactResultLog(infra, sim);
+            multiplexer.add(compactLog);
+            for (var trainSchedule : trainSchedules)
+                TrainCreatedEvent.plan(sim, trainSchedule);
+            while (!sim.isSimulationOver())
+                sim.step();
+            return new RsWithType(new RsWithBody(compactLog.encode()), CompactResultLog.MEDIA_TYPE);
+        }
+
+        // in streaming mode, the simulation is run as the response body is sent
+        if (isStreamed) {
+            var streamingResultLog = new SimulationResultStream.StreamingResultLog(sim);
+            multiplexer.add(streamingResultLog);
+            for (var trainSchedule : trainSchedules)
+                TrainCreatedEvent.plan(sim, trainSchedule);
+            // the body is closed by the server once the response is sent
+            return new SimulationResultStream(sim, streamingResultLog).toResponse();
+        }
+
         var resultLog = new ArrayResultLog(infra, sim);
         multiplexer.add(resultLog);
 
@@ -121,10 +161,22 @@ public class SimulationEndpoint implements Take {
         return new RsJson(new RsWithBody(adapterResult.toJson(simulationResponse)));
     }
 
+    /** Checks whether the client asked for the response to be streamed, using the stream query parameter */
+    private static boolean isStreamingRequested(Request req) throws IOException {
+        for (var value : new RqHref.Base(req).href().param("stream"))
+            if (value.equals("true") || value.equals("1"))
+                return true;
+        return false;
+    }
+
     public static final class SimulationRequest {
         /** Infra id */
         public final String infra;
 
+        /** The expected version of the infra, or null if any version will do */
+        @Json(name = "infra_version")
+        public String infraVersion = null;
+
         /** A list of rolling stocks involved in this simulation */
         @Json(name = "rolling_stocks")
         public Collection<RJSRollingStock> rollingStocks;
@@ -164,34 +216,47 @@ public class SimulationEndpoint implements Take {
     }
 
 
-    private static final class ArrayResultLog extends ChangeConsumer {
-        private final ArrayList<SimulationResultChange> changes = new ArrayList<>();
+    /** Converts the changes of a simulation to result changes */
+    abstract static class ResultLog extends ChangeConsumer {
         private final Infra infra;
         private final HashMap<String, TrainSchedule> trainSchedules = new HashMap<>();
         private final Simulation sim;
 
-        private ArrayResultLog(Infra infra, Simulation sim) {
+        ResultLog(Infra infra, Simulation sim) {
             this.infra = infra;
             this.sim = sim;
         }
 
+        /** Called for each result change, in publication order (which isn't chronological) */
+        protected abstract void add(SimulationResultChange change);
+
+        /** Called for each position update of a train, in chronological order for a given train */
+        protected void addTrainLocation(TrainSchedule trainSchedule, Train.TrainStateChange.SpeedUpdate update) {
+            add(new SimulationResultChange.ResponseTrainLocationUpdate(
+                    trainSchedule, update.pathPosition, update.time, update.speed));
+        }
+
         @Override
         public void changeCreationCallback(Change change) { }
 
+        @Override
+        public boolean needsTimelineChanges() {
+            return false;
+        }
+
         @Override
         @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
         public void changePublishedCallback(Change change) {
             if (change.getClass() == RouteState.RouteStatusChange.class) {
                 var routeStatusChange = (RouteState.RouteStatusChange) change;
                 var route = infra.routeGraph.getEdge(routeStatusChange.routeIndex);
-                changes.add(new SimulationResultChange.ResponseRouteStatus(
+                add(new SimulationResultChange.ResponseRouteStatus(
                         route, routeStatusChange.newStatus, sim.getTime()));
             } else if (change.getClass() == Train.TrainStateChange.class) {
                 var trainStateChange = (Train.TrainStateChange) change;
                 var train = trainSchedules.get(trainStateChange.trainID);
                 for (var pos : trainStateChange.positionUpdates)
-                    changes.add(new SimulationResultChange.ResponseTrainLocationUpdate(
-                            train, pos.pathPosition, pos.time, pos.speed));
+                    addTrainLocation(train, pos);
             } else if (change.getClass() == TrainCreatedEvent.TrainCreationPlanned.class) {
                 var trainCreationPlanned = (TrainCreatedEvent.TrainCreationPlanned) change;
                 trainSchedules.put(trainCreationPlanned.schedule.trainID, trainCreationPlanned.schedule);
@@ -201,13 +266,26 @@ public class SimulationEndpoint implements Take {
                 var aspects = new ArrayList<String>();
                 for (var aspect : aspectChange.aspects)
                     aspects.add(aspect.id);
-                changes.add(new SimulationResultChange.ResponseSignalChange(signal, aspects, sim.getTime()));
+                add(new SimulationResultChange.ResponseSignalChange(signal, aspects, sim.getTime()));
             } else if (change.getClass() == StopReachedChange.class) {
                 var stopReached = (StopReachedChange) change;
-                changes.add(new SimulationResultChange.ResponseStopReachedUpdate(stopReached.train,
+                add(new SimulationResultChange.ResponseStopReachedUpdate(stopReached.train,
                         stopReached.stopIndex, sim.getTime()));
             }
         }
+    }
+
+    static final class ArrayResultLog extends ResultLog {
+        private final ArrayList<SimulationResultChange> changes = new ArrayList<>();
+
+        ArrayResultLog(Infra infra, Simulation sim) {
+            super(infra, sim);
+        }
+
+        @Override
+        protected void add(SimulationResultChange change) {
+            changes.add(change);
+        }
 
         public SimulationResultChange[] getResults() {
             Collections.sort(changes);
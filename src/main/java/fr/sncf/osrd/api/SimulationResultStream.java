@@ -0,0 +1,186 @@
+package fr.sncf.osrd.api;
+
+import com.squareup.moshi.JsonWriter;
+import fr.sncf.osrd.api.SimulationEndpoint.SimulationResultChange;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.SimulationError;
+import fr.sncf.osrd.train.TrainStatus;
+import okio.Buffer;
+import org.takes.Response;
+import org.takes.rs.RsJson;
+import org.takes.rs.RsWithHeader;
+import org.takes.rs.RsWithStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.PriorityQueue;
+
+/**
+ * <p>The body of a streamed simulation response.</p>
+ * <p>The simulation is stepped as the body is read, and result changes are encoded to JSON as soon as
+ * they can't be preceded by any other change. The memory used thus doesn't depend on the length of the
+ * simulation, but on how far apart in time the events of trains are.</p>
+ * <p>As the response status is sent before the simulation runs, simulation errors abort the response.</p>
+ */
+final class SimulationResultStream extends InputStream {
+    private final Simulation sim;
+    private final StreamingResultLog resultLog;
+    private final Buffer buffer = new Buffer();
+    private final JsonWriter writer = JsonWriter.of(buffer);
+    private boolean started = false;
+    private boolean done = false;
+
+    /**
+     * Creates the body of a streamed response
+     * @param sim the simulation, which must be ready to run
+     * @param resultLog the result log, which must have received all the changes of the simulation so far
+     */
+    SimulationResultStream(Simulation sim, StreamingResultLog resultLog) {
+        this.sim = sim;
+        this.resultLog = resultLog;
+    }
+
+    /** Wraps the stream into a JSON response */
+    Response toResponse() {
+        return streamedJson(this);
+    }
+
+    /**
+     * Makes a JSON response out of a body which is produced as it's read. The response has no Content-Length,
+     * as it isn't known until the body ends: the end of the body is marked by closing the connection.
+     */
+    static Response streamedJson(InputStream stream) {
+        var head = new RsJson(new RsWithHeader(new RsWithStatus(200), "Connection", "close"));
+        return new Response() {
+            @Override
+            public Iterable<String> head() throws IOException {
+                return head.head();
+            }
+
+            @Override
+            public InputStream body() {
+                return stream;
+            }
+        };
+    }
+
+    /** Runs the simulation until there's some output available, or the simulation is over */
+    private void fill() throws IOException {
+        if (!started) {
+            writer.beginArray();
+            started = true;
+        }
+
+        while (buffer.size() == 0 && !done) {
+            if (sim.isSimulationOver()) {
+                resultLog.flush(writer, Double.POSITIVE_INFINITY);
+                writer.endArray();
+                writer.close();
+                done = true;
+                break;
+            }
+
+            try {
+                sim.step();
+            } catch (SimulationError simulationError) {
+                throw new IOException("the simulation failed while streaming results", simulationError);
+            }
+            resultLog.flush(writer, getWatermark());
+            writer.flush();
+        }
+    }
+
+    /**
+     * Result changes are published when a train event occurs, and may go back up to the
+     * previous state of the train. No result change older than the oldest train state can be published.
+     */
+    private double getWatermark() {
+        var watermark = sim.getTime();
+        for (var train : sim.trains.values()) {
+            var lastState = train.getLastState();
+            if (lastState.status == TrainStatus.REACHED_DESTINATION)
+                continue;
+            watermark = Math.min(watermark, lastState.time);
+        }
+        return watermark;
+    }
+
+    @Override
+    public int read() throws IOException {
+        fill();
+        if (buffer.size() == 0)
+            return -1;
+        return buffer.readByte() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] dest, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+        fill();
+        return buffer.read(dest, offset, length);
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(buffer.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        buffer.clear();
+        done = true;
+    }
+
+    /** Holds result changes until they are known to be in chronological order */
+    static final class StreamingResultLog extends SimulationEndpoint.ResultLog {
+        private final PriorityQueue<PendingChange> pendingChanges = new PriorityQueue<>();
+        private long sequence = 0;
+
+        StreamingResultLog(Simulation sim) {
+            super(sim.infra, sim);
+        }
+
+        @Override
+        protected void add(SimulationResultChange change) {
+            pendingChanges.add(new PendingChange(change, sequence++));
+        }
+
+        /** Writes all pending changes up to the given time */
+        void flush(JsonWriter writer, double upToTime) throws IOException {
+            while (!pendingChanges.isEmpty() && pendingChanges.peek().change.time <= upToTime)
+                SimulationEndpoint.adapterResultChange.toJson(writer, pendingChanges.poll().change);
+        }
+    }
+
+    /** A result change, along with its publication order, used to keep the output stable */
+    private static final class PendingChange implements Comparable<PendingChange> {
+        final SimulationResultChange change;
+        final long sequence;
+
+        PendingChange(SimulationResultChange change, long sequence) {
+            this.change = change;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PendingChange o) {
+            var timeOrder = Double.compare(change.time, o.change.time);
+            if (timeOrder != 0)
+                return timeOrder;
+            return Long.compare(sequence, o.sequence);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != PendingChange.class)
+                return false;
+            return sequence == ((PendingChange) obj).sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence);
+        }
+    }
+}
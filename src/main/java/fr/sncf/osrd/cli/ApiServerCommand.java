@@ -2,7 +2,12 @@ package fr.sncf.osrd.cli;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import fr.sncf.osrd.api.BatchSimulationEndpoint;
+import fr.sncf.osrd.api.InfraCache;
+import fr.sncf.osrd.api.InfraCacheEndpoint;
 import fr.sncf.osrd.api.InfraHandler;
+import fr.sncf.osrd.api.PathfindingCache;
+import fr.sncf.osrd.api.PathfindingMatrixEndpoint;
 import fr.sncf.osrd.api.PathfindingRoutesEndpoint;
 import fr.sncf.osrd.api.PathfindingTracksEndpoint;
 import fr.sncf.osrd.api.SimulationEndpoint;
@@ -13,6 +18,9 @@ import org.takes.Response;
 import org.takes.facets.fallback.*;
 import org.takes.facets.fork.FkRegex;
 import org.takes.facets.fork.TkFork;
+import org.takes.http.BkBasic;
+import org.takes.http.BkParallel;
+import org.takes.http.BkSafe;
 import org.takes.http.Exit;
 import org.takes.http.FtBasic;
 import org.takes.misc.Opt;
@@ -21,6 +29,9 @@ import org.takes.rs.RsWithStatus;
 import org.takes.tk.TkSlf4j;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 @Parameters(commandDescription = "HTTP API server mode")
 public final class ApiServerCommand implements CliCommand {
@@ -38,6 +49,55 @@ public final class ApiServerCommand implements CliCommand {
     )
     private String middlewareBaseUrl;
 
+    @Parameter(
+            names = {"--threads" },
+            description = "The number of requests which can be handled concurrently"
+    )
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+            names = {"--batch-threads" },
+            description = "The number of batch simulation scenarios which can be simulated concurrently"
+    )
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+            names = {"--matrix-threads" },
+            description = "The number of sources of distance matrices which can be explored concurrently"
+    )
+    private int matrixThreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+            names = {"--infra-cache-entries" },
+            description = "The maximum number of infrastructures kept in memory"
+    )
+    private int infraCacheEntries = InfraCache.DEFAULT_MAX_ENTRIES;
+
+    @Parameter(
+            names = {"--infra-cache-size" },
+            description = "The estimated amount of memory infrastructures can use, in MiB"
+    )
+    private long infraCacheSize = InfraCache.DEFAULT_MAX_BYTES / (1024 * 1024);
+
+    @Parameter(
+            names = {"--infra-cache-policy" },
+            description = "The policy used to pick which infrastructure to evict when the cache is full"
+    )
+    private InfraCache.EvictionPolicy infraCachePolicy = InfraCache.EvictionPolicy.LRU;
+
+    @Parameter(
+            names = {"--pathfinding-cache-entries" },
+            description = "The maximum number of pathfinding results, and of legs, cached for each infrastructure"
+    )
+    private int pathfindingCacheEntries = PathfindingCache.DEFAULT_MAX_ENTRIES;
+
+    @Parameter(
+            names = {"--preprocess-pathfinding" },
+            description = "Build contraction hierarchies of loaded infrastructures in the background, to speed up "
+                    + "pathfinding at the expense of memory"
+    )
+    private boolean preprocessPathfinding = false;
+
     private String getMiddlewareBaseUrl() {
         if (middlewareBaseUrl == null)
             middlewareBaseUrl = System.getenv("MIDDLEWARE_BASE_URL");
@@ -51,20 +111,60 @@ public final class ApiServerCommand implements CliCommand {
         return middlewareBaseUrl;
     }
 
+    /** Creates the pool of workers requests are dispatched to */
+    private ExecutorService makeWorkerPool() {
+        if (threads <= 0)
+            throw new RuntimeException("The number of worker threads must be strictly positive");
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /** Creates the pool batch simulation scenarios are run on, which is shared by all batch requests */
+    private ForkJoinPool makeBatchPool() {
+        if (batchThreads <= 0)
+            throw new RuntimeException("The number of batch simulation threads must be strictly positive");
+        return new ForkJoinPool(batchThreads);
+    }
+
+    /** Creates the pool distance matrix sources are explored on, so that matrices don't delay batch simulations */
+    private ForkJoinPool makeMatrixPool() {
+        if (matrixThreads <= 0)
+            throw new RuntimeException("The number of distance matrix threads must be strictly positive");
+        return new ForkJoinPool(matrixThreads);
+    }
+
+    /** Creates the thread loaded infrastructures are preprocessed on, or returns null if preprocessing is disabled */
+    private ExecutorService makePreprocessingExecutor() {
+        if (!preprocessPathfinding)
+            return null;
+        return Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "infra-preprocessing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /** Run the Api Server */
     public int run() {
         FbSentry.init();
         var authorizationToken = System.getenv("FETCH_INFRA_AUTHORIZATION");
-        var infraHandler = new InfraHandler(getMiddlewareBaseUrl(), authorizationToken);
+        var infraCache = new InfraCache(
+                infraCacheEntries, infraCacheSize * 1024 * 1024, infraCachePolicy, pathfindingCacheEntries);
+        var preprocessingExecutor = makePreprocessingExecutor();
+        var infraHandler = new InfraHandler(
+                getMiddlewareBaseUrl(), authorizationToken, infraCache, preprocessingExecutor);
+        var batchPool = makeBatchPool();
+        var matrixPool = makeMatrixPool();
 
         try {
             // the list of endpoints
             var routes = new TkFork(
                     new FkRegex("/health", ""),
+                    new FkRegex("/infra_cache", new InfraCacheEndpoint(infraHandler)),
                     new FkRegex("/pathfinding/routes", new PathfindingRoutesEndpoint(infraHandler)),
                     new FkRegex("/pathfinding/tracks", new PathfindingTracksEndpoint(infraHandler)),
-                    new FkRegex("/simulation", new SimulationEndpoint(infraHandler))
+                    new FkRegex("/pathfinding/matrix", new PathfindingMatrixEndpoint(infraHandler, matrixPool)),
+                    new FkRegex("/simulation", new SimulationEndpoint(infraHandler)),
+                    new FkRegex("/simulation/batch", new BatchSimulationEndpoint(infraHandler, batchPool))
             );
 
             // the list of pages which should be displayed on error
@@ -75,8 +175,18 @@ public final class ApiServerCommand implements CliCommand {
             );
 
             var serverConfig = new TkSlf4j(new TkFallback(routes, fallbacks));
-            var server = new FtBasic(serverConfig, port);
-            server.start(Exit.NEVER);
+            // requests are handled by a bounded pool of workers, which share the infra handler
+            var workerPool = makeWorkerPool();
+            var server = new FtBasic(new BkParallel(new BkSafe(new BkBasic(serverConfig)), workerPool), port);
+            try {
+                server.start(Exit.NEVER);
+            } finally {
+                workerPool.shutdown();
+                batchPool.shutdown();
+                matrixPool.shutdown();
+                if (preprocessingExecutor != null)
+                    preprocessingExecutor.shutdownNow();
+            }
             return 0;
         } catch (IOException ioException) {
             logger.error("IO error", ioException);
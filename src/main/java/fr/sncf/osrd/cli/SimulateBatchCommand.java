@@ -0,0 +1,113 @@
+package fr.sncf.osrd.cli;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.converters.PathConverter;
+import fr.sncf.osrd.api.BatchSimulation;
+import fr.sncf.osrd.api.BatchSimulation.ScenarioResult;
+import fr.sncf.osrd.config.JsonConfig;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.utils.moshi.MoshiUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Parameters(commandDescription = "Runs independent simulation scenarios in parallel, on the same infrastructure")
+public final class SimulateBatchCommand implements CliCommand {
+    static final Logger logger = LoggerFactory.getLogger(SimulateBatchCommand.class);
+
+    @Parameter(
+            names = { "-i", "--infra" },
+            description = "The infrastructure file, shared by all scenarios",
+            required = true
+    )
+    private String infraPath;
+
+    @Parameter(
+            names = { "--infra-type" },
+            description = "The format of the infrastructure file"
+    )
+    private JsonConfig.InfraType infraType = JsonConfig.InfraType.UNKNOWN;
+
+    @Parameter(
+            names = { "-s", "--scenarios" },
+            description = "A JSON file, which contains the list of scenarios to simulate",
+            required = true,
+            converter = PathConverter.class
+    )
+    private Path scenariosPath;
+
+    @Parameter(
+            names = { "-o", "--output-dir" },
+            description = "The directory the result of each scenario is written to, as it completes",
+            required = true,
+            converter = PathConverter.class
+    )
+    private Path outputDir;
+
+    @Parameter(
+            names = {"--threads" },
+            description = "The number of scenarios which are simulated concurrently"
+    )
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Runs the command, and return a status code */
+    public int run() {
+        if (threads <= 0) {
+            logger.error("the number of threads must be strictly positive");
+            return 1;
+        }
+
+        try {
+            logger.info("parsing the infrastructure");
+            var infra = Infra.parseFromFile(infraType, infraPath);
+            var scenarios = MoshiUtils.deserialize(BatchSimulation.adapterScenarios, scenariosPath);
+            if (scenarios == null) {
+                logger.error("the scenarios file is empty");
+                return 1;
+            }
+            Files.createDirectories(outputDir);
+
+            logger.info("simulating {} scenarios on {} threads", scenarios.size(), threads);
+            var failures = new AtomicInteger();
+            var pool = new ForkJoinPool(threads);
+            try {
+                var tasks = BatchSimulation.submit(pool, infra, scenarios, result -> {
+                    if (!writeResult(result))
+                        failures.incrementAndGet();
+                });
+                for (var task : tasks)
+                    task.join();
+            } finally {
+                pool.shutdown();
+            }
+
+            logger.info("done simulating, {} scenarios failed", failures.get());
+            return failures.get() == 0 ? 0 : 1;
+        } catch (InvalidInfraException exception) {
+            logger.error("an error occurred while parsing the input", exception);
+            return 1;
+        } catch (IOException ioException) {
+            logger.error("IO error", ioException);
+            return 1;
+        }
+    }
+
+    /** Writes the result of a scenario to the output directory, and returns whether the scenario succeeded */
+    private boolean writeResult(ScenarioResult result) {
+        var outputPath = outputDir.resolve(String.format("scenario-%d.json", result.index));
+        try {
+            MoshiUtils.serialize(BatchSimulation.adapterScenarioResult, result, outputPath);
+        } catch (IOException ioException) {
+            logger.error("couldn't write the result of scenario {}", result.index, ioException);
+            return false;
+        }
+        return result.error == null;
+    }
+}
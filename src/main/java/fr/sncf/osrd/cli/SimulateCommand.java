@@ -3,6 +3,7 @@ package fr.sncf.osrd.cli;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.beust.jcommander.converters.PathConverter;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import fr.sncf.osrd.DebugViewer;
 import fr.sncf.osrd.config.Config;
 import fr.sncf.osrd.infra.InvalidInfraException;
@@ -10,13 +11,12 @@ import fr.sncf.osrd.railjson.parser.exceptions.InvalidRollingStock;
 import fr.sncf.osrd.railjson.parser.exceptions.InvalidSchedule;
 import fr.sncf.osrd.railjson.parser.exceptions.InvalidSuccession;
 import fr.sncf.osrd.simulation.ChangeReplayChecker;
-import fr.sncf.osrd.simulation.ChangeSerializer;
 import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.simulation.SimulationError;
-import fr.sncf.osrd.simulation.changelog.ArrayChangeLog;
 import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
 import fr.sncf.osrd.simulation.changelog.ChangeConsumerMultiplexer;
 import fr.sncf.osrd.simulation.changelog.ChangeLogSummarizer;
+import fr.sncf.osrd.simulation.changelog.ChangeLogWriter;
 import fr.sncf.osrd.train.events.TrainCreatedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,47 +39,70 @@ public final class SimulateCommand implements CliCommand {
 
     @Parameter(
             names = { "-o", "--output-changelog" },
-            description = "Serialize the changelog to JSON, and write it to the given path",
+            description = "Write the changelog to the given path as it is produced, with one JSON change per line",
             required = true,
             converter = PathConverter.class
     )
     private Path outputChangelogPath;
 
+    @Parameter(
+            names = { "--compress-changelog" },
+            description = "Compress the changelog using gzip"
+    )
+    private boolean compressChangelog = false;
+
+    @Parameter(
+            names = { "--changelog-queue-size" },
+            description = "How many batches of changes can be waiting to be written before the simulation waits"
+    )
+    private int changelogQueueSize = ChangeLogWriter.DEFAULT_QUEUE_CAPACITY;
+
+    @Parameter(
+            names = { "--replay-full-check-period" },
+            description = "When checking change replays, compare whole simulations every N changes,"
+                    + " or each time an event occurs if 0, which is much slower"
+    )
+    private int replayFullCheckPeriod = ChangeReplayChecker.DEFAULT_FULL_CHECK_PERIOD;
+
     /** Runs the command, and return a status code */
+    @SuppressFBWarnings(
+            value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE",
+            justification = "that's a spotbugs bug :)"
+    )
     public int run() {
         try {
             logger.info("parsing the configuration file");
             Config config = Config.readFromFile(configPath);
 
             logger.info("starting the simulation");
-            var changeConsumers = new ArrayList<ChangeConsumer>();
-            var changelog = new ArrayChangeLog();
-            changeConsumers.add(changelog);
-
-            // create the simulation and add change consumers
-            var multiplexer = new ChangeConsumerMultiplexer(changeConsumers);
-            var sim = Simulation.createFromInfraAndSuccessions(config.infra, config.switchSuccessions, 0, multiplexer);
+            try (var changelog = ChangeLogWriter.open(outputChangelogPath, compressChangelog, changelogQueueSize)) {
+                var changeConsumers = new ArrayList<ChangeConsumer>();
+                changeConsumers.add(changelog);
 
-            if (config.changeReplayCheck)
-                multiplexer.add(ChangeReplayChecker.from(sim));
+                // create the simulation and add change consumers
+                var multiplexer = new ChangeConsumerMultiplexer(changeConsumers);
+                var sim = Simulation.createFromInfraAndSuccessions(
+                        config.infra, config.switchSuccessions, 0, multiplexer);
 
-            // create the viewer
-            if (config.showViewer)
-                multiplexer.add(DebugViewer.from(config.infra, config.realTimeViewer, config.simulationStepPause));
+                if (config.changeReplayCheck)
+                    multiplexer.add(ChangeReplayChecker.from(sim, replayFullCheckPeriod));
 
-            // insert the train start events into the simulation
-            for (var trainSchedule : config.trainSchedules)
-                TrainCreatedEvent.plan(sim, trainSchedule);
+                // create the viewer
+                if (config.showViewer)
+                    multiplexer.add(DebugViewer.from(config.infra, config.realTimeViewer, config.simulationStepPause));
 
-            // run the simulation loop
-            while (!sim.isSimulationOver())
-                sim.step();
+                // insert the train start events into the simulation
+                for (var trainSchedule : config.trainSchedules)
+                    TrainCreatedEvent.plan(sim, trainSchedule);
 
-            logger.info("done simulating");
-            ChangeLogSummarizer.summarize(changelog);
+                // run the simulation loop
+                while (!sim.isSimulationOver())
+                    sim.step();
 
-            logger.debug("serializing changes");
-            ChangeSerializer.serializeChangeLog(changelog, outputChangelogPath);
+                logger.info("done simulating");
+                logger.debug("waiting for the changelog to be written");
+            }
+            ChangeLogSummarizer.summarize(outputChangelogPath);
             return 0;
         } catch (SimulationError simulationError) {
             logger.error("an logic error prevented the simulation from completing", simulationError);
@@ -12,7 +12,6 @@ import fr.sncf.osrd.infra.trackgraph.TrackGraph;
 import fr.sncf.osrd.infra.waypointgraph.WaypointGraph;
 import fr.sncf.osrd.infra_state.InfraState;
 import fr.sncf.osrd.railjson.parser.RailJSONParser;
-import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
 import fr.sncf.osrd.railml.RailMLParser;
 import fr.sncf.osrd.utils.SortedArraySet;
 import okio.Okio;
@@ -77,6 +76,11 @@ import java.util.HashMap;
  *
  * <p>We decided to model it using <b>per-edge neighbours</b>: each end of the block section
  * can be connected to other block sections, even though it's also connected to a signal.</p>
+ *
+ * <h1>Concurrency</h1>
+ * <p>Once built, the infrastructure isn't changed by simulations: the state of signals, routes, switches
+ * and TVD sections lives in the {@link InfraState} each simulation creates. The same infrastructure can
+ * thus be shared by simulations running on different threads.</p>
  */
 @SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
 public final class Infra {
@@ -147,6 +151,8 @@ public final class Infra {
 
         // Evaluate initial aspects of signals
         var topologicalSignalOrder = buildTopologicalSignalOrder(signals);
+        for (var i = 0; i < topologicalSignalOrder.size(); i++)
+            topologicalSignalOrder.get(i).propagationRank = i;
         var initialState = InfraState.from(infra);
         for (var i = topologicalSignalOrder.size() - 1; i >= 0; i--)
             signals.get(topologicalSignalOrder.get(i).index).evalInitialAspect(initialState);
@@ -268,8 +274,7 @@ public final class Infra {
                         var fileSource = Okio.source(Path.of(path));
                         var bufferedSource = Okio.buffer(fileSource)
                 ) {
-                    var rjsRoot = RJSInfra.adapter.fromJson(bufferedSource);
-                    return RailJSONParser.parse(rjsRoot);
+                    return RailJSONParser.parse(bufferedSource, false);
                 }
             default:
                 throw new RuntimeException("invalid infrastructure type value");
@@ -0,0 +1,31 @@
+package fr.sncf.osrd.infra.railscript;
+
+import fr.sncf.osrd.infra.railscript.value.RSValue;
+
+/** A RailScript expression, lowered by the RSExprCompiler into a graph of closures */
+public final class RSCompiledExpr<T extends RSValue> {
+    /** A compiled expression, which evaluates to a value given the state of the program */
+    @FunctionalInterface
+    interface Closure<T extends RSValue> {
+        T evaluate(RSExprState<?> state);
+    }
+
+    final Closure<T> root;
+
+    /** The number of slots required to store the content of matched optionals */
+    public final int varSlotCount;
+
+    /** The number of slots required to store the values of memoized expressions */
+    public final int memoSlotCount;
+
+    RSCompiledExpr(Closure<T> root, int varSlotCount, int memoSlotCount) {
+        this.root = root;
+        this.varSlotCount = varSlotCount;
+        this.memoSlotCount = memoSlotCount;
+    }
+
+    /** Wraps an expression so that it gets evaluated by walking its tree, instead of compiling it */
+    static <T extends RSValue> RSCompiledExpr<T> interpreted(RSExpr<T> expr) {
+        return new RSCompiledExpr<>(expr::evaluate, 0, 0);
+    }
+}
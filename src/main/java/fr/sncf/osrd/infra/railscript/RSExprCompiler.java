@@ -0,0 +1,497 @@
+package fr.sncf.osrd.infra.railscript;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.infra.railscript.RSCompiledExpr.Closure;
+import fr.sncf.osrd.infra.railscript.value.*;
+import fr.sncf.osrd.infra_state.RouteState;
+import fr.sncf.osrd.infra_state.RouteStatus;
+import fr.sncf.osrd.infra_state.SignalState;
+import fr.sncf.osrd.infra_state.SwitchState;
+
+import java.util.HashMap;
+
+/**
+ * Lowers RailScript expressions into a graph of closures, which evaluates to the same values as the expression tree.
+ * <ul>
+ *     <li>function calls are inlined, so that argument and delay slots are resolved once and for all</li>
+ *     <li>the content of matched optionals is stored in slots instead of being looked up by name</li>
+ *     <li>expressions which don't contain any delay have no side effect: boolean operators and conditional
+ *     branches without delays are only evaluated when their value is needed</li>
+ *     <li>the bodies of functions without delays are memoized: each state keeps the value of the body, along
+ *     with its arguments and the routes, switches and signals read to compute it, and only computes it
+ *     again when one of these changed</li>
+ *     <li>aspect sets are interned, so that equal aspect sets are shared instead of being allocated</li>
+ * </ul>
+ * Expressions the compiler does not know about are evaluated by walking their tree.
+ * These can't refer to function arguments, as inlined calls don't push any scope.
+ */
+public final class RSExprCompiler {
+    /** Aspect sets with more members than this aren't interned, as all their subsets are built beforehand */
+    private static final int MAX_INTERNED_ASPECT_SET_SIZE = 6;
+
+    /** The number of slots required to store the content of matched optionals */
+    private int varSlotCount = 0;
+    /** The number of slots required to store the values of memoized expressions */
+    private int memoSlotCount = 0;
+    /** Aspect sets which were already built, so that equal sets are shared */
+    private final HashMap<RSAspectSet, RSAspectSet> aspectSetPool = new HashMap<>();
+
+    private RSExprCompiler() {
+    }
+
+    /** Compiles an expression, along with the bodies of the functions it calls */
+    public static <T extends RSValue> RSCompiledExpr<T> compile(RSExpr<T> rootExpr) {
+        var compiler = new RSExprCompiler();
+        var root = compiler.compile(rootExpr, new Scope(0, 0));
+        return new RSCompiledExpr<>(root.closure, compiler.varSlotCount, compiler.memoSlotCount);
+    }
+
+    /** Where the slots of the function being compiled start, and which optional match names it can refer to */
+    private static final class Scope {
+        final int argSlotOffset;
+        final int delaySlotOffset;
+        final HashMap<String, Integer> varSlots = new HashMap<>();
+
+        Scope(int argSlotOffset, int delaySlotOffset) {
+            this.argSlotOffset = argSlotOffset;
+            this.delaySlotOffset = delaySlotOffset;
+        }
+    }
+
+    /** A compiled expression, along with whether it has side effects because it contains a delay */
+    private static final class Node<T extends RSValue> {
+        final Closure<T> closure;
+        final boolean hasDelay;
+
+        Node(Closure<T> closure, boolean hasDelay) {
+            this.closure = closure;
+            this.hasDelay = hasDelay;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressFBWarnings({"BC_UNCONFIRMED_CAST"})
+    private <T extends RSValue> Node<T> compile(RSExpr<T> expr, Scope scope) {
+        var type = expr.getClass();
+
+        // boolean operators
+        if (type == RSExpr.Or.class)
+            return (Node) compileInfixOp((RSExpr.Or) expr, scope, true);
+        if (type == RSExpr.And.class)
+            return (Node) compileInfixOp((RSExpr.And) expr, scope, false);
+        if (type == RSExpr.Not.class) {
+            var operand = compile(((RSExpr.Not) expr).expr, scope);
+            return (Node) new Node<RSBool>(
+                    state -> RSBool.from(!operand.closure.evaluate(state).value), operand.hasDelay);
+        }
+
+        // value constructors
+        if (type == RSExpr.True.class)
+            return (Node) new Node<RSBool>(state -> RSBool.True, false);
+        if (type == RSExpr.False.class)
+            return (Node) new Node<RSBool>(state -> RSBool.False, false);
+        if (type == RSExpr.AspectSet.class)
+            return (Node) compileAspectSet((RSExpr.AspectSet) expr, scope);
+        // references are resolved after parsing, and thus read at evaluation time
+        if (type == RSExpr.SignalRef.class) {
+            var signalRef = (RSExpr.SignalRef) expr;
+            return (Node) new Node<SignalState>(
+                    state -> state.infraState.getSignalState(signalRef.signal.index), false);
+        }
+        if (type == RSExpr.RouteRef.class) {
+            var routeRef = (RSExpr.RouteRef) expr;
+            return (Node) new Node<RouteState>(state -> state.infraState.getRouteState(routeRef.route.index), false);
+        }
+        if (type == RSExpr.SwitchRef.class) {
+            var switchRef = (RSExpr.SwitchRef) expr;
+            return (Node) new Node<SwitchState>(
+                    state -> state.infraState.getSwitchState(switchRef.switchRef.switchIndex), false);
+        }
+
+        // control flow
+        if (type == RSExpr.If.class)
+            return compileIf((RSExpr.If<T>) expr, scope);
+        if (type == RSExpr.Call.class)
+            return compileCall((RSExpr.Call<T>) expr, scope);
+        if (type == RSExpr.EnumMatch.class)
+            return compileEnumMatch((RSExpr.EnumMatch<T, ?>) expr, scope);
+        if (type == RSExpr.OptionalMatch.class)
+            return compileOptionalMatch((RSExpr.OptionalMatch<T>) expr, scope);
+
+        // references
+        if (type == RSExpr.ArgumentRef.class) {
+            var slot = scope.argSlotOffset + ((RSExpr.ArgumentRef<T>) expr).slotIndex;
+            return new Node<>(state -> (T) state.getArgValue(slot), false);
+        }
+        if (type == RSExpr.OptionalMatchRef.class) {
+            var name = ((RSExpr.OptionalMatchRef<T>) expr).name;
+            var slot = scope.varSlots.get(name);
+            if (slot == null)
+                throw new RuntimeException("can't find matching optional for name " + name);
+            int varSlot = slot;
+            return new Node<>(state -> (T) state.getVarValue(varSlot), false);
+        }
+
+        // primitives
+        if (type == RSExpr.Delay.class)
+            return compileDelay((RSExpr.Delay<T>) expr, scope);
+        if (type == RSExpr.SignalAspectCheck.class) {
+            var signalAspectCheck = (RSExpr.SignalAspectCheck) expr;
+            var signal = compile(signalAspectCheck.signalExpr, scope);
+            var aspect = signalAspectCheck.aspect;
+            return (Node) new Node<RSBool>(state -> {
+                var signalState = signal.closure.evaluate(state);
+                state.trackRead(signalState);
+                return RSBool.from(signalState.aspects.contains(aspect));
+            }, signal.hasDelay);
+        }
+        if (type == RSExpr.RouteStateCheck.class) {
+            var routeStateCheck = (RSExpr.RouteStateCheck) expr;
+            var route = compile(routeStateCheck.routeExpr, scope);
+            var status = routeStateCheck.status;
+            return (Node) new Node<RSBool>(state -> {
+                var routeState = route.closure.evaluate(state);
+                state.trackRead(routeState);
+                return RSBool.from(routeState.status == status);
+            }, route.hasDelay);
+        }
+        if (type == RSExpr.AspectSetContains.class) {
+            var aspectSetContains = (RSExpr.AspectSetContains) expr;
+            var aspectSet = compile(aspectSetContains.expr, scope);
+            var aspect = aspectSetContains.aspect;
+            return (Node) new Node<RSBool>(
+                    state -> RSBool.from(aspectSet.closure.evaluate(state).contains(aspect)), aspectSet.hasDelay);
+        }
+        if (type == RSExpr.ReservedRoute.class)
+            return (Node) compileReservedRoute((RSExpr.ReservedRoute) expr, scope);
+        if (type == RSExpr.NextSignal.class)
+            return (Node) compileNextSignal((RSExpr.NextSignal) expr, scope);
+
+        // we can't know whether unknown expressions have side effects
+        return new Node<>(expr::evaluate, true);
+    }
+
+    private <T extends RSValue> Node<T>[] compileAll(RSExpr<T>[] exprs, Scope scope) {
+        @SuppressWarnings({"unchecked"})
+        var res = (Node<T>[]) new Node<?>[exprs.length];
+        for (int i = 0; i < exprs.length; i++)
+            res[i] = compile(exprs[i], scope);
+        return res;
+    }
+
+    private static <T extends RSValue> Closure<T>[] getClosures(Node<T>[] nodes) {
+        @SuppressWarnings({"unchecked"})
+        var res = (Closure<T>[]) new Closure<?>[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            res[i] = nodes[i].closure;
+        return res;
+    }
+
+    private static boolean[] getDelayFlags(Node<?>[] nodes) {
+        var res = new boolean[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            res[i] = nodes[i].hasDelay;
+        return res;
+    }
+
+    private static boolean anyHasDelay(Node<?>[] nodes) {
+        for (var node : nodes)
+            if (node.hasDelay)
+                return true;
+        return false;
+    }
+
+    /**
+     * Compiles "or" when absorbingValue is true, and "and" when it's false.
+     * Once the result is known, only the operands which contain delays still get evaluated.
+     */
+    private Node<RSBool> compileInfixOp(RSExpr.InfixOpExpr expr, Scope scope, boolean absorbingValue) {
+        var operandNodes = compileAll(expr.expressions, scope);
+        var operands = getClosures(operandNodes);
+        var absorbingResult = RSBool.from(absorbingValue);
+        var neutralResult = RSBool.from(!absorbingValue);
+
+        if (!anyHasDelay(operandNodes)) {
+            return new Node<>(state -> {
+                for (var operand : operands)
+                    if (operand.evaluate(state).value == absorbingValue)
+                        return absorbingResult;
+                return neutralResult;
+            }, false);
+        }
+
+        var operandHasDelay = getDelayFlags(operandNodes);
+        return new Node<>(state -> {
+            var result = neutralResult;
+            for (int i = 0; i < operands.length; i++) {
+                if (result == absorbingResult && !operandHasDelay[i])
+                    continue;
+                if (operands[i].evaluate(state).value == absorbingValue)
+                    result = absorbingResult;
+            }
+            return result;
+        }, true);
+    }
+
+    /** Returns a shared aspect set equal to the given one */
+    private RSAspectSet intern(RSAspectSet aspectSet) {
+        return aspectSetPool.computeIfAbsent(aspectSet, key -> key);
+    }
+
+    private Node<RSAspectSet> compileAspectSet(RSExpr.AspectSet expr, Scope scope) {
+        var aspects = expr.aspects;
+        @SuppressWarnings({"unchecked"})
+        var conditions = (Closure<RSBool>[]) new Closure<?>[aspects.length];
+        var hasDelay = false;
+        for (int i = 0; i < aspects.length; i++) {
+            if (expr.conditions[i] == null)
+                continue;
+            var condition = compile(expr.conditions[i], scope);
+            conditions[i] = condition.closure;
+            hasDelay |= condition.hasDelay;
+        }
+
+        if (aspects.length > MAX_INTERNED_ASPECT_SET_SIZE) {
+            return new Node<>(state -> {
+                var res = new RSAspectSet();
+                for (int i = 0; i < aspects.length; i++) {
+                    var condition = conditions[i];
+                    if (condition == null || condition.evaluate(state).value)
+                        res.add(aspects[i]);
+                }
+                return res;
+            }, hasDelay);
+        }
+
+        // build all the sets the expression can evaluate to, indexed by which of its members they contain
+        var aspectSets = new RSAspectSet[1 << aspects.length];
+        for (int members = 0; members < aspectSets.length; members++) {
+            var aspectSet = new RSAspectSet();
+            for (int i = 0; i < aspects.length; i++)
+                if ((members & (1 << i)) != 0)
+                    aspectSet.add(aspects[i]);
+            aspectSets[members] = intern(aspectSet);
+        }
+
+        return new Node<>(state -> {
+            var members = 0;
+            for (int i = 0; i < aspects.length; i++) {
+                var condition = conditions[i];
+                if (condition == null || condition.evaluate(state).value)
+                    members |= 1 << i;
+            }
+            return aspectSets[members];
+        }, hasDelay);
+    }
+
+    private <T extends RSValue> Node<T> compileIf(RSExpr.If<T> expr, Scope scope) {
+        var conditionNode = compile(expr.ifExpr, scope);
+        var thenNode = compile(expr.thenExpr, scope);
+        var elseNode = compile(expr.elseExpr, scope);
+        var condition = conditionNode.closure;
+        var thenBranch = thenNode.closure;
+        var elseBranch = elseNode.closure;
+
+        if (!thenNode.hasDelay && !elseNode.hasDelay) {
+            return new Node<>(state -> {
+                if (condition.evaluate(state).value)
+                    return thenBranch.evaluate(state);
+                return elseBranch.evaluate(state);
+            }, conditionNode.hasDelay);
+        }
+
+        // branches which contain delays are evaluated first, as the interpreter does
+        var thenHasDelay = thenNode.hasDelay;
+        var elseHasDelay = elseNode.hasDelay;
+        return new Node<>(state -> {
+            var thenResult = thenHasDelay ? thenBranch.evaluate(state) : null;
+            var elseResult = elseHasDelay ? elseBranch.evaluate(state) : null;
+            if (condition.evaluate(state).value)
+                return thenHasDelay ? thenResult : thenBranch.evaluate(state);
+            return elseHasDelay ? elseResult : elseBranch.evaluate(state);
+        }, true);
+    }
+
+    private <T extends RSValue> Node<T> compileCall(RSExpr.Call<T> expr, Scope scope) {
+        var argumentNodes = new Node<?>[expr.arguments.length];
+        var arguments = new Closure<?>[expr.arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            argumentNodes[i] = compile(expr.arguments[i], scope);
+            arguments[i] = argumentNodes[i].closure;
+        }
+
+        // inline the body of the function, with slots offset by the position of the call
+        var argSlotOffset = scope.argSlotOffset + expr.argScopeOffset;
+        var functionScope = new Scope(argSlotOffset, scope.delaySlotOffset + expr.delayScopeOffset);
+        var bodyNode = compile(expr.function.body, functionScope);
+        var body = bodyNode.closure;
+
+        if (!bodyNode.hasDelay)
+            body = memoize(body, argSlotOffset, arguments.length);
+
+        var finalBody = body;
+        return new Node<>(state -> {
+            for (int i = 0; i < arguments.length; i++)
+                state.setArgValue(argSlotOffset + i, arguments[i].evaluate(state));
+            return finalBody.evaluate(state);
+        }, bodyNode.hasDelay || anyHasDelay(argumentNodes));
+    }
+
+    /**
+     * Wraps the delay-free body of a function, so that its value is only computed again
+     * when either its arguments or one of the inputs it read changed
+     */
+    private <T extends RSValue> Closure<T> memoize(Closure<T> body, int argSlotOffset, int argCount) {
+        var memoSlot = memoSlotCount++;
+        return state -> {
+            @SuppressWarnings({"unchecked"})
+            var memoizedValue = (T) state.getMemoizedValue(memoSlot, argSlotOffset, argCount);
+            if (memoizedValue != null)
+                return memoizedValue;
+            var firstRead = state.startMemoization();
+            T value = null;
+            try {
+                value = body.evaluate(state);
+                return value;
+            } finally {
+                // when the body fails, nothing is memoized, but the memoization must still end
+                state.endMemoization(memoSlot, argSlotOffset, argCount, firstRead, value);
+            }
+        };
+    }
+
+    private <T extends RSValue, CondT extends RSMatchable> Node<T> compileEnumMatch(
+            RSExpr.EnumMatch<T, CondT> expr,
+            Scope scope
+    ) {
+        var matchedNode = compile(expr.expr, scope);
+        var branchNodes = compileAll(expr.branches, scope);
+        var matched = matchedNode.closure;
+        var branches = getClosures(branchNodes);
+
+        if (!anyHasDelay(branchNodes)) {
+            return new Node<>(state -> {
+                var matchedValue = matched.evaluate(state);
+                state.trackRead(matchedValue);
+                return branches[matchedValue.getEnumValue()].evaluate(state);
+            }, matchedNode.hasDelay);
+        }
+
+        var branchHasDelay = getDelayFlags(branchNodes);
+        return new Node<>(state -> {
+            var matchedValue = matched.evaluate(state);
+            state.trackRead(matchedValue);
+            var branchIndex = matchedValue.getEnumValue();
+            T result = null;
+            for (int i = 0; i < branches.length; i++) {
+                if (i == branchIndex)
+                    result = branches[i].evaluate(state);
+                else if (branchHasDelay[i])
+                    branches[i].evaluate(state);
+            }
+            return result;
+        }, true);
+    }
+
+    private <T extends RSValue> Node<T> compileOptionalMatch(RSExpr.OptionalMatch<T> expr, Scope scope) {
+        var optionalNode = compile(expr.expr, scope);
+        var caseNoneNode = compile(expr.caseNone, scope);
+
+        // the content of the optional gets its own slot, which only the "some" case can refer to
+        var varSlot = varSlotCount++;
+        var shadowedSlot = scope.varSlots.put(expr.name, varSlot);
+        var caseSomeNode = compile(expr.caseSome, scope);
+        if (shadowedSlot == null)
+            scope.varSlots.remove(expr.name);
+        else
+            scope.varSlots.put(expr.name, shadowedSlot);
+
+        var optional = optionalNode.closure;
+        var caseNone = caseNoneNode.closure;
+        var caseSome = caseSomeNode.closure;
+        var caseNoneHasDelay = caseNoneNode.hasDelay;
+        return new Node<>(state -> {
+            var value = optional.evaluate(state).value;
+            if (value == null)
+                return caseNone.evaluate(state);
+            if (caseNoneHasDelay)
+                caseNone.evaluate(state);
+            state.setVarValue(varSlot, value);
+            return caseSome.evaluate(state);
+        }, optionalNode.hasDelay || caseNoneHasDelay || caseSomeNode.hasDelay);
+    }
+
+    @SuppressWarnings({"unchecked", "fallthrough"})
+    private <T extends RSValue> Node<T> compileDelay(RSExpr.Delay<T> expr, Scope scope) {
+        var delaySlot = scope.delaySlotOffset + expr.delaySlotIndex;
+        var duration = expr.duration;
+        var delayedExpr = compile(expr.expr, scope).closure;
+
+        return new Node<>(state -> {
+            switch (state.evalMode) {
+                case INITIALIZE: {
+                    // when initializing, all values propagate instantaneously
+                    T newValue = delayedExpr.evaluate(state);
+                    state.setDelayCurrentValue(delaySlot, newValue);
+                    state.setDelayLaggingValue(delaySlot, newValue);
+                    return newValue;
+                }
+                case DELAY_UPDATE:
+                    // if this slot received a planned update, we must return the value from the update
+                    if (state.hasDelaySlotChanged(delaySlot))
+                        return (T) state.getDelayLaggingValue(delaySlot);
+                    // otherwise, behave as if the input changed
+                    // FALLTHROUGH
+                case INPUT_CHANGE:
+                    T newValue = delayedExpr.evaluate(state);
+
+                    // if the value of the expression changed, plan an update
+                    if (!newValue.equals(state.getDelayCurrentValue(delaySlot))) {
+                        state.planDelayedUpdate(delaySlot, newValue, duration);
+                        state.setDelayCurrentValue(delaySlot, newValue);
+                    }
+                    return (T) state.getDelayLaggingValue(delaySlot);
+            }
+            return null;
+        }, true);
+    }
+
+    private Node<RSOptional<RouteState>> compileReservedRoute(RSExpr.ReservedRoute expr, Scope scope) {
+        var signalNode = compile(expr.signal, scope);
+        var signal = signalNode.closure;
+        // candidates are filled in by the dependency binder, after compilation
+        var routeCandidates = expr.routeCandidates;
+
+        return new Node<>(state -> {
+            var currentSignal = signal.evaluate(state).signal;
+            for (var candidate : routeCandidates) {
+                var routeState = state.infraState.getRouteState(candidate.index);
+                state.trackRead(routeState);
+                if (routeState.status == RouteStatus.RESERVED
+                        && routeState.route.signalsWithEntry.contains(currentSignal))
+                    return new RSOptional<>(routeState);
+            }
+            return new RSOptional<>(null);
+        }, signalNode.hasDelay);
+    }
+
+    private Node<RSOptional<SignalState>> compileNextSignal(RSExpr.NextSignal expr, Scope scope) {
+        var signalNode = compile(expr.signal, scope);
+        var routeNode = compile(expr.route, scope);
+        var signal = signalNode.closure;
+        var route = routeNode.closure;
+
+        return new Node<>(state -> {
+            var currentRoute = route.evaluate(state).route;
+            var currentSignal = signal.evaluate(state).signal;
+            var signalsWithEntry = currentRoute.signalsWithEntry;
+            for (int i = 0; i < signalsWithEntry.size() - 1; i++) {
+                if (signalsWithEntry.get(i).equals(currentSignal)) {
+                    var nextSignal = signalsWithEntry.get(i + 1);
+                    return new RSOptional<>(state.infraState.getSignalState(nextSignal.index));
+                }
+            }
+            return new RSOptional<>(null);
+        }, signalNode.hasDelay || routeNode.hasDelay);
+    }
+}
@@ -2,6 +2,9 @@ package fr.sncf.osrd.infra.railscript;
 
 import fr.sncf.osrd.infra.railscript.value.RSValue;
 import fr.sncf.osrd.infra_state.InfraState;
+import fr.sncf.osrd.infra_state.RouteState;
+import fr.sncf.osrd.infra_state.SignalState;
+import fr.sncf.osrd.infra_state.SwitchState;
 import fr.sncf.osrd.utils.DeepComparable;
 
 import java.util.Arrays;
@@ -24,6 +27,7 @@ public class RSExprState<T extends RSValue> implements DeepComparable<RSExprStat
 
     /** The expression this is the state of */
     private final transient RSExpr<T> rootExpr;
+    private final transient RSCompiledExpr<T> compiledExpr;
 
     // region PERSISTENT_STATE
     private final RSValue[] delayLaggingStates;
@@ -35,12 +39,27 @@ public class RSExprState<T extends RSValue> implements DeepComparable<RSExprStat
     transient RSExprEvalMode evalMode = RSExprEvalMode.INITIALIZE;
     final transient RSValue[] argStates;
     final transient HashMap<String, RSValue> variablesInScope;
+    private final transient RSValue[] varStates;
     transient int argScopeOffset = 0;
     transient int delayScopeOffset = 0;
     private transient int lastUpdatedDelaySlot = -1;
     private transient RSDelayHandler delayHandler = null;
     // endregion
 
+    // region MEMOIZATION
+    /** The last value of each memoized expression, along with the inputs it was computed from */
+    private final transient RSValue[] memoValues;
+    private final transient RSValue[][] memoArgs;
+    private final transient Object[][] memoInputs;
+    private final transient Object[][] memoInputValues;
+    /** The number of memoized expressions being computed, which need to know what inputs are read */
+    private transient int memoDepth = 0;
+    /** The inputs read while computing memoized expressions, along with the values which were read */
+    private transient Object[] readInputs = new Object[16];
+    private transient Object[] readInputValues = new Object[16];
+    private transient int readCount = 0;
+    // endregion
+
     void pushScope(int argScopeOffset, int delayScopeOffset) {
         assert argScopeOffset >= 0;
         assert delayScopeOffset >= 0;
@@ -67,10 +86,18 @@ public class RSExprState<T extends RSValue> implements DeepComparable<RSExprStat
         return delayCurrentStates[delayScopeOffset + index];
     }
 
+    RSValue getVarValue(int index) {
+        return varStates[index];
+    }
+
     void setArgValue(int index, RSValue value) {
         argStates[argScopeOffset + index] = value;
     }
 
+    void setVarValue(int index, RSValue value) {
+        varStates[index] = value;
+    }
+
     void setDelayLaggingValue(int index, RSValue value) {
         delayLaggingStates[delayScopeOffset + index] = value;
     }
@@ -84,17 +111,90 @@ public class RSExprState<T extends RSValue> implements DeepComparable<RSExprStat
         delayHandler.planDelayedUpdate(delayScopeOffset + index, value, delay);
     }
 
+    /** Returns the value an input currently has: its status, position or aspects */
+    private static Object getInputValue(Object input) {
+        if (input.getClass() == RouteState.class)
+            return ((RouteState) input).status;
+        if (input.getClass() == SwitchState.class)
+            return ((SwitchState) input).getPosition();
+        return ((SignalState) input).aspects;
+    }
+
+    /** Records that an input was read, so that the memoized expressions being computed depend on it */
+    void trackRead(Object input) {
+        if (memoDepth == 0)
+            return;
+        if (readCount == readInputs.length) {
+            readInputs = Arrays.copyOf(readInputs, readCount * 2);
+            readInputValues = Arrays.copyOf(readInputValues, readCount * 2);
+        }
+        readInputs[readCount] = input;
+        readInputValues[readCount] = getInputValue(input);
+        readCount++;
+    }
+
+    /** Returns the memoized value of a function body, or null if its arguments or inputs changed since then */
+    RSValue getMemoizedValue(int memoSlot, int argSlot, int argCount) {
+        var value = memoValues[memoSlot];
+        if (value == null)
+            return null;
+        var args = memoArgs[memoSlot];
+        for (int i = 0; i < argCount; i++)
+            if (argStates[argSlot + i] != args[i])
+                return null;
+        var inputs = memoInputs[memoSlot];
+        var inputValues = memoInputValues[memoSlot];
+        for (int i = 0; i < inputs.length; i++)
+            if (getInputValue(inputs[i]) != inputValues[i])
+                return null;
+        // the memoized expressions this one is part of depend on the same inputs
+        for (var input : inputs)
+            trackRead(input);
+        return value;
+    }
+
+    /** Starts computing a memoized expression, and returns the position of its first input read */
+    int startMemoization() {
+        memoDepth++;
+        return readCount;
+    }
+
+    /**
+     * Stores the value of a function body, along with its arguments and the inputs read since it started.
+     * A null value, which is stored when computing the body failed, is never returned as a memoized value.
+     */
+    void endMemoization(int memoSlot, int argSlot, int argCount, int firstRead, RSValue value) {
+        memoValues[memoSlot] = value;
+        memoArgs[memoSlot] = Arrays.copyOfRange(argStates, argSlot, argSlot + argCount);
+        memoInputs[memoSlot] = Arrays.copyOfRange(readInputs, firstRead, readCount);
+        memoInputValues[memoSlot] = Arrays.copyOfRange(readInputValues, firstRead, readCount);
+        memoDepth--;
+        if (memoDepth == 0)
+            readCount = 0;
+    }
+
     boolean hasDelaySlotChanged(int index) {
         assert evalMode == RSExprEvalMode.DELAY_UPDATE;
-        return argScopeOffset + index == lastUpdatedDelaySlot;
+        return delayScopeOffset + index == lastUpdatedDelaySlot;
     }
 
-    /** Create a new RSExprState */
+    /** Create a new RSExprState, compiling the expression */
     public RSExprState(RSExpr<T> rootExpr, int argSlotCount, int delaySlotCount) {
+        this(rootExpr, RSExprCompiler.compile(rootExpr), argSlotCount, delaySlotCount);
+    }
+
+    /** Create a new RSExprState, which evaluates an already compiled expression */
+    RSExprState(RSExpr<T> rootExpr, RSCompiledExpr<T> compiledExpr, int argSlotCount, int delaySlotCount) {
         this.rootExpr = rootExpr;
+        this.compiledExpr = compiledExpr;
         this.argStates = new RSValue[argSlotCount];
         this.delayCurrentStates = new RSValue[delaySlotCount];
         this.delayLaggingStates = new RSValue[delaySlotCount];
+        this.varStates = new RSValue[compiledExpr.varSlotCount];
+        this.memoValues = new RSValue[compiledExpr.memoSlotCount];
+        this.memoArgs = new RSValue[compiledExpr.memoSlotCount][];
+        this.memoInputs = new Object[compiledExpr.memoSlotCount][];
+        this.memoInputValues = new Object[compiledExpr.memoSlotCount][];
         variablesInScope = new HashMap<>();
     }
 
@@ -102,8 +202,11 @@ public class RSExprState<T extends RSValue> implements DeepComparable<RSExprStat
         this.argScopeOffset = 0;
         this.delayHandler = delayHandler;
         this.evalMode = evalMode;
+        // memoized values were computed from the inputs of another infrastructure state
+        if (infraState != this.infraState)
+            Arrays.fill(memoValues, null);
         this.infraState = infraState;
-        var res = rootExpr.evaluate(this);
+        var res = compiledExpr.root.evaluate(this);
         assert argScopeOffset == 0;
         assert delayScopeOffset == 0;
         return res;
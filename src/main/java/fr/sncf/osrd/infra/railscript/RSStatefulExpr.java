@@ -7,16 +7,19 @@ public class RSStatefulExpr<T extends RSValue> {
     public final RSExpr<T> rootExpr;
     public final int argSlotCount;
     public final int delaySlotCount;
+    /** The expression is compiled once, and shared by the states of all simulations */
+    public final RSCompiledExpr<T> compiledExpr;
 
     /** Create a new state container for a RailScript expression */
     public RSStatefulExpr(RSExpr<T> rootExpr, int argSlotCount, int delaySlotCount) {
         this.rootExpr = rootExpr;
         this.argSlotCount = argSlotCount;
         this.delaySlotCount = delaySlotCount;
+        this.compiledExpr = RSExprCompiler.compile(rootExpr);
     }
 
     public RSExprState<T> makeState() {
-        return new RSExprState<>(rootExpr, argSlotCount, delaySlotCount);
+        return new RSExprState<>(rootExpr, compiledExpr, argSlotCount, delaySlotCount);
     }
 
     public void accept(RSExprVisitor visitor) throws InvalidInfraException {
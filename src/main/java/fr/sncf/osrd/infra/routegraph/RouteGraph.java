@@ -10,9 +10,13 @@ import fr.sncf.osrd.infra.trackgraph.Waypoint;
 import fr.sncf.osrd.infra.waypointgraph.TVDSectionPath;
 import fr.sncf.osrd.infra.waypointgraph.WaypointGraph;
 import fr.sncf.osrd.utils.SortedArraySet;
+import fr.sncf.osrd.utils.graph.ContractionHierarchy;
 import fr.sncf.osrd.utils.graph.DirNGraph;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import fr.sncf.osrd.utils.graph.EdgeEndpoint;
+import fr.sncf.osrd.utils.graph.GeoDistanceEstimator;
+import fr.sncf.osrd.utils.graph.LandmarkDistanceEstimator;
 import fr.sncf.osrd.utils.graph.UndirectedBiEdgeID;
 
 import java.util.*;
@@ -20,6 +24,15 @@ import java.util.*;
 public class RouteGraph extends DirNGraph<Route, Waypoint> {
     public final HashMap<String, Route> routeMap = new HashMap<>();
 
+    // lower bounds of distances between routes, built in the background or by the first search
+    private volatile DistanceEstimator<Route> distanceEstimator = null;
+    // only one thread builds the estimator, and searches wait for it without locking the graph
+    private final Object distanceEstimatorLock = new Object();
+    // an optional preprocessing of the graph which makes pathfinding much faster, built in the background
+    private volatile ContractionHierarchy<Route> contractionHierarchy = null;
+    // the build takes a while, and mustn't block searches which don't use it
+    private final Object contractionHierarchyLock = new Object();
+
     @Override
     public List<Route> getNeighbors(Route route) {
         var lastTvdSectionPathIndex = route.tvdSectionsPaths.size() - 1;
@@ -30,6 +43,47 @@ public class RouteGraph extends DirNGraph<Route, Waypoint> {
         return node.getRouteNeighbors(nodeDirection);
     }
 
+    /** Gets the coordinates of the start of a route, interpolated along its first track section */
+    private static double[] getEntryCoordinates(Route route, EdgeDirection direction) {
+        var firstTVDSectionPath = route.tvdSectionsPaths.get(0);
+        var firstTrackSection = firstTVDSectionPath.getTrackSections(route.tvdSectionsPathDirections.get(0))[0];
+        return firstTrackSection.edge.getCoordinates(firstTrackSection.getBeginPosition());
+    }
+
+    /**
+     * Gets what guides pathfinding towards goals, using the coordinates of routes if they are
+     * all known, and distances to landmarks otherwise
+     */
+    public DistanceEstimator<Route> getDistanceEstimator() {
+        var res = distanceEstimator;
+        if (res != null)
+            return res;
+        synchronized (distanceEstimatorLock) {
+            res = distanceEstimator;
+            if (res != null)
+                return res;
+            res = GeoDistanceEstimator.from(this, RouteGraph::getEntryCoordinates);
+            if (res == null)
+                res = LandmarkDistanceEstimator.from(this, LandmarkDistanceEstimator.DEFAULT_LANDMARK_COUNT);
+            distanceEstimator = res;
+            return res;
+        }
+    }
+
+    /** Gets the contraction hierarchy of the graph, or null if it wasn't built yet */
+    public ContractionHierarchy<Route> getContractionHierarchy() {
+        return contractionHierarchy;
+    }
+
+    /** Builds the contraction hierarchy of the graph, if it wasn't already built */
+    public ContractionHierarchy<Route> buildContractionHierarchy() {
+        synchronized (contractionHierarchyLock) {
+            if (contractionHierarchy == null)
+                contractionHierarchy = ContractionHierarchy.from(this);
+            return contractionHierarchy;
+        }
+    }
+
     public static class Builder {
         public RouteGraph routeGraph = new RouteGraph();
         public final WaypointGraph waypointGraph;
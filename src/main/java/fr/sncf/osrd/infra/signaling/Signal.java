@@ -19,6 +19,8 @@ public class Signal implements ActionPoint {
     public final RSStatefulExpr<RSAspectSet> expr;
     public final ArrayList<Signal> signalSubscribers = new ArrayList<>();
     public final ApplicableDirection direction;
+    /** The position of the signal in the order changes propagate in, which is set when the infra is built */
+    public int propagationRank = -1;
 
     private RSAspectSet initialAspects = new RSAspectSet();
     private static final InteractionTypeSet interactionTypeSet =
@@ -39,6 +41,10 @@ public class Signal implements ActionPoint {
         this.sightDistance = sightDistance;
     }
 
+    /**
+     * Evaluates the aspects of the signal at the start of simulations. This is done once, when the infrastructure
+     * is built: the initial state of all simulations then shares these aspects, which must not be mutated.
+     */
     public void evalInitialAspect(InfraState initialState) {
         initialAspects = initialState.getSignalState(index).exprState.evalInit(initialState);
     }
@@ -4,7 +4,10 @@ import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.infra.OperationalPoint;
 import fr.sncf.osrd.utils.CryoMap;
 import fr.sncf.osrd.utils.graph.BiNGraph;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
 import fr.sncf.osrd.utils.graph.EdgeEndpoint;
+import fr.sncf.osrd.utils.graph.GeoDistanceEstimator;
+import fr.sncf.osrd.utils.graph.LandmarkDistanceEstimator;
 
 import java.util.List;
 
@@ -16,6 +19,11 @@ public final class TrackGraph extends BiNGraph<TrackSection, TrackNode> {
     // trackSectionMap a map to track section IDs to track sections
     public final CryoMap<String, TrackSection> trackSectionMap = new CryoMap<>();
 
+    // lower bounds of distances between track sections, built in the background or by the first search
+    private volatile DistanceEstimator<TrackSection> distanceEstimator = null;
+    // only one thread builds the estimator, and searches wait for it without locking the graph
+    private final Object distanceEstimatorLock = new Object();
+
 
     /** Create a placeholder node */
     public PlaceholderNode makePlaceholderNode(String id) {
@@ -82,6 +90,27 @@ public final class TrackGraph extends BiNGraph<TrackSection, TrackNode> {
             edge.validate();
     }
 
+    /**
+     * Gets what guides pathfinding towards goals, using the coordinates of track sections if they are
+     * all known, and distances to landmarks otherwise
+     */
+    public DistanceEstimator<TrackSection> getDistanceEstimator() {
+        var res = distanceEstimator;
+        if (res != null)
+            return res;
+        synchronized (distanceEstimatorLock) {
+            res = distanceEstimator;
+            if (res != null)
+                return res;
+            res = GeoDistanceEstimator.from(
+                    this, (edge, direction) -> edge.getCoordinates(edge.getFirstPosition(direction)));
+            if (res == null)
+                res = LandmarkDistanceEstimator.from(this, LandmarkDistanceEstimator.DEFAULT_LANDMARK_COUNT);
+            distanceEstimator = res;
+            return res;
+        }
+    }
+
     @Override
     public List<TrackSection> getNeighborRels(TrackSection edge, EdgeEndpoint endpoint) {
         return edge.getNeighbors(endpoint);
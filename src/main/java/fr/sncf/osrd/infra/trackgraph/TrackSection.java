@@ -121,6 +121,26 @@ public final class TrackSection extends BiNEdge<TrackSection> {
         this.endpointCoords = endpointCoords;
     }
 
+    /**
+     * Gets the coordinates of a position along the edge, assuming the edge is straight
+     * @param position the position along the edge
+     * @return the x and y coordinates of the position, or null if the coordinates of the edge are unknown
+     */
+    @SuppressFBWarnings({"PZLA_PREFER_ZERO_LENGTH_ARRAYS"})
+    public double[] getCoordinates(double position) {
+        if (endpointCoords == null || endpointCoords.size() != 2)
+            return null;
+        var begin = endpointCoords.get(0);
+        var end = endpointCoords.get(1);
+        if (begin.size() != 2 || end.size() != 2)
+            return null;
+        var ratio = length == 0 ? 0 : position / length;
+        return new double[] {
+                begin.get(0) + (end.get(0) - begin.get(0)) * ratio,
+                begin.get(1) + (end.get(1) - begin.get(1)) * ratio,
+        };
+    }
+
     public static void linkEdges(
             TrackSection edgeA,
             EdgeEndpoint positionOnA,
@@ -3,10 +3,14 @@ package fr.sncf.osrd.infra_state;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import fr.sncf.osrd.infra.Infra;
 import fr.sncf.osrd.infra.SuccessionTable;
+import fr.sncf.osrd.infra.signaling.Signal;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.SimulationError;
 import fr.sncf.osrd.utils.DeepComparable;
 import fr.sncf.osrd.utils.DeepEqualsUtils;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.stream.Stream;
 import java.util.List;
 
@@ -17,6 +21,11 @@ public final class InfraState implements DeepComparable<InfraState> {
     private final TVDSectionState[] tvdSectionStates;
     public final TowerState towerState;
 
+    /** Signal states, sorted such that signals come before the signals which depend on them */
+    private final SignalState[] signalPropagationOrder;
+    /** The propagation ranks of the signals which need to be evaluated again */
+    private final BitSet invalidatedSignals = new BitSet();
+
     @SuppressFBWarnings("EI_EXPOSE_REP2")
     private InfraState(
             SignalState[] signalSignalStates,
@@ -30,6 +39,9 @@ public final class InfraState implements DeepComparable<InfraState> {
         this.switchStates = switchStates;
         this.tvdSectionStates = tvdSectionStates;
         this.towerState = towerState;
+        this.signalPropagationOrder = new SignalState[signalSignalStates.length];
+        for (var signalState : signalSignalStates)
+            signalPropagationOrder[signalState.signal.propagationRank] = signalState;
     }
 
     public SignalState getSignalState(int signalIndex) {
@@ -52,6 +64,22 @@ public final class InfraState implements DeepComparable<InfraState> {
         return tvdSectionStates[tvdSectionIndex];
     }
 
+    /** Marks a signal whose inputs changed, so that it gets evaluated once signal changes are propagated */
+    public void invalidateSignal(Signal signal) {
+        invalidatedSignals.set(signal.propagationRank);
+    }
+
+    /**
+     * Evaluates the signals whose inputs changed. Each signal is evaluated once, after all the signals it
+     * depends on, unless it is invalidated again by a change made while reacting to a new aspect.
+     */
+    public void propagateSignalChanges(Simulation sim) throws SimulationError {
+        for (var rank = invalidatedSignals.nextSetBit(0); rank >= 0; rank = invalidatedSignals.nextSetBit(0)) {
+            invalidatedSignals.clear(rank);
+            signalPropagationOrder[rank].notifyChange(sim);
+        }
+    }
+
     @Override
     public boolean deepEquals(InfraState otherState) {
         if (!DeepEqualsUtils.deepEquals(signalSignalStates, otherState.signalSignalStates))
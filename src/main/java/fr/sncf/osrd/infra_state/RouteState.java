@@ -93,10 +93,8 @@ public final class RouteState implements RSMatchable {
     }
 
     private void notifySignals(Simulation sim) throws SimulationError {
-        for (var signal : route.signalSubscribers) {
-            var signalState = sim.infraState.getSignalState(signal.index);
-            signalState.notifyChange(sim);
-        }
+        for (var signal : route.signalSubscribers)
+            sim.infraState.invalidateSignal(signal);
     }
 
     /** Reserve a route and his tvd sections. Routes that share tvd sections will have the status CONFLICT */
@@ -54,10 +54,8 @@ public final class SignalState implements RSValue {
             var change = new SignalAspectChange(sim, this, newAspects);
             change.apply(sim, this);
             sim.publishChange(change);
-            for (var signal : signal.signalSubscribers) {
-                var signalState = sim.infraState.getSignalState(signal.index);
-                signalState.notifyChange(sim);
-            }
+            for (var signal : signal.signalSubscribers)
+                sim.infraState.invalidateSignal(signal);
             if (trainSubscribed != null)
                 trainSubscribed.reactNewAspects(sim, this);
         }
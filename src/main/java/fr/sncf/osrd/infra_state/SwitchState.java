@@ -53,10 +53,8 @@ public final class SwitchState implements RSMatchable {
             var change = new SwitchPositionChange(sim, this, position);
             change.apply(sim, this);
             sim.publishChange(change);
-            for (var signal : switchRef.signalSubscribers) {
-                var signalState = sim.infraState.getSignalState(signal.index);
-                signalState.notifyChange(sim);
-            }
+            for (var signal : switchRef.signalSubscribers)
+                sim.infraState.invalidateSignal(signal);
         }
     }
 
@@ -2,25 +2,37 @@ package fr.sncf.osrd.infra_state;
 
 import fr.sncf.osrd.infra.SuccessionTable;
 import fr.sncf.osrd.infra.TVDSection;
+import fr.sncf.osrd.infra.trackgraph.Switch;
 import fr.sncf.osrd.train.Train;
 import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.simulation.SimulationError;
 import fr.sncf.osrd.infra.Infra;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.ArrayList;
 
+/**
+ * The interlocking engine, which reserves the routes requested by trains in the order given by the
+ * succession tables of switches. Switches, TVD sections and routes are referred to by their index,
+ * and trains by a dense index assigned the first time their identifier is seen.
+ */
 public class TowerState {
+    static final Logger logger = LoggerFactory.getLogger(TowerState.class);
 
     public final List<SuccessionTable> initTables;
-    // map switchID -> SwitchState
-    private HashMap<String, State> state;
-    // map tvdSectionId -> HashSet<Request>
-    private HashMap<String, HashSet<Request>> waitingList;
-    // map trainID -> routeID
-    private HashMap<String, String> lastRequestedRoute;
+    // switchIndex -> succession queue of the switch
+    private final SwitchQueue[] switchQueues;
+    // tvdSectionIndex -> requests waiting for the tvd section to be released
+    // requests are kept as objects, as an accepted request must not be mistaken for a later one of the same train
+    private final ArrayList<ArrayList<Request>> waitingLists;
+    // trainID -> train index
+    private final HashMap<String, Integer> trainIndexes = new HashMap<>();
+    // train index -> route index
+    private int[] lastRequestedRoute = new int[16];
 
     /**
      * Create a switch post without theoric trains successions tables
@@ -42,126 +54,106 @@ public class TowerState {
      * @return a TowerState with the given trains succcessions tables
      */
     public static TowerState makeTowerState(Infra infra, List<SuccessionTable> initTables) {
-        
-        var state = new HashMap<String, State>();
-        var waitingList = new HashMap<String, HashSet<Request>>();
-        var lastRequestedRoute = new HashMap<String, String>();
-
-        for (var table : initTables) {
-            var q = new State(new SuccessionTable(table), 0, null, new HashMap<>());
-            state.put(table.switchID, q);
-        }
-
-        // Create default states for unspecified switches
+        var switchQueues = new SwitchQueue[infra.switches.size()];
+        var switchesByID = new HashMap<String, Switch>();
         for (var s : infra.switches) {
-            if (!state.containsKey(s.id)) {
-                state.put(s.id, new State(new SuccessionTable(s.id, new ArrayList<>()),
-                        0, null, new HashMap<>()));
-            }
+            switchQueues[s.switchIndex] = new SwitchQueue();
+            switchesByID.put(s.id, s);
         }
 
-        var sps = new TowerState(initTables, state, waitingList, lastRequestedRoute);
+        var waitingLists = new ArrayList<ArrayList<Request>>();
+        for (int i = 0; i < infra.tvdSections.size(); i++)
+            waitingLists.add(new ArrayList<>());
+
+        var sps = new TowerState(initTables, switchQueues, waitingLists);
 
         for (var table : initTables) {
-            for (var trainID : table.table) {
-                sps.plan(table.switchID, trainID);
+            var infraSwitch = switchesByID.get(table.switchID);
+            // just like switches without any table, tables of unknown switches don't constrain trains
+            if (infraSwitch == null) {
+                logger.warn("ignoring the succession table of unknown switch {}", table.switchID);
+                continue;
             }
+            var queue = switchQueues[infraSwitch.switchIndex];
+            for (var trainID : table.table)
+                queue.plan(sps.getTrainIndex(trainID));
         }
-
-        for (var tvdID : infra.tvdSections.keySet())
-            waitingList.put(tvdID, new HashSet<>());
         return sps;
     }
 
     private TowerState(
             List<SuccessionTable> initTables,
-            HashMap<String, State> state,
-            HashMap<String, HashSet<Request>> waitingList,
-            HashMap<String, String> lastRequestedRoute
+            SwitchQueue[] switchQueues,
+            ArrayList<ArrayList<Request>> waitingLists
     ) {
         this.initTables = initTables;
-        this.state = state;
-        this.waitingList = waitingList;
-        this.lastRequestedRoute = lastRequestedRoute;
+        this.switchQueues = switchQueues;
+        this.waitingLists = waitingLists;
+    }
+
+    /** Returns the dense index of a train, assigning one if the train wasn't seen yet */
+    private int getTrainIndex(String trainID) {
+        var trainIndex = trainIndexes.get(trainID);
+        if (trainIndex != null)
+            return trainIndex;
+
+        trainIndex = trainIndexes.size();
+        trainIndexes.put(trainID, trainIndex);
+        if (trainIndex == lastRequestedRoute.length) {
+            lastRequestedRoute = Arrays.copyOf(lastRequestedRoute, trainIndex * 2);
+            Arrays.fill(lastRequestedRoute, trainIndex, lastRequestedRoute.length, -1);
+        } else {
+            lastRequestedRoute[trainIndex] = -1;
+        }
+        return trainIndex;
     }
 
     /**
      * check if a switch is set for a train
-     * @param switchID the identifier of the switch
+     * @param s the switch
      * @param trainID the identifier of the train
      * @return true iff the given switch is set for the given train
      */
-    public boolean isCurrentAllowed(String switchID, String trainID) {
-        assert state.containsKey(switchID);
-        var q = state.get(switchID);
-        return trainID.equals(q.currentTrainAllowed);
-    }
-
-    private boolean isPlanned(String switchID, String trainID) {
-        assert state.containsKey(switchID);
-        var q = state.get(switchID);
-        return q.trainCount.getOrDefault(trainID, 0) > 0;
-    }
-
-    private boolean isNext(String switchID, String trainID) {
-        assert state.containsKey(switchID);
-        var q = state.get(switchID);
-        return q.table.get(q.currentIndex).equals(trainID);
-    }
-
-    private void plan(String switchID, String trainID) {
-        assert state.containsKey(switchID);
-        var q = state.get(switchID);
-        q.table.add(trainID);
-        var count = q.trainCount.getOrDefault(trainID, 0);
-        q.trainCount.put(trainID, count + 1);
-    }
-
-    private void next(String switchID) {
-        assert state.containsKey(switchID);
-        var q = state.get(switchID);
-        var trainID = q.table.get(q.currentIndex);
-        var count = q.trainCount.get(trainID);
-        q.trainCount.put(trainID, count - 1);
-        q.currentIndex++;
+    public boolean isCurrentAllowed(Switch s, String trainID) {
+        var trainIndex = trainIndexes.get(trainID);
+        return trainIndex != null && switchQueues[s.switchIndex].currentTrainAllowed == trainIndex;
     }
 
     private void process(Simulation sim, Request request) throws SimulationError {
-
-        var trainID = request.train.schedule.trainID;
+        var route = request.routeState.route;
+        var trainIndex = request.trainIndex;
 
         // check if the route is free
-        for (var tvdSectionPath : request.routeState.route.tvdSectionsPaths) {
+        for (var tvdSectionPath : route.tvdSectionsPaths) {
             var tvdSectionIndex = tvdSectionPath.tvdSection.index;
             if (sim.infraState.getTvdSectionState(tvdSectionIndex).isReserved()) {
-                System.out.println("TOWER NOT FREE : " + request.train.getName() + " : " + request.routeState.route.id);
+                logger.debug("route {} not free for train {}", route.id, request.train.getName());
                 return;
             }
         }
         // check if the train is next on each switch of the route
-        for (var s : request.routeState.route.switchesPosition.keySet()) {
-            if (!isPlanned(s.id, trainID)) { // plan the train if not planned
-                plan(s.id, trainID);
-            }
-            if (!isNext(s.id, trainID)) { // check if next
-                System.out.println("TOWER NOT NEXT : " + request.train.getName() + " : " + request.routeState.route.id);
+        for (var s : route.switchesPosition.keySet()) {
+            var queue = switchQueues[s.switchIndex];
+            if (!queue.isPlanned(trainIndex)) // plan the train if not planned
+                queue.plan(trainIndex);
+            if (!queue.isNext(trainIndex)) { // check if next
+                logger.debug("train {} not next on switch {} of route {}", request.train.getName(), s.id, route.id);
                 return;
             }
         }
 
-        // erase the request of the waiting list of each tvd section of the route
-        for (var tvdSectionPath : request.routeState.route.tvdSectionsPaths) {
-            waitingList.get(tvdSectionPath.tvdSection.id).remove(request);
-        }
+        // the request gets dropped from the waiting list of each tvd section of the route when next iterated
+        request.waiting = false;
 
         // go to next train to each switch of the route
-        for (var s : request.routeState.route.switchesPosition.keySet()) {
-            next(s.id);
-            state.get(s.id).currentTrainAllowed = request.train.getName();
+        for (var s : route.switchesPosition.keySet()) {
+            var queue = switchQueues[s.switchIndex];
+            queue.next();
+            queue.currentTrainAllowed = trainIndex;
         }
 
         // reserve the route
-        System.out.println("TOWER ACCEPTED : " + request.train.getName() + " : " + request.routeState.route.id);
+        logger.debug("route {} accepted for train {}", route.id, request.train.getName());
         request.routeState.reserve(sim);
     }
 
@@ -173,19 +165,30 @@ public class TowerState {
      * @throws SimulationError thrown when an error happens
      */
     public void request(Simulation sim, RouteState routeState, Train train) throws SimulationError {
-        var trainID = train.schedule.trainID;
-        if (!lastRequestedRoute.containsKey(trainID) || !lastRequestedRoute.get(trainID).equals(routeState.route.id)) {
-            lastRequestedRoute.put(trainID, routeState.route.id);
-
-            System.out.println("TOWER REQUEST : " + train.getName() + " : " + routeState.route.id);
-
-            var request = new Request(train, routeState);
-            for (var tvdSectionPath : routeState.route.tvdSectionsPaths) {
-                var tvdSectionID = tvdSectionPath.tvdSection.id;
-                waitingList.get(tvdSectionID).add(request);
+        var trainIndex = getTrainIndex(train.schedule.trainID);
+        var route = routeState.route;
+        if (lastRequestedRoute[trainIndex] == route.index)
+            return;
+        lastRequestedRoute[trainIndex] = route.index;
+
+        logger.debug("route {} requested by train {}", route.id, train.getName());
+
+        // the same request may still be waiting, if the train requested other routes in between
+        if (!route.tvdSectionsPaths.isEmpty()) {
+            var firstWaitingList = waitingLists.get(route.tvdSectionsPaths.get(0).tvdSection.index);
+            for (var waitingRequest : firstWaitingList) {
+                if (waitingRequest.waiting && waitingRequest.trainIndex == trainIndex
+                        && waitingRequest.routeState == routeState) {
+                    process(sim, waitingRequest);
+                    return;
+                }
             }
-            process(sim, request);
         }
+
+        var request = new Request(train, trainIndex, routeState);
+        for (var tvdSectionPath : route.tvdSectionsPaths)
+            waitingLists.get(tvdSectionPath.tvdSection.index).add(request);
+        process(sim, request);
     }
 
     /**
@@ -195,59 +198,79 @@ public class TowerState {
      * @throws SimulationError thrown when an error happens
      */
     public void notifyFreed(Simulation sim, TVDSection tvdSection) throws SimulationError {
-        var list = new ArrayList<>(waitingList.get(tvdSection.id));
-        for (var request : list) {
-            process(sim, request);
+        var waitingList = waitingLists.get(tvdSection.index);
+        // process the waiting requests in place, compacting the list as accepted requests are dropped
+        var waitingCount = 0;
+        var requestCount = waitingList.size();
+        for (int i = 0; i < requestCount; i++) {
+            var request = waitingList.get(i);
+            if (request.waiting)
+                process(sim, request);
+            if (request.waiting)
+                waitingList.set(waitingCount++, request);
         }
+        // keep the requests which may have been added while processing
+        for (int i = requestCount; i < waitingList.size(); i++)
+            waitingList.set(waitingCount++, waitingList.get(i));
+        waitingList.subList(waitingCount, waitingList.size()).clear();
     }
 
     private static class Request {
-        public Train train;
-        public RouteState routeState;
+        public final Train train;
+        public final int trainIndex;
+        public final RouteState routeState;
+        /** Whether the request is still waiting for the route to be reserved */
+        public boolean waiting = true;
 
-        public Request(Train train, RouteState routeState) {
+        public Request(Train train, int trainIndex, RouteState routeState) {
             this.train = train;
+            this.trainIndex = trainIndex;
             this.routeState = routeState;
         }
 
         @Override
-        public boolean equals(Object object) {
-            if (!(object instanceof Request)) {
-                return false;
-            }
-            var request = (Request) object;
-            return train.schedule.trainID.equals(request.train.schedule.trainID)
-                    && routeState.route.id.equals(request.routeState.route.id);
+        public String toString() {
+            return train.schedule.trainID + "#" + routeState.route.id;
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return toString().hashCode();
+    /** The succession table of a switch, as a queue of train indexes */
+    private static class SwitchQueue {
+        int[] table = new int[4];
+        int size = 0;
+        int currentIndex = 0;
+        int currentTrainAllowed = -1;
+        // train index -> number of times the train is planned on the switch
+        int[] trainCount = new int[4];
+
+        boolean isPlanned(int trainIndex) {
+            return trainIndex < trainCount.length && trainCount[trainIndex] > 0;
         }
 
-        @Override
-        public String toString() {
-            return train.schedule.trainID + "#" + routeState.route.id;
+        boolean isNext(int trainIndex) {
+            return table[currentIndex] == trainIndex;
+        }
+
+        void plan(int trainIndex) {
+            if (size == table.length) {
+                // drop the trains which already went through the switch, or make room for more
+                if (currentIndex > size / 2) {
+                    System.arraycopy(table, currentIndex, table, 0, size - currentIndex);
+                    size -= currentIndex;
+                    currentIndex = 0;
+                } else {
+                    table = Arrays.copyOf(table, size * 2);
+                }
+            }
+            table[size++] = trainIndex;
+            if (trainIndex >= trainCount.length)
+                trainCount = Arrays.copyOf(trainCount, Math.max(trainIndex + 1, trainCount.length * 2));
+            trainCount[trainIndex]++;
         }
-    }
 
-    private static class State {
-        
-        SuccessionTable table;
-        int currentIndex;
-        String currentTrainAllowed;
-        HashMap<String, Integer> trainCount;
-
-        public State(
-                SuccessionTable table,
-                int currentIndex,
-                String currentTrainAllowed,
-                HashMap<String, Integer> trainCount
-        ) {
-            this.table = table;
-            this.currentIndex = currentIndex;
-            this.currentTrainAllowed = currentTrainAllowed;
-            this.trainCount = trainCount;
+        void next() {
+            trainCount[table[currentIndex]]--;
+            currentIndex++;
         }
     }
 }
@@ -0,0 +1,428 @@
+package fr.sncf.osrd.railjson.parser;
+
+import static fr.sncf.osrd.infra.trackgraph.TrackSection.linkEdges;
+
+import fr.sncf.osrd.infra.*;
+import fr.sncf.osrd.infra.railscript.RSExpr;
+import fr.sncf.osrd.infra.railscript.RSExprVisitor;
+import fr.sncf.osrd.infra.railscript.RSFunction;
+import fr.sncf.osrd.infra.routegraph.Route;
+import fr.sncf.osrd.infra.routegraph.RouteGraph;
+import fr.sncf.osrd.infra.signaling.Aspect;
+import fr.sncf.osrd.infra.signaling.AspectConstraint;
+import fr.sncf.osrd.infra.signaling.Signal;
+import fr.sncf.osrd.infra.trackgraph.*;
+import fr.sncf.osrd.railjson.schema.common.ID;
+import fr.sncf.osrd.railjson.schema.infra.*;
+import fr.sncf.osrd.railjson.schema.infra.railscript.RJSRSFunction;
+import fr.sncf.osrd.railjson.schema.infra.signaling.RJSAspect;
+import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSBufferStop;
+import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSRouteWaypoint;
+import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSTrainDetector;
+import fr.sncf.osrd.utils.RangeValue;
+import fr.sncf.osrd.utils.SortedArraySet;
+import fr.sncf.osrd.utils.graph.ApplicableDirection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+/**
+ * <p>Builds an infrastructure from RailJSON objects, which can be added while the document is being read.</p>
+ * <p>Objects are converted as soon as all the parts they depend on were read, and kept until then.
+ * When links come before track sections, as they do in documents with sorted keys, track sections are
+ * built as they are read. Switches and routes are built at the end, once the track graph is complete.</p>
+ */
+final class InfraBuilder {
+    /** The parts of a RailJSON infrastructure, in the order they are best read in */
+    enum Part {
+        OPERATIONAL_POINTS,
+        ASPECTS,
+        SCRIPT_FUNCTIONS,
+        SPEED_SECTIONS,
+        TRACK_SECTION_LINKS,
+        TRACK_SECTIONS,
+        SWITCHES,
+        TVD_SECTIONS,
+        ROUTES,
+    }
+
+    private final EnumSet<Part> readParts = EnumSet.noneOf(Part.class);
+
+    private final TrackGraph trackGraph = new TrackGraph();
+    private final TrackNodeIDs nodeIDs = new TrackNodeIDs();
+    private final HashMap<String, Aspect> aspectsMap = new HashMap<>();
+    private final HashMap<String, RSFunction<?>> scriptFunctions = new HashMap<>();
+    private final HashMap<String, SpeedSection> speedSections = new HashMap<>();
+    private final HashMap<String, TrackSection> infraTrackSections = new HashMap<>();
+    private final HashMap<String, Waypoint> waypointsMap = new HashMap<>();
+    private final HashMap<String, Signal> detectorIdToSignalNormalMap = new HashMap<>();
+    private final HashMap<String, Signal> detectorIdToSignalReverseMap = new HashMap<>();
+    private final ArrayList<Signal> signals = new ArrayList<>();
+    private final HashMap<String, TVDSection> tvdSectionsMap = new HashMap<>();
+    // Need a unique index for waypoint graph
+    private int waypointIndex = 0;
+    private int aspectIndex = 0;
+    private int tvdSectionIndex = 0;
+
+    // what can't be converted until some other parts are read
+    private final ArrayList<RJSRSFunction> pendingScriptFunctions = new ArrayList<>();
+    private final ArrayList<RJSTrackSection> pendingTrackSections = new ArrayList<>();
+    private final ArrayList<RJSTVDSection> pendingTVDSections = new ArrayList<>();
+    private final ArrayList<RJSTrackSectionLink> trackSectionLinks = new ArrayList<>();
+    private final ArrayList<RJSSwitch> rjsSwitches = new ArrayList<>();
+    private final ArrayList<RJSRoute> rjsRoutes = new ArrayList<>();
+
+    boolean wasRead(Part part) {
+        return readParts.contains(part);
+    }
+
+    /** Records that all the objects of a part were added, and converts those which were waiting for it */
+    void endPart(Part part) throws InvalidInfraException {
+        readParts.add(part);
+
+        if (canParseScriptFunctions()) {
+            for (var rjsScriptFunction : pendingScriptFunctions)
+                parseScriptFunction(rjsScriptFunction);
+            pendingScriptFunctions.clear();
+        }
+
+        if (canBuildTrackSections()) {
+            for (var trackSection : pendingTrackSections)
+                buildTrackSection(trackSection);
+            pendingTrackSections.clear();
+        }
+
+        if (canBuildTVDSections()) {
+            for (var rjsonTVD : pendingTVDSections)
+                buildTVDSection(rjsonTVD);
+            pendingTVDSections.clear();
+        }
+    }
+
+    private boolean canParseScriptFunctions() {
+        return wasRead(Part.ASPECTS);
+    }
+
+    private boolean canBuildTrackSections() {
+        return wasRead(Part.TRACK_SECTION_LINKS)
+                && wasRead(Part.OPERATIONAL_POINTS)
+                && wasRead(Part.SPEED_SECTIONS)
+                && wasRead(Part.SCRIPT_FUNCTIONS)
+                && canParseScriptFunctions();
+    }
+
+    private boolean canBuildTVDSections() {
+        return wasRead(Part.TRACK_SECTIONS) && canBuildTrackSections();
+    }
+
+    // region ADD
+
+    void addOperationalPoint(RJSOperationalPoint operationalPoint) {
+        var op = new OperationalPoint(operationalPoint.id);
+        trackGraph.operationalPoints.put(op.id, op);
+    }
+
+    void addAspect(RJSAspect rjsAspect) {
+        var constraints = new ArrayList<AspectConstraint>();
+        for (var constraint : rjsAspect.constraints)
+            constraints.add(constraint.parse());
+        var aspect = new Aspect(aspectIndex++, rjsAspect.id, rjsAspect.color, constraints);
+        aspectsMap.put(aspect.id, aspect);
+    }
+
+    void addScriptFunction(RJSRSFunction rjsScriptFunction) throws InvalidInfraException {
+        if (canParseScriptFunctions())
+            parseScriptFunction(rjsScriptFunction);
+        else
+            pendingScriptFunctions.add(rjsScriptFunction);
+    }
+
+    void addSpeedSection(RJSSpeedSection rjsSpeedSection) {
+        var speedSection = new SpeedSection(rjsSpeedSection.isSignalized, rjsSpeedSection.speed);
+        speedSections.put(rjsSpeedSection.id, speedSection);
+    }
+
+    void addTrackSectionLink(RJSTrackSectionLink trackSectionLink) {
+        nodeIDs.link(trackSectionLink);
+        trackSectionLinks.add(trackSectionLink);
+    }
+
+    void addTrackSection(RJSTrackSection trackSection) throws InvalidInfraException {
+        if (canBuildTrackSections())
+            buildTrackSection(trackSection);
+        else
+            pendingTrackSections.add(trackSection);
+    }
+
+    void addSwitch(RJSSwitch rjsSwitch) {
+        rjsSwitches.add(rjsSwitch);
+    }
+
+    void addTVDSection(RJSTVDSection rjsonTVD) throws InvalidInfraException {
+        if (canBuildTVDSections())
+            buildTVDSection(rjsonTVD);
+        else
+            pendingTVDSections.add(rjsonTVD);
+    }
+
+    void addRoute(RJSRoute rjsRoute) {
+        rjsRoutes.add(rjsRoute);
+    }
+
+    // endregion
+
+    // region CONVERT
+
+    private void parseScriptFunction(RJSRSFunction rjsScriptFunction) throws InvalidInfraException {
+        var scriptFunction = RailScriptExprParser.parseFunction(aspectsMap, scriptFunctions, rjsScriptFunction);
+        scriptFunctions.put(scriptFunction.functionName, scriptFunction);
+    }
+
+    private void buildTrackSection(RJSTrackSection trackSection) throws InvalidInfraException {
+        if (infraTrackSections.containsKey(trackSection.id))
+            throw new InvalidInfraException(String.format("duplicate track section: %s", trackSection.id));
+        var beginID = nodeIDs.assign(trackSection.beginEndpoint());
+        var endID = nodeIDs.assign(trackSection.endEndpoint());
+        var infraTrackSection = trackGraph.makeTrackSection(beginID, endID, trackSection.id,
+                trackSection.length, trackSection.endpointCoords);
+        infraTrackSections.put(trackSection.id, infraTrackSection);
+
+        // Parse operational points
+        if (trackSection.operationalPoints == null)
+            trackSection.operationalPoints = new ArrayList<>();
+        var opBuilder = infraTrackSection.operationalPoints.builder();
+        for (var rjsOp : trackSection.operationalPoints) {
+            var op = trackGraph.operationalPoints.get(rjsOp.ref.id);
+            // add the reference from the OperationalPoint to the TrackSection,
+            // add from the TrackSection to the OperationalPoint
+            op.addRef(infraTrackSection, rjsOp.position, opBuilder);
+        }
+        opBuilder.build();
+
+        // Parse speed limits
+        if (trackSection.speedSections == null)
+            trackSection.speedSections = new ArrayList<>();
+        for (var rjsSpeedLimits : trackSection.speedSections) {
+            var speedSection = speedSections.get(rjsSpeedLimits.ref.id);
+            var rangeSpeedLimit = new RangeValue<>(rjsSpeedLimits.begin, rjsSpeedLimits.end, speedSection);
+            if (rjsSpeedLimits.applicableDirection.appliesToNormal())
+                infraTrackSection.forwardSpeedSections.add(rangeSpeedLimit);
+            if (rjsSpeedLimits.applicableDirection.appliesToReverse())
+                infraTrackSection.backwardSpeedSections.add(rangeSpeedLimit);
+        }
+
+        // Parse waypoints
+        var waypointsBuilder = infraTrackSection.waypoints.builder();
+        if (trackSection.routeWaypoints == null)
+            trackSection.routeWaypoints = new ArrayList<>();
+        for (var rjsRouteWaypoint : trackSection.routeWaypoints) {
+            if (rjsRouteWaypoint.getClass() == RJSTrainDetector.class) {
+                var detector = new Detector(waypointIndex, rjsRouteWaypoint.id);
+                waypointsMap.put(detector.id, detector);
+                waypointsBuilder.add(rjsRouteWaypoint.position, detector);
+            } else if (rjsRouteWaypoint.getClass() == RJSBufferStop.class) {
+                var bufferStop = new BufferStop(waypointIndex, rjsRouteWaypoint.id);
+                waypointsMap.put(bufferStop.id, bufferStop);
+                waypointsBuilder.add(rjsRouteWaypoint.position, bufferStop);
+            }
+            waypointIndex++;
+        }
+        waypointsBuilder.build();
+
+        // Parse signals
+        var signalsBuilder = infraTrackSection.signals.builder();
+        if (trackSection.signals == null)
+            trackSection.signals = new ArrayList<>();
+        for (var rjsSignal : trackSection.signals) {
+            var expr = RailScriptExprParser.parseStatefulSignalExpr(aspectsMap, scriptFunctions, rjsSignal.expr);
+            var signal = new Signal(
+                    signals.size(),
+                    rjsSignal.id,
+                    expr,
+                    rjsSignal.applicableDirection,
+                    rjsSignal.sightDistance
+            );
+            signalsBuilder.add(rjsSignal.position, signal);
+            signals.add(signal);
+            if (rjsSignal.linkedDetector != null && !rjsSignal.linkedDetector.id.equals("")) {
+                if (rjsSignal.applicableDirection == ApplicableDirection.NORMAL)
+                    detectorIdToSignalNormalMap.put(rjsSignal.linkedDetector.id, signal);
+                else if (rjsSignal.applicableDirection == ApplicableDirection.REVERSE)
+                    detectorIdToSignalReverseMap.put(rjsSignal.linkedDetector.id, signal);
+            }
+        }
+        signalsBuilder.build();
+    }
+
+    private void buildTVDSection(RJSTVDSection rjsonTVD) throws InvalidInfraException {
+        var tvdWaypoints = new ArrayList<Waypoint>();
+        findWaypoints(tvdWaypoints, waypointsMap, rjsonTVD.trainDetectors);
+        findWaypoints(tvdWaypoints, waypointsMap, rjsonTVD.bufferStops);
+        var tvd = new TVDSection(rjsonTVD.id, tvdSectionIndex++, tvdWaypoints, rjsonTVD.isBerthingTrack);
+        tvdSectionsMap.put(tvd.id, tvd);
+    }
+
+    private static <E extends RJSRouteWaypoint> void findWaypoints(
+            ArrayList<Waypoint> foundWaypoints,
+            HashMap<String, Waypoint> waypointHashMap,
+            Collection<ID<E>> source
+    ) throws InvalidInfraException {
+        for (var waypointID : source) {
+            var waypoint = waypointHashMap.get(waypointID.id);
+            if (waypoint == null)
+                throw new InvalidInfraException(String.format("cannot find waypoint %s", waypointID.id));
+            foundWaypoints.add(waypoint);
+        }
+    }
+
+    private void buildRoute(
+            RouteGraph.Builder routeGraph,
+            HashMap<String, Switch> switchNames,
+            RJSRoute rjsRoute
+    ) throws InvalidInfraException {
+        // Parse release groups
+        var releaseGroups = new ArrayList<SortedArraySet<TVDSection>>();
+        var tvdSections = new SortedArraySet<TVDSection>();
+        for (var rjsReleaseGroup : rjsRoute.releaseGroups) {
+            var releaseGroup = new SortedArraySet<TVDSection>();
+            for (var rjsTvdSection : rjsReleaseGroup) {
+                var tvdSection = tvdSectionsMap.get(rjsTvdSection.id);
+                tvdSections.add(tvdSection);
+                if (tvdSection == null)
+                    throw new InvalidInfraException(String.format(
+                            "A release group contains an unknown tvd section (%s)",
+                            rjsTvdSection.id
+                    ));
+                releaseGroup.add(tvdSection);
+            }
+            releaseGroups.add(releaseGroup);
+        }
+
+        var switchesPosition = new HashMap<Switch, SwitchPosition>();
+        for (var switchPos : rjsRoute.switchesPosition.entrySet()) {
+            var switchRef = switchNames.get(switchPos.getKey().id);
+            var position = switchPos.getValue().parse();
+            switchesPosition.put(switchRef, position);
+        }
+
+        var entryPoint = waypointsMap.get(rjsRoute.entryPoint.id);
+
+        var entrySignalNormal = detectorIdToSignalNormalMap.getOrDefault(entryPoint.id, null);
+        var entrySignalReverse = detectorIdToSignalReverseMap.getOrDefault(entryPoint.id, null);
+
+        routeGraph.makeRoute(
+                rjsRoute.id,
+                tvdSections,
+                releaseGroups,
+                switchesPosition,
+                entryPoint,
+                entrySignalNormal,
+                entrySignalReverse
+        );
+    }
+
+    // endregion
+
+    /** Builds the infrastructure, once all the objects were added */
+    Infra build() throws InvalidInfraException {
+        // missing parts are considered empty
+        for (var part : Part.values())
+            if (!wasRead(part))
+                endPart(part);
+
+        // check that links only connect known track sections
+        for (var link : trackSectionLinks) {
+            for (var endpoint : new RJSTrackSection.EndpointID[] { link.begin, link.end }) {
+                if (!infraTrackSections.containsKey(endpoint.section.id))
+                    throw new InvalidInfraException(String.format(
+                            "unknown track section: %s", endpoint.section.id));
+            }
+        }
+        trackGraph.resizeNodes(nodeIDs.getNumberOfNodes());
+
+        // create switch nodes
+        var switchNames = new HashMap<String, Switch>();
+        var switchIndex = 0;
+        for (var rjsSwitch : rjsSwitches) {
+            var index = nodeIDs.get(rjsSwitch.base);
+            switchNames.put(rjsSwitch.id, trackGraph.makeSwitchNode(index, rjsSwitch.id, switchIndex++,
+                    rjsSwitch.positionChangeDelay));
+        }
+        final var switches = new ArrayList<>(switchNames.values());
+
+        // fill nodes with placeholders
+        for (int i = 0; i < nodeIDs.getNumberOfNodes(); i++)
+            if (trackGraph.getNode(i) == null)
+                trackGraph.makePlaceholderNode(i, String.valueOf(i));
+
+        // Fill switch with their right / left track sections
+        for (var rjsSwitch : rjsSwitches) {
+            var switchRef = switchNames.get(rjsSwitch.id);
+            switchRef.leftTrackSection = infraTrackSections.get(rjsSwitch.left.section.id);
+            switchRef.rightTrackSection = infraTrackSections.get(rjsSwitch.right.section.id);
+        }
+
+        // link track sections together
+        for (var trackSectionLink : trackSectionLinks) {
+            var begin = trackSectionLink.begin;
+            var end = trackSectionLink.end;
+            var beginEdge = infraTrackSections.get(begin.section.id);
+            var endEdge = infraTrackSections.get(end.section.id);
+            linkEdges(beginEdge, begin.endpoint, endEdge, end.endpoint);
+        }
+
+        // build name maps to prepare resolving names in expressions
+        var signalNames = new HashMap<String, Signal>();
+        for (var signal : signals)
+            signalNames.put(signal.id, signal);
+
+        // Build waypoint Graph
+        var waypointGraph = Infra.buildWaypointGraph(trackGraph, tvdSectionsMap);
+
+        // Build route Graph
+        var routeGraph = new RouteGraph.Builder(waypointGraph);
+        for (var rjsRoute : rjsRoutes)
+            buildRoute(routeGraph, switchNames, rjsRoute);
+
+        var routeNames = new HashMap<String, Route>();
+        for (var route : routeGraph.routeGraph.iterEdges())
+            routeNames.put(route.id, route);
+
+        resolveNames(scriptFunctions.values(), signals, signalNames, routeNames, switchNames);
+
+        return Infra.build(trackGraph, waypointGraph, routeGraph.build(),
+                tvdSectionsMap, aspectsMap, signals, switches);
+    }
+
+    /** Resolves the names of routes, signals and switches in all expressions */
+    private static void resolveNames(
+            Collection<RSFunction<?>> scriptFunctions,
+            ArrayList<Signal> signals,
+            HashMap<String, Signal> signalNames,
+            HashMap<String, Route> routeNames,
+            HashMap<String, Switch> switchNames
+    ) throws InvalidInfraException {
+        var nameResolver = new RSExprVisitor() {
+            @Override
+            public void visit(RSExpr.SignalRef expr) throws InvalidInfraException {
+                expr.resolve(signalNames);
+            }
+
+            @Override
+            public void visit(RSExpr.RouteRef expr) throws InvalidInfraException {
+                expr.resolve(routeNames);
+            }
+
+            @Override
+            public void visit(RSExpr.SwitchRef expr) throws InvalidInfraException {
+                expr.resolve(switchNames);
+            }
+        };
+        for (var function : scriptFunctions)
+            function.body.accept(nameResolver);
+        for (var signal : signals)
+            signal.expr.accept(nameResolver);
+    }
+}
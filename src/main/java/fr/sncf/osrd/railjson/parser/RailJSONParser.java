@@ -1,36 +1,54 @@
 package fr.sncf.osrd.railjson.parser;
 
-import static fr.sncf.osrd.infra.trackgraph.TrackSection.linkEdges;
-
+import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.JsonReader;
-import fr.sncf.osrd.infra.*;
-import fr.sncf.osrd.infra.railscript.RSExpr;
-import fr.sncf.osrd.infra.railscript.RSExprVisitor;
-import fr.sncf.osrd.infra.railscript.RSFunction;
-import fr.sncf.osrd.infra.routegraph.Route;
-import fr.sncf.osrd.infra.routegraph.RouteGraph;
-import fr.sncf.osrd.infra.signaling.Aspect;
-import fr.sncf.osrd.infra.signaling.AspectConstraint;
-import fr.sncf.osrd.infra.signaling.Signal;
-import fr.sncf.osrd.infra.trackgraph.*;
-import fr.sncf.osrd.railjson.schema.common.ID;
-import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
-import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSBufferStop;
-import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSRouteWaypoint;
-import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSTrainDetector;
-import fr.sncf.osrd.utils.RangeValue;
-import fr.sncf.osrd.utils.SortedArraySet;
-import fr.sncf.osrd.utils.graph.ApplicableDirection;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.InfraBuilder.Part;
+import fr.sncf.osrd.railjson.schema.infra.*;
+import fr.sncf.osrd.railjson.schema.infra.railscript.RJSRSFunction;
+import fr.sncf.osrd.railjson.schema.infra.signaling.RJSAspect;
 import okio.BufferedSource;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 
 public class RailJSONParser {
     /**
-     * Parses some railJSON infra into the internal representation
+     * The names of the parts of the RailJSON document, in the order of {@link Part}
+     */
+    private static final JsonReader.Options partNames = JsonReader.Options.of(
+            "operational_points",
+            "aspects",
+            "script_functions",
+            "speed_sections",
+            "track_section_links",
+            "track_sections",
+            "switches",
+            "tvd_sections",
+            "routes"
+    );
+
+    private static final JsonAdapter<RJSOperationalPoint> operationalPointAdapter =
+            RJSInfra.moshi.adapter(RJSOperationalPoint.class);
+    private static final JsonAdapter<RJSAspect> aspectAdapter = RJSInfra.moshi.adapter(RJSAspect.class);
+    private static final JsonAdapter<RJSRSFunction> scriptFunctionAdapter =
+            RJSInfra.moshi.adapter(RJSRSFunction.class);
+    private static final JsonAdapter<RJSSpeedSection> speedSectionAdapter =
+            RJSInfra.moshi.adapter(RJSSpeedSection.class);
+    private static final JsonAdapter<RJSTrackSectionLink> trackSectionLinkAdapter =
+            RJSInfra.moshi.adapter(RJSTrackSectionLink.class);
+    private static final JsonAdapter<RJSTrackSection> trackSectionAdapter =
+            RJSInfra.moshi.adapter(RJSTrackSection.class);
+    private static final JsonAdapter<RJSSwitch> switchAdapter = RJSInfra.moshi.adapter(RJSSwitch.class);
+    private static final JsonAdapter<RJSTVDSection> tvdSectionAdapter = RJSInfra.moshi.adapter(RJSTVDSection.class);
+    private static final JsonAdapter<RJSRoute> routeAdapter = RJSInfra.moshi.adapter(RJSRoute.class);
+
+    /**
+     * Parses some railJSON infra into the internal representation.
+     * The document is read in a single pass, and objects are converted as soon as possible,
+     * without ever holding the whole document in memory.
      * @param source a data stream to read from
      * @param lenient whether to tolerate invalid yet understandable json constructs
      * @return an OSRD infrastructure
@@ -40,10 +58,34 @@ public class RailJSONParser {
     public static Infra parse(BufferedSource source, boolean lenient) throws InvalidInfraException, IOException {
         var jsonReader = JsonReader.of(source);
         jsonReader.setLenient(lenient);
-        var railJSON = RJSInfra.adapter.fromJson(jsonReader);
-        if (railJSON == null)
+        if (jsonReader.peek() == JsonReader.Token.NULL)
             throw new InvalidInfraException("the railJSON source does not contain any data");
-        return RailJSONParser.parse(railJSON);
+
+        var builder = new InfraBuilder();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            var partIndex = jsonReader.selectName(partNames);
+            if (partIndex == -1) {
+                jsonReader.skipName();
+                jsonReader.skipValue();
+                continue;
+            }
+            var part = Part.values()[partIndex];
+            if (builder.wasRead(part))
+                throw new InvalidInfraException(
+                        String.format("duplicate railJSON field: %s", partNames.strings().get(partIndex)));
+            if (jsonReader.peek() == JsonReader.Token.NULL) {
+                jsonReader.nextNull();
+            } else {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext())
+                    readObject(jsonReader, builder, part);
+                jsonReader.endArray();
+            }
+            builder.endPart(part);
+        }
+        jsonReader.endObject();
+        return builder.build();
     }
 
     /**
@@ -52,262 +94,95 @@ public class RailJSONParser {
      * @return an OSRD infrastructure
      */
     public static Infra parse(RJSInfra railJSON) throws InvalidInfraException {
-        var trackGraph = new TrackGraph();
-
-        // register operational points
-        for (var operationalPoint : railJSON.operationalPoints) {
-            var op = new OperationalPoint(operationalPoint.id);
-            trackGraph.operationalPoints.put(op.id, op);
-        }
-
-        // create a unique identifier for all track intersection nodes
-        var nodeIDs = TrackNodeIDs.from(railJSON.trackSectionLinks, railJSON.trackSections);
-        trackGraph.resizeNodes(nodeIDs.numberOfNodes);
-
-        // create switch nodes
-        var switchNames = new HashMap<String, Switch>();
-        var switchIndex = 0;
-        for (var rjsSwitch : railJSON.switches) {
-            var index = nodeIDs.get(rjsSwitch.base);
-            switchNames.put(rjsSwitch.id, trackGraph.makeSwitchNode(index, rjsSwitch.id, switchIndex++,
-                    rjsSwitch.positionChangeDelay));
-        }
-        final var switches = new ArrayList<>(switchNames.values());
-
-        // fill nodes with placeholders
-        for (int i = 0; i < nodeIDs.numberOfNodes; i++)
-            if (trackGraph.getNode(i) == null)
-                trackGraph.makePlaceholderNode(i, String.valueOf(i));
-
-        // parse aspects
-        int aspectIndex = 0;
-        var aspectsMap = new HashMap<String, Aspect>();
-        for (var rjsAspect : railJSON.aspects) {
-            var constraints = new ArrayList<AspectConstraint>();
-            for (var constraint : rjsAspect.constraints)
-                constraints.add(constraint.parse());
-            var aspect = new Aspect(aspectIndex++, rjsAspect.id, rjsAspect.color, constraints);
-            aspectsMap.put(aspect.id, aspect);
-        }
-
-        // parse signal functions
-        var scriptFunctions = new HashMap<String, RSFunction<?>>();
-        for (var rjsScriptFunction : railJSON.scriptFunctions) {
-            var scriptFunction = RailScriptExprParser.parseFunction(
-                    aspectsMap, scriptFunctions, rjsScriptFunction);
-            scriptFunctions.put(scriptFunction.functionName, scriptFunction);
-        }
-
-        // parse speed sections
-        var speedSections = new HashMap<String, SpeedSection>();
-        for (var rjsSpeedSection : railJSON.speedSections) {
-            var speedSection = new SpeedSection(rjsSpeedSection.isSignalized, rjsSpeedSection.speed);
-            speedSections.put(rjsSpeedSection.id, speedSection);
-        }
-
-        var waypointsMap = new HashMap<String, Waypoint>();
-        var detectorIdToSignalNormalMap = new HashMap<String, Signal>();
-        var detectorIdToSignalReverseMap = new HashMap<String, Signal>();
-
-        // create track sections
-        var infraTrackSections = new HashMap<String, TrackSection>();
-        var signals = new ArrayList<Signal>();
-        // Need a unique index for waypoint graph
-        int waypointIndex = 0;
-        for (var trackSection : railJSON.trackSections) {
-            var beginID = nodeIDs.get(trackSection.beginEndpoint());
-            var endID = nodeIDs.get(trackSection.endEndpoint());
-            var infraTrackSection = trackGraph.makeTrackSection(beginID, endID, trackSection.id,
-                    trackSection.length, trackSection.endpointCoords);
-            infraTrackSections.put(trackSection.id, infraTrackSection);
-
-            // Parse operational points
-            if (trackSection.operationalPoints == null)
-                trackSection.operationalPoints = new ArrayList<>();
-            var opBuilder = infraTrackSection.operationalPoints.builder();
-            for (var rjsOp : trackSection.operationalPoints) {
-                var op = trackGraph.operationalPoints.get(rjsOp.ref.id);
-                // add the reference from the OperationalPoint to the TrackSection,
-                // add from the TrackSection to the OperationalPoint
-                op.addRef(infraTrackSection, rjsOp.position, opBuilder);
-            }
-            opBuilder.build();
-
-            // Parse speed limits
-            if (trackSection.speedSections == null)
-                trackSection.speedSections = new ArrayList<>();
-            for (var rjsSpeedLimits : trackSection.speedSections) {
-                var speedSection = speedSections.get(rjsSpeedLimits.ref.id);
-                var rangeSpeedLimit = new RangeValue<>(rjsSpeedLimits.begin, rjsSpeedLimits.end, speedSection);
-                if (rjsSpeedLimits.applicableDirection.appliesToNormal())
-                    infraTrackSection.forwardSpeedSections.add(rangeSpeedLimit);
-                if (rjsSpeedLimits.applicableDirection.appliesToReverse())
-                    infraTrackSection.backwardSpeedSections.add(rangeSpeedLimit);
-            }
+        var builder = new InfraBuilder();
 
-            // Parse waypoints
-            var waypointsBuilder = infraTrackSection.waypoints.builder();
-            if (trackSection.routeWaypoints == null)
-                trackSection.routeWaypoints = new ArrayList<>();
-            for (var rjsRouteWaypoint : trackSection.routeWaypoints) {
-                if (rjsRouteWaypoint.getClass() == RJSTrainDetector.class) {
-                    var detector = new Detector(waypointIndex, rjsRouteWaypoint.id);
-                    waypointsMap.put(detector.id, detector);
-                    waypointsBuilder.add(rjsRouteWaypoint.position, detector);
-                } else if (rjsRouteWaypoint.getClass() == RJSBufferStop.class) {
-                    var bufferStop = new BufferStop(waypointIndex, rjsRouteWaypoint.id);
-                    waypointsMap.put(bufferStop.id, bufferStop);
-                    waypointsBuilder.add(rjsRouteWaypoint.position, bufferStop);
-                }
-                waypointIndex++;
-            }
-            waypointsBuilder.build();
-
-            // Parse signals
-            var signalsBuilder = infraTrackSection.signals.builder();
-            if (trackSection.signals == null)
-                trackSection.signals = new ArrayList<>();
-            for (var rjsSignal : trackSection.signals) {
-                var expr = RailScriptExprParser.parseStatefulSignalExpr(aspectsMap, scriptFunctions, rjsSignal.expr);
-                var signal = new Signal(
-                        signals.size(),
-                        rjsSignal.id,
-                        expr,
-                        rjsSignal.applicableDirection,
-                        rjsSignal.sightDistance
-                );
-                signalsBuilder.add(rjsSignal.position, signal);
-                signals.add(signal);
-                if (rjsSignal.linkedDetector != null && !rjsSignal.linkedDetector.id.equals("")) {
-                    if (rjsSignal.applicableDirection == ApplicableDirection.NORMAL)
-                        detectorIdToSignalNormalMap.put(rjsSignal.linkedDetector.id, signal);
-                    else if (rjsSignal.applicableDirection == ApplicableDirection.REVERSE)
-                        detectorIdToSignalReverseMap.put(rjsSignal.linkedDetector.id, signal);
-                }
-            }
-            signalsBuilder.build();
-        }
+        for (var operationalPoint : orEmpty(railJSON.operationalPoints))
+            builder.addOperationalPoint(operationalPoint);
+        builder.endPart(Part.OPERATIONAL_POINTS);
 
-        // Fill switch with their right / left track sections
-        for (var rjsSwitch : railJSON.switches) {
-            var switchRef = switchNames.get(rjsSwitch.id);
-            switchRef.leftTrackSection = infraTrackSections.get(rjsSwitch.left.section.id);
-            switchRef.rightTrackSection = infraTrackSections.get(rjsSwitch.right.section.id);
-        }
+        for (var rjsAspect : orEmpty(railJSON.aspects))
+            builder.addAspect(rjsAspect);
+        builder.endPart(Part.ASPECTS);
 
-        // link track sections together
-        for (var trackSectionLink : railJSON.trackSectionLinks) {
-            var begin = trackSectionLink.begin;
-            var end = trackSectionLink.end;
-            var beginEdge = infraTrackSections.get(begin.section.id);
-            var endEdge = infraTrackSections.get(end.section.id);
-            linkEdges(beginEdge, begin.endpoint, endEdge, end.endpoint);
-        }
+        for (var rjsScriptFunction : orEmpty(railJSON.scriptFunctions))
+            builder.addScriptFunction(rjsScriptFunction);
+        builder.endPart(Part.SCRIPT_FUNCTIONS);
 
-        // Parse TVDSections
-        var tvdSectionIndex = 0;
-        var tvdSectionsMap = new HashMap<String, TVDSection>();
-        for (var rjsonTVD : railJSON.tvdSections) {
-            var tvdWaypoints = new ArrayList<Waypoint>();
-            findWaypoints(tvdWaypoints, waypointsMap, rjsonTVD.trainDetectors);
-            findWaypoints(tvdWaypoints, waypointsMap, rjsonTVD.bufferStops);
-            var tvd = new TVDSection(rjsonTVD.id, tvdSectionIndex++, tvdWaypoints, rjsonTVD.isBerthingTrack);
-            tvdSectionsMap.put(tvd.id, tvd);
-        }
+        for (var rjsSpeedSection : orEmpty(railJSON.speedSections))
+            builder.addSpeedSection(rjsSpeedSection);
+        builder.endPart(Part.SPEED_SECTIONS);
 
-        // build name maps to prepare resolving names in expressions
-        var signalNames = new HashMap<String, Signal>();
-        for (var signal : signals)
-            signalNames.put(signal.id, signal);
+        for (var trackSectionLink : orEmpty(railJSON.trackSectionLinks))
+            builder.addTrackSectionLink(trackSectionLink);
+        builder.endPart(Part.TRACK_SECTION_LINKS);
 
-        // Build waypoint Graph
-        var waypointGraph = Infra.buildWaypointGraph(trackGraph, tvdSectionsMap);
+        for (var trackSection : orEmpty(railJSON.trackSections))
+            builder.addTrackSection(trackSection);
+        builder.endPart(Part.TRACK_SECTIONS);
 
-        // Build route Graph
-        var routeGraph = new RouteGraph.Builder(waypointGraph);
+        for (var rjsSwitch : orEmpty(railJSON.switches))
+            builder.addSwitch(rjsSwitch);
+        builder.endPart(Part.SWITCHES);
 
-        for (var rjsRoute : railJSON.routes) {
-            // Parse release groups
-            var releaseGroups = new ArrayList<SortedArraySet<TVDSection>>();
-            var tvdSections = new SortedArraySet<TVDSection>();
-            for (var rjsReleaseGroup : rjsRoute.releaseGroups) {
-                var releaseGroup = new SortedArraySet<TVDSection>();
-                for (var rjsTvdSection : rjsReleaseGroup) {
-                    var tvdSection = tvdSectionsMap.get(rjsTvdSection.id);
-                    tvdSections.add(tvdSection);
-                    if (tvdSection == null)
-                        throw new InvalidInfraException(String.format(
-                                "A release group contains an unknown tvd section (%s)",
-                                rjsTvdSection.id
-                        ));
-                    releaseGroup.add(tvdSection);
-                }
-                releaseGroups.add(releaseGroup);
-            }
+        for (var rjsonTVD : orEmpty(railJSON.tvdSections))
+            builder.addTVDSection(rjsonTVD);
+        builder.endPart(Part.TVD_SECTIONS);
 
-            var switchesPosition = new HashMap<Switch, SwitchPosition>();
-            for (var switchPos : rjsRoute.switchesPosition.entrySet()) {
-                var switchRef = switchNames.get(switchPos.getKey().id);
-                var position = switchPos.getValue().parse();
-                switchesPosition.put(switchRef, position);
-            }
+        for (var rjsRoute : orEmpty(railJSON.routes))
+            builder.addRoute(rjsRoute);
+        builder.endPart(Part.ROUTES);
 
-            var entryPoint = waypointsMap.get(rjsRoute.entryPoint.id);
+        return builder.build();
+    }
 
-            var entrySignalNormal = detectorIdToSignalNormalMap.getOrDefault(entryPoint.id, null);
-            var entrySignalReverse = detectorIdToSignalReverseMap.getOrDefault(entryPoint.id, null);
+    private static <T> T readObject(JsonReader jsonReader, JsonAdapter<T> adapter) throws InvalidInfraException,
+            IOException {
+        var res = adapter.fromJson(jsonReader);
+        if (res == null)
+            throw new InvalidInfraException(String.format("unexpected null value at %s", jsonReader.getPath()));
+        return res;
+    }
 
-            routeGraph.makeRoute(
-                    rjsRoute.id,
-                    tvdSections,
-                    releaseGroups,
-                    switchesPosition,
-                    entryPoint,
-                    entrySignalNormal,
-                    entrySignalReverse
-            );
+    private static void readObject(
+            JsonReader jsonReader,
+            InfraBuilder builder,
+            Part part
+    ) throws InvalidInfraException, IOException {
+        switch (part) {
+            case OPERATIONAL_POINTS:
+                builder.addOperationalPoint(readObject(jsonReader, operationalPointAdapter));
+                return;
+            case ASPECTS:
+                builder.addAspect(readObject(jsonReader, aspectAdapter));
+                return;
+            case SCRIPT_FUNCTIONS:
+                builder.addScriptFunction(readObject(jsonReader, scriptFunctionAdapter));
+                return;
+            case SPEED_SECTIONS:
+                builder.addSpeedSection(readObject(jsonReader, speedSectionAdapter));
+                return;
+            case TRACK_SECTION_LINKS:
+                builder.addTrackSectionLink(readObject(jsonReader, trackSectionLinkAdapter));
+                return;
+            case TRACK_SECTIONS:
+                builder.addTrackSection(readObject(jsonReader, trackSectionAdapter));
+                return;
+            case SWITCHES:
+                builder.addSwitch(readObject(jsonReader, switchAdapter));
+                return;
+            case TVD_SECTIONS:
+                builder.addTVDSection(readObject(jsonReader, tvdSectionAdapter));
+                return;
+            case ROUTES:
+                builder.addRoute(readObject(jsonReader, routeAdapter));
+                return;
         }
-
-        var routeNames = new HashMap<String, Route>();
-        for (var route : routeGraph.routeGraph.iterEdges())
-            routeNames.put(route.id, route);
-
-        // resolve names of routes and signals
-        var nameResolver = new RSExprVisitor() {
-            @Override
-            public void visit(RSExpr.SignalRef expr) throws InvalidInfraException {
-                expr.resolve(signalNames);
-            }
-
-            @Override
-            public void visit(RSExpr.RouteRef expr) throws InvalidInfraException {
-                expr.resolve(routeNames);
-            }
-
-            @Override
-            public void visit(RSExpr.SwitchRef expr) throws InvalidInfraException {
-                expr.resolve(switchNames);
-            }
-        };
-        for (var function : scriptFunctions.values())
-            function.body.accept(nameResolver);
-        for (var signal : signals)
-            signal.expr.accept(nameResolver);
-
-        return Infra.build(trackGraph, waypointGraph, routeGraph.build(),
-                tvdSectionsMap, aspectsMap, signals, switches);
+        throw new RuntimeException("unknown railJSON part");
     }
 
-    private static <E extends RJSRouteWaypoint> void findWaypoints(
-            ArrayList<Waypoint> foundWaypoints,
-            HashMap<String, Waypoint> waypointHashMap,
-            Collection<ID<E>> source
-    ) throws InvalidInfraException {
-        for (var waypointID : source) {
-            var waypoint = waypointHashMap.get(waypointID.id);
-            if (waypoint == null)
-                throw new InvalidInfraException(String.format("cannot find waypoint %s", waypointID.id));
-            foundWaypoints.add(waypoint);
-        }
+    private static <T> Collection<T> orEmpty(Collection<T> collection) {
+        if (collection == null)
+            return List.of();
+        return collection;
     }
 }
@@ -1,76 +1,67 @@
 package fr.sncf.osrd.railjson.parser;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSectionLink;
 import fr.sncf.osrd.utils.UnionFind;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-@SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
+/**
+ * <p>Assigns a unique identifier to all track intersection nodes.</p>
+ * <p>All links between track sections must be known before the first identifier is assigned.
+ * Identifiers are then given out in the order endpoints are assigned, which makes it possible
+ * to build track sections as they are read.</p>
+ */
 public class TrackNodeIDs {
-    public final int numberOfNodes;
+    private final UnionFind uf = new UnionFind();
 
-    /** A map from a track section endpoint to a unique endpoint ID */
-    private final Map<RJSTrackSection.EndpointID, Integer> endpointIDs;
+    /** A map from a track section endpoint to its union find group */
+    private final Map<RJSTrackSection.EndpointID, Integer> endpointGroups = new HashMap<>();
 
-    /** A map from endpoint IDs to  */
-    private final ArrayList<Integer> endpointToNodeID;
+    /** A map from the root of union find groups to node IDs */
+    private final Map<Integer, Integer> rootToNodeID = new HashMap<>();
 
-    private TrackNodeIDs(int numberOfNodes,
-                         Map<RJSTrackSection.EndpointID, Integer> endpointIDs,
-                         ArrayList<Integer> endpointToNodeID
-    ) {
-        this.numberOfNodes = numberOfNodes;
-        this.endpointIDs = endpointIDs;
-        this.endpointToNodeID = endpointToNodeID;
+    public int getNumberOfNodes() {
+        return rootToNodeID.size();
     }
 
-    /** Assigns node IDs given a list of nodes and relationships. */
-    public static TrackNodeIDs from(
-            Iterable<RJSTrackSectionLink> links,
-            Iterable<RJSTrackSection> trackSections
-    ) throws InvalidInfraException {
-        var uf = new UnionFind();
-        var endpointIDs = new HashMap<RJSTrackSection.EndpointID, Integer>();
-
-        // create an union find group for all known track section endpoints
-        for (var trackSection : trackSections) {
-            var oldBegin = endpointIDs.put(trackSection.beginEndpoint(), uf.newGroup());
-            var oldEnd = endpointIDs.put(trackSection.endEndpoint(), uf.newGroup());
-            if (oldBegin != null || oldEnd != null)
-                throw new InvalidInfraException(String.format("duplicate track section: %s", trackSection.id));
-        }
-
-        // link endpoint IDs together
-        for (var link : links) {
-            int groupA = endpointIDs.getOrDefault(link.begin, -1);
-            if (groupA == -1)
-                throw new InvalidInfraException(String.format("unknown track section: %s", link.begin.section.id));
-
-            int groupB = endpointIDs.getOrDefault(link.end, -1);
-            if (groupB == -1)
-                throw new InvalidInfraException(String.format("unknown track section: %s", link.end.section.id));
+    private int getGroup(RJSTrackSection.EndpointID endpoint) {
+        var group = endpointGroups.get(endpoint);
+        if (group != null)
+            return group;
+        group = uf.newGroup();
+        endpointGroups.put(endpoint, group);
+        return group;
+    }
 
-            uf.union(groupA, groupB);
-        }
+    /** Records that both ends of a link are connected to the same node */
+    public void link(RJSTrackSectionLink link) {
+        if (!rootToNodeID.isEmpty())
+            throw new IllegalStateException("track section links must all be known before node IDs are assigned");
+        uf.union(getGroup(link.begin), getGroup(link.end));
+    }
 
-        // get the node ID for all endpoint IDs
-        var endpointToNodeID = new ArrayList<Integer>();
-        var numberOfNodes = uf.minimize(endpointToNodeID);
-        return new TrackNodeIDs(numberOfNodes, endpointIDs, endpointToNodeID);
+    /** Get the unique node identifier this endpoint is connected to, assigning a new one if needed */
+    public int assign(RJSTrackSection.EndpointID endpoint) {
+        var root = uf.findRoot(getGroup(endpoint));
+        var nodeID = rootToNodeID.get(root);
+        if (nodeID != null)
+            return nodeID;
+        nodeID = rootToNodeID.size();
+        rootToNodeID.put(root, nodeID);
+        return nodeID;
     }
 
     /** Get the unique node identifier this endpoint is connected to. */
     public int get(RJSTrackSection.EndpointID endpoint) throws InvalidInfraException {
-        Integer index = endpointIDs.get(endpoint);
+        var group = endpointGroups.get(endpoint);
+        var nodeID = group == null ? null : rootToNodeID.get(uf.findRoot(group));
 
-        if (index == null)
+        if (nodeID == null)
             throw new InvalidInfraException(String.format("unknown endpoint: %s", endpoint.toString()));
 
-        return endpointToNodeID.get(index);
+        return nodeID;
     }
-}
\ No newline at end of file
+}
@@ -15,15 +15,17 @@ import java.util.Collection;
 import java.util.List;
 
 public class RJSInfra {
-    /** Moshi adapter used to serialize and deserialize RJSInfra */
-    public static final JsonAdapter<RJSInfra> adapter = new Moshi
+    /** Moshi instance which can serialize and deserialize RJSInfra, as well as each of its parts */
+    public static final Moshi moshi = new Moshi
             .Builder()
             .add(ID.Adapter.FACTORY)
             .add(RJSRSExpr.adapter)
             .add(RJSRouteWaypoint.adapter)
             .add(RJSAspectConstraint.adapter)
-            .build()
-            .adapter(RJSInfra.class);
+            .build();
+
+    /** Moshi adapter used to serialize and deserialize RJSInfra */
+    public static final JsonAdapter<RJSInfra> adapter = moshi.adapter(RJSInfra.class);
 
     /** An incremental format version number, which may be used for migrations */
     public final int version = 1;
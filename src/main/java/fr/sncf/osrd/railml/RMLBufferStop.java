@@ -4,8 +4,6 @@ import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSBufferStop;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -13,12 +11,11 @@ import java.util.Map;
 public class RMLBufferStop {
     static void parse(
             Map<String, NetElement> netElements,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException {
         var xpath = "/railML/infrastructure/functionalInfrastructure/bufferStops/bufferStop";
-        for (var bufferStopNode : document.selectNodes(xpath)) {
-            var bufferStop = (Element) bufferStopNode;
+        for (var bufferStop : document.getElements(xpath)) {
             // locate the track netElement the buffer stop is on
             var id = bufferStop.attributeValue("id");
 
@@ -0,0 +1,149 @@
+package fr.sncf.osrd.railml;
+
+import fr.sncf.osrd.infra.InvalidInfraException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A RailML document, reduced to the elements the importer reads.</p>
+ * <p>The file is read in a single pass by a streaming reader. Only the subtrees of the elements at
+ * {@link #PATHS} are kept, without namespaces, and they are indexed by path, so that finding all
+ * the elements of some kind doesn't require scanning the document.</p>
+ */
+public final class RMLDocument {
+    /** The paths of all the elements the importer reads */
+    static final String[] PATHS = {
+            "/railML/infrastructure/topology/networks/network/level",
+            "/railML/infrastructure/topology/netElements/netElement",
+            "/railML/infrastructure/topology/netRelations/netRelation",
+            "/railML/infrastructure/functionalInfrastructure/operationalPoints/operationalPoint",
+            "/railML/infrastructure/functionalInfrastructure/speeds/speedSection",
+            "/railML/infrastructure/functionalInfrastructure/switchesIS/switchIS",
+            "/railML/infrastructure/functionalInfrastructure/trainDetectionElements/trainDetectionElement",
+            "/railML/infrastructure/functionalInfrastructure/bufferStops/bufferStop",
+            "/railML/infrastructure/functionalInfrastructure/signalsIS/signalIS",
+            "/railML/interlocking/assetsForIL/tvdSections/tvdSection",
+            "/railML/interlocking/assetsForIL/switchesIL/switchIL",
+            "/railML/interlocking/assetsForIL/signalsIL/signalIL",
+            "/railML/interlocking/assetsForIL/routeReleaseGroupsRear/routeReleaseGroupRear",
+            "/railML/interlocking/assetsForIL/routes/route",
+    };
+
+    private final Map<String, List<Element>> elements;
+
+    private RMLDocument(Map<String, List<Element>> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Gets all the elements at some path, in document order
+     * @param path an absolute path, which must be one of {@link #PATHS}
+     * @return the elements, which aren't attached to any document
+     */
+    public List<Element> getElements(String path) {
+        var res = elements.get(path);
+        if (res == null)
+            throw new IllegalArgumentException(String.format("the elements at %s weren't read", path));
+        return res;
+    }
+
+    /**
+     * Reads a RailML document
+     * @param inputPath the path or the URL of the document
+     */
+    public static RMLDocument read(String inputPath) throws InvalidInfraException {
+        var elements = new HashMap<String, List<Element>>();
+        for (var path : PATHS)
+            elements.put(path, new ArrayList<>());
+
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (var input = open(inputPath)) {
+            var reader = factory.createXMLStreamReader(inputPath, input);
+            try {
+                readElements(reader, elements);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new InvalidInfraException("invalid XML", e);
+        } catch (IOException e) {
+            throw new InvalidInfraException(String.format("can't read %s", inputPath), e);
+        }
+        return new RMLDocument(elements);
+    }
+
+    /** Opens a document given its path or URL, as SAX readers do */
+    private static InputStream open(String inputPath) throws IOException {
+        try {
+            return new URL(inputPath).openStream();
+        } catch (MalformedURLException e) {
+            return Files.newInputStream(Path.of(inputPath));
+        }
+    }
+
+    private static void readElements(
+            XMLStreamReader reader,
+            Map<String, List<Element>> elements
+    ) throws XMLStreamException {
+        // the path of the current element, and the length of the path of its ancestors
+        var path = new StringBuilder();
+        var parentPathLengths = new ArrayDeque<Integer>();
+        // the element being built, if the current element is in the subtree of a kept element
+        Element current = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    var name = reader.getLocalName();
+                    parentPathLengths.push(path.length());
+                    path.append('/').append(name);
+                    if (current != null) {
+                        current = current.addElement(name);
+                    } else {
+                        var keptElements = elements.get(path.toString());
+                        if (keptElements == null)
+                            break;
+                        current = DocumentHelper.createElement(name);
+                        keptElements.add(current);
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++)
+                        current.addAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    if (current != null && !reader.isWhiteSpace())
+                        current.addText(reader.getText());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    // kept elements have no parent, which ends their subtree
+                    if (current != null)
+                        current = current.getParent();
+                    path.setLength(parentPathLengths.pop());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
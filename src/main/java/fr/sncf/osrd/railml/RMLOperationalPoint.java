@@ -6,8 +6,6 @@ import fr.sncf.osrd.railjson.schema.infra.RJSOperationalPoint;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.trackranges.RJSOperationalPointPart;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,13 +14,12 @@ import java.util.Map;
 public final class RMLOperationalPoint {
     static ArrayList<RJSOperationalPoint> parse(
             Map<String, NetElement> netElementMap,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException {
         var res = new ArrayList<RJSOperationalPoint>();
         var xpath = "/railML/infrastructure/functionalInfrastructure/operationalPoints/operationalPoint";
-        for (var operationalPointNode : document.selectNodes(xpath)) {
-            var operationalPoint = (Element) operationalPointNode;
+        for (var operationalPoint : document.getElements(xpath)) {
 
             // create the operational point
             var id = operationalPoint.attributeValue("id");
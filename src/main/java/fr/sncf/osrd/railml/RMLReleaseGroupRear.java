@@ -2,7 +2,6 @@ package fr.sncf.osrd.railml;
 
 import fr.sncf.osrd.railjson.schema.common.ID;
 import fr.sncf.osrd.railjson.schema.infra.RJSTVDSection;
-import org.dom4j.Document;
 import org.dom4j.Element;
 
 import java.util.HashMap;
@@ -17,11 +16,10 @@ public class RMLReleaseGroupRear {
         this.tvdSections = tvdSections;
     }
 
-    static HashMap<String, RMLReleaseGroupRear> parse(Document document) {
+    static HashMap<String, RMLReleaseGroupRear> parse(RMLDocument document) {
         var xpath = "/railML/interlocking/assetsForIL/routeReleaseGroupsRear/routeReleaseGroupRear";
         var res = new HashMap<String, RMLReleaseGroupRear>();
-        for (var routeReleaseGroupNode :  document.selectNodes(xpath)) {
-            var routeReleaseGroup = (Element) routeReleaseGroupNode;
+        for (var routeReleaseGroup : document.getElements(xpath)) {
             var id = routeReleaseGroup.attributeValue("id");
             var tvdSections = parseTvdSections(routeReleaseGroup);
             var rmlReleaseGroup = new RMLReleaseGroupRear(tvdSections);
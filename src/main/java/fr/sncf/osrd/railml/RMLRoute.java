@@ -16,7 +16,6 @@ import fr.sncf.osrd.railml.tracksectiongraph.TrackNetElement;
 import fr.sncf.osrd.utils.graph.ApplicableDirection;
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import fr.sncf.osrd.utils.graph.EdgeEndpoint;
-import org.dom4j.Document;
 import org.dom4j.Element;
 
 import java.util.*;
@@ -24,7 +23,7 @@ import java.util.*;
 public class RMLRoute {
     static ArrayList<RJSRoute> parse(
             RMLTrackSectionGraph graph,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections,
             HashMap<String, RMLReleaseGroupRear> releaseGroupsRear
     ) throws InvalidInfraException {
@@ -41,8 +40,7 @@ public class RMLRoute {
 
         var res = new ArrayList<RJSRoute>();
         var xpath = "/railML/interlocking/assetsForIL/routes/route";
-        for (var routeNode :  document.selectNodes(xpath)) {
-            var route = (Element) routeNode;
+        for (var route : document.getElements(xpath)) {
             var id = route.attributeValue("id");
 
             var switchesPosition = parseSwitchesPosition(route);
@@ -5,19 +5,16 @@ import fr.sncf.osrd.railjson.schema.common.ID;
 import fr.sncf.osrd.railjson.schema.infra.railscript.RJSRSExpr;
 import fr.sncf.osrd.railjson.schema.infra.signaling.RJSAspect;
 import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSSignal;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.HashMap;
 
 public class RMLSignalIL {
     static void parse(
-            Document document,
+            RMLDocument document,
             HashMap<String, RMLSignalIS> rmlSignalsIS
     ) throws InvalidInfraException {
         var xpath = "/railML/interlocking/assetsForIL/signalsIL/signalIL";
-        for (var signalNode : document.selectNodes(xpath)) {
-            var signal = (Element) signalNode;
+        for (var signal : document.getElements(xpath)) {
             // locate the track netElement the signal is on
             var id = signal.attributeValue("id");
 
@@ -4,8 +4,6 @@ import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
 import fr.sncf.osrd.utils.graph.ApplicableDirection;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -27,13 +25,12 @@ public class RMLSignalIS {
 
     static HashMap<String, RMLSignalIS> parse(
             Map<String, NetElement> netElements,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException {
         var signals = new HashMap<String, RMLSignalIS>();
         var xpath = "/railML/infrastructure/functionalInfrastructure/signalsIS/signalIS";
-        for (var signalNode : document.selectNodes(xpath)) {
-            var signal = (Element) signalNode;
+        for (var signal : document.getElements(xpath)) {
             // locate the track netElement the signal is on
             var id = signal.attributeValue("id");
 
@@ -7,7 +7,6 @@ import fr.sncf.osrd.railjson.schema.infra.RJSSpeedSection;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.trackranges.RJSSpeedSectionPart;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
-import org.dom4j.Document;
 import org.dom4j.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,15 +30,14 @@ public final class RMLSpeedSection {
 
     static ArrayList<RJSSpeedSection> parse(
             Map<String, NetElement> netElementMap,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException {
         var res = new ArrayList<RJSSpeedSection>();
 
         // iterate over all the speed section, which is a continuous set of tracks with a speed limit
         var xpath = "/railML/infrastructure/functionalInfrastructure/speeds/speedSection";
-        for (var speedSectionNode : document.selectNodes(xpath)) {
-            var speedSectionElement = (Element) speedSectionNode;
+        for (var speedSectionElement : document.getElements(xpath)) {
             // parse and create the speed limit
             var rjsSpeedLimit = parseSpeedLimit(speedSectionElement);
             logger.trace("created a speed section with speed {}", rjsSpeedLimit.speed);
@@ -2,8 +2,6 @@ package fr.sncf.osrd.railml;
 
 import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.schema.infra.RJSSwitch;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -12,13 +10,12 @@ import java.util.HashMap;
 public class RMLSwitchIL {
 
     static ArrayList<RJSSwitch> parse(
-            Document document,
+            RMLDocument document,
             HashMap<String, RMLSwitchIS> switchesIS
     ) throws InvalidInfraException {
         var xpath = "/railML/interlocking/assetsForIL/switchesIL/switchIL";
         var res = new ArrayList<RJSSwitch>();
-        for (var switchNode : document.selectNodes(xpath)) {
-            var switchIL = (Element) switchNode;
+        for (var switchIL : document.getElements(xpath)) {
             var throwTimeIso8601 = switchIL.attributeValue("typicalThrowTime", "PT0S");
             double throwTime = java.time.Duration.parse(throwTimeIso8601).toMillis();
             double throwTimeSeconds = throwTime / 1000.;
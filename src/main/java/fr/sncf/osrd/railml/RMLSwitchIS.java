@@ -4,7 +4,6 @@ import fr.sncf.osrd.infra.InvalidInfraException;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSectionLink;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
-import org.dom4j.Document;
 import org.dom4j.Element;
 
 import java.util.HashMap;
@@ -52,12 +51,11 @@ public final class RMLSwitchIS {
     static HashMap<String, RMLSwitchIS> parse(
             Map<String, NetElement> netElements,
             Map<String, RJSTrackSectionLink> netRelations,
-            Document document
+            RMLDocument document
     ) throws InvalidInfraException {
         var res = new HashMap<String, RMLSwitchIS>();
         var xpath = "/railML/infrastructure/functionalInfrastructure/switchesIS/switchIS";
-        for (var switchISNode :  document.selectNodes(xpath)) {
-            var switchIS = (Element) switchISNode;
+        for (var switchIS : document.getElements(xpath)) {
             var id = switchIS.attributeValue("id");
             var baseBranch = ParsingUtils.parseLocationEndpointID(netElements, switchIS);
             var leftBranch = parseSwitchBranch(netRelations, baseBranch, switchIS, "leftBranch");
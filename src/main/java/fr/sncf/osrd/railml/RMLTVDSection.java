@@ -7,7 +7,6 @@ import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSBufferStop;
 import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSTrainDetector;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
-import org.dom4j.Document;
 import org.dom4j.Element;
 
 import java.util.ArrayList;
@@ -36,13 +35,12 @@ public final class RMLTVDSection {
 
     static ArrayList<RJSTVDSection> parse(
             Map<String, NetElement> netElements,
-            Document document,
+            RMLDocument document,
             Map<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException  {
         var res = new ArrayList<RJSTVDSection>();
         var xpath = "/railML/interlocking/assetsForIL/tvdSections/tvdSection";
-        for (var tvdSectionNode :  document.selectNodes(xpath)) {
-            var tvdSection = (Element) tvdSectionNode;
+        for (var tvdSection : document.getElements(xpath)) {
             var id = tvdSection.attributeValue("id");
             var isBerthingTrack = Boolean.parseBoolean(tvdSection.attributeValue("isBerthingTrack"));
 
@@ -5,8 +5,6 @@ import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
 import fr.sncf.osrd.railjson.schema.infra.trackobjects.RJSTrainDetector;
 import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
 import fr.sncf.osrd.utils.graph.ApplicableDirection;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -14,12 +12,11 @@ import java.util.Map;
 public class RMLTrainDetectionElement {
     static void parse(
             Map<String, NetElement> netElements,
-            Document document,
+            RMLDocument document,
             HashMap<String, RJSTrackSection> rjsTrackSections
     ) throws InvalidInfraException {
         var xpath = "/railML/infrastructure/functionalInfrastructure/trainDetectionElements/trainDetectionElement";
-        for (var trainDetectionElementNode : document.selectNodes(xpath)) {
-            var trainDetectionElement = (Element) trainDetectionElementNode;
+        for (var trainDetectionElement : document.getElements(xpath)) {
             // locate the track netElement the detector is on
             var id = trainDetectionElement.attributeValue("id");
 
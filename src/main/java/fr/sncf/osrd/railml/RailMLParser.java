@@ -8,11 +8,7 @@ import fr.sncf.osrd.railml.tracksectiongraph.NetElement;
 import fr.sncf.osrd.railml.tracksectiongraph.NetRelation;
 import fr.sncf.osrd.railml.tracksectiongraph.RMLTrackSectionGraph;
 import fr.sncf.osrd.railml.tracksectiongraph.TrackNetElement;
-import fr.sncf.osrd.utils.XmlNamespaceCleaner;
-import org.dom4j.Document;
-import org.dom4j.DocumentException;
 import org.dom4j.Element;
-import org.dom4j.io.SAXReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,15 +24,8 @@ public final class RailMLParser {
      * @return the parsed infrastructure
      */
     public static RJSInfra parse(String inputPath) throws InvalidInfraException {
-        Document document;
-        try {
-            document = new SAXReader().read(inputPath);
-        } catch (DocumentException e) {
-            throw new InvalidInfraException("invalid XML", e);
-        }
-
-        // remove xml namespace tags, as these prevent using xpath
-        document.accept(new XmlNamespaceCleaner());
+        // only keep the elements the importer needs, instead of building the whole document tree
+        var document = RMLDocument.read(inputPath);
 
         // create RMLGraph in order to later locate the train detectors
         var graph = new RMLTrackSectionGraph();
@@ -111,10 +100,9 @@ public final class RailMLParser {
                 new ArrayList<>());
     }
 
-    private static Map<String, DescriptionLevel> parseDescriptionLevels(Document document) {
+    private static Map<String, DescriptionLevel> parseDescriptionLevels(RMLDocument document) {
         var descLevels = new HashMap<String, DescriptionLevel>();
-        for (var levelNode : document.selectNodes("/railML/infrastructure/topology/networks/network/level")) {
-            var level = (Element) levelNode;
+        for (var level : document.getElements("/railML/infrastructure/topology/networks/network/level")) {
             var descriptionLevel = DescriptionLevel.getValue(level.attributeValue("descriptionLevel"));
             for (var networkResourceNode : level.selectNodes("networkResource")) {
                 var networkResource = (Element) networkResourceNode;
@@ -1,11 +1,11 @@
 package fr.sncf.osrd.railml.tracksectiongraph;
 
 import fr.sncf.osrd.railml.DescriptionLevel;
+import fr.sncf.osrd.railml.RMLDocument;
 import fr.sncf.osrd.utils.PointValue;
 import fr.sncf.osrd.utils.RangeValue;
 import fr.sncf.osrd.utils.graph.Edge;
 import fr.sncf.osrd.utils.graph.EdgeEndpoint;
-import org.dom4j.Document;
 import org.dom4j.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,15 +92,14 @@ public abstract class NetElement extends Edge {
      */
     public static Map<String, NetElement> parse(
             Map<String, DescriptionLevel> descLevels,
-            Document document,
+            RMLDocument document,
             RMLTrackSectionGraph graph
     ) {
         var netElementMap = new HashMap<String, NetElement>();
         var xpath = "/railML/infrastructure/topology/netElements/netElement";
-        var netElements = document.selectNodes(xpath);
+        var netElements = document.getElements(xpath);
 
-        for (var netElementNode : netElements) {
-            var netElement = (Element) netElementNode;
+        for (var netElement : netElements) {
             var id = netElement.attributeValue("id");
             if (descLevels.get(id) != DescriptionLevel.MICRO)
                 continue;
@@ -114,8 +113,7 @@ public abstract class NetElement extends Edge {
         }
 
         // we need to create meso elements after creating micro elements, so those already are registered
-        for (var netElementNode : netElements) {
-            var netElement = (Element) netElementNode;
+        for (var netElement : netElements) {
             var id = netElement.attributeValue("id");
             var descLevel = descLevels.get(id);
             if (descLevel != DescriptionLevel.MESO)
@@ -124,8 +122,7 @@ public abstract class NetElement extends Edge {
         }
 
         // we need to create macro elements after creating meso elements, so those already are registered
-        for (var netElementNode : netElements) {
-            var netElement = (Element) netElementNode;
+        for (var netElement : netElements) {
             var id = netElement.attributeValue("id");
             var descLevel = descLevels.get(id);
             if (descLevel != DescriptionLevel.MACRO)
@@ -8,12 +8,11 @@ import fr.sncf.osrd.railjson.schema.common.ID;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection.EndpointID;
 import fr.sncf.osrd.railjson.schema.infra.RJSTrackSectionLink;
 import fr.sncf.osrd.railml.DescriptionLevel;
+import fr.sncf.osrd.railml.RMLDocument;
 import fr.sncf.osrd.utils.graph.ApplicableDirection;
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import fr.sncf.osrd.utils.graph.EdgeEndpoint;
 import fr.sncf.osrd.utils.graph.IBiNeighborRel;
-import org.dom4j.Document;
-import org.dom4j.Element;
 
 import java.util.HashMap;
 import java.util.Locale;
@@ -89,11 +88,13 @@ public class NetRelation implements IBiNeighborRel<TrackNetElement> {
     }
 
     /** Parse all netRelations in a RailML document */
-    public static Map<String, RJSTrackSectionLink> parse(Map<String, DescriptionLevel> descLevels, Document document) {
+    public static Map<String, RJSTrackSectionLink> parse(
+            Map<String, DescriptionLevel> descLevels,
+            RMLDocument document
+    ) {
         var netRelations = new HashMap<String, RJSTrackSectionLink>();
 
-        for (var netRelationNode : document.selectNodes("/railML/infrastructure/topology/netRelations/netRelation")) {
-            var netRelation = (Element) netRelationNode;
+        for (var netRelation : document.getElements("/railML/infrastructure/topology/netRelations/netRelation")) {
             var navigabilityStr = netRelation.attributeValue("navigability").toUpperCase(Locale.ENGLISH);
             if (navigabilityStr.equals("NONE"))
                 continue;
@@ -1,23 +1,44 @@
 package fr.sncf.osrd.simulation;
 
 import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
+import fr.sncf.osrd.utils.DeepComparable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * <p>Replays all changes on a second simulation, and checks that it stays identical to the reference.</p>
+ * <p>After each change, only the state the change touched is compared: the entity it updated,
+ * or the event it scheduled, as well as the clock of both simulations. Whole simulations are
+ * compared when events occur, or every few changes, as well as until the replay is consistent again
+ * once some difference was found.</p>
+ */
 public class ChangeReplayChecker extends ChangeConsumer {
     static final Logger logger = LoggerFactory.getLogger(ChangeReplayChecker.class);
 
+    /** By default, whole simulations are compared every this many changes */
+    public static final int DEFAULT_FULL_CHECK_PERIOD = 1000;
+
     private final Simulation referenceSim;
     private final Simulation replaySim;
+    /** Whole simulations are compared every this many changes, or each time an event occurs if zero */
+    private final int fullCheckPeriod;
+    private int changesSinceFullCheck = 0;
     private boolean isConsistent = true;
 
-    private ChangeReplayChecker(Simulation referenceSim, Simulation replaySim) {
+    private ChangeReplayChecker(Simulation referenceSim, Simulation replaySim, int fullCheckPeriod) {
         this.referenceSim = referenceSim;
         this.replaySim = replaySim;
+        this.fullCheckPeriod = fullCheckPeriod;
     }
 
-    /** Creates a change replay checker */
-    public static ChangeReplayChecker from(Simulation refSim) {
+    /**
+     * Creates a change replay checker
+     * @param refSim the simulation to check
+     * @param fullCheckPeriod how many changes to wait between two comparisons of the whole simulations,
+     *                        or zero to compare them each time an event occurs
+     */
+    public static ChangeReplayChecker from(Simulation refSim, int fullCheckPeriod) {
+        assert fullCheckPeriod >= 0;
         var refInfra = refSim.infra;
         Simulation replaySim;
         if (refInfra != null) {
@@ -28,7 +49,19 @@ public class ChangeReplayChecker extends ChangeConsumer {
         }
 
         assert replaySim.deepEquals(refSim) : "the reference and replay simulation shouldn't differ from the start";
-        return new ChangeReplayChecker(refSim, replaySim);
+        return new ChangeReplayChecker(refSim, replaySim, fullCheckPeriod);
+    }
+
+    /**
+     * Creates a change replay checker, which compares whole simulations each time an event occurs.
+     * As this happens at each step, checking is about as costly as comparing after every change.
+     */
+    public static ChangeReplayChecker from(Simulation refSim) {
+        return from(refSim, 0);
+    }
+
+    public boolean isConsistent() {
+        return isConsistent;
     }
 
     @Override
@@ -38,8 +71,16 @@ public class ChangeReplayChecker extends ChangeConsumer {
     @Override
     public void changePublishedCallback(Change change) {
         change.replay(replaySim);
+        changesSinceFullCheck++;
+
+        boolean newConsistency;
+        if (!isConsistent || mustCheckAll(change)) {
+            newConsistency = referenceSim.deepEquals(replaySim);
+            changesSinceFullCheck = 0;
+        } else {
+            newConsistency = touchedStateEquals(change);
+        }
 
-        var newConsistency = referenceSim.deepEquals(replaySim);
         if (newConsistency == isConsistent)
             return;
 
@@ -50,4 +91,39 @@ public class ChangeReplayChecker extends ChangeConsumer {
                     + " to the simulation result after change {}", change);
         isConsistent = newConsistency;
     }
+
+    private boolean mustCheckAll(Change change) {
+        if (fullCheckPeriod == 0)
+            return change instanceof Simulation.TimelineEventOccurred;
+        return changesSinceFullCheck >= fullCheckPeriod;
+    }
+
+    /** Compares the state a change touched in both simulations */
+    private boolean touchedStateEquals(Change change) {
+        if (!referenceSim.clockEquals(replaySim))
+            return false;
+
+        if (change instanceof Simulation.TimelineEventCreated) {
+            var eventId = ((Simulation.TimelineEventCreated) change).eventId;
+            return referenceSim.timelineEventEquals(replaySim, eventId);
+        }
+
+        if (change instanceof EntityChange) {
+            var entityChange = (EntityChange<?, ?>) change;
+            return entityEquals(entityChange.getEntity(referenceSim), entityChange.getEntity(replaySim));
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean entityEquals(Object entity, Object otherEntity) {
+        if (entity == null || otherEntity == null)
+            return entity == otherEntity;
+        if (entity.getClass() != otherEntity.getClass())
+            return false;
+        // entities which can't be compared, such as trains, aren't compared by Simulation.deepEquals either
+        if (!(entity instanceof DeepComparable))
+            return true;
+        return ((DeepComparable<Object>) entity).deepEquals(otherEntity);
+    }
 }
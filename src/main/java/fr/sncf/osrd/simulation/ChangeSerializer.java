@@ -23,21 +23,30 @@ import fr.sncf.osrd.infra.trackgraph.TrackSection;
 import fr.sncf.osrd.infra_state.RouteState;
 import fr.sncf.osrd.infra_state.SignalState;
 import fr.sncf.osrd.infra_state.SwitchState;
+import fr.sncf.osrd.infra_state.TVDSectionState;
+import fr.sncf.osrd.infra_state.events.SignalDelayedUpdateEvent;
+import fr.sncf.osrd.infra_state.events.SwitchMoveEvent;
 import fr.sncf.osrd.simulation.changelog.ChangeLog;
+import fr.sncf.osrd.speedcontroller.CoastingSpeedController;
+import fr.sncf.osrd.speedcontroller.LimitAnnounceSpeedController;
+import fr.sncf.osrd.speedcontroller.MapSpeedController;
+import fr.sncf.osrd.speedcontroller.MaxSpeedController;
 import fr.sncf.osrd.speedcontroller.SpeedController;
 import fr.sncf.osrd.train.TrackSectionRange;
+import fr.sncf.osrd.train.Train;
 import fr.sncf.osrd.train.Train.TrainStateChange;
 import fr.sncf.osrd.train.decisions.InteractiveInput;
 import fr.sncf.osrd.train.decisions.KeyboardInput;
 import fr.sncf.osrd.train.decisions.TrainDecisionMaker;
 import fr.sncf.osrd.train.decisions.TrainDecisionMaker.DefaultTrainDecisionMaker;
+import fr.sncf.osrd.train.events.TrainCreatedEvent;
+import fr.sncf.osrd.train.events.TrainMoveEvent;
+import fr.sncf.osrd.train.events.TrainReachesActionPoint;
+import fr.sncf.osrd.train.events.TrainRestarts;
 import fr.sncf.osrd.train.phases.Phase;
 import fr.sncf.osrd.train.phases.PhaseState;
 import fr.sncf.osrd.train.phases.SignalNavigatePhase;
 import fr.sncf.osrd.utils.CryoList;
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfoList;
-import io.github.classgraph.ScanResult;
 import okio.BufferedSink;
 import okio.Okio;
 import okio.Sink;
@@ -53,6 +62,38 @@ import java.util.Iterator;
 import java.util.function.Supplier;
 
 public class ChangeSerializer {
+    // These are all the concrete subtypes of polymorphic base types, which are listed here rather than
+    // found by scanning the classpath on startup. ChangeSerializerTest checks that none are missing.
+
+    static final SubtypeCollection<Change> changeSubtypes = new SubtypeCollection<Change>()
+            .add(StopActionPoint.StopReachedChange.class)
+            .add(RouteState.RouteStatusChange.class)
+            .add(SignalState.SignalAspectChange.class)
+            .add(SwitchState.SwitchPositionChange.class)
+            .add(TVDSectionState.TVDSectionReservationChange.class)
+            .add(SignalDelayedUpdateEvent.SignalPlanDelayUpdateChange.class)
+            .add(SwitchMoveEvent.SwitchMovePlanned.class)
+            .add(OperationalPointChange.class)
+            .add(Simulation.TimelineEventOccurred.class)
+            .add(Simulation.TimelineEventCancelled.class)
+            .add(Train.TrainCreatedChange.class)
+            .add(TrainStateChange.class)
+            .add(InteractiveInput.CheckInputEvent.CheckInputEventPlanned.class)
+            .add(TrainCreatedEvent.TrainCreationPlanned.class)
+            .add(TrainMoveEvent.TrainPlannedMove.class)
+            .add(TrainReachesActionPoint.TrainPlannedMoveToActionPoint.class)
+            .add(TrainRestarts.TrainPlannedRestart.class)
+            .add(SignalNavigatePhase.SwitchActionPoint.PassageOnSwitch.class);
+
+    static final SubtypeCollection<PhaseState> phaseStateSubtypes = new SubtypeCollection<PhaseState>()
+            .add(SignalNavigatePhase.State.class);
+
+    static final SubtypeCollection<SpeedController> speedControllerSubtypes = new SubtypeCollection<SpeedController>()
+            .add(CoastingSpeedController.class)
+            .add(LimitAnnounceSpeedController.class)
+            .add(MapSpeedController.class)
+            .add(MaxSpeedController.class);
+
     public static final JsonAdapter<Change> changeAdapter = new Moshi.Builder()
             .add(new CurrentPathEdgesAdapter())
             .add(new TopoEdgeAdapter())
@@ -73,11 +114,11 @@ public class ChangeSerializer {
                     TrainStateChange.SpeedUpdates.class,
                     TrainStateChange.SpeedUpdates::new))
             .add(new SerializableDoubleAdapter())
-            .add(adaptPolymorphicType(Change.class, "changeType"))
+            .add(adaptPolymorphicType(Change.class, "changeType", changeSubtypes))
             .add(PolymorphicJsonAdapterFactory.of(Phase.class, "phaseType")
                     .withSubtype(SignalNavigatePhase.class, "navigatePhase")
             )
-            .add(adaptPolymorphicType(PhaseState.class, "phaseStateType"))
+            .add(adaptPolymorphicType(PhaseState.class, "phaseStateType", phaseStateSubtypes))
             .add(PolymorphicJsonAdapterFactory.of(ActionPoint.class, "actionPointType")
                     .withSubtype(BufferStop.class, "bufferStop")
                     .withSubtype(Detector.class, "detector")
@@ -100,7 +141,7 @@ public class ChangeSerializer {
             .add(PolymorphicJsonAdapterFactory.of(InteractiveInput.class, "interactiveInputType")
                 .withSubtype(KeyboardInput.class, "keyboardInputType")
             )
-            .add(adaptPolymorphicType(SpeedController.class, "controllerType"))
+            .add(adaptPolymorphicType(SpeedController.class, "controllerType", speedControllerSubtypes))
             .build()
             .adapter(Change.class);
 
@@ -109,7 +150,7 @@ public class ChangeSerializer {
      * It's just a convenient collection to store what names to associate with types.
      * @param <T> the base type
      */
-    private static class SubtypeCollection<T> implements Iterable<SubtypeCollection.Subtype<T>> {
+    static class SubtypeCollection<T> implements Iterable<SubtypeCollection.Subtype<T>> {
         static class Subtype<T> {
             public final Class<? extends T> type;
             public final String label;
@@ -133,45 +174,19 @@ public class ChangeSerializer {
             return this;
         }
 
-        /**
-         * Create the list of subclasses of a class
-         * @param baseClass the descriptor of the class of the base type T
-         * @param <T> the base type
-         * @return  the list of subclasses of the base type T
-         */
-        @SuppressFBWarnings({"RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE"})
-        static <T> SubtypeCollection<T> fromClass(Class<T> baseClass) {
-            // Create a list of all classes of the package
-            try (ScanResult scanResult = new ClassGraph()
-                    .enableClassInfo()
-                    .acceptPackages("fr.sncf.osrd")
-                    .scan()) {
-
-                // select the subclasses of baseClass
-                ClassInfoList subclassesInfos = scanResult.getSubclasses(baseClass.getCanonicalName());
-
-                // create result list
-                var results = new SubtypeCollection<T>();
-
-                // iterate over the subclasses
-                for (var subclassInfo: subclassesInfos) {
-                    // skip abstract classes
-                    if (subclassInfo.isAbstract())
-                        continue;
-
-                    // load the java class using the classInfo descriptor
-                    var subclass = subclassInfo.loadClass(baseClass);
-                    String changeLabel = subclassInfo.getSimpleName();
-                    results.add(subclass, changeLabel);
-                }
-                return results;
-            }
+        /** Adds a subtype, which is labeled with the simple name of its class */
+        public SubtypeCollection<T> add(Class<? extends T> type) {
+            return add(type, type.getSimpleName());
         }
     }
 
-    private static <T> PolymorphicJsonAdapterFactory<T> adaptPolymorphicType(Class<T> baseClass, String labelKey) {
+    private static <T> PolymorphicJsonAdapterFactory<T> adaptPolymorphicType(
+            Class<T> baseClass,
+            String labelKey,
+            SubtypeCollection<T> subtypes
+    ) {
         var adapterFactory = PolymorphicJsonAdapterFactory.of(baseClass, labelKey);
-        for (var subtype : SubtypeCollection.fromClass(baseClass))
+        for (var subtype : subtypes)
             adapterFactory = adapterFactory.withSubtype(subtype.type, subtype.label);
         return adapterFactory;
     }
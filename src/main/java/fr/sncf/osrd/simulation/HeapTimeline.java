@@ -0,0 +1,217 @@
+package fr.sncf.osrd.simulation;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A timeline backed by a binary heap, whose keys are stored in primitive arrays.</p>
+ * <p>The slot of each event in the heap is indexed by revision, which is unique, so that events can be found
+ * and removed from anywhere in the heap without scanning it.</p>
+ */
+public final class HeapTimeline implements Timeline {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private double[] times = new double[INITIAL_CAPACITY];
+    private long[] revisions = new long[INITIAL_CAPACITY];
+    private TimelineEvent[] events = new TimelineEvent[INITIAL_CAPACITY];
+    private int heapSize = 0;
+
+    /** The slot of each event in the heap, given its revision */
+    private final SlotTable slots = new SlotTable();
+
+    @Override
+    public void add(TimelineEvent event) {
+        if (heapSize == events.length) {
+            var newCapacity = heapSize * 2;
+            times = Arrays.copyOf(times, newCapacity);
+            revisions = Arrays.copyOf(revisions, newCapacity);
+            events = Arrays.copyOf(events, newCapacity);
+        }
+        siftUp(heapSize++, event.eventId.scheduledTime, event.eventId.revision, event);
+    }
+
+    @Override
+    public void remove(TimelineEventId eventId) {
+        var slot = slots.get(eventId.revision);
+        // just like TreeMapTimeline, ignore events which aren't in the timeline
+        if (slot == -1)
+            return;
+        removeAt(slot);
+    }
+
+    @Override
+    public TimelineEvent peek() {
+        if (heapSize == 0)
+            return null;
+        return events[0];
+    }
+
+    @Override
+    public TimelineEvent get(TimelineEventId eventId) {
+        var slot = slots.get(eventId.revision);
+        if (slot == -1)
+            return null;
+        return events[slot];
+    }
+
+    @Override
+    public int size() {
+        return heapSize;
+    }
+
+    @Override
+    public Iterator<TimelineEvent> iterator() {
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < heapSize;
+            }
+
+            @Override
+            public TimelineEvent next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return events[index++];
+            }
+        };
+    }
+
+    /** Removes the event at some slot, and moves the last event of the heap in its place */
+    private void removeAt(int index) {
+        slots.remove(revisions[index]);
+        heapSize--;
+        var lastTime = times[heapSize];
+        var lastRevision = revisions[heapSize];
+        var lastEvent = events[heapSize];
+        events[heapSize] = null;
+        if (index == heapSize)
+            return;
+        // the last event may belong either above or below the removed one
+        if (index > 0 && isBefore(lastTime, lastRevision, times[(index - 1) >>> 1], revisions[(index - 1) >>> 1]))
+            siftUp(index, lastTime, lastRevision, lastEvent);
+        else
+            siftDown(index, lastTime, lastRevision, lastEvent);
+    }
+
+    private static boolean isBefore(double timeA, long revisionA, double timeB, long revisionB) {
+        var cmpRes = Double.compare(timeA, timeB);
+        if (cmpRes != 0)
+            return cmpRes < 0;
+        return revisionA < revisionB;
+    }
+
+    private void set(int index, double time, long revision, TimelineEvent event) {
+        times[index] = time;
+        revisions[index] = revision;
+        events[index] = event;
+        slots.put(revision, index);
+    }
+
+    private void siftUp(int index, double time, long revision, TimelineEvent event) {
+        while (index > 0) {
+            var parent = (index - 1) >>> 1;
+            if (!isBefore(time, revision, times[parent], revisions[parent]))
+                break;
+            set(index, times[parent], revisions[parent], events[parent]);
+            index = parent;
+        }
+        set(index, time, revision, event);
+    }
+
+    private void siftDown(int index, double time, long revision, TimelineEvent event) {
+        var half = heapSize >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            var right = child + 1;
+            if (right < heapSize && isBefore(times[right], revisions[right], times[child], revisions[child]))
+                child = right;
+            if (!isBefore(times[child], revisions[child], time, revision))
+                break;
+            set(index, times[child], revisions[child], events[child]);
+            index = child;
+        }
+        set(index, time, revision, event);
+    }
+
+    /**
+     * <p>An open addressing hash table from revisions to heap slots, which doesn't box keys nor values.</p>
+     * <p>Collisions are resolved using linear probing, and removals shift back the following entries
+     * so that no tombstone is needed.</p>
+     */
+    private static final class SlotTable {
+        private long[] keys = new long[INITIAL_CAPACITY * 2];
+        /** The slot associated with each key, or -1 if the entry is empty */
+        private int[] values = newValues(INITIAL_CAPACITY * 2);
+        private int size = 0;
+
+        private static int[] newValues(int capacity) {
+            var res = new int[capacity];
+            Arrays.fill(res, -1);
+            return res;
+        }
+
+        private int indexOf(long key) {
+            var hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        /** Returns the slot associated with some revision, or -1 if there's none */
+        int get(long key) {
+            var mask = keys.length - 1;
+            for (int i = indexOf(key); values[i] != -1; i = (i + 1) & mask)
+                if (keys[i] == key)
+                    return values[i];
+            return -1;
+        }
+
+        void put(long key, int value) {
+            var mask = keys.length - 1;
+            var i = indexOf(key);
+            for (; values[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            // keep the table at most half full, so that probe sequences stay short
+            if (++size * 2 > keys.length)
+                grow();
+        }
+
+        void remove(long key) {
+            var mask = keys.length - 1;
+            var i = indexOf(key);
+            while (values[i] != -1 && keys[i] != key)
+                i = (i + 1) & mask;
+            if (values[i] == -1)
+                return;
+            size--;
+            // move back the entries which would not be found anymore once this one is emptied
+            for (int next = (i + 1) & mask; values[next] != -1; next = (next + 1) & mask) {
+                var home = indexOf(keys[next]);
+                if (((next - home) & mask) >= ((next - i) & mask)) {
+                    keys[i] = keys[next];
+                    values[i] = values[next];
+                    i = next;
+                }
+            }
+            values[i] = -1;
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = newValues(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldValues[i] != -1)
+                    put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
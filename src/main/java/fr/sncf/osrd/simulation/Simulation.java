@@ -12,8 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
 
 /**
  * <h1>A Discrete TimelineEvent Simulation.</h1>
@@ -62,7 +61,7 @@ public final class Simulation implements DeepComparable<Simulation> {
     public final double startTime;
 
     /** The list of events pending execution. */
-    private final SortedMap<TimelineEventId, TimelineEvent> timeline = new TreeMap<>();
+    private final Timeline timeline;
 
     /** The number of event that were scheduled. it is used to associate a unique number to events. */
     private long revision = 0;
@@ -72,13 +71,15 @@ public final class Simulation implements DeepComparable<Simulation> {
             Infra infra,
             InfraState infraState,
             double time,
-            ChangeConsumer changeConsumer
+            ChangeConsumer changeConsumer,
+            Timeline timeline
     ) {
         this.infra = infra;
         this.infraState = infraState;
         this.startTime = time;
         this.time = time;
         this.changeConsumer = changeConsumer;
+        this.timeline = timeline;
     }
 
     /** Creates a simulation and initialize infrastructure entities */
@@ -88,7 +89,7 @@ public final class Simulation implements DeepComparable<Simulation> {
             ChangeConsumer changeConsumer
     ) {
         var infraState = InfraState.from(infra);
-        return new Simulation(infra, infraState, simStartTime, changeConsumer);
+        return new Simulation(infra, infraState, simStartTime, changeConsumer, new HeapTimeline());
     }
     
     /** Creates a simulation and initialize infrastructure entities */
@@ -97,9 +98,20 @@ public final class Simulation implements DeepComparable<Simulation> {
             List<SuccessionTable> initTables,
             double simStartTime,
             ChangeConsumer changeConsumer
+    ) {
+        return createFromInfraAndSuccessions(infra, initTables, simStartTime, changeConsumer, new HeapTimeline());
+    }
+
+    /** Creates a simulation and initialize infrastructure entities, using the given timeline backend */
+    public static Simulation createFromInfraAndSuccessions(
+            Infra infra,
+            List<SuccessionTable> initTables,
+            double simStartTime,
+            ChangeConsumer changeConsumer,
+            Timeline timeline
     ) {
         var infraState = InfraState.from(infra, initTables);
-        return new Simulation(infra, infraState, simStartTime, changeConsumer);
+        return new Simulation(infra, infraState, simStartTime, changeConsumer, timeline);
     }
 
     /** Creates a simulation without any infra linked (for testing) */
@@ -107,7 +119,16 @@ public final class Simulation implements DeepComparable<Simulation> {
             double simStartTime,
             ChangeConsumer changeConsumer
     ) {
-        return new Simulation(null, null, simStartTime, changeConsumer);
+        return createWithoutInfra(simStartTime, changeConsumer, new HeapTimeline());
+    }
+
+    /** Creates a simulation without any infra linked, using the given timeline backend (for testing) */
+    public static Simulation createWithoutInfra(
+            double simStartTime,
+            ChangeConsumer changeConsumer,
+            Timeline timeline
+    ) {
+        return new Simulation(null, null, simStartTime, changeConsumer, timeline);
     }
 
 
@@ -124,12 +145,21 @@ public final class Simulation implements DeepComparable<Simulation> {
      * @param change the change to publish
      */
     public void publishChange(Change change) {
-        logger.info("change published {}", change);
+        if (logger.isTraceEnabled())
+            logger.trace("change published {}", change);
         if (changeConsumer != null)
             changeConsumer.changePublishedCallback(change);
         change.state = Change.State.PUBLISHED;
     }
 
+    /**
+     * Checks whether changes which only keep track of the timeline need to be created.
+     * If no change consumer needs them, events are scheduled and cancelled without creating any change.
+     */
+    private boolean needsTimelineChanges() {
+        return changeConsumer != null && changeConsumer.needsTimelineChanges();
+    }
+
     // endregion
 
     // region DISCRETE_EVENT_SIMULATION
@@ -142,9 +172,13 @@ public final class Simulation implements DeepComparable<Simulation> {
      */
     public void cancel(TimelineEvent event) throws SimulationError {
         // remove the event from the timeline
-        var change = new TimelineEventCancelled(this, event.eventId);
-        change.apply(this);
-        this.publishChange(change);
+        if (needsTimelineChanges()) {
+            var change = new TimelineEventCancelled(this, event.eventId);
+            change.apply(this);
+            this.publishChange(change);
+        } else {
+            timeline.remove(event.eventId);
+        }
 
         // send update messages to subscribed entities
         event.setState(TimelineEvent.State.CANCELLED);
@@ -161,20 +195,49 @@ public final class Simulation implements DeepComparable<Simulation> {
      * @throws SimulationError {@inheritDoc}
      */
     public TimelineEvent step() throws SimulationError {
-        var event = timeline.get(timeline.firstKey());
+        // changes made outside of events are propagated before moving the simulation time forward
+        if (infraState != null)
+            infraState.propagateSignalChanges(this);
 
-        // step the simulation time forward
-        logger.debug("changing the simulation clock from {} to {}", time, event.eventId.scheduledTime);
+        var event = timeline.peek();
+        if (event == null)
+            throw new NoSuchElementException("there are no pending events in the simulation timeline");
 
-        var change = new TimelineEventOccurred(this, event.eventId);
-        change.apply(this);
-        this.publishChange(change);
+        // step the simulation time forward
+        if (logger.isTraceEnabled())
+            logger.trace("changing the simulation clock from {} to {}", time, event.eventId.scheduledTime);
+
+        if (needsTimelineChanges()) {
+            var change = new TimelineEventOccurred(this, event.eventId);
+            change.apply(this);
+            this.publishChange(change);
+        } else {
+            eventOccurred(event.eventId);
+        }
 
         event.setState(TimelineEvent.State.OCCURRED);
         event.onOccurrence(this);
+
+        // signals are evaluated once all the changes of the event were made
+        if (infraState != null)
+            infraState.propagateSignalChanges(this);
         return event;
     }
 
+    /** Removes an event from the timeline, and moves the simulation time forward to the time of the event */
+    private void eventOccurred(TimelineEventId timelineEventId) {
+        // remove the event from the timeline
+        timeline.remove(timelineEventId);
+
+        var scheduledTime = timelineEventId.scheduledTime;
+
+        // the event shouldn't move the simulation time backwards
+        assert scheduledTime >= time;
+
+        // move the simulation time forward
+        time = scheduledTime;
+    }
+
     // endregion
 
     // region CHANGES
@@ -200,7 +263,7 @@ public final class Simulation implements DeepComparable<Simulation> {
             sim.revision++;
 
             // add the event to the timeline
-            sim.timeline.put(eventId, event);
+            sim.timeline.add(event);
 
             event.setState(TimelineEvent.State.SCHEDULED);
         }
@@ -216,16 +279,7 @@ public final class Simulation implements DeepComparable<Simulation> {
 
         @Override
         public final Void apply(Simulation sim) {
-            // remove the event from the timeline
-            sim.timeline.remove(timelineEventId);
-
-            var scheduledTime = timelineEventId.scheduledTime;
-
-            // the event shouldn't move the simulation time backwards
-            assert scheduledTime >= sim.time;
-
-            // move the simulation time forward
-            sim.time = scheduledTime;
+            sim.eventOccurred(timelineEventId);
             return null;
         }
 
@@ -258,9 +312,12 @@ public final class Simulation implements DeepComparable<Simulation> {
 
     // endregion
 
-    @Override
+    /**
+     * Compares the time, the revision and the number of pending events of two simulations,
+     * without comparing the events themselves.
+     */
     @SuppressFBWarnings({"FE_FLOATING_POINT_EQUALITY"})
-    public boolean deepEquals(Simulation otherSim) {
+    boolean clockEquals(Simulation otherSim) {
         // two simulations must have the same time to be equal
         if (this.time != otherSim.time)
             return false;
@@ -269,11 +326,25 @@ public final class Simulation implements DeepComparable<Simulation> {
         if (this.revision != otherSim.revision)
             return false;
 
-        if (this.timeline.size() != otherSim.timeline.size())
+        return this.timeline.size() == otherSim.timeline.size();
+    }
+
+    /** Deeply compares a single pending event of two simulations */
+    boolean timelineEventEquals(Simulation otherSim, TimelineEventId eventId) {
+        var event = this.timeline.get(eventId);
+        var otherEvent = otherSim.timeline.get(eventId);
+        if (event == null || otherEvent == null)
+            return event == otherEvent;
+        return event.deepEquals(otherEvent);
+    }
+
+    @Override
+    public boolean deepEquals(Simulation otherSim) {
+        if (!clockEquals(otherSim))
             return false;
 
-        for (var event : this.timeline.values()) {
-            var otherEvent = otherSim.timeline.getOrDefault(event.eventId, null);
+        for (var event : this.timeline) {
+            var otherEvent = otherSim.timeline.get(event.eventId);
 
             // stop if some event is in this simulation but not in the other
             if (otherEvent == null)
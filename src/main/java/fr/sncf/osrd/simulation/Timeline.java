@@ -0,0 +1,26 @@
+package fr.sncf.osrd.simulation;
+
+/**
+ * The list of events pending execution, ordered by scheduled time first, then revision.
+ * The simulation only needs a priority queue, which makes the backend pluggable.
+ */
+public interface Timeline extends Iterable<TimelineEvent> {
+    /** Adds a scheduled event */
+    void add(TimelineEvent event);
+
+    /** Removes an event, which may either be the next one or a cancelled one */
+    void remove(TimelineEventId eventId);
+
+    /** Returns the next event, or null if there's none */
+    TimelineEvent peek();
+
+    /** Finds a pending event given its identifier, or returns null if it's not pending */
+    TimelineEvent get(TimelineEventId eventId);
+
+    /** The number of pending events */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
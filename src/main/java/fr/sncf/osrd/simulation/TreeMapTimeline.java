@@ -0,0 +1,42 @@
+package fr.sncf.osrd.simulation;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/** A timeline backed by a sorted map. It's slower than the heap timeline, but easier to inspect. */
+public final class TreeMapTimeline implements Timeline {
+    private final TreeMap<TimelineEventId, TimelineEvent> events = new TreeMap<>();
+
+    @Override
+    public void add(TimelineEvent event) {
+        events.put(event.eventId, event);
+    }
+
+    @Override
+    public void remove(TimelineEventId eventId) {
+        events.remove(eventId);
+    }
+
+    @Override
+    public TimelineEvent peek() {
+        var firstEntry = events.firstEntry();
+        if (firstEntry == null)
+            return null;
+        return firstEntry.getValue();
+    }
+
+    @Override
+    public TimelineEvent get(TimelineEventId eventId) {
+        return events.get(eventId);
+    }
+
+    @Override
+    public int size() {
+        return events.size();
+    }
+
+    @Override
+    public Iterator<TimelineEvent> iterator() {
+        return events.values().iterator();
+    }
+}
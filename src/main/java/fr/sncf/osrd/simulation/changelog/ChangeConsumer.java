@@ -15,4 +15,13 @@ public abstract class ChangeConsumer {
      * @param change the just applied change.
      */
     public abstract void changePublishedCallback(Change change);
+
+    /**
+     * Whether this consumer needs the changes which only keep track of the timeline,
+     * such as event occurrences and cancellations. Consumers which store or replay changes need them.
+     * @return true if timeline changes must be created and published
+     */
+    public boolean needsTimelineChanges() {
+        return true;
+    }
 }
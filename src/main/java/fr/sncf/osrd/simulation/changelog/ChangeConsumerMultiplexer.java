@@ -30,4 +30,12 @@ public class ChangeConsumerMultiplexer extends ChangeConsumer {
         for (var consumer : consumers)
             consumer.changePublishedCallback(change);
     }
+
+    @Override
+    public boolean needsTimelineChanges() {
+        for (var consumer : consumers)
+            if (consumer.needsTimelineChanges())
+                return true;
+        return false;
+    }
 }
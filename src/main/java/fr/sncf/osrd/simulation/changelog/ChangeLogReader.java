@@ -0,0 +1,79 @@
+package fr.sncf.osrd.simulation.changelog;
+
+import com.squareup.moshi.JsonReader;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads back the changes written by a {@link ChangeLogWriter}, one at a time.
+ * Compressed files are detected and decompressed.
+ */
+public final class ChangeLogReader implements Closeable {
+    private static final JsonReader.Options changeTypeName = JsonReader.Options.of("changeType");
+
+    /** A change, as it was written to the changelog */
+    @SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
+    public static final class Entry {
+        /** The type of the change, which is the simple name of its class */
+        public final String changeType;
+        /** The change as a single line of JSON */
+        public final String json;
+
+        Entry(String changeType, String json) {
+            this.changeType = changeType;
+            this.json = json;
+        }
+    }
+
+    private final BufferedSource source;
+
+    private ChangeLogReader(BufferedSource source) {
+        this.source = source;
+    }
+
+    /** Opens a changelog file, which may be compressed */
+    public static ChangeLogReader open(Path path) throws IOException {
+        var fileSource = Okio.buffer(Okio.source(path));
+        // all gzip streams start with these two bytes, which JSON documents can't start with
+        if (!fileSource.rangeEquals(0, ByteString.of((byte) 0x1f, (byte) 0x8b)))
+            return new ChangeLogReader(fileSource);
+        Source gzipSource = new GzipSource(fileSource);
+        return new ChangeLogReader(Okio.buffer(gzipSource));
+    }
+
+    /** Reads the next change, or returns null when the end of the changelog is reached */
+    public Entry next() throws IOException {
+        var line = source.readUtf8Line();
+        while (line != null && line.isEmpty())
+            line = source.readUtf8Line();
+        if (line == null)
+            return null;
+        return new Entry(readChangeType(line), line);
+    }
+
+    private static String readChangeType(String json) throws IOException {
+        var reader = JsonReader.of(new Buffer().writeUtf8(json));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(changeTypeName) == 0)
+                return reader.nextString();
+            reader.skipName();
+            reader.skipValue();
+        }
+        throw new IOException("a change of the changelog has no type");
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
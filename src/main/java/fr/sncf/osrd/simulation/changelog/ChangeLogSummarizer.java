@@ -1,9 +1,11 @@
 package fr.sncf.osrd.simulation.changelog;
 
-import fr.sncf.osrd.simulation.Change;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 
 public class ChangeLogSummarizer {
@@ -13,28 +15,53 @@ public class ChangeLogSummarizer {
         int count = 1;
     }
 
+    private static void count(HashMap<String, Counter> changeTypes, String changeType) {
+        var changeTypeCounter = changeTypes.get(changeType);
+        if (changeTypeCounter == null)
+            changeTypes.put(changeType, new Counter());
+        else
+            changeTypeCounter.count += 1;
+    }
+
+    private static void logSummary(int changeCount, HashMap<String, Counter> changeTypes) {
+        logger.info("{} changes were produced", changeCount);
+        for (var changeTypeEntry : changeTypes.entrySet()) {
+            var changeType = changeTypeEntry.getKey();
+            var count = changeTypeEntry.getValue().count;
+            logger.info("{}\t{}", count, changeType);
+        }
+    }
+
     /** Log a handy summary of the content of some changelog */
     public static void summarize(ChangeLog changelog) {
         if (!logger.isInfoEnabled())
             return;
 
-        logger.info("{} changes were produced", changelog.size());
-        var changeTypes = new HashMap<Class<? extends Change>, Counter>();
+        var changeTypes = new HashMap<String, Counter>();
+        for (var change : changelog)
+            count(changeTypes, change.getClass().getSimpleName());
+        logSummary(changelog.size(), changeTypes);
+    }
 
-        for (var change : changelog) {
-            var changeType = change.getClass();
-            var changeTypeCounter = changeTypes.get(changeType);
-            if (changeTypeCounter == null)
-                changeTypes.put(changeType, new Counter());
-            else
-                changeTypeCounter.count += 1;
-        }
+    /**
+     * Log a handy summary of the content of some changelog file, written by a {@link ChangeLogWriter}
+     */
+    @SuppressFBWarnings(
+            value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE",
+            justification = "that's a spotbugs bug :)"
+    )
+    public static void summarize(Path changelogPath) throws IOException {
+        if (!logger.isInfoEnabled())
+            return;
 
-        for (var changeTypeEntry : changeTypes.entrySet()) {
-            var clazz = changeTypeEntry.getKey();
-            var count = changeTypeEntry.getValue().count;
-            logger.info("{}\t{}", count, clazz.getSimpleName());
+        var changeTypes = new HashMap<String, Counter>();
+        int changeCount = 0;
+        try (var reader = ChangeLogReader.open(changelogPath)) {
+            for (var entry = reader.next(); entry != null; entry = reader.next()) {
+                count(changeTypes, entry.changeType);
+                changeCount++;
+            }
         }
+        logSummary(changeCount, changeTypes);
     }
-
 }
@@ -0,0 +1,155 @@
+package fr.sncf.osrd.simulation.changelog;
+
+import fr.sncf.osrd.simulation.Change;
+import fr.sncf.osrd.simulation.ChangeSerializer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>Writes changes to a file as they are published, so that the changelog of a simulation
+ * never has to be kept in memory.</p>
+ * <p>The file contains one JSON change per line, and can be compressed using gzip.
+ * Changes are encoded when published, as they reference the state of the simulation,
+ * which keeps changing. Encoded changes are then written by a background thread, through
+ * a bounded queue which slows down the simulation when the disk can't keep up.</p>
+ */
+public final class ChangeLogWriter extends ChangeConsumer implements Closeable {
+    /** Encoded changes are sent to the writer thread in batches of about this size */
+    static final long BATCH_SIZE = 64 * 1024;
+    /** The default number of batches which can be waiting to be written */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    /** An empty batch, which tells the writer thread that there's nothing left to write */
+    private static final Buffer END_OF_CHANGELOG = new Buffer();
+
+    private final BlockingQueue<Buffer> queue;
+    private final Thread writerThread;
+    /** The changes which weren't yet sent to the writer thread */
+    private Buffer batch = new Buffer();
+    private int changeCount = 0;
+    private boolean closed = false;
+    /** The error which stopped the writer thread, if any */
+    private volatile IOException writeError = null;
+
+    private ChangeLogWriter(BufferedSink sink, int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(() -> writeBatches(sink), "changelog-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Creates a changelog writer
+     * @param path the file to write changes to, which is replaced if it exists
+     * @param compress whether to compress the file using gzip
+     * @param queueCapacity how many batches of changes can be waiting to be written
+     * @return a started changelog writer, which has to be closed once the simulation is over
+     */
+    public static ChangeLogWriter open(Path path, boolean compress, int queueCapacity) throws IOException {
+        Sink sink = Okio.sink(path);
+        if (compress)
+            sink = new GzipSink(sink);
+        return new ChangeLogWriter(Okio.buffer(sink), queueCapacity);
+    }
+
+    public static ChangeLogWriter open(Path path, boolean compress) throws IOException {
+        return open(path, compress, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private void writeBatches(BufferedSink sink) {
+        // the queue is drained even after errors, so that the simulation thread never blocks
+        try {
+            while (true) {
+                var batch = queue.take();
+                if (batch == END_OF_CHANGELOG)
+                    break;
+                if (writeError != null)
+                    continue;
+                try {
+                    sink.write(batch, batch.size());
+                } catch (IOException e) {
+                    writeError = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            writeError = new IOException("interrupted while writing the changelog", e);
+        }
+
+        try {
+            sink.close();
+        } catch (IOException e) {
+            if (writeError == null)
+                writeError = e;
+        }
+    }
+
+    /**
+     * Sends a batch to the writer thread, waiting for some space in the queue if needed
+     */
+    private void send(Buffer batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while sending changes to the changelog writer", e);
+        }
+    }
+
+    /** The number of changes which were published so far */
+    public int size() {
+        return changeCount;
+    }
+
+    @Override
+    public void changeCreationCallback(Change change) {
+    }
+
+    @Override
+    public void changePublishedCallback(Change change) {
+        if (closed)
+            throw new IllegalStateException("the changelog writer is closed");
+        changeCount++;
+        // when the file can't be written, changes are dropped until the error is reported by close()
+        if (writeError != null)
+            return;
+        try {
+            ChangeSerializer.changeAdapter.toJson(batch, change);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to encode a change", e);
+        }
+        batch.writeByte('\n');
+        if (batch.size() < BATCH_SIZE)
+            return;
+        send(batch);
+        batch = new Buffer();
+    }
+
+    /** Writes the last changes, waits for the file to be written, and reports write errors */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (batch.size() != 0)
+            send(batch);
+        batch = null;
+        send(END_OF_CHANGELOG);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the changelog to be written", e);
+        }
+        if (writeError != null)
+            throw writeError;
+    }
+}
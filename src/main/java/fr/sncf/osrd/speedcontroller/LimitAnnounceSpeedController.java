@@ -47,6 +47,15 @@ public final class LimitAnnounceSpeedController extends SpeedController {
         return new SpeedDirective(currentLimit);
     }
 
+    @Override
+    public double findDirectiveChange(double pathPosition, double allowedSpeed) {
+        if (allowedSpeed <= targetSpeedLimit)
+            return endPosition;
+        // the directive decreases along the range, find where it goes below the allowed speed
+        var position = endPosition - (allowedSpeed * allowedSpeed - targetSpeedLimit * targetSpeedLimit) / (2 * gamma);
+        return Double.max(position, pathPosition);
+    }
+
     @Override
     public SpeedController scaled(double scalingFactor) {
         return new LimitAnnounceSpeedController(targetSpeedLimit * scalingFactor,
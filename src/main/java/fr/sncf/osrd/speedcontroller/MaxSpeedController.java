@@ -17,6 +17,11 @@ public class MaxSpeedController extends SpeedController {
         return new SpeedDirective(speedLimit);
     }
 
+    @Override
+    public double findDirectiveChange(double pathPosition, double allowedSpeed) {
+        return endPosition;
+    }
+
     @Override
     public SpeedController scaled(double scalingFactor) {
         return new MaxSpeedController(speedLimit * scalingFactor, beginPosition, endPosition);
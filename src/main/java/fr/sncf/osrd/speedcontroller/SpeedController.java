@@ -60,6 +60,18 @@ public abstract class SpeedController implements DeepComparable<SpeedController>
         return profile;
     }
 
+    /**
+     * Finds the position up to which this controller can't change the merged directive of the train,
+     * given the speed currently allowed by the merged directive.
+     * Controllers which can't tell return the given position.
+     * @param pathPosition the current position of the train, where the controller is active
+     * @param allowedSpeed the speed allowed by the merged directive at this position
+     * @return the position up to which the merged directive doesn't depend on this controller
+     */
+    public double findDirectiveChange(double pathPosition, double allowedSpeed) {
+        return pathPosition;
+    }
+
     /** Returns a copy of the speed controller, with every speed scaled by scalingFactor*/
     public abstract SpeedController scaled(double scalingFactor);
 }
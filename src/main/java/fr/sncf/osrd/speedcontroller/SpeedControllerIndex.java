@@ -0,0 +1,142 @@
+package fr.sncf.osrd.speedcontroller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * <p>Indexes a set of speed controllers by the range of positions they are active on.</p>
+ * <p>The bounds of all the controllers split the path into steps, each of which has a fixed set of active
+ * controllers. Max speed controllers give the same directive over the whole step, and are merged when the
+ * index is built: the directive at some position only needs to merge this static limit with the directives
+ * of the few other controllers which are active on the step.</p>
+ */
+public final class SpeedControllerIndex {
+    /** The bounds of the controllers, in increasing order. Step i ends at bounds[i], and step i + 1 starts there */
+    private final double[] bounds;
+
+    /** For each step, the controllers which are active over it */
+    private final SpeedController[][] activeControllers;
+
+    /** For each step, the merged limit of the max speed controllers */
+    private final double[] staticLimits;
+
+    /** For each step, the active controllers whose directive depends on the position */
+    private final SpeedController[][] dynamicControllers;
+
+    private static final SpeedController[] NO_CONTROLLERS = new SpeedController[0];
+
+    /** Builds the index of a collection of speed controllers */
+    public SpeedControllerIndex(Collection<SpeedController> controllers) {
+        var boundSet = new TreeSet<Double>();
+        for (var controller : controllers) {
+            if (Double.isFinite(controller.beginPosition))
+                boundSet.add(controller.beginPosition);
+            if (Double.isFinite(controller.endPosition))
+                boundSet.add(controller.endPosition);
+        }
+        bounds = new double[boundSet.size()];
+        var boundIndex = 0;
+        for (var bound : boundSet)
+            bounds[boundIndex++] = bound;
+
+        var stepCount = bounds.length + 1;
+        activeControllers = new SpeedController[stepCount][];
+        staticLimits = new double[stepCount];
+        dynamicControllers = new SpeedController[stepCount][];
+        // sweep over steps, adding controllers as steps reach their beginning and removing them past their end
+        var byBegin = new ArrayList<>(controllers);
+        byBegin.sort(Comparator.comparingDouble(controller -> controller.beginPosition));
+        var nextController = 0;
+        var active = new ArrayList<SpeedController>();
+        var dynamic = new ArrayList<SpeedController>();
+        for (int step = 0; step < stepCount; step++) {
+            var stepBegin = step == 0 ? Double.NEGATIVE_INFINITY : bounds[step - 1];
+            var stepEnd = step == bounds.length ? Double.POSITIVE_INFINITY : bounds[step];
+            while (nextController < byBegin.size() && byBegin.get(nextController).beginPosition <= stepBegin)
+                active.add(byBegin.get(nextController++));
+            active.removeIf(controller -> controller.endPosition < stepEnd);
+
+            dynamic.clear();
+            var staticDirective = SpeedDirective.getMax();
+            for (var controller : active) {
+                if (controller.getClass() == MaxSpeedController.class)
+                    staticDirective.mergeWith(controller.getDirective(stepBegin));
+                else
+                    dynamic.add(controller);
+            }
+            activeControllers[step] = active.toArray(NO_CONTROLLERS);
+            staticLimits[step] = staticDirective.allowedSpeed;
+            dynamicControllers[step] = dynamic.toArray(NO_CONTROLLERS);
+        }
+    }
+
+    /** Finds the step which contains the given position */
+    private int findStep(double pathPosition) {
+        var index = Arrays.binarySearch(bounds, pathPosition);
+        if (index >= 0)
+            return index + 1;
+        return -index - 1;
+    }
+
+    private SpeedDirective getDirective(int step, double pathPosition) {
+        var directive = new SpeedDirective(staticLimits[step]);
+        for (var controller : dynamicControllers[step])
+            directive.mergeWith(controller.getDirective(pathPosition));
+        return directive;
+    }
+
+    /** Returns the merged directive of the controllers which are active at the given position */
+    public SpeedDirective getDirective(double pathPosition) {
+        return getDirective(findStep(pathPosition), pathPosition);
+    }
+
+    /**
+     * Finds the position up to which the merged directive can't change, given the speed it allows at some position.
+     * @see SpeedController#findDirectiveChange(double, double)
+     */
+    public double findDirectiveChange(double pathPosition, double allowedSpeed) {
+        var step = findStep(pathPosition);
+        var res = step == bounds.length ? Double.POSITIVE_INFINITY : bounds[step];
+        for (var controller : dynamicControllers[step])
+            res = Double.min(res, controller.findDirectiveChange(pathPosition, allowedSpeed));
+        return res;
+    }
+
+    /** Returns the controllers which are active at the given position */
+    public List<SpeedController> getActiveControllers(double pathPosition) {
+        return Arrays.asList(activeControllers[findStep(pathPosition)]);
+    }
+
+    /** Creates a cursor on this index, starting from the beginning of the path */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Queries the index for positions close to each other, in amortized constant time.
+     * Cursors can move forward as well as backward.
+     */
+    public final class Cursor {
+        private int step = 0;
+
+        private Cursor() {
+        }
+
+        private void moveTo(double pathPosition) {
+            while (step < bounds.length && bounds[step] <= pathPosition)
+                step++;
+            while (step > 0 && bounds[step - 1] > pathPosition)
+                step--;
+        }
+
+        /** Returns the merged directive of the controllers which are active at the given position */
+        public SpeedDirective getDirective(double pathPosition) {
+            moveTo(pathPosition);
+            return SpeedControllerIndex.this.getDirective(step, pathPosition);
+        }
+    }
+}
@@ -26,6 +26,15 @@ public class SpeedInstructions {
     public Set<SpeedController> targetSpeedControllers;
     public transient SortedDoubleMap expectedTimes = null;
 
+    /** Index of the max speed controllers by position */
+    public transient SpeedControllerIndex maxSpeedIndex = null;
+
+    /** Index of the target speed controllers by position */
+    public transient SpeedControllerIndex targetSpeedIndex = null;
+
+    /** Whether target speed controllers give the same directives as max speed controllers, which makes delays moot */
+    public transient boolean targetIsMaxSpeed = false;
+
     /** Creates an instance from target speed generators. Max speed is always determined
      * from a `new MaxSpeedGenerator()`.
      * @param targetSpeedGenerators generators used for target speed controllers. If null, a MaxSpeedGenerator is
@@ -69,11 +78,31 @@ public class SpeedInstructions {
             }
             targetSpeedControllers.addAll(newControllers);
         }
+        maxSpeedIndex = new SpeedControllerIndex(maxSpeedControllers);
+        targetSpeedIndex = new SpeedControllerIndex(targetSpeedControllers);
+        targetIsMaxSpeed = containsSameControllers(targetSpeedControllers, maxSpeedControllers)
+                && containsSameControllers(maxSpeedControllers, targetSpeedControllers);
 
         expectedTimes = SpeedControllerGenerator.getExpectedTimes(sim, schedule, targetSpeedControllers, 1,
                 0, Double.POSITIVE_INFINITY, schedule.initialSpeed);
     }
 
+    /** Checks whether all the controllers of a set have an equivalent in another one */
+    private static boolean containsSameControllers(Set<SpeedController> controllers, Set<SpeedController> others) {
+        for (var controller : controllers) {
+            var found = false;
+            for (var other : others) {
+                if (controller.deepEquals(other)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
     /** Returns how late we are compared to the expected time, in seconds. The result may be negative if we are
      * ahead of schedule. */
     public double secondsLate(double position, double time) {
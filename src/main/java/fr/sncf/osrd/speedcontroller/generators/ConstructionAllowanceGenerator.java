@@ -3,6 +3,7 @@ package fr.sncf.osrd.speedcontroller.generators;
 import fr.sncf.osrd.train.TrainSchedule;
 import fr.sncf.osrd.speedcontroller.MaxSpeedController;
 import fr.sncf.osrd.speedcontroller.SpeedController;
+import fr.sncf.osrd.speedcontroller.SpeedControllerIndex;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -33,8 +34,9 @@ public class ConstructionAllowanceGenerator extends DichotomyControllerGenerator
     protected double getFirstHighEstimate() {
         double max = 0;
         double position = sectionBegin;
+        var maxSpeed = new SpeedControllerIndex(maxSpeedControllers).cursor();
         while (position < sectionEnd) {
-            double val = SpeedController.getDirective(maxSpeedControllers, position).allowedSpeed;
+            double val = maxSpeed.getDirective(position).allowedSpeed;
             if (val > max)
                 max = val;
             position += 1;
@@ -3,12 +3,14 @@ package fr.sncf.osrd.speedcontroller.generators;
 import fr.sncf.osrd.train.TrainSchedule;
 import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.speedcontroller.SpeedController;
-import fr.sncf.osrd.utils.SortedDoubleMap;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /** Generates a set of speed controller using a generic dichotomy */
 public abstract class DichotomyControllerGenerator extends SpeedControllerGenerator {
@@ -25,12 +27,15 @@ public abstract class DichotomyControllerGenerator extends SpeedControllerGenera
     /** Train schedule */
     protected TrainSchedule schedule = null;
 
-    /** Expected times from previous evaluation */
-    protected SortedDoubleMap expectedTimes;
-
     /** Simulation state given in `generate` parameters */
     protected Simulation sim;
 
+    /** The maximum number of values evaluated concurrently at each round of the dichotomy */
+    private static final int MAX_CANDIDATES_PER_ROUND = 3;
+
+    /** The number of rounds after which the dichotomy gives up */
+    private static final int MAX_ROUNDS = 21;
+
     /** Constructor */
     protected DichotomyControllerGenerator(double begin, double end, double precision) {
         super(begin, end);
@@ -49,10 +54,13 @@ public abstract class DichotomyControllerGenerator extends SpeedControllerGenera
         return binarySearch(sim, schedule);
     }
 
-    /** Evaluates the run time of the phase if we follow the given speed controllers */
+    /**
+     * Evaluates the run time of the phase if we follow the given speed controllers.
+     * The speed at the beginning of the phase is the one of the max speed run, which is only computed once.
+     */
     protected double evalRunTime(Simulation sim, TrainSchedule schedule, Set<SpeedController> speedControllers) {
-        expectedTimes = getExpectedTimes(sim, schedule, speedControllers, 1);
-        return expectedTimes.lastEntry().getValue() - expectedTimes.firstEntry().getValue();
+        var times = getExpectedTimes(sim, schedule, speedControllers, 1, sectionBegin, sectionEnd, initialSpeed);
+        return times.lastEntry().getValue() - times.firstEntry().getValue();
     }
 
     /** Gives the target run time for the phase, given the one if we follow max speeds */
@@ -68,7 +76,36 @@ public abstract class DichotomyControllerGenerator extends SpeedControllerGenera
     protected abstract Set<SpeedController> getSpeedControllers(TrainSchedule schedule,
                                                                 double value, double begin, double end);
 
-    /** Runs the dichotomy */
+    /** A value tried by the dichotomy, along with its outcome */
+    private static final class Candidate {
+        final double value;
+        final Set<SpeedController> speedControllers;
+        final double time;
+
+        Candidate(double value, Set<SpeedController> speedControllers, double time) {
+            this.value = value;
+            this.speedControllers = speedControllers;
+            this.time = time;
+        }
+    }
+
+    private Candidate evalCandidate(double value) {
+        var speedControllers = getSpeedControllers(schedule, value, sectionBegin, sectionEnd);
+        return new Candidate(value, speedControllers, evalRunTime(sim, schedule, speedControllers));
+    }
+
+    /** Returns how many values can be evaluated at once by the fork-join pool the generator runs on */
+    private static int getCandidatesPerRound() {
+        var pool = ForkJoinTask.getPool();
+        var parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(1, Math.min(MAX_CANDIDATES_PER_ROUND, parallelism));
+    }
+
+    /**
+     * Runs the dichotomy. Each round splits the search interval into as many parts as there are candidates plus one,
+     * and evaluates the values between parts concurrently, on the fork-join pool the generator runs on, or on the
+     * common pool. With a single thread, this is a plain binary search.
+     */
     private Set<SpeedController> binarySearch(Simulation sim, TrainSchedule schedule) {
         var lowerBound = getFirstLowEstimate();
         var higherBound = getFirstHighEstimate();
@@ -77,26 +114,31 @@ public abstract class DichotomyControllerGenerator extends SpeedControllerGenera
         var time = evalRunTime(sim, schedule, maxSpeedControllers);
         var targetTime = getTargetTime(time);
 
-        double nextValue;
-        Set<SpeedController> nextSpeedControllers;
-        int i = 0;
-        do {
-            nextValue = (lowerBound + higherBound) / 2;
-            nextSpeedControllers = getSpeedControllers(schedule, nextValue, sectionBegin, sectionEnd);
-            var expectedTimes = getExpectedTimes(sim, schedule,
-                    nextSpeedControllers, 1);
-            //var expectedTimes = getExpectedTimes(sim, schedule,
-            //        nextSpeedControllers, 1, beginLocation, endLocation, initialSpeed);
-            time = expectedTimes.lastEntry().getValue() - expectedTimes.firstEntry().getValue();
-            if (time > targetTime)
-                lowerBound = nextValue;
-            else
-                higherBound = nextValue;
-            // saveGraph(nextSpeedControllers, sim, schedule, "speeds-" + i + ".csv");
-            if (i++ > 20)
-                throw new RuntimeException("Did not converge");
-        } while (Math.abs(time - targetTime) > precision);
-        return nextSpeedControllers;
+        var candidatesPerRound = getCandidatesPerRound();
+        var tasks = new ArrayList<ForkJoinTask<Candidate>>(candidatesPerRound);
+        for (int round = 0; round <= MAX_ROUNDS; round++) {
+            tasks.clear();
+            for (int i = 1; i <= candidatesPerRound; i++) {
+                var value = lowerBound + (higherBound - lowerBound) * i / (candidatesPerRound + 1);
+                tasks.add(ForkJoinTask.adapt(() -> evalCandidate(value)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            // the run time decreases as the value increases, keep the part where it reaches the target time
+            for (var task : tasks) {
+                var candidate = task.join();
+                // saveGraph(candidate.speedControllers, sim, schedule, "speeds-" + candidate.value + ".csv");
+                if (Math.abs(candidate.time - targetTime) <= precision)
+                    return candidate.speedControllers;
+                if (candidate.time > targetTime) {
+                    lowerBound = candidate.value;
+                } else {
+                    higherBound = candidate.value;
+                    break;
+                }
+            }
+        }
+        throw new RuntimeException("Did not converge");
     }
 
     /** Saves a speed / position graph, for debugging purpose */
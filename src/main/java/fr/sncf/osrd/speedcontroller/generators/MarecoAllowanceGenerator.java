@@ -9,6 +9,7 @@ import fr.sncf.osrd.speedcontroller.CoastingSpeedController;
 import fr.sncf.osrd.speedcontroller.LimitAnnounceSpeedController;
 import fr.sncf.osrd.speedcontroller.MaxSpeedController;
 import fr.sncf.osrd.speedcontroller.SpeedController;
+import fr.sncf.osrd.speedcontroller.SpeedControllerIndex;
 import fr.sncf.osrd.train.*;
 import fr.sncf.osrd.utils.SortedDoubleMap;
 
@@ -25,6 +26,9 @@ public class MarecoAllowanceGenerator extends DichotomyControllerGenerator {
     public final RJSAllowance.MarecoAllowance.MarginType allowanceType;
     public final double value;
 
+    /** The speed limit announcers of the max speed controllers, which are shared by all the values tried */
+    private List<LimitAnnounceSpeedController> limitAnnouncers = null;
+
     /** Constructor */
     public MarecoAllowanceGenerator(double begin, double end,
                                     double allowanceValue, MarginType allowanceType) {
@@ -33,6 +37,13 @@ public class MarecoAllowanceGenerator extends DichotomyControllerGenerator {
         this.value = allowanceValue;
     }
 
+    @Override
+    public Set<SpeedController> generate(Simulation sim, TrainSchedule schedule,
+                                         Set<SpeedController> speedControllers) {
+        limitAnnouncers = findLimitSpeedAnnouncers(speedControllers);
+        return super.generate(sim, schedule, speedControllers);
+    }
+
     @Override
     protected double getTargetTime(double baseTime) {
         return baseTime * (1 + value / 100);
@@ -47,8 +58,9 @@ public class MarecoAllowanceGenerator extends DichotomyControllerGenerator {
     protected double getFirstHighEstimate() {
         double max = 0;
         double position = sectionBegin;
+        var maxSpeed = new SpeedControllerIndex(maxSpeedControllers).cursor();
         while (position < sectionEnd) {
-            double val = SpeedController.getDirective(maxSpeedControllers, position).allowedSpeed;
+            double val = maxSpeed.getDirective(position).allowedSpeed;
             if (val > max)
                 max = val;
             position += 1;
@@ -74,53 +86,43 @@ public class MarecoAllowanceGenerator extends DichotomyControllerGenerator {
 
     private List<Double> findDecelerationPhases(double vf) {
         var res = new ArrayList<Double>();
-        for (var announcer : findLimitSpeedAnnouncers(maxSpeedControllers)) {
+        for (var announcer : limitAnnouncers) {
             if (announcer.targetSpeedLimit > vf)
                 res.add(announcer.endPosition);
         }
         return res;
     }
 
-    private static TrainPositionTracker convertPosition(TrainSchedule schedule, Simulation sim, double position) {
-        var location = Train.getInitialLocation(schedule, sim);
-        location.updatePosition(schedule.rollingStock.length, position);
-        return location;
-    }
-
     private CoastingSpeedController generateCoastingSpeedControllerAtPosition(SortedDoubleMap speeds,
                                                                               double endLocation, double timestep) {
         double speed = speeds.interpolate(endLocation);
 
-        var location = convertPosition(schedule, sim, endLocation);
+        // the grade profile only depends on the position on the path, which lets the train go backward
+        var grades = schedule.gradeProfile.cursor();
+        var position = endLocation;
 
         do {
             var integrator = TrainPhysicsIntegrator.make(timestep, schedule.rollingStock,
-                    speed, location.maxTrainGrade());
+                    speed, grades.getMaxGrade(position));
             var action = Action.coast();
             var update =  integrator.computeUpdate(action, Double.POSITIVE_INFINITY,
                     -1);
             speed = update.speed;
-
-            // We cannot just call updatePosition with a negative delta so we re-create the location object
-            // TODO (optimization): support negative delta
-            location = convertPosition(schedule, sim, location.getPathPosition() - update.positionDelta);
-
-        } while (speed < speeds.interpolate(location.getPathPosition()));
-        return new CoastingSpeedController(location.getPathPosition(), endLocation);
+            position -= update.positionDelta;
+        } while (speed < speeds.interpolate(position));
+        return new CoastingSpeedController(position, endLocation);
     }
 
     private boolean isDecelerating(double position) {
-        // TODO optimize this
-        var announcers = findLimitSpeedAnnouncers(maxSpeedControllers);
-        for (var announcer : announcers) {
+        for (var announcer : limitAnnouncers) {
             if (announcer.isActive(position))
                 return true;
         }
         return false;
     }
 
-    private Set<LimitAnnounceSpeedController> findLimitSpeedAnnouncers(Set<SpeedController> controllers) {
-        var res = new HashSet<LimitAnnounceSpeedController>();
+    private static List<LimitAnnounceSpeedController> findLimitSpeedAnnouncers(Set<SpeedController> controllers) {
+        var res = new ArrayList<LimitAnnounceSpeedController>();
         for (var c : controllers) {
             if (c instanceof LimitAnnounceSpeedController)
                 res.add((LimitAnnounceSpeedController) c);
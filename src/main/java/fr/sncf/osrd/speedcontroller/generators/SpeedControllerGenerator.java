@@ -5,7 +5,7 @@ import static java.lang.Math.min;
 import fr.sncf.osrd.train.TrainSchedule;
 import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.speedcontroller.SpeedController;
-import fr.sncf.osrd.train.Train;
+import fr.sncf.osrd.speedcontroller.SpeedControllerIndex;
 import fr.sncf.osrd.train.TrainPhysicsIntegrator;
 import fr.sncf.osrd.train.TrainPhysicsIntegrator.PositionUpdate;
 import fr.sncf.osrd.utils.SortedDoubleMap;
@@ -13,7 +13,6 @@ import fr.sncf.osrd.utils.SortedDoubleMap;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /** This class is used to generate a set of SpeedController (similar to a speed at any given point). */
 public abstract class SpeedControllerGenerator {
@@ -94,33 +93,32 @@ public abstract class SpeedControllerGenerator {
                                                                       double begin,
                                                                       double end,
                                                                       double initialSpeed) {
-        var location = Train.getInitialLocation(schedule, sim);
-        location.ignoreInfraState = true;
-        location.updatePosition(schedule.rollingStock.length, begin);
         var totalLength = 0.;
         for (var range : schedule.plannedPath.trackSectionPath)
             totalLength += range.length();
         totalLength = min(totalLength, end);
 
+        // the train follows its planned path, so its position is all that's needed to find the speed limits
+        // and the grade under it
+        var speedLimits = new SpeedControllerIndex(controllers).cursor();
+        var grades = schedule.gradeProfile.cursor();
         var res = new TreeMap<Double, PositionUpdate>();
 
+        double position = begin;
         double speed = initialSpeed;
         do {
-            var activeControllers = controllers.stream()
-                    .filter(x -> x.isActive(location))
-                    .collect(Collectors.toSet());
-            var directive = SpeedController.getDirective(activeControllers, location.getPathPosition());
+            var directive = speedLimits.getDirective(position);
 
             var integrator = TrainPhysicsIntegrator.make(timestep, schedule.rollingStock,
-                    speed, location.maxTrainGrade());
+                    speed, grades.getMaxGrade(position));
             var action = integrator.actionToTargetSpeed(directive, schedule.rollingStock);
-            var distanceLeft = totalLength - location.getPathPosition();
+            var distanceLeft = totalLength - position;
             var update =  integrator.computeUpdate(action, distanceLeft);
             speed = update.speed;
 
-            location.updatePosition(schedule.rollingStock.length, update.positionDelta);
-            res.put(location.getPathPosition(), update);
-        } while (location.getPathPosition() + timestep * speed < totalLength && speed > 0);
+            position += update.positionDelta;
+            res.put(position, update);
+        } while (position + timestep * speed < totalLength && speed > 0);
         return res;
     }
 
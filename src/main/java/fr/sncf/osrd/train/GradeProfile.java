@@ -0,0 +1,147 @@
+package fr.sncf.osrd.train;
+
+import fr.sncf.osrd.infra.trackgraph.TrackSection;
+import fr.sncf.osrd.utils.PointValue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>The maximum grade under a train, as a step function of its position on its path.</p>
+ * <p>A slope point is under the train when it is between the head and the tail of the train, both included.
+ * This is the sliding window maximum of the slope points of the path, for a window of the length of the train.
+ * It is computed once per schedule, so that moving trains don't have to scan the slopes of the track
+ * sections they span over.</p>
+ */
+public final class GradeProfile {
+    /** The positions at which the maximum grade changes, in increasing order */
+    private final double[] positions;
+
+    /** The maximum grade from each position up to the next one */
+    private final double[] grades;
+
+    private GradeProfile(double[] positions, double[] grades) {
+        this.positions = positions;
+        this.grades = grades;
+    }
+
+    /** Computes the maximum grade under a train of the given length, along its path */
+    public static GradeProfile from(TrainPath path, double trainLength) {
+        // find the slope points of the path, in path coordinates
+        var slopePoints = new ArrayList<PointValue<Double>>();
+        double offset = 0;
+        for (var range : path.trackSectionPath) {
+            for (var slope : TrackSection.getSlope(range.edge, range.direction).data) {
+                if (!range.containsPosition(slope.position))
+                    continue;
+                var pathPosition = offset + Math.abs(slope.position - range.getBeginPosition());
+                slopePoints.add(new PointValue<>(pathPosition, slope.value));
+            }
+            offset += range.length();
+        }
+        slopePoints.sort(Comparator.comparingDouble(point -> point.position));
+
+        // the maximum may only change when the head reaches a slope point, or when the tail leaves it
+        var changes = new double[slopePoints.size() * 2];
+        for (int i = 0; i < slopePoints.size(); i++) {
+            var position = slopePoints.get(i).position;
+            changes[2 * i] = position;
+            changes[2 * i + 1] = Math.nextUp(position + trainLength);
+        }
+        Arrays.sort(changes);
+
+        // sweep over changes, keeping the points under the train with decreasing grades
+        var positions = new double[changes.length];
+        var grades = new double[changes.length];
+        var size = 0;
+        var window = new ArrayDeque<PointValue<Double>>();
+        var nextPoint = 0;
+        for (var position : changes) {
+            while (nextPoint < slopePoints.size() && slopePoints.get(nextPoint).position <= position) {
+                var point = slopePoints.get(nextPoint++);
+                while (!window.isEmpty() && window.getLast().value <= point.value)
+                    window.removeLast();
+                window.addLast(point);
+            }
+            while (!window.isEmpty() && window.getFirst().position + trainLength < position)
+                window.removeFirst();
+
+            var grade = 0.;
+            if (!window.isEmpty())
+                grade = Double.max(grade, window.getFirst().value);
+            if (size > 0 && Double.compare(grades[size - 1], grade) == 0)
+                continue;
+            positions[size] = position;
+            grades[size] = grade;
+            size++;
+        }
+        return new GradeProfile(Arrays.copyOf(positions, size), Arrays.copyOf(grades, size));
+    }
+
+    /** Finds the index of the step which contains the given position, or -1 if it is before the first step */
+    private int findStep(double pathPosition) {
+        var index = Arrays.binarySearch(positions, pathPosition);
+        if (index >= 0)
+            return index;
+        return -index - 2;
+    }
+
+    private double getGrade(int step) {
+        if (step < 0)
+            return 0;
+        return grades[step];
+    }
+
+    private double getStepEnd(int step) {
+        if (step + 1 >= positions.length)
+            return Double.POSITIVE_INFINITY;
+        return positions[step + 1];
+    }
+
+    /** Returns the maximum grade under the train when its head is at the given position */
+    public double getMaxGrade(double pathPosition) {
+        return getGrade(findStep(pathPosition));
+    }
+
+    /** Returns the first position after the given one where the maximum grade under the train changes */
+    public double getNextChange(double pathPosition) {
+        return getStepEnd(findStep(pathPosition));
+    }
+
+    /** Creates a cursor on this profile, starting from the beginning of the path */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Queries the profile for positions close to each other, in amortized constant time.
+     * Cursors can move forward as well as backward.
+     */
+    public final class Cursor {
+        private int step = -1;
+
+        private Cursor() {
+        }
+
+        private void moveTo(double pathPosition) {
+            while (step + 1 < positions.length && positions[step + 1] <= pathPosition)
+                step++;
+            while (step >= 0 && positions[step] > pathPosition)
+                step--;
+        }
+
+        /** Returns the maximum grade under the train when its head is at the given position */
+        public double getMaxGrade(double pathPosition) {
+            moveTo(pathPosition);
+            return getGrade(step);
+        }
+
+        /** Returns the first position after the given one where the maximum grade under the train changes */
+        public double getNextChange(double pathPosition) {
+            moveTo(pathPosition);
+            return getStepEnd(step);
+        }
+    }
+}
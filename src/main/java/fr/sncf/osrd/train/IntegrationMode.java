@@ -0,0 +1,13 @@
+package fr.sncf.osrd.train;
+
+/** How the movement of a train is integrated between two of its events */
+public enum IntegrationMode {
+    /** Always integrate using one second steps */
+    FIXED_STEP,
+    /**
+     * Integrate using one second steps, but skip the steps which can't change the speed of the train:
+     * once the train keeps a steady speed, it moves straight to the next point where its speed directive
+     * or the grade under it may change.
+     */
+    FAST_FORWARD,
+}
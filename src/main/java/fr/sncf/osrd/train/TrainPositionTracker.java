@@ -7,6 +7,7 @@ import fr.sncf.osrd.infra.trackgraph.TrackSection;
 import fr.sncf.osrd.infra_state.InfraState;
 import fr.sncf.osrd.utils.DeepComparable;
 import fr.sncf.osrd.utils.DeepEqualsUtils;
+import fr.sncf.osrd.utils.FloatCompare;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -154,6 +155,10 @@ public final class TrainPositionTracker implements Cloneable, DeepComparable<Tra
         headPos.expandForward(edgeMovement);
         remainingDist -= edgeMovement;
 
+        // positions accumulate rounding errors, which must not move the train past a dead end
+        if (FloatCompare.eq(remainingDist, 0) && isAtDeadEnd(headPos))
+            return;
+
         // add edges to the current edges queue as the train moves forward
         while (remainingDist > 0) {
             var nextPos = nextTrackSectionPosition(remainingDist);
@@ -163,6 +168,10 @@ public final class TrainPositionTracker implements Cloneable, DeepComparable<Tra
         }
     }
 
+    private boolean isAtDeadEnd(TrackSectionRange headPos) {
+        return infra.trackGraph.getEndNeighborRels(headPos.edge, headPos.direction).isEmpty();
+    }
+
     private void updateTailPosition(double positionDelta) {
         while (true) {
             var tailPos = trackSectionRanges.getLast();
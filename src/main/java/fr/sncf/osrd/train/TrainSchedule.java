@@ -30,8 +30,14 @@ public final class TrainSchedule {
     /** This is the *expected* path, eventually it may change in the TrainState copy */
     public final TrainPath plannedPath;
 
+    /** The maximum grade under the train along its planned path */
+    public final GradeProfile gradeProfile;
+
     public SpeedInstructions speedInstructions;
 
+    /** How the movement of the train is integrated */
+    public IntegrationMode integrationMode = IntegrationMode.FAST_FORWARD;
+
     @SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"}) // This field will eventually be useful
     public List<TrainStop> stops;
 
@@ -57,6 +63,7 @@ public final class TrainSchedule {
         this.initialSpeed = initialSpeed;
         this.phases = phases;
         this.plannedPath = plannedPath;
+        this.gradeProfile = GradeProfile.from(plannedPath, rollingStock.length);
         this.stops = stops != null ? stops : new ArrayList<>();
         if (trainDecisionMaker == null)
             trainDecisionMaker = new TrainDecisionMaker.DefaultTrainDecisionMaker();
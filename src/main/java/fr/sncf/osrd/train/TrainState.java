@@ -6,7 +6,9 @@ import fr.sncf.osrd.infra_state.SignalState;
 import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.simulation.SimulationError;
 import fr.sncf.osrd.simulation.TimelineEvent;
+import fr.sncf.osrd.speedcontroller.SpeedController;
 import fr.sncf.osrd.speedcontroller.SpeedDirective;
+import fr.sncf.osrd.train.decisions.TrainDecisionMaker;
 import fr.sncf.osrd.train.phases.PhaseState;
 import fr.sncf.osrd.train.phases.SignalNavigatePhase;
 import fr.sncf.osrd.utils.DeepComparable;
@@ -14,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 
 public final class TrainState implements Cloneable, DeepComparable<TrainState> {
     static final Logger logger = LoggerFactory.getLogger(TrainState.class);
@@ -144,7 +147,7 @@ public final class TrainState implements Cloneable, DeepComparable<TrainState> {
         );
     }
 
-    private void step(
+    private TrainPhysicsIntegrator.PositionUpdate step(
             Train.TrainStateChange locationChange,
             @SuppressWarnings("SameParameterValue") double timeStep,
             double distanceStep
@@ -154,7 +157,7 @@ public final class TrainState implements Cloneable, DeepComparable<TrainState> {
                 timeStep,
                 rollingStock,
                 speed,
-                location.maxTrainGrade());
+                trainSchedule.gradeProfile.getMaxGrade(location.getPathPosition()));
 
         var prevLocation = location.getPathPosition();
 
@@ -185,25 +188,101 @@ public final class TrainState implements Cloneable, DeepComparable<TrainState> {
         logger.trace("speed changed from {} to {}", speed, update.speed);
         locationChange.positionUpdates.addSpeedUpdate(newLocation, time, update.speed);
         speed = update.speed;
+        return update;
+    }
+
+    /**
+     * Whether steps can be skipped once the train has a steady speed. This is only the case when the next steps
+     * can be predicted: the driver must be the default one, and whether the train is late must not matter.
+     */
+    private boolean canFastForward() {
+        if (trainSchedule.integrationMode != IntegrationMode.FAST_FORWARD)
+            return false;
+        if (trainSchedule.trainDecisionMaker.getClass() != TrainDecisionMaker.DefaultTrainDecisionMaker.class)
+            return false;
+        return trainSchedule.speedInstructions.targetIsMaxSpeed;
+    }
+
+    /** Finds the speed allowed by the active controllers of a collection, merged with some other directive */
+    private static double mergeDirectives(Collection<SpeedController> controllers, double position, double allowed) {
+        var directive = new SpeedDirective(allowed);
+        for (var controller : controllers)
+            if (controller.isActive(position))
+                directive.mergeWith(controller.getDirective(position));
+        return directive.allowedSpeed;
+    }
+
+    /** Finds the next position where the speed directive may change, given the controllers which may apply */
+    private static double nextDirectiveChange(
+            Collection<SpeedController> controllers,
+            double position,
+            double allowedSpeed
+    ) {
+        var res = Double.POSITIVE_INFINITY;
+        for (var controller : controllers) {
+            if (controller.isActive(position))
+                res = Double.min(res, controller.findDirectiveChange(position, allowedSpeed));
+            else if (controller.beginPosition > position)
+                res = Double.min(res, controller.beginPosition);
+        }
+        return res;
+    }
+
+    /**
+     * Moves the train at a steady speed, over as many one second steps as possible. When the merged speed
+     * directive, the grade and the speed are the same at the start of two steps, both steps are identical:
+     * instead of integrating steps one by one, the train is moved up to the next point where either may change.
+     * The last step before this point is still integrated normally, so that rounding can't make the train
+     * skip past it.
+     * @param stepDistance the distance covered by the last step, which left the speed unchanged
+     */
+    private void fastForward(Train.TrainStateChange locationChange, double stepDistance, double goalPathPosition) {
+        var position = location.getPathPosition();
+        var targetSpeedIndex = trainSchedule.speedInstructions.targetSpeedIndex;
+        var phaseSpeedControllers = currentPhaseState.getSpeedControllers();
+        var allowedSpeed = targetSpeedIndex.getDirective(position).allowedSpeed;
+        allowedSpeed = mergeDirectives(phaseSpeedControllers, position, allowedSpeed);
+        // coasting isn't steady
+        if (Double.isNaN(allowedSpeed))
+            return;
+
+        var limit = goalPathPosition;
+        limit = Double.min(limit, targetSpeedIndex.findDirectiveChange(position, allowedSpeed));
+        limit = Double.min(limit, nextDirectiveChange(phaseSpeedControllers, position, allowedSpeed));
+        limit = Double.min(limit, trainSchedule.gradeProfile.getNextChange(position));
+
+        var stepCount = Math.floor((limit - position) / stepDistance) - 1;
+        if (stepCount < 1)
+            return;
+
+        location.updatePosition(trainSchedule.rollingStock.length, stepCount * stepDistance);
+        time += stepCount;
+        locationChange.positionUpdates.addSpeedUpdate(location.getPathPosition(), time, speed);
     }
 
     /**  Create a location change from the current state to the given position.
-     * If the train stops during the simulation then the function returns its new state where it stopped. */
+     * If the train stops during the simulation then the function returns its new state where it stopped.
+     * Depending on the integration mode of the train, steps at a steady speed may be skipped. */
+    @SuppressFBWarnings({"FE_FLOATING_POINT_EQUALITY"})
     public Train.TrainStateChange evolveStateUntilPosition(
             Simulation sim,
             double goalPathPosition
     ) throws SimulationError {
 
         var locationChange = new Train.TrainStateChange(sim, trainSchedule.trainID, this);
+        var fastForward = canFastForward();
 
         for (int i = 0; location.getPathPosition() < goalPathPosition; i++) {
             if (i >= 10000)
                 throw new SimulationError("train physics numerical integration doesn't seem to stop");
             var distanceStep = goalPathPosition - location.getPathPosition();
-            step(locationChange, 1.0, distanceStep);
+            var previousSpeed = speed;
+            var update = step(locationChange, 1.0, distanceStep);
             // Stop the evolution if the train has stopped
             if (speed < 0.0000001)
                 break;
+            if (fastForward && update.timeDelta == 1.0 && speed == previousSpeed)
+                fastForward(locationChange, update.positionDelta, goalPathPosition);
         }
 
         return locationChange;
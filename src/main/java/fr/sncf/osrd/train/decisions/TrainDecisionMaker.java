@@ -4,6 +4,7 @@ import fr.sncf.osrd.simulation.Simulation;
 import fr.sncf.osrd.simulation.SimulationError;
 import fr.sncf.osrd.simulation.TimelineEvent;
 import fr.sncf.osrd.speedcontroller.SpeedController;
+import fr.sncf.osrd.speedcontroller.SpeedControllerIndex;
 import fr.sncf.osrd.speedcontroller.SpeedDirective;
 import fr.sncf.osrd.train.Action;
 import fr.sncf.osrd.train.Train;
@@ -34,16 +35,12 @@ public abstract class TrainDecisionMaker {
         var speedInstructions = trainState.trainSchedule.speedInstructions;
         var activeControllers = new HashSet<SpeedController>();
         // Add train speed controllers
-        Set<SpeedController> targetControllers;
+        SpeedControllerIndex targetControllers;
         if (isLate)
-            targetControllers = speedInstructions.maxSpeedControllers;
+            targetControllers = speedInstructions.maxSpeedIndex;
         else
-            targetControllers = speedInstructions.targetSpeedControllers;
-        for (var controller : targetControllers) {
-            if (!controller.isActive(trainState))
-                continue;
-            activeControllers.add(controller);
-        }
+            targetControllers = speedInstructions.targetSpeedIndex;
+        activeControllers.addAll(targetControllers.getActiveControllers(trainState.location.getPathPosition()));
         // Add phase speed controllers
         for (var controller : trainState.currentPhaseState.getSpeedControllers()) {
             if (!controller.isActive(trainState))
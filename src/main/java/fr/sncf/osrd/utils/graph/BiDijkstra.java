@@ -3,11 +3,13 @@ package fr.sncf.osrd.utils.graph;
 import static fr.sncf.osrd.utils.graph.EdgeDirection.START_TO_STOP;
 import static fr.sncf.osrd.utils.graph.EdgeDirection.STOP_TO_START;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import fr.sncf.osrd.utils.graph.path.BasicDirPathNode;
 import fr.sncf.osrd.utils.graph.path.PathNode;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 
 public abstract class BiDijkstra {
@@ -24,6 +26,21 @@ public abstract class BiDijkstra {
                 Comparator.comparing(path -> path.cost));
     }
 
+    /**
+     * Create a priority queue which sorts paths by their cost, plus an estimate of the cost left to reach the goal.
+     * Running the search with such a queue makes it an A* search.
+     */
+    public static <EdgeT extends Edge> PriorityQueue<BasicDirPathNode<EdgeT>> makePriorityQueue(
+            Heuristic<EdgeT> heuristic
+    ) {
+        return new PriorityQueue<>(Comparator.comparingDouble(path -> {
+            // the estimate is only known for the start of edges, and is zero at the goal
+            if (path.type == PathNode.Type.END || !isAtEdgeStart(path))
+                return path.cost;
+            return path.cost + heuristic.estimate(path.edge, path.direction);
+        }));
+    }
+
     /** Create a priority queue from starting points */
     public static <EdgeT extends Edge> PriorityQueue<BasicDirPathNode<EdgeT>> makePriorityQueue(
                     Iterable<BasicDirPathNode<EdgeT>> startingPoints
@@ -34,6 +51,12 @@ public abstract class BiDijkstra {
         return queue;
     }
 
+    /** Whether a path ends at the start of its edge, which positions are set to exactly */
+    @SuppressFBWarnings({"FE_FLOATING_POINT_EQUALITY"})
+    private static boolean isAtEdgeStart(BasicDirPathNode<?> path) {
+        return path.position == path.edge.getFirstPosition(path.direction);
+    }
+
     /** Compute the shortest path from start to goal in a bidirectional graph */
     @SuppressWarnings("unchecked")
     public static <EdgeT extends Edge> int findPaths(
@@ -102,6 +125,74 @@ public abstract class BiDijkstra {
         return foundPaths;
     }
 
+    /**
+     * <p>Compute the shortest path, measured in distance, from starting points to goals.</p>
+     * <p>Unlike findPaths, the graph is explored using its compact view, and path nodes are only built
+     * when a goal may be reached, which saves most allocations.</p>
+     * @param startingPoints where the path can start from
+     * @param heuristic guides the search towards goals, or null
+     * @param goals the identifiers of the directed edges goals are on, as returned by DistanceEstimator.getGoalID
+     * @param goalChecker finds the goal reached when continuing a path along its last edge
+     * @return the end node of the shortest path, or null if no path could be found
+     */
+    public static <EdgeT extends Edge> BasicDirPathNode<EdgeT> findPath(
+            BiGraph<EdgeT> graph,
+            List<BasicDirPathNode<EdgeT>> startingPoints,
+            Heuristic<EdgeT> heuristic,
+            int[] goals,
+            GoalChecker<EdgeT> goalChecker
+    ) {
+        var search = graph.getDirectedEdgeGraph().getSearch();
+        search.reset(heuristic == null ? null : id -> heuristic.estimate(
+                graph.getEdge(DirectedEdgeGraph.getEdgeIndex(id)), DirectedEdgeGraph.getDirection(id)));
+
+        BasicDirPathNode<EdgeT> bestPath = null;
+        var bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < startingPoints.size(); i++) {
+            var startingPoint = startingPoints.get(i);
+            var pathEnd = goalChecker.findGoalOnPathEdge(startingPoint);
+            if (pathEnd != null) {
+                if (pathEnd.cost < bestCost) {
+                    bestPath = pathEnd;
+                    bestCost = pathEnd.cost;
+                }
+                continue;
+            }
+            var edge = startingPoint.edge;
+            var direction = startingPoint.direction;
+            var endCost = startingPoint.cost + Math.abs(edge.getLastPosition(direction) - startingPoint.position);
+            search.addStart(DirectedEdgeGraph.getID(edge, direction), endCost, i);
+        }
+
+        int directedEdge;
+        while ((directedEdge = search.next(bestCost)) != -1) {
+            if (!Dijkstra.isGoal(goals, directedEdge)) {
+                search.expand(directedEdge);
+                continue;
+            }
+
+            // build the path to the goal edge, and see whether it reaches a goal
+            var path = search.getPath(directedEdge);
+            var node = startingPoints.get(search.getStartIndex(path[0]));
+            for (var pathEdge : path) {
+                var edge = graph.getEdge(DirectedEdgeGraph.getEdgeIndex(pathEdge));
+                var direction = DirectedEdgeGraph.getDirection(pathEdge);
+                var addedCost = search.getCost(pathEdge) - node.cost;
+                node = node.chain(addedCost, edge, edge.getFirstPosition(direction), direction);
+            }
+            var pathEnd = goalChecker.findGoalOnPathEdge(node);
+            if (pathEnd == null) {
+                search.expand(directedEdge);
+                continue;
+            }
+            if (pathEnd.cost < bestCost) {
+                bestPath = pathEnd;
+                bestCost = pathEnd.cost;
+            }
+        }
+        return bestPath;
+    }
+
     // tracking whether some point on an edge was visited is somewhat complicated:
     // edges can be explored from start to stop or from stop to start,
     // and exploration can start right in the middle of the edge.
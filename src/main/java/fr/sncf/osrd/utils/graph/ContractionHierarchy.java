@@ -0,0 +1,554 @@
+package fr.sncf.osrd.utils.graph;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>A contraction hierarchy over the directed edges of a graph, which finds shortest paths while only
+ * exploring a tiny part of the graph.</p>
+ * <p>Directed edges are contracted one by one, from the least to the most important. When a directed edge
+ * is contracted, a shortcut is added between each pair of its neighbors it is on the shortest path between.
+ * Searches then go forward from the start and backward from the goals, only towards more important
+ * directed edges, and meet at the most important directed edge of the shortest path.
+ * Shortcuts remember the arcs they replace, so that the path can be unpacked.</p>
+ * <p>As in the rest of the pathfinding, going from a directed edge to its successor costs its length.</p>
+ */
+public final class ContractionHierarchy<EdgeT extends Edge> {
+    /** How many directed edges the searches looking for paths which make a shortcut unnecessary may settle */
+    private static final int WITNESS_SEARCH_LIMIT = 64;
+
+    private final IEdgeGraph<EdgeT> edges;
+
+    // all the arcs of the hierarchy: arcs between successive directed edges, then shortcuts
+    private final int[] arcSources;
+    private final int[] arcTargets;
+    private final double[] arcWeights;
+    /** For shortcuts, the arcs they replace. Both are -1 for arcs of the original graph */
+    private final int[] arcFirstHalves;
+    private final int[] arcSecondHalves;
+
+    /** The arcs going from each directed edge to a more important one, in the upwardArcs array */
+    private final int[] upwardStart;
+    private final int[] upwardArcs;
+    /** The arcs going to each directed edge from a more important one, in the downwardArcs array */
+    private final int[] downwardStart;
+    private final int[] downwardArcs;
+
+    // searches are frequent, so the memory they use is reused by each thread
+    private final ThreadLocal<SearchState> searchStates;
+
+    private ContractionHierarchy(IEdgeGraph<EdgeT> edges, DirectedEdgeGraph graph) {
+        this.edges = edges;
+        var size = graph.size();
+        var builder = new Builder(graph);
+        var arcs = builder.build();
+
+        var arcCount = arcs.size();
+        arcSources = new int[arcCount];
+        arcTargets = new int[arcCount];
+        arcWeights = new double[arcCount];
+        arcFirstHalves = new int[arcCount];
+        arcSecondHalves = new int[arcCount];
+        upwardStart = new int[size + 1];
+        downwardStart = new int[size + 1];
+        for (var arc : arcs) {
+            arcSources[arc.index] = arc.source;
+            arcTargets[arc.index] = arc.target;
+            arcWeights[arc.index] = arc.weight;
+            arcFirstHalves[arc.index] = arc.firstHalf == null ? -1 : arc.firstHalf.index;
+            arcSecondHalves[arc.index] = arc.secondHalf == null ? -1 : arc.secondHalf.index;
+            if (builder.ranks[arc.target] > builder.ranks[arc.source])
+                upwardStart[arc.source + 1]++;
+            else if (builder.ranks[arc.source] > builder.ranks[arc.target])
+                downwardStart[arc.target + 1]++;
+        }
+
+        for (int id = 0; id < size; id++) {
+            upwardStart[id + 1] += upwardStart[id];
+            downwardStart[id + 1] += downwardStart[id];
+        }
+        upwardArcs = new int[upwardStart[size]];
+        downwardArcs = new int[downwardStart[size]];
+        var upwardNext = Arrays.copyOf(upwardStart, size);
+        var downwardNext = Arrays.copyOf(downwardStart, size);
+        for (var arc : arcs) {
+            if (builder.ranks[arc.target] > builder.ranks[arc.source])
+                upwardArcs[upwardNext[arc.source]++] = arc.index;
+            else if (builder.ranks[arc.source] > builder.ranks[arc.target])
+                downwardArcs[downwardNext[arc.target]++] = arc.index;
+        }
+        searchStates = ThreadLocal.withInitial(() -> new SearchState(size));
+    }
+
+    /** Preprocesses a directed graph. This can take a while on large graphs */
+    public static <EdgeT extends Edge> ContractionHierarchy<EdgeT> from(DirGraph<EdgeT> graph) {
+        return new ContractionHierarchy<>(graph, graph.getDirectedEdgeGraph());
+    }
+
+    /** Returns the number of shortcuts added to the graph */
+    public int getShortcutCount() {
+        var shortcutCount = 0;
+        for (var firstHalf : arcFirstHalves)
+            if (firstHalf != -1)
+                shortcutCount++;
+        return shortcutCount;
+    }
+
+    // region PREPROCESSING
+
+    private static final class Arc {
+        final int index;
+        final int source;
+        final int target;
+        double weight;
+        Arc firstHalf;
+        Arc secondHalf;
+
+        Arc(int index, int source, int target, double weight, Arc firstHalf, Arc secondHalf) {
+            this.index = index;
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+            this.firstHalf = firstHalf;
+            this.secondHalf = secondHalf;
+        }
+    }
+
+    /** Orders directed edges by importance, and adds the shortcuts needed when contracting them */
+    private static final class Builder {
+        final int size;
+        final ArrayList<Arc> arcs = new ArrayList<>();
+        /** The arc between two directed edges, if any, indexed by source * size + target */
+        final HashMap<Long, Arc> arcsByEnds = new HashMap<>();
+        final ArrayList<ArrayList<Arc>> outgoingArcs;
+        final ArrayList<ArrayList<Arc>> incomingArcs;
+        final boolean[] contracted;
+        /** How many neighbors of each directed edge were contracted, which spreads contractions uniformly */
+        final int[] contractedNeighbors;
+        /** The order each directed edge was contracted in */
+        final int[] ranks;
+
+        // the state of witness searches, which look for paths which don't go through the contracted edge
+        final double[] witnessDistances;
+        final int[] witnessGenerations;
+        int witnessGeneration = 0;
+
+        Builder(DirectedEdgeGraph graph) {
+            size = graph.size();
+            outgoingArcs = new ArrayList<>(size);
+            incomingArcs = new ArrayList<>(size);
+            for (int id = 0; id < size; id++) {
+                outgoingArcs.add(new ArrayList<>());
+                incomingArcs.add(new ArrayList<>());
+            }
+            contracted = new boolean[size];
+            contractedNeighbors = new int[size];
+            ranks = new int[size];
+            witnessDistances = new double[size];
+            witnessGenerations = new int[size];
+
+            for (int id = 0; id < size; id++)
+                for (int i = graph.successorsStart[id]; i < graph.successorsStart[id + 1]; i++)
+                    addArc(id, graph.successors[i], graph.lengths[id], null, null);
+        }
+
+        /** Adds an arc, or makes the existing arc between the same directed edges shorter */
+        private void addArc(int source, int target, double weight, Arc firstHalf, Arc secondHalf) {
+            // the shortest path never loops over a directed edge
+            if (source == target)
+                return;
+            var key = (long) source * size + target;
+            var arc = arcsByEnds.get(key);
+            if (arc != null) {
+                if (weight < arc.weight) {
+                    arc.weight = weight;
+                    arc.firstHalf = firstHalf;
+                    arc.secondHalf = secondHalf;
+                }
+                return;
+            }
+            arc = new Arc(arcs.size(), source, target, weight, firstHalf, secondHalf);
+            arcs.add(arc);
+            arcsByEnds.put(key, arc);
+            outgoingArcs.get(source).add(arc);
+            incomingArcs.get(target).add(arc);
+        }
+
+        /**
+         * Runs a bounded search from a directed edge which avoids the one being contracted.
+         * Distances found by the search are upper bounds, as it may stop early.
+         */
+        private void findWitnesses(int source, int avoided, double maxDistance) {
+            if (++witnessGeneration == 0) {
+                Arrays.fill(witnessGenerations, 0);
+                witnessGeneration = 1;
+            }
+            witnessDistances[source] = 0;
+            witnessGenerations[source] = witnessGeneration;
+            var queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+            queue.add(new double[] { 0, source });
+            var settled = 0;
+            while (!queue.isEmpty() && settled < WITNESS_SEARCH_LIMIT) {
+                var entry = queue.poll();
+                var distance = entry[0];
+                var id = (int) entry[1];
+                if (distance > getWitnessDistance(id))
+                    continue;
+                if (distance > maxDistance)
+                    return;
+                settled++;
+                for (var arc : outgoingArcs.get(id)) {
+                    var target = arc.target;
+                    if (target == avoided || contracted[target])
+                        continue;
+                    var targetDistance = distance + arc.weight;
+                    if (targetDistance >= getWitnessDistance(target))
+                        continue;
+                    witnessDistances[target] = targetDistance;
+                    witnessGenerations[target] = witnessGeneration;
+                    queue.add(new double[] { targetDistance, target });
+                }
+            }
+        }
+
+        private double getWitnessDistance(int id) {
+            if (witnessGenerations[id] != witnessGeneration)
+                return Double.POSITIVE_INFINITY;
+            return witnessDistances[id];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a directed edge, and adds them if asked to
+         * @return the number of shortcuts needed
+         */
+        private int contract(int id, boolean addShortcuts) {
+            var shortcutCount = 0;
+            var incoming = incomingArcs.get(id);
+            var outgoing = outgoingArcs.get(id);
+            // shortcuts are only added to outgoing and incoming arcs of other edges, so iterating is safe
+            for (int i = 0; i < incoming.size(); i++) {
+                var incomingArc = incoming.get(i);
+                var source = incomingArc.source;
+                if (contracted[source])
+                    continue;
+
+                var maxOutgoingWeight = Double.NEGATIVE_INFINITY;
+                for (var outgoingArc : outgoing)
+                    if (!contracted[outgoingArc.target] && outgoingArc.target != source)
+                        maxOutgoingWeight = Math.max(maxOutgoingWeight, outgoingArc.weight);
+                if (maxOutgoingWeight == Double.NEGATIVE_INFINITY)
+                    continue;
+
+                findWitnesses(source, id, incomingArc.weight + maxOutgoingWeight);
+                for (int j = 0; j < outgoing.size(); j++) {
+                    var outgoingArc = outgoing.get(j);
+                    var target = outgoingArc.target;
+                    if (contracted[target] || target == source)
+                        continue;
+                    var weight = incomingArc.weight + outgoingArc.weight;
+                    if (getWitnessDistance(target) <= weight)
+                        continue;
+                    shortcutCount++;
+                    if (addShortcuts)
+                        addArc(source, target, weight, incomingArc, outgoingArc);
+                }
+            }
+            return shortcutCount;
+        }
+
+        /** Estimates how much contracting a directed edge now would cost, the lower the better */
+        private int getPriority(int id) {
+            var removedArcs = 0;
+            for (var arc : incomingArcs.get(id))
+                if (!contracted[arc.source])
+                    removedArcs++;
+            for (var arc : outgoingArcs.get(id))
+                if (!contracted[arc.target])
+                    removedArcs++;
+            return contract(id, false) - removedArcs + contractedNeighbors[id];
+        }
+
+        /** Contracts all directed edges, and returns all the arcs of the hierarchy */
+        ArrayList<Arc> build() {
+            // priorities change as edges get contracted, and are only updated when edges are about to be contracted
+            var queue = new PriorityQueue<int[]>((a, b) -> Integer.compare(a[0], b[0]));
+            for (int id = 0; id < size; id++)
+                queue.add(new int[] { getPriority(id), id });
+
+            var rank = 0;
+            while (!queue.isEmpty()) {
+                var id = queue.poll()[1];
+                var priority = getPriority(id);
+                if (!queue.isEmpty() && priority > queue.peek()[0]) {
+                    queue.add(new int[] { priority, id });
+                    continue;
+                }
+
+                contract(id, true);
+                contracted[id] = true;
+                ranks[id] = rank++;
+                for (var arc : incomingArcs.get(id))
+                    contractedNeighbors[arc.source]++;
+                for (var arc : outgoingArcs.get(id))
+                    contractedNeighbors[arc.target]++;
+            }
+            return arcs;
+        }
+    }
+
+    // endregion
+
+    // region QUERIES
+
+    /** The end of a path, somewhere on an edge */
+    public static final class Goal<EdgeT extends Edge> {
+        public final EdgeT edge;
+        public final double position;
+        /** The cost of going from the start of the edge to the goal */
+        public final double cost;
+
+        /** Creates a goal on an edge, which costs some amount to reach from the start of the edge */
+        public Goal(EdgeT edge, double position, double cost) {
+            this.edge = edge;
+            this.position = position;
+            this.cost = cost;
+        }
+    }
+
+    /** The shortest path between one of the sources and one of the targets of a search */
+    public static final class Path {
+        /** The index of the source the path starts from */
+        public final int source;
+        /** The index of the target the path ends at */
+        public final int target;
+        /** The directed edges the path goes through, from the source to the target */
+        public final int[] directedEdges;
+        /** The cost of the path, from the start point to the goal */
+        @SuppressFBWarnings({"URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD"})
+        public final double cost;
+
+        Path(int source, int target, int[] directedEdges, double cost) {
+            this.source = source;
+            this.target = target;
+            this.directedEdges = directedEdges;
+            this.cost = cost;
+        }
+    }
+
+    /** The distances found by the forward and backward searches, which are only valid for the latest search */
+    private static final class SearchState {
+        final double[][] distances;
+        /** The arc each directed edge was reached through, or -1 for sources and targets */
+        final int[][] parentArcs;
+        final int[][] generations;
+        int generation = 0;
+
+        SearchState(int size) {
+            distances = new double[2][size];
+            parentArcs = new int[2][size];
+            generations = new int[2][size];
+        }
+
+        void reset() {
+            if (++generation != 0)
+                return;
+            for (var directionGenerations : generations)
+                Arrays.fill(directionGenerations, 0);
+            generation = 1;
+        }
+
+        double getDistance(int direction, int id) {
+            if (generations[direction][id] != generation)
+                return Double.POSITIVE_INFINITY;
+            return distances[direction][id];
+        }
+
+        boolean update(int direction, int id, double distance, int parentArc) {
+            if (distance >= getDistance(direction, id))
+                return false;
+            distances[direction][id] = distance;
+            parentArcs[direction][id] = parentArc;
+            generations[direction][id] = generation;
+            return true;
+        }
+    }
+
+    private static final int FORWARD = 0;
+    private static final int BACKWARD = 1;
+
+    /**
+     * Finds the shortest path from one of the sources to one of the targets.
+     * @param sources the directed edges the path can start from
+     * @param sourceCosts the cost of the path when it reaches the start of each source
+     * @param targets the directed edges the path can end on
+     * @param targetCosts the cost of going from the start of each target to the end of the path
+     * @return the shortest path, or null if there's none
+     */
+    public Path findPath(int[] sources, double[] sourceCosts, int[] targets, double[] targetCosts) {
+        // searches stop once they can't find shorter paths, which assumes initial costs are positive
+        var sourceShift = 0.0;
+        for (var sourceCost : sourceCosts)
+            sourceShift = Math.max(sourceShift, -sourceCost);
+        var targetShift = 0.0;
+        for (var targetCost : targetCosts)
+            targetShift = Math.max(targetShift, -targetCost);
+
+        var state = searchStates.get();
+        state.reset();
+        var queues = new ArrayList<PriorityQueue<double[]>>(2);
+        for (int direction = 0; direction < 2; direction++)
+            queues.add(new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0])));
+        for (int i = 0; i < sources.length; i++)
+            if (state.update(FORWARD, sources[i], sourceCosts[i] + sourceShift, -1))
+                queues.get(FORWARD).add(new double[] { sourceCosts[i] + sourceShift, sources[i] });
+        for (int i = 0; i < targets.length; i++)
+            if (state.update(BACKWARD, targets[i], targetCosts[i] + targetShift, -1))
+                queues.get(BACKWARD).add(new double[] { targetCosts[i] + targetShift, targets[i] });
+
+        var bestCost = Double.POSITIVE_INFINITY;
+        var meeting = -1;
+        var direction = FORWARD;
+        while (true) {
+            // alternate between directions, as long as both can still find shorter paths
+            var queue = queues.get(direction);
+            while (!queue.isEmpty() && queue.peek()[0] > state.getDistance(direction, (int) queue.peek()[1]))
+                queue.poll();
+            if (queue.isEmpty() || queue.peek()[0] >= bestCost) {
+                var otherQueue = queues.get(1 - direction);
+                if (otherQueue.isEmpty() || otherQueue.peek()[0] >= bestCost)
+                    break;
+                direction = 1 - direction;
+                continue;
+            }
+
+            var entry = queue.poll();
+            var distance = entry[0];
+            var id = (int) entry[1];
+            var meetingCost = distance + state.getDistance(1 - direction, id);
+            if (meetingCost < bestCost) {
+                bestCost = meetingCost;
+                meeting = id;
+            }
+            if (direction == FORWARD) {
+                for (int i = upwardStart[id]; i < upwardStart[id + 1]; i++) {
+                    var arc = upwardArcs[i];
+                    var target = arcTargets[arc];
+                    if (state.update(FORWARD, target, distance + arcWeights[arc], arc))
+                        queue.add(new double[] { distance + arcWeights[arc], target });
+                }
+            } else {
+                for (int i = downwardStart[id]; i < downwardStart[id + 1]; i++) {
+                    var arc = downwardArcs[i];
+                    var source = arcSources[arc];
+                    if (state.update(BACKWARD, source, distance + arcWeights[arc], arc))
+                        queue.add(new double[] { distance + arcWeights[arc], source });
+                }
+            }
+            direction = 1 - direction;
+        }
+
+        if (meeting == -1)
+            return null;
+        var path = unpackPath(state, meeting);
+        var source = findEndpoint(sources, sourceCosts, path[0]);
+        var target = findEndpoint(targets, targetCosts, path[path.length - 1]);
+        return new Path(source, target, path, bestCost - sourceShift - targetShift);
+    }
+
+    /**
+     * Finds the shortest path, measured in distance, from starting points to goals.
+     * Paths are built the same way Dijkstra does, so that they can be used in the same way.
+     * @param startingPoints the start nodes of the path, which can start from any of them
+     * @param goals where the path can end
+     * @return the end node of the shortest path, or null if there's none
+     */
+    public BasicPathNode<EdgeT> findPath(List<BasicPathNode<EdgeT>> startingPoints, List<Goal<EdgeT>> goals) {
+        var sources = new int[startingPoints.size()];
+        var sourceCosts = new double[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            var startingPoint = startingPoints.get(i);
+            sources[i] = DirectedEdgeGraph.getID(startingPoint.edge, EdgeDirection.START_TO_STOP);
+            // the start of the source is behind the starting point
+            sourceCosts[i] = startingPoint.cost - startingPoint.position;
+        }
+        var targets = new int[goals.size()];
+        var targetCosts = new double[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = DirectedEdgeGraph.getID(goals.get(i).edge, EdgeDirection.START_TO_STOP);
+            targetCosts[i] = goals.get(i).cost;
+        }
+
+        var path = findPath(sources, sourceCosts, targets, targetCosts);
+        if (path == null)
+            return null;
+
+        var startingPoint = startingPoints.get(path.source);
+        var goal = goals.get(path.target);
+        var node = startingPoint;
+        var addedCost = -startingPoint.position;
+        for (int i = 1; i < path.directedEdges.length; i++) {
+            var previousEdge = edges.getEdge(path.directedEdges[i - 1] / 2);
+            addedCost += previousEdge.length;
+            node = node.chain(addedCost, edges.getEdge(path.directedEdges[i] / 2), 0);
+            addedCost = 0;
+        }
+        return node.end(addedCost + goal.cost, goal.edge, goal.position);
+    }
+
+    /** Finds the directed edges of the path which goes through the meeting point of both searches */
+    private int[] unpackPath(SearchState state, int meeting) {
+        // find the arcs of the hierarchy from the source to the meeting point, then from there to the target
+        var pathArcs = new ArrayList<Integer>();
+        var start = meeting;
+        while (state.parentArcs[FORWARD][start] != -1) {
+            var arc = state.parentArcs[FORWARD][start];
+            pathArcs.add(arc);
+            start = arcSources[arc];
+        }
+        Collections.reverse(pathArcs);
+        var end = meeting;
+        while (state.parentArcs[BACKWARD][end] != -1) {
+            var arc = state.parentArcs[BACKWARD][end];
+            pathArcs.add(arc);
+            end = arcTargets[arc];
+        }
+
+        // replace shortcuts with the arcs of the original graph
+        var directedEdges = new ArrayList<Integer>();
+        directedEdges.add(start);
+        for (var arc : pathArcs)
+            unpackArc(arc, directedEdges);
+        var res = new int[directedEdges.size()];
+        for (int i = 0; i < res.length; i++)
+            res[i] = directedEdges.get(i);
+        return res;
+    }
+
+    /** Finds the cheapest of the sources or targets the path can start or end with */
+    private static int findEndpoint(int[] endpoints, double[] costs, int id) {
+        var res = -1;
+        for (int i = 0; i < endpoints.length; i++)
+            if (endpoints[i] == id && (res == -1 || costs[i] < costs[res]))
+                res = i;
+        assert res != -1;
+        return res;
+    }
+
+    private void unpackArc(int arc, List<Integer> directedEdges) {
+        if (arcFirstHalves[arc] == -1) {
+            directedEdges.add(arcTargets[arc]);
+            return;
+        }
+        unpackArc(arcFirstHalves[arc], directedEdges);
+        unpackArc(arcSecondHalves[arc], directedEdges);
+    }
+
+    // endregion
+}
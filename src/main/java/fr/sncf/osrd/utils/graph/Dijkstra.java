@@ -3,8 +3,10 @@ package fr.sncf.osrd.utils.graph;
 import fr.sncf.osrd.utils.graph.path.BasicPathNode;
 import fr.sncf.osrd.utils.graph.path.PathNode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 
 public abstract class Dijkstra {
@@ -20,6 +22,21 @@ public abstract class Dijkstra {
         return new PriorityQueue<>(Comparator.comparing(path -> path.cost));
     }
 
+    /**
+     * Create a priority queue which sorts paths by their cost, plus an estimate of the cost left to reach the goal.
+     * Running the search with such a queue makes it an A* search.
+     */
+    public static <EdgeT extends Edge> PriorityQueue<BasicPathNode<EdgeT>> makePriorityQueue(
+            Heuristic<EdgeT> heuristic
+    ) {
+        return new PriorityQueue<>(Comparator.comparingDouble(path -> {
+            // the estimate is only known for the start of edges, and is zero at the goal
+            if (path.type == PathNode.Type.END || path.position != 0)
+                return path.cost;
+            return path.cost + heuristic.estimate(path.edge, EdgeDirection.START_TO_STOP);
+        }));
+    }
+
     /** Create a priority queue from starting points */
     public static <EdgeT extends Edge> PriorityQueue<BasicPathNode<EdgeT>> makePriorityQueue(
             Iterable<BasicPathNode<EdgeT>> startingPoints
@@ -93,6 +110,166 @@ public abstract class Dijkstra {
         return foundPaths;
     }
 
+    /**
+     * <p>Compute the shortest path, measured in distance, from starting points to goals.</p>
+     * <p>Unlike findPaths, the graph is explored using its compact view, and path nodes are only built
+     * when a goal may be reached, which saves most allocations.</p>
+     * @param startingPoints where the path can start from
+     * @param heuristic guides the search towards goals, or null
+     * @param goals the identifiers of the edges goals are on, as returned by DistanceEstimator.getGoalID
+     * @param goalChecker finds the goal reached when continuing a path along its last edge
+     * @return the end node of the shortest path, or null if no path could be found
+     */
+    public static <EdgeT extends Edge> BasicPathNode<EdgeT> findPath(
+            DirGraph<EdgeT> graph,
+            List<BasicPathNode<EdgeT>> startingPoints,
+            Heuristic<EdgeT> heuristic,
+            int[] goals,
+            GoalChecker<EdgeT> goalChecker
+    ) {
+        var search = graph.getDirectedEdgeGraph().getSearch();
+        search.reset(heuristic == null ? null : id -> heuristic.estimate(
+                graph.getEdge(DirectedEdgeGraph.getEdgeIndex(id)), EdgeDirection.START_TO_STOP));
+
+        BasicPathNode<EdgeT> bestPath = null;
+        var bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < startingPoints.size(); i++) {
+            var startingPoint = startingPoints.get(i);
+            var pathEnd = goalChecker.findGoalOnPathEdge(startingPoint);
+            if (pathEnd != null) {
+                if (pathEnd.cost < bestCost) {
+                    bestPath = pathEnd;
+                    bestCost = pathEnd.cost;
+                }
+                continue;
+            }
+            var edge = startingPoint.edge;
+            var endCost = startingPoint.cost + edge.length - startingPoint.position;
+            search.addStart(DirectedEdgeGraph.getID(edge, EdgeDirection.START_TO_STOP), endCost, i);
+        }
+
+        int directedEdge;
+        while ((directedEdge = search.next(bestCost)) != -1) {
+            if (!isGoal(goals, directedEdge)) {
+                search.expand(directedEdge);
+                continue;
+            }
+
+            // build the path to the goal edge, and see whether it reaches a goal
+            var node = buildPath(graph, search, startingPoints, directedEdge);
+            var pathEnd = goalChecker.findGoalOnPathEdge(node);
+            if (pathEnd == null) {
+                search.expand(directedEdge);
+                continue;
+            }
+            if (pathEnd.cost < bestCost) {
+                bestPath = pathEnd;
+                bestCost = pathEnd.cost;
+            }
+        }
+        return bestPath;
+    }
+
+    /**
+     * <p>Compute the shortest paths, measured in distance, from starting points to each of the goals,
+     * with a single exploration of the graph.</p>
+     * <p>Unlike findPath, the exploration goes on past the edges goals are on, as they may lead to other goals.</p>
+     * @param startingPoints where the paths can start from
+     * @param goals the identifier of the edge each goal is on, as returned by DistanceEstimator.getGoalID
+     * @param goalCheckers for each goal, finds whether it's reached when continuing a path along its last edge
+     * @return for each goal, the end node of the shortest path to it, or null if it can't be reached
+     */
+    public static <EdgeT extends Edge> List<BasicPathNode<EdgeT>> findPathsToEach(
+            DirGraph<EdgeT> graph,
+            List<BasicPathNode<EdgeT>> startingPoints,
+            int[] goals,
+            List<GoalChecker<EdgeT>> goalCheckers
+    ) {
+        // goals are sorted by the edge they're on, with their index in the low bits
+        var sortedGoals = new long[goals.length];
+        for (int j = 0; j < goals.length; j++)
+            sortedGoals[j] = ((long) goals[j] << 32) | j;
+        Arrays.sort(sortedGoals);
+
+        var search = graph.getDirectedEdgeGraph().getSearch();
+        search.reset(null);
+        var res = new ArrayList<BasicPathNode<EdgeT>>(goals.length);
+        for (int j = 0; j < goals.length; j++)
+            res.add(null);
+        // the exploration can stop once all remaining goals were reached, and no path can reach them faster
+        var unreachedGoals = goals.length;
+        var maxCost = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < startingPoints.size(); i++) {
+            var startingPoint = startingPoints.get(i);
+            for (int j = 0; j < goals.length; j++) {
+                var pathEnd = goalCheckers.get(j).findGoalOnPathEdge(startingPoint);
+                if (pathEnd == null || (res.get(j) != null && res.get(j).cost <= pathEnd.cost))
+                    continue;
+                if (res.get(j) == null)
+                    unreachedGoals--;
+                res.set(j, pathEnd);
+                maxCost = Math.max(maxCost, pathEnd.cost);
+            }
+            var edge = startingPoint.edge;
+            var endCost = startingPoint.cost + edge.length - startingPoint.position;
+            search.addStart(DirectedEdgeGraph.getID(edge, EdgeDirection.START_TO_STOP), endCost, i);
+        }
+
+        // goals are settled once their edge is explored, as no shorter path to them can be found afterwards
+        var remainingGoals = goals.length;
+        while (remainingGoals > 0) {
+            var directedEdge = search.next(unreachedGoals > 0 ? Double.POSITIVE_INFINITY : maxCost);
+            if (directedEdge == -1)
+                break;
+            search.expand(directedEdge);
+            var firstGoal = Arrays.binarySearch(sortedGoals, (long) directedEdge << 32);
+            if (firstGoal < 0)
+                firstGoal = -firstGoal - 1;
+            if (firstGoal == sortedGoals.length || (int) (sortedGoals[firstGoal] >> 32) != directedEdge)
+                continue;
+
+            var node = buildPath(graph, search, startingPoints, directedEdge);
+            for (int k = firstGoal; k < sortedGoals.length && (int) (sortedGoals[k] >> 32) == directedEdge; k++) {
+                var j = (int) sortedGoals[k];
+                var pathEnd = goalCheckers.get(j).findGoalOnPathEdge(node);
+                if (pathEnd != null && (res.get(j) == null || pathEnd.cost < res.get(j).cost)) {
+                    if (res.get(j) == null)
+                        unreachedGoals--;
+                    res.set(j, pathEnd);
+                    maxCost = Math.max(maxCost, pathEnd.cost);
+                }
+                remainingGoals--;
+                // goals which can't be reached anymore mustn't keep the exploration going
+                if (res.get(j) == null)
+                    unreachedGoals--;
+            }
+        }
+        return res;
+    }
+
+    /** Builds the path nodes going from a starting point to the start of an explored edge */
+    private static <EdgeT extends Edge> BasicPathNode<EdgeT> buildPath(
+            DirGraph<EdgeT> graph,
+            DirectedEdgeSearch search,
+            List<BasicPathNode<EdgeT>> startingPoints,
+            int directedEdge
+    ) {
+        var path = search.getPath(directedEdge);
+        var node = startingPoints.get(search.getStartIndex(path[0]));
+        for (var pathEdge : path) {
+            var edge = graph.getEdge(DirectedEdgeGraph.getEdgeIndex(pathEdge));
+            node = node.chain(search.getCost(pathEdge) - node.cost, edge, 0);
+        }
+        return node;
+    }
+
+    static boolean isGoal(int[] goals, int directedEdge) {
+        for (var goal : goals)
+            if (goal == directedEdge)
+                return true;
+        return false;
+    }
+
     // tracking whether some point on an edge was visited is somewhat complicated:
     // edges can be explored from start to stop or from stop to start,
     // and exploration can start right in the middle of the edge.
@@ -5,6 +5,9 @@ import java.util.List;
 
 public abstract class DirGraph<EdgeT extends Edge> implements IEdgeGraph<EdgeT> {
     private final ArrayList<EdgeT> edges = new ArrayList<>();
+    // a compact view of the graph, built the first time it's explored, once the graph is complete
+    private volatile DirectedEdgeGraph directedEdgeGraph = null;
+    private final Object directedEdgeGraphLock = new Object();
 
     public abstract List<EdgeT> getNeighbors(EdgeT edge);
 
@@ -35,4 +38,16 @@ public abstract class DirGraph<EdgeT extends Edge> implements IEdgeGraph<EdgeT>
     public int nextEdgeIndex() {
         return edges.size();
     }
+
+    /** Gets the compact view of the graph, which is built the first time it's needed */
+    DirectedEdgeGraph getDirectedEdgeGraph() {
+        var res = directedEdgeGraph;
+        if (res != null)
+            return res;
+        synchronized (directedEdgeGraphLock) {
+            if (directedEdgeGraph == null)
+                directedEdgeGraph = DirectedEdgeGraph.from(this);
+            return directedEdgeGraph;
+        }
+    }
 }
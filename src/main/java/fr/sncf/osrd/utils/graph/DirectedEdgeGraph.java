@@ -0,0 +1,146 @@
+package fr.sncf.osrd.utils.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A compact view of a graph, where each edge is split in one directed edge per direction.
+ * Directed edges are identified by the index of the edge and the id of the direction.
+ * Successors are stored in compressed sparse rows, so exploring the graph doesn't chase any pointer.
+ */
+final class DirectedEdgeGraph {
+    /** The length of each directed edge */
+    final double[] lengths;
+    /** Where the successors of each directed edge start in the successors array */
+    final int[] successorsStart;
+    /** The directed edges which can be reached at the end of each directed edge */
+    final int[] successors;
+    // searches are frequent, so the memory they use is reused by each thread
+    private final ThreadLocal<DirectedEdgeSearch> searches;
+
+    private DirectedEdgeGraph(double[] lengths, int[] successorsStart, int[] successors) {
+        this.lengths = lengths;
+        this.successorsStart = successorsStart;
+        this.successors = successors;
+        this.searches = ThreadLocal.withInitial(() -> new DirectedEdgeSearch(this));
+    }
+
+    static int getID(Edge edge, EdgeDirection direction) {
+        return edge.index * 2 + direction.id;
+    }
+
+    static int getEdgeIndex(int id) {
+        return id / 2;
+    }
+
+    static EdgeDirection getDirection(int id) {
+        if (id % 2 == EdgeDirection.START_TO_STOP.id)
+            return EdgeDirection.START_TO_STOP;
+        return EdgeDirection.STOP_TO_START;
+    }
+
+    /** Returns the search state of the current thread, which must be reset before use */
+    DirectedEdgeSearch getSearch() {
+        return searches.get();
+    }
+
+    int size() {
+        return lengths.length;
+    }
+
+    private static DirectedEdgeGraph fromSuccessorLists(
+            double[] lengths,
+            ArrayList<ArrayList<Integer>> successorLists
+    ) {
+        var successorsStart = new int[lengths.length + 1];
+        for (int i = 0; i < lengths.length; i++)
+            successorsStart[i + 1] = successorsStart[i] + successorLists.get(i).size();
+        var successors = new int[successorsStart[lengths.length]];
+        for (int i = 0; i < lengths.length; i++) {
+            var successorList = successorLists.get(i);
+            for (int j = 0; j < successorList.size(); j++)
+                successors[successorsStart[i] + j] = successorList.get(j);
+        }
+        return new DirectedEdgeGraph(lengths, successorsStart, successors);
+    }
+
+    private static ArrayList<ArrayList<Integer>> makeSuccessorLists(int size) {
+        var successorLists = new ArrayList<ArrayList<Integer>>(size);
+        for (int i = 0; i < size; i++)
+            successorLists.add(new ArrayList<>());
+        return successorLists;
+    }
+
+    /** Creates a view of a directed graph, where edges are only followed from start to stop */
+    static <EdgeT extends Edge> DirectedEdgeGraph from(DirGraph<EdgeT> graph) {
+        var size = graph.getEdgeCount() * 2;
+        var lengths = new double[size];
+        var successorLists = makeSuccessorLists(size);
+        for (var edge : graph.iterEdges()) {
+            var id = getID(edge, EdgeDirection.START_TO_STOP);
+            lengths[id] = edge.length;
+            for (var neighbor : graph.getNeighbors(edge))
+                successorLists.get(id).add(getID(neighbor, EdgeDirection.START_TO_STOP));
+        }
+        return fromSuccessorLists(lengths, successorLists);
+    }
+
+    /** Creates a view of a bidirectional graph */
+    static <EdgeT extends Edge> DirectedEdgeGraph from(BiGraph<EdgeT> graph) {
+        var size = graph.getEdgeCount() * 2;
+        var lengths = new double[size];
+        var successorLists = makeSuccessorLists(size);
+        for (var edge : graph.iterEdges()) {
+            for (var direction : EdgeDirection.values()) {
+                var id = getID(edge, direction);
+                lengths[id] = edge.length;
+                for (var neighbor : graph.getEndNeighborRels(edge, direction)) {
+                    var neighborEdge = neighbor.getEdge(edge, direction);
+                    var neighborDirection = neighbor.getDirection(edge, direction);
+                    successorLists.get(id).add(getID(neighborEdge, neighborDirection));
+                }
+            }
+        }
+        return fromSuccessorLists(lengths, successorLists);
+    }
+
+    /** Creates the same graph, with all directed edges leading to their predecessors instead */
+    DirectedEdgeGraph reverse() {
+        // the length of a reversed directed edge is the length of the edges it leads to
+        var successorLists = makeSuccessorLists(size());
+        for (int id = 0; id < size(); id++)
+            for (int i = successorsStart[id]; i < successorsStart[id + 1]; i++)
+                successorLists.get(successors[i]).add(id);
+        return fromSuccessorLists(lengths, successorLists);
+    }
+
+    /**
+     * Computes the distance from the start of a directed edge to the start of all the others,
+     * or infinity if they can't be reached.
+     * When the graph is reversed, these are distances from all the directed edges to the source.
+     */
+    double[] getDistancesFrom(int source, boolean reversed) {
+        var distances = new double[size()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[source] = 0;
+        var queue = new PriorityQueue<double[]>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] { 0, source });
+        while (!queue.isEmpty()) {
+            var entry = queue.poll();
+            var distance = entry[0];
+            var id = (int) entry[1];
+            if (distance > distances[id])
+                continue;
+            for (int i = successorsStart[id]; i < successorsStart[id + 1]; i++) {
+                var successor = successors[i];
+                var successorDistance = distance + (reversed ? lengths[successor] : lengths[id]);
+                if (successorDistance >= distances[successor])
+                    continue;
+                distances[successor] = successorDistance;
+                queue.add(new double[] { successorDistance, successor });
+            }
+        }
+        return distances;
+    }
+}
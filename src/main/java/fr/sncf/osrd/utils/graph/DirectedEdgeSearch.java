@@ -0,0 +1,116 @@
+package fr.sncf.osrd.utils.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>The state of a shortest path search over the directed edges of a graph, which only uses primitive arrays.
+ * Directed edges are explored from their first position, and the cost of reaching them is kept along with
+ * the directed edge they were reached from, so that paths only have to be built once a goal is found.</p>
+ * <p>A search is reused by the thread which owns it, and only valid until it's reset.</p>
+ */
+final class DirectedEdgeSearch {
+    private final DirectedEdgeGraph graph;
+    private final IndexedMinHeap queue;
+    /** The cost of reaching the first position of each directed edge */
+    private final double[] costs;
+    /** The directed edge each directed edge was reached from, or -1 - the index of its starting point */
+    private final int[] parents;
+    /** Costs and parents are only valid when their generation is the current one */
+    private final int[] generations;
+    /** Directed edges whose generation is the current one were already explored */
+    private final int[] settledGenerations;
+    private int generation = 0;
+    private DistanceEstimator.DirectedEdgeBound heuristic = null;
+
+    DirectedEdgeSearch(DirectedEdgeGraph graph) {
+        this.graph = graph;
+        var size = graph.size();
+        queue = new IndexedMinHeap(size);
+        costs = new double[size];
+        parents = new int[size];
+        generations = new int[size];
+        settledGenerations = new int[size];
+    }
+
+    /**
+     * Starts a new search
+     * @param heuristic a consistent lower bound of the cost left to reach goals, or null
+     */
+    void reset(DistanceEstimator.DirectedEdgeBound heuristic) {
+        this.heuristic = heuristic;
+        queue.clear();
+        if (++generation != 0)
+            return;
+        Arrays.fill(generations, 0);
+        Arrays.fill(settledGenerations, 0);
+        generation = 1;
+    }
+
+    double getCost(int directedEdge) {
+        if (generations[directedEdge] != generation)
+            return Double.POSITIVE_INFINITY;
+        return costs[directedEdge];
+    }
+
+    private void update(int directedEdge, double cost, int parent) {
+        if (settledGenerations[directedEdge] == generation || cost >= getCost(directedEdge))
+            return;
+        costs[directedEdge] = cost;
+        parents[directedEdge] = parent;
+        generations[directedEdge] = generation;
+        var priority = cost;
+        if (heuristic != null)
+            priority += heuristic.evaluate(directedEdge);
+        queue.push(directedEdge, priority);
+    }
+
+    /**
+     * Starts the search from somewhere on a directed edge
+     * @param directedEdge the directed edge the starting point is on
+     * @param endCost the cost of going from the starting point to the end of the directed edge
+     * @param startIndex the index of the starting point, which paths can be traced back to
+     */
+    void addStart(int directedEdge, double endCost, int startIndex) {
+        for (int i = graph.successorsStart[directedEdge]; i < graph.successorsStart[directedEdge + 1]; i++)
+            update(graph.successors[i], endCost, -1 - startIndex);
+    }
+
+    /**
+     * Takes the next directed edge to explore
+     * @param maxPriority the priority above which directed edges can't lead to better paths
+     * @return the directed edge, or -1 if there's none left below the given priority
+     */
+    int next(double maxPriority) {
+        if (queue.isEmpty() || queue.peekPriority() >= maxPriority)
+            return -1;
+        var directedEdge = queue.pop();
+        settledGenerations[directedEdge] = generation;
+        return directedEdge;
+    }
+
+    /** Explores the successors of a directed edge */
+    void expand(int directedEdge) {
+        var endCost = costs[directedEdge] + graph.lengths[directedEdge];
+        for (int i = graph.successorsStart[directedEdge]; i < graph.successorsStart[directedEdge + 1]; i++)
+            update(graph.successors[i], endCost, directedEdge);
+    }
+
+    /** Returns the directed edges of the path to the given one, excluding the directed edge it starts on */
+    int[] getPath(int directedEdge) {
+        var length = 1;
+        for (var id = directedEdge; parents[id] >= 0; id = parents[id])
+            length++;
+        var res = new int[length];
+        var id = directedEdge;
+        for (int i = length - 1; i >= 0; i--) {
+            res[i] = id;
+            id = parents[id];
+        }
+        return res;
+    }
+
+    /** Returns the index of the starting point of a path, given its first directed edge */
+    int getStartIndex(int firstDirectedEdge) {
+        return -1 - parents[firstDirectedEdge];
+    }
+}
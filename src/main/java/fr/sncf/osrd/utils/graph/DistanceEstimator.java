@@ -0,0 +1,76 @@
+package fr.sncf.osrd.utils.graph;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed data about a graph, which makes it possible to bound the distance left to reach
+ * goals, so that A* explores the graph towards them.
+ */
+public abstract class DistanceEstimator<EdgeT extends Edge> {
+    // heuristics are created for each search, so the memory their estimates are cached in is reused
+    private final ThreadLocal<EstimateCache> estimateCaches;
+
+    DistanceEstimator(DirectedEdgeGraph graph) {
+        this.estimateCaches = ThreadLocal.withInitial(() -> new EstimateCache(graph.size()));
+    }
+
+    /** Returns the identifier of the goal reached by going through an edge in the given direction */
+    public static int getGoalID(Edge edge, EdgeDirection direction) {
+        return DirectedEdgeGraph.getID(edge, direction);
+    }
+
+    /** Returns a function which bounds the distance from the start of a directed edge to the closest goal */
+    abstract DirectedEdgeBound makeBound(int[] goals);
+
+    @FunctionalInterface
+    interface DirectedEdgeBound {
+        double evaluate(int directedEdge);
+    }
+
+    /** Estimates computed by the heuristics of a thread, which are only valid for the latest heuristic */
+    private static final class EstimateCache {
+        final double[] estimates;
+        final int[] generations;
+        int generation = 0;
+
+        EstimateCache(int size) {
+            estimates = new double[size];
+            generations = new int[size];
+        }
+    }
+
+    /**
+     * Creates a consistent heuristic of the distance to the closest of the given goals.
+     * The heuristic must be used by the thread which created it, and caches its estimates as long as
+     * no other heuristic was created by this thread.
+     * @param goals the identifiers of the goals, as returned by getGoalID
+     * @return the heuristic
+     */
+    public Heuristic<EdgeT> towards(int[] goals) {
+        var bound = makeBound(goals);
+        DirectedEdgeBound estimator = id -> {
+            for (var goal : goals)
+                if (goal == id)
+                    return 0;
+            return bound.evaluate(id);
+        };
+
+        var cache = estimateCaches.get();
+        if (++cache.generation == 0) {
+            Arrays.fill(cache.generations, 0);
+            cache.generation = 1;
+        }
+        var generation = cache.generation;
+        return (edge, direction) -> {
+            var id = DirectedEdgeGraph.getID(edge, direction);
+            if (cache.generation != generation)
+                return estimator.evaluate(id);
+            if (cache.generations[id] == generation)
+                return cache.estimates[id];
+            var estimate = estimator.evaluate(id);
+            cache.estimates[id] = estimate;
+            cache.generations[id] = generation;
+            return estimate;
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package fr.sncf.osrd.utils.graph;
+
+/**
+ * Bounds the distance left to reach goals using the coordinates of the start of edges.
+ * Coordinates are longitudes and latitudes, in which case great-circle distances are used,
+ * or projected coordinates, in which case straight line distances are used.
+ * Distances are scaled down so that no edge is shorter than the distance between its ends,
+ * which keeps the heuristic consistent even if coordinates and lengths disagree.
+ */
+public final class GeoDistanceEstimator<EdgeT extends Edge> extends DistanceEstimator<EdgeT> {
+    private static final double EARTH_RADIUS = 6_371_008.8;
+
+    /** Gives the coordinates of the start of an edge, when going through it in some direction */
+    @FunctionalInterface
+    public interface EntryCoordinates<EdgeT> {
+        /** Returns the x and y coordinates of the start of an edge, or null if these aren't known */
+        double[] get(EdgeT edge, EdgeDirection direction);
+    }
+
+    private final boolean geographic;
+    // the start of each directed edge, as a point on the unit sphere for geographic coordinates
+    private final double[] pointsX;
+    private final double[] pointsY;
+    private final double[] pointsZ;
+    /** The factor distances are multiplied with, so that they're never greater than the length of edges */
+    private final double scale;
+
+    private GeoDistanceEstimator(DirectedEdgeGraph graph, double[][] entryCoordinates) {
+        super(graph);
+        var size = graph.size();
+
+        var geographic = true;
+        for (var coordinates : entryCoordinates)
+            if (coordinates != null && (Math.abs(coordinates[0]) > 180 || Math.abs(coordinates[1]) > 90))
+                geographic = false;
+        this.geographic = geographic;
+
+        pointsX = new double[size];
+        pointsY = new double[size];
+        pointsZ = new double[size];
+        for (int id = 0; id < size; id++) {
+            var coordinates = entryCoordinates[id];
+            if (coordinates == null)
+                continue;
+            if (!geographic) {
+                pointsX[id] = coordinates[0];
+                pointsY[id] = coordinates[1];
+                continue;
+            }
+            var longitude = Math.toRadians(coordinates[0]);
+            var latitude = Math.toRadians(coordinates[1]);
+            pointsX[id] = Math.cos(latitude) * Math.cos(longitude);
+            pointsY[id] = Math.cos(latitude) * Math.sin(longitude);
+            pointsZ[id] = Math.sin(latitude);
+        }
+
+        var scale = Double.POSITIVE_INFINITY;
+        for (int id = 0; id < size; id++) {
+            for (int i = graph.successorsStart[id]; i < graph.successorsStart[id + 1]; i++) {
+                var distance = getDistance(id, graph.successors[i]);
+                if (distance > 0)
+                    scale = Math.min(scale, graph.lengths[id] / distance);
+            }
+        }
+        this.scale = Double.isInfinite(scale) ? 0 : scale;
+    }
+
+    private double getDistance(int a, int b) {
+        var dx = pointsX[a] - pointsX[b];
+        var dy = pointsY[a] - pointsY[b];
+        var dz = pointsZ[a] - pointsZ[b];
+        var chord = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (!geographic)
+            return chord;
+        return EARTH_RADIUS * 2 * Math.asin(Math.min(1, chord / 2));
+    }
+
+    private static <EdgeT extends Edge> GeoDistanceEstimator<EdgeT> from(
+            DirectedEdgeGraph graph,
+            Iterable<EdgeT> edges,
+            EdgeDirection[] directions,
+            EntryCoordinates<EdgeT> entryCoordinates
+    ) {
+        var coordinates = new double[graph.size()][];
+        for (var edge : edges) {
+            for (var direction : directions) {
+                var edgeCoordinates = entryCoordinates.get(edge, direction);
+                if (edgeCoordinates == null)
+                    return null;
+                coordinates[DirectedEdgeGraph.getID(edge, direction)] = edgeCoordinates;
+            }
+        }
+        return new GeoDistanceEstimator<>(graph, coordinates);
+    }
+
+    /** Creates an estimator for a directed graph, or returns null if the coordinates of some edge are missing */
+    public static <EdgeT extends Edge> GeoDistanceEstimator<EdgeT> from(
+            DirGraph<EdgeT> graph,
+            EntryCoordinates<EdgeT> entryCoordinates
+    ) {
+        var directions = new EdgeDirection[] { EdgeDirection.START_TO_STOP };
+        return from(graph.getDirectedEdgeGraph(), graph.iterEdges(), directions, entryCoordinates);
+    }
+
+    /** Creates an estimator for a bidirectional graph, or returns null if the coordinates of some edge are missing */
+    public static <EdgeT extends Edge> GeoDistanceEstimator<EdgeT> from(
+            BiGraph<EdgeT> graph,
+            EntryCoordinates<EdgeT> entryCoordinates
+    ) {
+        return from(graph.getDirectedEdgeGraph(), graph.iterEdges(), EdgeDirection.values(), entryCoordinates);
+    }
+
+    @Override
+    DirectedEdgeBound makeBound(int[] goals) {
+        if (goals.length == 0 || scale == 0)
+            return id -> 0;
+        return id -> {
+            var minDistance = Double.POSITIVE_INFINITY;
+            for (var goal : goals)
+                minDistance = Math.min(minDistance, getDistance(id, goal));
+            return scale * minDistance;
+        };
+    }
+}
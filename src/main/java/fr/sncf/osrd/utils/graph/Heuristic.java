@@ -0,0 +1,15 @@
+package fr.sncf.osrd.utils.graph;
+
+/** An estimate of the cost left to reach a goal, which turns Dijkstra into A* */
+@FunctionalInterface
+public interface Heuristic<EdgeT extends Edge> {
+    /**
+     * Returns a lower bound of the cost of reaching a goal, starting from the beginning of an edge.
+     * For A* to find the shortest path, the estimate must be consistent: it can't decrease along an
+     * edge by more than the cost of the edge.
+     * @param edge the edge the path goes through
+     * @param direction the direction the path goes through the edge with
+     * @return a lower bound of the cost of reaching a goal
+     */
+    double estimate(EdgeT edge, EdgeDirection direction);
+}
@@ -0,0 +1,104 @@
+package fr.sncf.osrd.utils.graph;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of integers in [0, capacity), sorted by a priority, which can lower the priority of
+ * the integers it contains. It doesn't allocate anything once built.
+ */
+final class IndexedMinHeap {
+    /** The integers in the heap, in heap order */
+    private final int[] heap;
+    /** Where each integer is in the heap array, or -1 if it isn't in the heap */
+    private final int[] positions;
+    private final double[] priorities;
+    private int size = 0;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double peekPriority() {
+        assert size > 0;
+        return priorities[heap[0]];
+    }
+
+    /** Adds an integer to the heap, or lowers its priority if it's already there with a higher one */
+    void push(int value, double priority) {
+        var position = positions[value];
+        if (position == -1) {
+            position = size++;
+            heap[position] = value;
+            positions[value] = position;
+        } else if (priority >= priorities[value]) {
+            return;
+        }
+        priorities[value] = priority;
+        siftUp(position);
+    }
+
+    /** Removes and returns the integer with the lowest priority */
+    int pop() {
+        assert size > 0;
+        var res = heap[0];
+        positions[res] = -1;
+        size--;
+        if (size > 0) {
+            var last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return res;
+    }
+
+    /** Removes all the integers from the heap, in time proportional to their number */
+    void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        var value = heap[position];
+        var priority = priorities[value];
+        while (position > 0) {
+            var parentPosition = (position - 1) / 2;
+            var parent = heap[parentPosition];
+            if (priorities[parent] <= priority)
+                break;
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = value;
+        positions[value] = position;
+    }
+
+    private void siftDown(int position) {
+        var value = heap[position];
+        var priority = priorities[value];
+        while (true) {
+            var childPosition = 2 * position + 1;
+            if (childPosition >= size)
+                break;
+            if (childPosition + 1 < size && priorities[heap[childPosition + 1]] < priorities[heap[childPosition]])
+                childPosition++;
+            var child = heap[childPosition];
+            if (priorities[child] >= priority)
+                break;
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+        heap[position] = value;
+        positions[value] = position;
+    }
+}
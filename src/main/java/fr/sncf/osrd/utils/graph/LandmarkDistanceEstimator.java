@@ -0,0 +1,87 @@
+package fr.sncf.osrd.utils.graph;
+
+import java.util.Arrays;
+
+/**
+ * Bounds the distance left to reach goals using precomputed distances from and to a few landmarks (ALT).
+ * Given the distances between a landmark L and all directed edges, the triangle inequality gives that
+ * the distance from x to a goal g is at least d(L, g) - d(L, x), and at least d(x, L) - d(g, L).
+ * This doesn't require coordinates, only the lengths of edges.
+ */
+public final class LandmarkDistanceEstimator<EdgeT extends Edge> extends DistanceEstimator<EdgeT> {
+    public static final int DEFAULT_LANDMARK_COUNT = 4;
+
+    /** For each landmark, the distance from the landmark to the start of each directed edge */
+    private final double[][] fromLandmarks;
+    /** For each landmark, the distance from the start of each directed edge to the landmark */
+    private final double[][] toLandmarks;
+
+    private LandmarkDistanceEstimator(DirectedEdgeGraph graph, int landmarkCount) {
+        super(graph);
+        var reversedGraph = graph.reverse();
+        var size = graph.size();
+        landmarkCount = Math.min(landmarkCount, size);
+        fromLandmarks = new double[landmarkCount][];
+        toLandmarks = new double[landmarkCount][];
+
+        // pick landmarks one by one, as far as possible from the previous ones, starting from an arbitrary point
+        var minDistances = new double[size];
+        Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+        var previous = graph.getDistancesFrom(0, false);
+        for (int i = 0; i < landmarkCount; i++) {
+            var landmark = 0;
+            for (int id = 0; id < size; id++) {
+                var distance = Math.min(minDistances[id], previous[id]);
+                minDistances[id] = distance;
+                if (Double.isFinite(distance) && distance > minDistances[landmark])
+                    landmark = id;
+            }
+            fromLandmarks[i] = graph.getDistancesFrom(landmark, false);
+            toLandmarks[i] = reversedGraph.getDistancesFrom(landmark, true);
+            previous = fromLandmarks[i];
+        }
+    }
+
+    /** Precomputes the distances between the landmarks and all the edges of a directed graph */
+    public static <EdgeT extends Edge> LandmarkDistanceEstimator<EdgeT> from(DirGraph<EdgeT> graph, int landmarkCount) {
+        return new LandmarkDistanceEstimator<>(graph.getDirectedEdgeGraph(), landmarkCount);
+    }
+
+    /** Precomputes the distances between the landmarks and all the edges of a bidirectional graph */
+    public static <EdgeT extends Edge> LandmarkDistanceEstimator<EdgeT> from(BiGraph<EdgeT> graph, int landmarkCount) {
+        return new LandmarkDistanceEstimator<>(graph.getDirectedEdgeGraph(), landmarkCount);
+    }
+
+    @Override
+    DirectedEdgeBound makeBound(int[] goals) {
+        if (goals.length == 0)
+            return id -> 0;
+
+        // the bounds to the closest goal use the closest goal from each landmark, and the furthest to it
+        var landmarkCount = fromLandmarks.length;
+        var minFromLandmarks = new double[landmarkCount];
+        var maxToLandmarks = new double[landmarkCount];
+        for (int i = 0; i < landmarkCount; i++) {
+            minFromLandmarks[i] = Double.POSITIVE_INFINITY;
+            for (var goal : goals) {
+                minFromLandmarks[i] = Math.min(minFromLandmarks[i], fromLandmarks[i][goal]);
+                maxToLandmarks[i] = Math.max(maxToLandmarks[i], toLandmarks[i][goal]);
+            }
+        }
+
+        return id -> {
+            var bound = 0.0;
+            for (int i = 0; i < landmarkCount; i++) {
+                var fromLandmark = fromLandmarks[i][id];
+                // if the landmark reaches x but no goal, x can't reach any goal either
+                if (Double.isFinite(fromLandmark))
+                    bound = Math.max(bound, minFromLandmarks[i] - fromLandmark);
+
+                // if all goals reach the landmark but x doesn't, x can't reach any goal either
+                if (Double.isFinite(maxToLandmarks[i]))
+                    bound = Math.max(bound, toLandmarks[i][id] - maxToLandmarks[i]);
+            }
+            return bound;
+        };
+    }
+}
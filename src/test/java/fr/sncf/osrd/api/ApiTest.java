@@ -1,6 +1,6 @@
 package fr.sncf.osrd.api;
 
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.lenient;
 
 import fr.sncf.osrd.Helpers;
 import fr.sncf.osrd.config.JsonConfig;
@@ -18,11 +18,16 @@ public class ApiTest {
     @Mock
     static InfraHandler infraHandlerMock;
 
+    static PathfindingCache.Metrics pathfindingMetrics;
+
     /** Setup infra handler mock */
     @BeforeEach
     public void setUp() throws InvalidInfraException, IOException {
         final var infra = "tiny_infra/infra.json";
         var tinyInfra = Infra.parseFromFile(JsonConfig.InfraType.UNKNOWN, Helpers.getResourcePath(infra).toString());
-        when(infraHandlerMock.load(infra)).thenReturn(tinyInfra);
+        lenient().when(infraHandlerMock.load(infra, null)).thenReturn(tinyInfra);
+        pathfindingMetrics = new PathfindingCache.Metrics();
+        lenient().when(infraHandlerMock.getPathfindingCache(infra, tinyInfra))
+                .thenReturn(new PathfindingCache(PathfindingCache.DEFAULT_MAX_ENTRIES, pathfindingMetrics));
     }
 }
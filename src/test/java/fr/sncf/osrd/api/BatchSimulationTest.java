@@ -0,0 +1,92 @@
+package fr.sncf.osrd.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import fr.sncf.osrd.api.BatchSimulation.Scenario;
+import fr.sncf.osrd.api.BatchSimulation.ScenarioResult;
+import fr.sncf.osrd.api.BatchSimulationEndpoint.BatchSimulationRequest;
+import fr.sncf.osrd.railjson.schema.RJSSimulation;
+import fr.sncf.osrd.utils.moshi.MoshiUtils;
+import org.junit.jupiter.api.Test;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BatchSimulationTest extends ApiTest {
+    private static final JsonAdapter<List<ScenarioResult>> adapterResults = new Moshi
+            .Builder()
+            .add(SimulationEndpoint.SimulationResultChange.adapter)
+            .build()
+            .adapter(Types.newParameterizedType(List.class, ScenarioResult.class));
+
+    @Test
+    public void parallelScenarios() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        var simulationPath = classLoader.getResource("tiny_infra/simulation.json");
+        assert simulationPath != null;
+        var rjsSimulation = MoshiUtils.deserialize(RJSSimulation.adapter, Paths.get(simulationPath.toURI()));
+
+        // run the scenario alone, as a reference
+        var requestBody = SimulationEndpoint.adapterRequest.toJson(new SimulationEndpoint.SimulationRequest(
+                "tiny_infra/infra.json",
+                rjsSimulation.rollingStocks,
+                rjsSimulation.trainSchedules
+        ));
+        var result = new RsPrint(
+                new SimulationEndpoint(infraHandlerMock).act(new RqFake("POST", "/simulation", requestBody))
+        ).printBody();
+        var expectedChanges = SimulationEndpoint.adapterResult.fromJson(result);
+        assert expectedChanges != null;
+
+        // run many copies of the same scenario in parallel, along with a broken one
+        final var scenarioCount = 16;
+        var scenarios = new ArrayList<Scenario>();
+        for (int i = 0; i < scenarioCount; i++)
+            scenarios.add(new Scenario(
+                    String.format("copy-%d", i), rjsSimulation.rollingStocks, rjsSimulation.trainSchedules, null));
+        scenarios.add(new Scenario("broken", new ArrayList<>(), rjsSimulation.trainSchedules, null));
+
+        var pool = new ForkJoinPool(4);
+        try {
+            var batchRequestBody = BatchSimulationEndpoint.adapterRequest.toJson(
+                    new BatchSimulationRequest("tiny_infra/infra.json", scenarios));
+            var batchResult = new RsPrint(new BatchSimulationEndpoint(infraHandlerMock, pool)
+                    .act(new RqFake("POST", "/simulation/batch", batchRequestBody))
+            ).printBody();
+
+            var scenarioResults = adapterResults.fromJson(batchResult);
+            assert scenarioResults != null;
+            assertEquals(scenarios.size(), scenarioResults.size());
+
+            var seenIndexes = new HashSet<Integer>();
+            for (var scenarioResult : scenarioResults) {
+                seenIndexes.add(scenarioResult.index);
+                assertEquals(scenarios.get(scenarioResult.index).id, scenarioResult.scenario);
+                if (scenarioResult.index == scenarioCount) {
+                    assertNotNull(scenarioResult.error);
+                    assertNull(scenarioResult.changes);
+                    continue;
+                }
+
+                // simulations sharing the infrastructure must not interfere with each other
+                assertNull(scenarioResult.error);
+                assertEquals(expectedChanges.length, scenarioResult.changes.length);
+                for (int i = 0; i < expectedChanges.length; i++)
+                    assertEquals(expectedChanges[i].time, scenarioResult.changes[i].time);
+            }
+            assertEquals(scenarios.size(), seenIndexes.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package fr.sncf.osrd.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import fr.sncf.osrd.Helpers;
+import fr.sncf.osrd.config.JsonConfig;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.takes.http.FtRemote;
+import org.takes.rs.RsWithBody;
+import org.takes.rs.RsWithHeader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InfraCacheTest {
+    private static Infra tinyInfra;
+
+    @BeforeAll
+    static void loadInfra() throws IOException, InvalidInfraException {
+        var path = Helpers.getResourcePath("tiny_infra/infra.json").toString();
+        tinyInfra = Infra.parseFromFile(JsonConfig.InfraType.RAILJSON, path);
+    }
+
+    private static void load(InfraCache cache, String infraId) throws Exception {
+        var lookup = cache.lookup(infraId, () -> new InfraCache.VersionedInfra(tinyInfra, null));
+        if (!lookup.mustLoad)
+            return;
+        lookup.entry.task.run();
+        cache.loaded(lookup.entry, lookup.entry.task.get().infra);
+    }
+
+    @Test
+    public void lruEviction() throws Exception {
+        var cache = new InfraCache(2, Long.MAX_VALUE, InfraCache.EvictionPolicy.LRU);
+        load(cache, "a");
+        load(cache, "b");
+        load(cache, "a");
+        load(cache, "c");
+
+        var stats = cache.getStats();
+        assertEquals(1, stats.evictions);
+        assertEquals(1, stats.hits);
+        assertEquals(3, stats.misses);
+        assertTrue(stats.infras.contains("a"));
+        assertFalse(stats.infras.contains("b"));
+    }
+
+    @Test
+    public void lfuEviction() throws Exception {
+        var cache = new InfraCache(2, Long.MAX_VALUE, InfraCache.EvictionPolicy.LFU);
+        load(cache, "a");
+        load(cache, "a");
+        load(cache, "b");
+        load(cache, "c");
+
+        var stats = cache.getStats();
+        assertEquals(1, stats.evictions);
+        assertTrue(stats.infras.contains("a"));
+        assertFalse(stats.infras.contains("b"));
+    }
+
+    @Test
+    public void memoryBudget() throws Exception {
+        var infraSize = InfraCache.estimateRetainedSize(tinyInfra);
+        var cache = new InfraCache(10, infraSize * 2, InfraCache.EvictionPolicy.LRU);
+        load(cache, "a");
+        load(cache, "b");
+        load(cache, "c");
+
+        var stats = cache.getStats();
+        assertEquals(2, stats.infras.size());
+        assertEquals(infraSize * 2, stats.estimatedBytes);
+    }
+
+    @Test
+    public void pathfindingCacheFollowsInfra() throws Exception {
+        var cache = new InfraCache(2, Long.MAX_VALUE, InfraCache.EvictionPolicy.LRU, 1);
+        load(cache, "a");
+        var pathfindingCache = cache.getPathfindingCache("a", tinyInfra);
+        assertNotNull(pathfindingCache);
+        assertNull(cache.getPathfindingCache("b", tinyInfra));
+
+        pathfindingCache.putResult("x", "result x");
+        assertEquals("result x", pathfindingCache.getResult("x"));
+        pathfindingCache.putResult("y", "result y");
+        assertNull(pathfindingCache.getResult("x"));
+
+        var stats = cache.getStats().pathfinding;
+        assertEquals(1, stats.resultHits);
+        assertEquals(1, stats.resultMisses);
+        assertEquals(0.5, stats.resultHitRate);
+
+        // results go away with the infra
+        cache.invalidate("a");
+        assertNull(cache.getPathfindingCache("a", tinyInfra));
+        load(cache, "a");
+        assertNotSame(pathfindingCache, cache.getPathfindingCache("a", tinyInfra));
+    }
+
+    @Test
+    public void versionedInvalidation() throws Exception {
+        var infraJson = Files.readAllBytes(Helpers.getResourcePath("tiny_infra/infra.json"));
+        var queryCount = new AtomicInteger();
+
+        new FtRemote(req -> {
+            var version = queryCount.incrementAndGet();
+            return new RsWithHeader(new RsWithBody(infraJson), "ETag", String.valueOf(version));
+        }).exec(home -> {
+            var handler = new InfraHandler(home + "/", null);
+            var first = handler.load("tiny", "1");
+            assertSame(first, handler.load("tiny"));
+            assertSame(first, handler.load("tiny", "1"));
+            assertNotSame(first, handler.load("tiny", "2"));
+            assertEquals(1, handler.getCache().getStats().invalidations);
+        });
+        assertEquals(2, queryCount.get());
+    }
+}
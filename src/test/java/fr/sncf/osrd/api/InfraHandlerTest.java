@@ -1,9 +1,20 @@
 package fr.sncf.osrd.api;
 
+import fr.sncf.osrd.Helpers;
+import fr.sncf.osrd.infra.Infra;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.takes.http.FtRemote;
+import org.takes.rs.RsWithBody;
+import org.takes.rs.RsWithHeader;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InfraHandlerTest {
     @Test
@@ -13,4 +24,77 @@ public class InfraHandlerTest {
             handler.load("invalid");
         });
     }
+
+    @Test
+    public void concurrentLoadsFetchOnce() throws Exception {
+        var infraJson = Files.readAllBytes(Helpers.getResourcePath("tiny_infra/infra.json"));
+        var queryCount = new AtomicInteger();
+        var threadCount = 8;
+        var startLatch = new CountDownLatch(1);
+
+        new FtRemote(req -> {
+            queryCount.incrementAndGet();
+            return new RsWithBody(infraJson);
+        }).exec(home -> {
+            var handler = new InfraHandler(home + "/", null);
+            var pool = Executors.newFixedThreadPool(threadCount);
+            try {
+                var futures = new ArrayList<Future<Infra>>();
+                for (int i = 0; i < threadCount; i++) {
+                    futures.add(pool.submit(() -> {
+                        startLatch.await();
+                        return handler.load("tiny");
+                    }));
+                }
+                startLatch.countDown();
+
+                var firstInfra = futures.get(0).get();
+                for (var future : futures)
+                    Assertions.assertSame(firstInfra, future.get());
+            } finally {
+                pool.shutdown();
+            }
+        });
+        Assertions.assertEquals(1, queryCount.get());
+    }
+
+    @Test
+    public void unservedVersionsAreDownloadedOnce() throws Exception {
+        var infraJson = Files.readAllBytes(Helpers.getResourcePath("tiny_infra/infra.json"));
+        var downloadCount = new AtomicInteger();
+
+        // the middleware never serves the version the requests expect
+        new FtRemote(req -> {
+            downloadCount.incrementAndGet();
+            return new RsWithHeader(new RsWithBody(infraJson), "ETag", "\"v2\"");
+        }).exec(home -> {
+            var handler = new InfraHandler(home + "/", null);
+            var infra = handler.load("tiny", "v1");
+            Assertions.assertSame(infra, handler.load("tiny", "v1"));
+            Assertions.assertSame(infra, handler.load("tiny", "v1"));
+            Assertions.assertEquals(0, handler.getCache().getStats().invalidations);
+        });
+        Assertions.assertEquals(1, downloadCount.get());
+    }
+
+    @Test
+    public void versionsAreNormalized() throws Exception {
+        var infraJson = Files.readAllBytes(Helpers.getResourcePath("tiny_infra/infra.json"));
+        var downloadCount = new AtomicInteger();
+
+        new FtRemote(req -> {
+            downloadCount.incrementAndGet();
+            return new RsWithHeader(new RsWithBody(infraJson), "ETag", "W/\"v1\"");
+        }).exec(home -> {
+            var handler = new InfraHandler(home + "/", null);
+            var infra = handler.load("tiny");
+            Assertions.assertSame(infra, handler.load("tiny", "v1"));
+            Assertions.assertSame(infra, handler.load("tiny", "\"v1\""));
+            Assertions.assertSame(infra, handler.load("tiny", "W/\"v1\""));
+        });
+        Assertions.assertEquals(1, downloadCount.get());
+        Assertions.assertNull(InfraHandler.normalizeVersion(null));
+        Assertions.assertEquals("\"", InfraHandler.normalizeVersion("\""));
+    }
+
 }
@@ -1,12 +1,17 @@
 package fr.sncf.osrd.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
 
 import fr.sncf.osrd.utils.graph.EdgeDirection;
 import org.junit.jupiter.api.Test;
 import org.takes.rq.RqFake;
 import org.takes.rs.RsPrint;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class PathfindingTest extends ApiTest {
     @Test
     public void simpleRoutes() throws Exception {
@@ -47,6 +52,109 @@ public class PathfindingTest extends ApiTest {
         assertEquals("op.station_bar", response.steps.get(1).name);
     }
 
+    @Test
+    public void preprocessedRoutesMatch() throws Exception {
+        var waypoints = new PathfindingEndpoint.PathfindingWaypoint[][] {
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.foo_b", 100, EdgeDirection.START_TO_STOP) },
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.foo_a", 50, EdgeDirection.START_TO_STOP) },
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.bar_a", 100, EdgeDirection.START_TO_STOP) },
+        };
+        var requestBody = PathfindingEndpoint.adapterRequest.toJson(
+                new PathfindingEndpoint.PathfindingRequest(waypoints, "tiny_infra/infra.json"));
+        var endpoint = new PathfindingRoutesEndpoint(infraHandlerMock);
+        var expected = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/routes", requestBody))).printBody();
+
+        // once the route graph is preprocessed, the same path must be found, without using cached results
+        var infra = infraHandlerMock.load("tiny_infra/infra.json", null);
+        infra.routeGraph.buildContractionHierarchy();
+        when(infraHandlerMock.getPathfindingCache("tiny_infra/infra.json", infra))
+                .thenReturn(new PathfindingCache(PathfindingCache.DEFAULT_MAX_ENTRIES, pathfindingMetrics));
+        var result = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/routes", requestBody))).printBody();
+        assertEquals(expected, result);
+    }
+
+    private static String pathfindingRequest(String startTrack, String endTrack) {
+        var waypoints = new PathfindingEndpoint.PathfindingWaypoint[][] {
+                { new PathfindingEndpoint.PathfindingWaypoint(startTrack, 100, EdgeDirection.START_TO_STOP) },
+                { new PathfindingEndpoint.PathfindingWaypoint(endTrack, 100, EdgeDirection.START_TO_STOP) },
+        };
+        return PathfindingEndpoint.adapterRequest.toJson(
+                new PathfindingEndpoint.PathfindingRequest(waypoints, "tiny_infra/infra.json"));
+    }
+
+    @Test
+    public void cachedRoutes() throws Exception {
+        var endpoint = new PathfindingRoutesEndpoint(infraHandlerMock);
+        var request = pathfindingRequest("ne.micro.foo_b", "ne.micro.bar_a");
+        var expected = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/routes", request))).printBody();
+        assertEquals(0, pathfindingMetrics.resultHits.get());
+        assertEquals(1, pathfindingMetrics.resultMisses.get());
+
+        // the same request gets the cached response
+        var result = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/routes", request))).printBody();
+        assertEquals(expected, result);
+        assertEquals(1, pathfindingMetrics.resultHits.get());
+        assertEquals(1, pathfindingMetrics.resultMisses.get());
+
+        // another request doesn't
+        var otherRequest = pathfindingRequest("ne.micro.foo_b", "ne.micro.foo_a");
+        var otherResult = new RsPrint(
+                endpoint.act(new RqFake("POST", "/pathfinding/routes", otherRequest))).printBody();
+        assertNotEquals(expected, otherResult);
+        assertEquals(1, pathfindingMetrics.resultHits.get());
+        assertEquals(2, pathfindingMetrics.resultMisses.get());
+    }
+
+    @Test
+    public void cachedTracks() throws Exception {
+        var endpoint = new PathfindingTracksEndpoint(infraHandlerMock);
+        var request = pathfindingRequest("ne.micro.foo_b", "ne.micro.bar_a");
+        var expected = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/tracks", request))).printBody();
+        assertEquals(0, pathfindingMetrics.resultHits.get());
+        assertEquals(1, pathfindingMetrics.resultMisses.get());
+
+        var result = new RsPrint(endpoint.act(new RqFake("POST", "/pathfinding/tracks", request))).printBody();
+        assertEquals(expected, result);
+        assertEquals(1, pathfindingMetrics.resultHits.get());
+
+        // routes and tracks don't share cached results
+        new RsPrint(new PathfindingRoutesEndpoint(infraHandlerMock).act(
+                new RqFake("POST", "/pathfinding/routes", request))).printBody();
+        assertEquals(1, pathfindingMetrics.resultHits.get());
+        assertEquals(2, pathfindingMetrics.resultMisses.get());
+
+        var otherRequest = pathfindingRequest("ne.micro.foo_b", "ne.micro.foo_a");
+        var otherResult = new RsPrint(
+                endpoint.act(new RqFake("POST", "/pathfinding/tracks", otherRequest))).printBody();
+        assertNotEquals(expected, otherResult);
+        assertEquals(1, pathfindingMetrics.resultHits.get());
+        assertEquals(3, pathfindingMetrics.resultMisses.get());
+    }
+
+    @Test
+    public void distanceMatrix() throws Exception {
+        var sources = new PathfindingEndpoint.PathfindingWaypoint[][] {
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.foo_b", 100, EdgeDirection.START_TO_STOP) },
+        };
+        var targets = new PathfindingEndpoint.PathfindingWaypoint[][] {
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.foo_b", 100, EdgeDirection.START_TO_STOP) },
+                { new PathfindingEndpoint.PathfindingWaypoint("ne.micro.bar_a", 100, EdgeDirection.START_TO_STOP) },
+        };
+        var requestBody = PathfindingMatrixEndpoint.adapterRequest.toJson(
+                new PathfindingMatrixEndpoint.MatrixRequest(sources, targets, "tiny_infra/infra.json", null, true));
+
+        var result = new RsPrint(
+                new PathfindingMatrixEndpoint(infraHandlerMock, ForkJoinPool.commonPool()).act(
+                        new RqFake("POST", "/pathfinding/matrix", requestBody))
+        ).printBody();
+
+        var response = PathfindingMatrixEndpoint.adapterResult.fromJson(result);
+        assert response != null;
+        assertEquals(0, response.distances[0][0], 1e-6);
+        assertTrue(response.distances[0][1] > 0);
+        assertTrue(response.routes[0][1].length > 0);
+    }
+
     @Test
     public void simpleTracks() throws Exception {
         var waypointStart = new PathfindingEndpoint.PathfindingWaypoint(
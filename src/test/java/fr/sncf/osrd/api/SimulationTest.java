@@ -1,16 +1,21 @@
 package fr.sncf.osrd.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import fr.sncf.osrd.api.SimulationEndpoint.SimulationResultChange.ResponseStopReachedUpdate;
+import fr.sncf.osrd.api.SimulationEndpoint.SimulationResultChange.ResponseTrainLocationUpdate;
 import fr.sncf.osrd.railjson.schema.RJSSimulation;
 import fr.sncf.osrd.utils.moshi.MoshiUtils;
+import okio.Buffer;
 import org.junit.jupiter.api.Test;
 import org.takes.rq.RqFake;
 import org.takes.rs.RsPrint;
 
+import java.io.EOFException;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.List;
 
 public class SimulationTest extends ApiTest {
     @Test
@@ -59,4 +64,132 @@ public class SimulationTest extends ApiTest {
                 .count();
         assertEquals(1, nPhaseEnd);
     }
+
+    @Test
+    public void streamed() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        var simulationPath = classLoader.getResource("tiny_infra/simulation.json");
+        assert simulationPath != null;
+
+        var rjsSimulation = MoshiUtils.deserialize(RJSSimulation.adapter, Paths.get(simulationPath.toURI()));
+        var requestBody = SimulationEndpoint.adapterRequest.toJson(new SimulationEndpoint.SimulationRequest(
+                "tiny_infra/infra.json",
+                rjsSimulation.rollingStocks,
+                rjsSimulation.trainSchedules
+        ));
+        var endpoint = new SimulationEndpoint(infraHandlerMock);
+        var result = new RsPrint(
+                endpoint.act(new RqFake("POST", "/simulation", requestBody))
+        ).printBody();
+        var streamedResult = new RsPrint(
+                endpoint.act(new RqFake("POST", "/simulation?stream=true", requestBody))
+        ).printBody();
+
+        var simResultChanges = SimulationEndpoint.adapterResult.fromJson(result);
+        var streamedResultChanges = SimulationEndpoint.adapterResult.fromJson(streamedResult);
+        assert simResultChanges != null;
+        assert streamedResultChanges != null;
+        assertEquals(simResultChanges.length, streamedResultChanges.length);
+        for (int i = 1; i < streamedResultChanges.length; i++)
+            assert streamedResultChanges[i - 1].time <= streamedResultChanges[i].time;
+    }
+
+    @Test
+    public void compactCannotBeStreamed() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        var simulationPath = classLoader.getResource("tiny_infra/simulation.json");
+        assert simulationPath != null;
+
+        var rjsSimulation = MoshiUtils.deserialize(RJSSimulation.adapter, Paths.get(simulationPath.toURI()));
+        var requestBody = SimulationEndpoint.adapterRequest.toJson(new SimulationEndpoint.SimulationRequest(
+                "tiny_infra/infra.json",
+                rjsSimulation.rollingStocks,
+                rjsSimulation.trainSchedules
+        ));
+        var response = new SimulationEndpoint(infraHandlerMock).act(new RqFake(
+                List.of("POST /simulation?stream=true HTTP/1.1", "Accept: " + CompactResultLog.MEDIA_TYPE),
+                requestBody
+        ));
+        assertEquals("HTTP/1.1 400 Bad Request", response.head().iterator().next());
+    }
+
+    private static long readVarLong(Buffer buffer) throws EOFException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = buffer.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    private static String readString(Buffer buffer) throws EOFException {
+        return buffer.readUtf8(readVarLong(buffer));
+    }
+
+    @Test
+    public void compactTrajectories() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        var simulationPath = classLoader.getResource("tiny_infra/simulation.json");
+        assert simulationPath != null;
+
+        var rjsSimulation = MoshiUtils.deserialize(RJSSimulation.adapter, Paths.get(simulationPath.toURI()));
+        var requestBody = SimulationEndpoint.adapterRequest.toJson(new SimulationEndpoint.SimulationRequest(
+                "tiny_infra/infra.json",
+                rjsSimulation.rollingStocks,
+                rjsSimulation.trainSchedules
+        ));
+        var endpoint = new SimulationEndpoint(infraHandlerMock);
+        var result = new RsPrint(
+                endpoint.act(new RqFake("POST", "/simulation", requestBody))
+        ).printBody();
+        var simResultChanges = SimulationEndpoint.adapterResult.fromJson(result);
+        assert simResultChanges != null;
+        final var locationUpdateCount = Arrays.stream(simResultChanges)
+                .filter(change -> change instanceof ResponseTrainLocationUpdate)
+                .count();
+
+        var compactResponse = endpoint.act(new RqFake(
+                List.of("POST /simulation HTTP/1.1", "Accept: " + CompactResultLog.MEDIA_TYPE),
+                requestBody
+        ));
+        var buffer = new Buffer();
+        buffer.readFrom(compactResponse.body());
+
+        assertEquals("OSRDTRAJ", buffer.readUtf8(8));
+        assertEquals(1, buffer.readByte());
+        var trackCount = readVarLong(buffer);
+        for (int i = 0; i < trackCount; i++)
+            readString(buffer);
+
+        var trainCount = readVarLong(buffer);
+        assertEquals(rjsSimulation.trainSchedules.size(), trainCount);
+        long compactUpdateCount = 0;
+        for (int i = 0; i < trainCount; i++) {
+            readString(buffer);
+            buffer.readLong();
+            var rangeCount = readVarLong(buffer);
+            for (int j = 0; j < rangeCount; j++) {
+                assert readVarLong(buffer) < trackCount;
+                buffer.readByte();
+                buffer.readLong();
+                buffer.readLong();
+            }
+            var updateCount = readVarLong(buffer);
+            compactUpdateCount += updateCount;
+            // time deltas can't be negative
+            for (int j = 0; j < updateCount; j++) {
+                var zigzag = readVarLong(buffer);
+                assert (zigzag & 1) == 0;
+            }
+            for (int j = 0; j < 2 * updateCount; j++)
+                readVarLong(buffer);
+        }
+        assertEquals(locationUpdateCount, compactUpdateCount);
+
+        var otherChanges = SimulationEndpoint.adapterResult.fromJson(readString(buffer));
+        assert otherChanges != null;
+        assertEquals(simResultChanges.length - locationUpdateCount, otherChanges.length);
+        assertTrue(buffer.exhausted());
+    }
 }
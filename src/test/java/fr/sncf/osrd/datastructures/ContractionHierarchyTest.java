@@ -0,0 +1,111 @@
+package fr.sncf.osrd.datastructures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.datastructures.RandomGraph.RandomEdge;
+import fr.sncf.osrd.utils.graph.ContractionHierarchy;
+import fr.sncf.osrd.utils.graph.Dijkstra;
+import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+import fr.sncf.osrd.utils.graph.path.FullPathArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ContractionHierarchyTest {
+    private static double randomLength(Random random, int start, int end) {
+        // some lengths are equal, so that there are several shortest paths
+        return 1 + random.nextInt(20);
+    }
+
+    private static BasicPathNode<RandomEdge> findDijkstraPath(
+            RandomGraph graph,
+            List<BasicPathNode<RandomEdge>> startingPoints,
+            List<ContractionHierarchy.Goal<RandomEdge>> goals
+    ) {
+        var costFunction = new DistCostFunction<RandomEdge>();
+        var res = new ArrayList<BasicPathNode<RandomEdge>>();
+        Dijkstra.findPaths(graph, Dijkstra.makePriorityQueue(startingPoints), costFunction,
+                (pathNode) -> {
+                    for (var goal : goals) {
+                        if (goal.edge != pathNode.edge)
+                            continue;
+                        return pathNode.end(goal.cost - pathNode.position, goal.edge, goal.position);
+                    }
+                    return null;
+                },
+                (pathToGoal) -> {
+                    res.add(pathToGoal);
+                    return false;
+                });
+        return res.isEmpty() ? null : res.get(0);
+    }
+
+    /** Checks that a path goes through successive edges, and that its cost is their length */
+    private static void checkPath(
+            RandomGraph graph,
+            BasicPathNode<RandomEdge> path,
+            List<BasicPathNode<RandomEdge>> startingPoints,
+            List<ContractionHierarchy.Goal<RandomEdge>> goals
+    ) {
+        var nodes = FullPathArray.from(path).pathNodes;
+        var start = nodes.get(0);
+        assertTrue(startingPoints.contains(start));
+        var end = nodes.get(nodes.size() - 1);
+        var goal = goals.stream().filter(g -> g.edge == end.edge).findFirst().orElseThrow();
+
+        var cost = goal.cost - start.position;
+        for (int i = 1; i < nodes.size() - 1; i++) {
+            var previousEdge = nodes.get(i - 1).edge;
+            assertTrue(graph.getNeighbors(previousEdge).contains(nodes.get(i).edge));
+            cost += previousEdge.length;
+        }
+        assertEquals(cost, path.cost, 1e-6);
+    }
+
+    @Test
+    public void findsShortestPaths() {
+        var foundPaths = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            var random = new Random(seed);
+            var graph = new RandomGraph(random, 40, 100, ContractionHierarchyTest::randomLength);
+            var contractionHierarchy = ContractionHierarchy.from(graph);
+            for (int i = 0; i < 200; i++) {
+                var startingPoints = new ArrayList<BasicPathNode<RandomEdge>>();
+                for (int j = 0; j < 1 + random.nextInt(2); j++) {
+                    var edge = graph.getEdge(random.nextInt(graph.getEdgeCount()));
+                    // Dijkstra only explores edges from the first position they're reached at
+                    if (startingPoints.stream().anyMatch(startingPoint -> startingPoint.edge == edge))
+                        continue;
+                    startingPoints.add(new BasicPathNode<>(edge, edge.length * random.nextDouble()));
+                }
+                var goals = new ArrayList<ContractionHierarchy.Goal<RandomEdge>>();
+                for (int j = 0; j < 1 + random.nextInt(2); j++) {
+                    var edge = graph.getEdge(random.nextInt(graph.getEdgeCount()));
+                    goals.add(new ContractionHierarchy.Goal<>(edge, 0, edge.length));
+                }
+
+                var expected = findDijkstraPath(graph, startingPoints, goals);
+                var path = contractionHierarchy.findPath(startingPoints, goals);
+                if (expected == null) {
+                    assertNull(path);
+                    continue;
+                }
+                foundPaths++;
+                checkPath(graph, path, startingPoints, goals);
+                assertEquals(expected.cost, path.cost, 1e-6);
+            }
+        }
+        assertTrue(foundPaths > 0);
+    }
+
+    @Test
+    public void addsShortcuts() {
+        var graph = new RandomGraph(new Random(0), 100, 400, ContractionHierarchyTest::randomLength);
+        assertTrue(ContractionHierarchy.from(graph).getShortcutCount() > 0);
+    }
+}
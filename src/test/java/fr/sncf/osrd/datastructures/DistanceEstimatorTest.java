@@ -0,0 +1,108 @@
+package fr.sncf.osrd.datastructures;
+
+import static fr.sncf.osrd.Helpers.getBaseInfra;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.datastructures.RandomGraph.RandomEdge;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.utils.graph.Dijkstra;
+import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import fr.sncf.osrd.utils.graph.GeoDistanceEstimator;
+import fr.sncf.osrd.utils.graph.LandmarkDistanceEstimator;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+public class DistanceEstimatorTest {
+    private static double[][] randomPoints(Random random, int pointCount, boolean geographic) {
+        var points = new double[pointCount][];
+        for (int i = 0; i < pointCount; i++) {
+            if (geographic)
+                points[i] = new double[] { 2 + random.nextDouble(), 48 + random.nextDouble() };
+            else
+                points[i] = new double[] { 1000 * random.nextDouble(), 1000 * random.nextDouble() };
+        }
+        return points;
+    }
+
+    /** A random graph between points, where edges are somewhat longer than the distance between their ends */
+    private static RandomGraph makePointGraph(Random random, double[][] points, int edgeCount, boolean geographic) {
+        return new RandomGraph(random, points.length, edgeCount, (r, start, end) -> {
+            var dx = points[end][0] - points[start][0];
+            var dy = points[end][1] - points[start][1];
+            // geographic coordinates are roughly converted to meters, so that lengths are plausible
+            var scale = geographic ? 100_000 : 1;
+            return scale * Math.sqrt(dx * dx + dy * dy) * (1 + r.nextDouble());
+        });
+    }
+
+    private static double findPathCost(
+            RandomGraph graph,
+            PriorityQueue<BasicPathNode<RandomEdge>> queue,
+            RandomEdge start,
+            RandomEdge goal
+    ) {
+        queue.add(new BasicPathNode<>(start, 0));
+        var res = new ArrayList<BasicPathNode<RandomEdge>>();
+        Dijkstra.findPaths(graph, queue, new DistCostFunction<>(),
+                (pathNode) -> pathNode.edge == goal ? pathNode.end(0, goal, 0) : null,
+                (pathToGoal) -> {
+                    res.add(pathToGoal);
+                    return false;
+                });
+        return res.isEmpty() ? Double.POSITIVE_INFINITY : res.get(0).cost;
+    }
+
+    private static void checkShortestPaths(RandomGraph graph, DistanceEstimator<RandomEdge> estimator) {
+        var foundPaths = 0;
+        for (var start : graph.iterEdges()) {
+            for (var goal : graph.iterEdges()) {
+                var expected = findPathCost(graph, Dijkstra.makePriorityQueue(), start, goal);
+                var heuristic = estimator.towards(new int[] {
+                        DistanceEstimator.getGoalID(goal, EdgeDirection.START_TO_STOP)
+                });
+                var cost = findPathCost(graph, Dijkstra.makePriorityQueue(heuristic), start, goal);
+                assertEquals(expected, cost, 1e-6);
+                if (Double.isFinite(cost))
+                    foundPaths++;
+            }
+        }
+        assertTrue(foundPaths > 0);
+    }
+
+    @Test
+    public void coordinatesFindShortestPaths() {
+        for (int seed = 0; seed < 10; seed++) {
+            for (var geographic : new boolean[] { false, true }) {
+                var random = new Random(seed);
+                var points = randomPoints(random, 30, geographic);
+                var graph = makePointGraph(random, points, 90, geographic);
+                var estimator = GeoDistanceEstimator.from(graph, (edge, direction) -> points[edge.start]);
+                checkShortestPaths(graph, estimator);
+            }
+        }
+    }
+
+    @Test
+    public void landmarksFindShortestPaths() {
+        for (int seed = 0; seed < 10; seed++) {
+            var random = new Random(seed);
+            var graph = makePointGraph(random, randomPoints(random, 30, false), 90, false);
+            checkShortestPaths(graph, LandmarkDistanceEstimator.from(graph, 4));
+        }
+    }
+
+    @Test
+    public void landmarksWithoutCoordinates() throws InvalidInfraException {
+        var infra = RailJSONParser.parse(getBaseInfra());
+        assertEquals(LandmarkDistanceEstimator.class, infra.routeGraph.getDistanceEstimator().getClass());
+        assertEquals(LandmarkDistanceEstimator.class, infra.trackGraph.getDistanceEstimator().getClass());
+    }
+}
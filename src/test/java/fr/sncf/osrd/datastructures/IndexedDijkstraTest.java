@@ -0,0 +1,70 @@
+package fr.sncf.osrd.datastructures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.datastructures.RandomGraph.RandomEdge;
+import fr.sncf.osrd.utils.graph.Dijkstra;
+import fr.sncf.osrd.utils.graph.DistCostFunction;
+import fr.sncf.osrd.utils.graph.DistanceEstimator;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import fr.sncf.osrd.utils.graph.LandmarkDistanceEstimator;
+import fr.sncf.osrd.utils.graph.path.BasicPathNode;
+import fr.sncf.osrd.utils.graph.path.FullPathArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IndexedDijkstraTest {
+    @Test
+    public void matchesDijkstra() {
+        var costFunction = new DistCostFunction<RandomEdge>();
+        var foundPaths = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            var random = new Random(seed);
+            var graph = new RandomGraph(random, 40, 100, (r, start, end) -> 1 + 100 * r.nextDouble());
+            var distanceEstimator = LandmarkDistanceEstimator.from(graph, 2);
+            for (int i = 0; i < 100; i++) {
+                var startEdge = graph.getEdge(random.nextInt(graph.getEdgeCount()));
+                var startingPoints = List.of(new BasicPathNode<>(startEdge, startEdge.length * random.nextDouble()));
+                var goalEdge = graph.getEdge(random.nextInt(graph.getEdgeCount()));
+                var goalPosition = goalEdge.length * random.nextDouble();
+                var goals = new int[] { DistanceEstimator.getGoalID(goalEdge, EdgeDirection.START_TO_STOP) };
+                Dijkstra.GoalChecker<RandomEdge> goalChecker = (pathNode) -> {
+                    if (pathNode.edge != goalEdge || pathNode.position > goalPosition)
+                        return null;
+                    var addedCost = costFunction.evaluate(goalEdge, pathNode.position, goalPosition);
+                    return pathNode.end(addedCost, goalEdge, goalPosition);
+                };
+
+                var expectedPaths = new ArrayList<BasicPathNode<RandomEdge>>();
+                Dijkstra.findPaths(graph, Dijkstra.makePriorityQueue(startingPoints), costFunction, goalChecker,
+                        (pathToGoal) -> {
+                            expectedPaths.add(pathToGoal);
+                            return false;
+                        });
+                var path = Dijkstra.findPath(graph, startingPoints, null, goals, goalChecker);
+                var guidedPath = Dijkstra.findPath(
+                        graph, startingPoints, distanceEstimator.towards(goals), goals, goalChecker);
+                if (expectedPaths.isEmpty()) {
+                    assertNull(path);
+                    assertNull(guidedPath);
+                    continue;
+                }
+                foundPaths++;
+                var expectedCost = expectedPaths.get(0).cost;
+                assertEquals(expectedCost, path.cost, 1e-6);
+                assertEquals(expectedCost, guidedPath.cost, 1e-6);
+
+                // the path must go through successive edges
+                var nodes = FullPathArray.from(path).pathNodes;
+                for (int j = 1; j < nodes.size() - 1; j++)
+                    assertTrue(graph.getNeighbors(nodes.get(j - 1).edge).contains(nodes.get(j).edge));
+            }
+        }
+        assertTrue(foundPaths > 0);
+    }
+}
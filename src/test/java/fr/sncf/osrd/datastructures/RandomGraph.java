@@ -0,0 +1,48 @@
+package fr.sncf.osrd.datastructures;
+
+import fr.sncf.osrd.utils.graph.DirGraph;
+import fr.sncf.osrd.utils.graph.Edge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** A random graph, where edges go from one node to another */
+final class RandomGraph extends DirGraph<RandomGraph.RandomEdge> {
+    static final class RandomEdge extends Edge {
+        final int start;
+        final int end;
+
+        RandomEdge(int index, int start, int end, double length) {
+            super(index, length);
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** Picks the length of an edge, given the nodes it goes from and to */
+    @FunctionalInterface
+    interface LengthGenerator {
+        double generate(Random random, int start, int end);
+    }
+
+    final ArrayList<ArrayList<RandomEdge>> outgoingEdges = new ArrayList<>();
+
+    RandomGraph(Random random, int nodeCount, int edgeCount, LengthGenerator lengthGenerator) {
+        for (int i = 0; i < nodeCount; i++)
+            outgoingEdges.add(new ArrayList<>());
+        for (int i = 0; i < edgeCount; i++) {
+            var start = random.nextInt(nodeCount);
+            var end = random.nextInt(nodeCount);
+            var length = lengthGenerator.generate(random, start, end);
+            var edge = new RandomEdge(nextEdgeIndex(), start, end, length);
+            registerEdge(edge);
+            outgoingEdges.get(start).add(edge);
+        }
+    }
+
+    @Override
+    public List<RandomEdge> getNeighbors(RandomEdge edge) {
+        return outgoingEdges.get(edge.end);
+    }
+}
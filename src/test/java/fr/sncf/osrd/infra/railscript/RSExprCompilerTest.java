@@ -0,0 +1,231 @@
+package fr.sncf.osrd.infra.railscript;
+
+import static fr.sncf.osrd.Helpers.getBaseInfra;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.infra.railscript.value.RSAspectSet;
+import fr.sncf.osrd.infra.railscript.value.RSBool;
+import fr.sncf.osrd.infra.railscript.value.RSType;
+import fr.sncf.osrd.infra.railscript.value.RSValue;
+import fr.sncf.osrd.infra_state.RouteStatus;
+import fr.sncf.osrd.infra.signaling.Aspect;
+import fr.sncf.osrd.infra.trackgraph.SwitchPosition;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.simulation.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class RSExprCompilerTest {
+    private static final int INPUT_COUNT = 4;
+
+    /** Generates random boolean expressions, reserving slots the same way the parser does */
+    private static final class ExprGenerator {
+        private final Random random;
+        private int argSlotCount;
+        private int delaySlotCount = 0;
+
+        ExprGenerator(Random random, int argCount) {
+            this.random = random;
+            this.argSlotCount = argCount;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        RSExpr<RSBool> generate(int depth, int argCount) {
+            var choice = depth == 0 ? random.nextInt(2) : random.nextInt(8);
+            switch (choice) {
+                case 0:
+                    return random.nextBoolean() ? RSExpr.True.INSTANCE : RSExpr.False.INSTANCE;
+                case 1:
+                    if (argCount == 0)
+                        return RSExpr.True.INSTANCE;
+                    return new RSExpr.ArgumentRef<>(random.nextInt(argCount));
+                case 2:
+                    return new RSExpr.Not(generate(depth - 1, argCount));
+                case 3:
+                case 4: {
+                    var operands = (RSExpr<RSBool>[]) new RSExpr<?>[random.nextInt(4)];
+                    for (int i = 0; i < operands.length; i++)
+                        operands[i] = generate(depth - 1, argCount);
+                    return choice == 3 ? new RSExpr.Or(operands) : new RSExpr.And(operands);
+                }
+                case 5:
+                    return new RSExpr.If<>(
+                            generate(depth - 1, argCount),
+                            generate(depth - 1, argCount),
+                            generate(depth - 1, argCount));
+                case 6: {
+                    var delayedExpr = generate(depth - 1, argCount);
+                    var delaySlot = delaySlotCount++;
+                    return new RSExpr.Delay<>(1 + random.nextInt(10), delayedExpr, delaySlot);
+                }
+                default:
+                    return generateCall(depth, argCount);
+            }
+        }
+
+        private RSExpr<RSBool> generateCall(int depth, int argCount) {
+            var functionArgCount = random.nextInt(3);
+            var functionGenerator = new ExprGenerator(random, functionArgCount);
+            var body = functionGenerator.generate(depth - 1, functionArgCount);
+            var argTypes = new RSType[functionArgCount];
+            var argNames = new String[functionArgCount];
+            for (int i = 0; i < functionArgCount; i++) {
+                argTypes[i] = RSType.BOOLEAN;
+                argNames[i] = "arg_" + i;
+            }
+            var function = new RSFunction<>("function", argNames, argTypes, RSType.BOOLEAN, body,
+                    functionGenerator.argSlotCount, functionGenerator.delaySlotCount);
+
+            var args = new RSExpr<?>[functionArgCount];
+            for (int i = 0; i < functionArgCount; i++)
+                args[i] = generate(depth - 1, argCount);
+            var call = new RSExpr.Call<>(function, args, argSlotCount, delaySlotCount);
+            argSlotCount += function.argSlotsCount;
+            delaySlotCount += function.delaySlotsCount;
+            return call;
+        }
+    }
+
+    private static final class RecordingDelayHandler implements RSDelayHandler {
+        final ArrayList<String> plannedUpdates = new ArrayList<>();
+        final ArrayList<Integer> pendingSlots = new ArrayList<>();
+        final ArrayList<RSValue> pendingValues = new ArrayList<>();
+
+        @Override
+        public void planDelayedUpdate(int delaySlot, RSValue value, double delay) {
+            plannedUpdates.add(String.format("%d: %s after %f", delaySlot, value, delay));
+            pendingSlots.add(delaySlot);
+            pendingValues.add(value);
+        }
+    }
+
+    @Test
+    public void compiledMatchesInterpreted() {
+        for (int seed = 0; seed < 300; seed++) {
+            var random = new Random(seed);
+            var generator = new ExprGenerator(random, INPUT_COUNT);
+            var expr = generator.generate(5, INPUT_COUNT);
+
+            var interpreted = new RSExprState<>(expr, RSCompiledExpr.interpreted(expr),
+                    generator.argSlotCount, generator.delaySlotCount);
+            var compiled = new RSExprState<>(expr, generator.argSlotCount, generator.delaySlotCount);
+            var interpretedHandler = new RecordingDelayHandler();
+            var compiledHandler = new RecordingDelayHandler();
+
+            for (int i = 0; i < INPUT_COUNT; i++) {
+                interpreted.setArgValue(i, RSBool.False);
+                compiled.setArgValue(i, RSBool.False);
+            }
+            assertSame(interpreted.evalInit(null), compiled.evalInit(null));
+
+            for (int step = 0; step < 50; step++) {
+                RSBool expected;
+                RSBool result;
+                if (!interpretedHandler.pendingSlots.isEmpty() && random.nextBoolean()) {
+                    var delaySlot = interpretedHandler.pendingSlots.remove(0);
+                    var value = interpretedHandler.pendingValues.remove(0);
+                    compiledHandler.pendingSlots.remove(0);
+                    compiledHandler.pendingValues.remove(0);
+                    expected = interpreted.evalDelayUpdate(null, interpretedHandler, delaySlot, value);
+                    result = compiled.evalDelayUpdate(null, compiledHandler, delaySlot, value);
+                } else {
+                    var input = random.nextInt(INPUT_COUNT);
+                    var value = RSBool.from(random.nextBoolean());
+                    interpreted.setArgValue(input, value);
+                    compiled.setArgValue(input, value);
+                    expected = interpreted.evalInputChange(null, interpretedHandler);
+                    result = compiled.evalInputChange(null, compiledHandler);
+                }
+                assertSame(expected, result, "seed " + seed);
+                assertEquals(interpretedHandler.plannedUpdates, compiledHandler.plannedUpdates, "seed " + seed);
+                assertTrue(interpreted.deepEquals(compiled), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked"})
+    public void equalAspectSetsAreShared() {
+        var green = new Aspect(0, "GREEN", "#00FF00", new ArrayList<>());
+        var red = new Aspect(1, "RED", "#FF0000", new ArrayList<>());
+        var conditions = (RSExpr<RSBool>[]) new RSExpr<?>[] {
+                new RSExpr.ArgumentRef<RSBool>(0),
+                new RSExpr.Not(new RSExpr.ArgumentRef<>(0))
+        };
+        var expr = new RSExpr.AspectSet(new Aspect[] { green, red }, conditions);
+        var state = new RSExprState<>(expr, 1, 0);
+
+        state.setArgValue(0, RSBool.True);
+        var firstGreen = state.evalInit(null);
+        state.setArgValue(0, RSBool.False);
+        var redOnly = state.evalInputChange(null, null);
+        state.setArgValue(0, RSBool.True);
+        var secondGreen = state.evalInputChange(null, null);
+
+        assertTrue(firstGreen.contains(green));
+        assertFalse(redOnly.contains(green));
+        assertSame(firstGreen, secondGreen);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked"})
+    public void memoizedFunctionsReadInputs() throws Exception {
+        var infra = RailJSONParser.parse(getBaseInfra());
+        var route = infra.routeGraph.routeMap.values().iterator().next();
+        var signal = infra.signals.get(0);
+        var infraSwitch = infra.switches.get(0);
+
+        // a function which reads a route, a signal and a switch, and thus is memoized
+        var routeRef = new RSExpr.RouteRef(route.id);
+        routeRef.route = route;
+        var signalRef = new RSExpr.SignalRef(signal.id);
+        signalRef.signal = signal;
+        var switchRef = new RSExpr.SwitchRef(infraSwitch.id);
+        switchRef.switchRef = infraSwitch;
+        var switchBranches = (RSExpr<RSBool>[]) new RSExpr<?>[] {
+                RSExpr.True.INSTANCE, RSExpr.False.INSTANCE, RSExpr.False.INSTANCE
+        };
+        final var green = infra.aspects.get("GREEN");
+        var body = new RSExpr.And((RSExpr<RSBool>[]) new RSExpr<?>[] {
+                new RSExpr.RouteStateCheck(routeRef, RouteStatus.FREE),
+                new RSExpr.SignalAspectCheck(signalRef, green),
+                new RSExpr.EnumMatch<>(switchRef, switchBranches),
+        });
+        final var function = new RSFunction<>("all_clear", new String[0], new RSType[0], RSType.BOOLEAN, body, 0, 0);
+
+        var sim = Simulation.createFromInfraAndEmptySuccessions(infra, 0, null);
+        var routeState = sim.infraState.getRouteState(route.index);
+        routeState.status = RouteStatus.FREE;
+        var signalState = sim.infraState.getSignalState(signal.index);
+        signalState.aspects = new RSAspectSet();
+        signalState.aspects.add(green);
+        var switchState = sim.infraState.getSwitchState(infraSwitch.switchIndex);
+        switchState.setPosition(sim, SwitchPosition.LEFT);
+
+        var call = new RSExpr.Call<>(function, new RSExpr<?>[0], 0, 0);
+        var state = new RSExprState<>(call, 0, 0);
+        assertSame(RSBool.True, state.evalInit(sim.infraState));
+
+        // changing any input the function read must compute it again
+        routeState.status = RouteStatus.RESERVED;
+        assertSame(RSBool.False, state.evalInputChange(sim.infraState, null));
+        routeState.status = RouteStatus.FREE;
+        assertSame(RSBool.True, state.evalInputChange(sim.infraState, null));
+
+        var greenAspects = signalState.aspects;
+        signalState.aspects = new RSAspectSet();
+        assertSame(RSBool.False, state.evalInputChange(sim.infraState, null));
+        signalState.aspects = greenAspects;
+        assertSame(RSBool.True, state.evalInputChange(sim.infraState, null));
+
+        switchState.setPosition(sim, SwitchPosition.RIGHT);
+        assertSame(RSBool.False, state.evalInputChange(sim.infraState, null));
+        switchState.setPosition(sim, SwitchPosition.LEFT);
+        assertSame(RSBool.True, state.evalInputChange(sim.infraState, null));
+    }
+}
@@ -0,0 +1,56 @@
+package fr.sncf.osrd.infra_state;
+
+import static fr.sncf.osrd.Helpers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.railjson.schema.common.ID;
+import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
+import fr.sncf.osrd.railjson.schema.infra.railscript.RJSRSExpr;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.changelog.ArrayChangeLog;
+import org.junit.jupiter.api.Test;
+
+public class SignalStateTest {
+    private static RJSRSExpr.Call getSignalExpr(RJSInfra infra, String signalID) {
+        for (var trackSection : infra.trackSections)
+            for (var signal : trackSection.signals)
+                if (signal.id.equals(signalID))
+                    return (RJSRSExpr.Call) signal.expr;
+        throw new RuntimeException("unknown signal " + signalID);
+    }
+
+    @Test
+    public void testSignalEvaluatedAfterItsDependencies() throws InvalidInfraException {
+        final var infra = getBaseInfra();
+        assert infra != null;
+        final var config = getBaseConfig();
+        assert config != null;
+        config.trainSchedules.clear();
+
+        // make both C3 and S7 depend on the same route, and C3 on S7
+        var route = new RJSRSExpr.RouteRef(new ID<>("rt.C3-S7"));
+        var exprS7 = getSignalExpr(infra, "il.sig.S7");
+        exprS7.function = new ID<>("bal3_line_signal");
+        exprS7.arguments = new RJSRSExpr[] { new RJSRSExpr.SignalRef(new ID<>("il.sig.W4")), route };
+        var exprC3 = getSignalExpr(infra, "il.sig.C3");
+        exprC3.arguments = new RJSRSExpr[] { new RJSRSExpr.SignalRef(new ID<>("il.sig.S7")), route };
+
+        var changelog = new ArrayChangeLog();
+        var sim = Simulation.createFromInfraAndEmptySuccessions(RailJSONParser.parse(infra), 0, changelog);
+        var signalC3 = sim.infra.signals.stream().filter(signal -> signal.id.equals("il.sig.C3")).findFirst();
+        assert signalC3.isPresent();
+        var routeState = sim.infraState.getRouteState(sim.infra.routeGraph.routeMap.get("rt.C3-S7").index);
+        makeFunctionEvent(sim, 10, () -> routeState.reserve(sim));
+        run(sim, config);
+
+        // C3 must only be evaluated once S7 left the red aspect, and thus change aspect once
+        var aspectChangeCount = changelog.publishedChanges.stream()
+                .filter(change -> change.getClass() == SignalState.SignalAspectChange.class)
+                .filter(change -> ((SignalState.SignalAspectChange) change).signalIndex == signalC3.get().index)
+                .count();
+        assertEquals(1, aspectChangeCount);
+        assertEquals("GREEN", sim.infraState.getSignalState(signalC3.get().index).aspects.iterator().next().id);
+    }
+}
@@ -0,0 +1,59 @@
+package fr.sncf.osrd.infra_state;
+
+import static fr.sncf.osrd.Helpers.*;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.infra.SuccessionTable;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.changelog.ArrayChangeLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TowerStateTest {
+    private static Simulation runWithSuccessions(String... trainIDs) {
+        final var config = getBaseConfig();
+        assert config != null;
+        var successionTables = new ArrayList<SuccessionTable>();
+        for (var s : config.infra.switches)
+            successionTables.add(new SuccessionTable(s.id, new ArrayList<>(List.of(trainIDs))));
+        var sim = Simulation.createFromInfraAndSuccessions(config.infra, successionTables, 0, new ArrayChangeLog());
+        run(sim, config);
+        return sim;
+    }
+
+    @Test
+    public void testPlannedTrainGetsSwitches() {
+        var sim = runWithSuccessions("Test.");
+        var allowedSwitchCount = sim.infra.switches.stream()
+                .filter(s -> sim.infraState.towerState.isCurrentAllowed(s, "Test."))
+                .count();
+        assertTrue(allowedSwitchCount > 0);
+    }
+
+    @Test
+    public void testTrainWaitsForPreviousTrains() {
+        var sim = runWithSuccessions("other", "Test.");
+        for (var s : sim.infra.switches)
+            assertFalse(sim.infraState.towerState.isCurrentAllowed(s, "Test."));
+    }
+
+    @Test
+    public void testUnknownSwitch() {
+        final var config = getBaseConfig();
+        assert config != null;
+        var successionTables = new ArrayList<SuccessionTable>();
+        for (var s : config.infra.switches)
+            successionTables.add(new SuccessionTable(s.id, new ArrayList<>(List.of("Test."))));
+        successionTables.add(new SuccessionTable("unknown_switch", new ArrayList<>(List.of("other"))));
+        var sim = Simulation.createFromInfraAndSuccessions(config.infra, successionTables, 0, new ArrayChangeLog());
+        run(sim, config);
+        // the table of the unknown switch is ignored, so the train isn't held back by the other train
+        var allowedSwitchCount = sim.infra.switches.stream()
+                .filter(s -> sim.infraState.towerState.isCurrentAllowed(s, "Test."))
+                .count();
+        assertTrue(allowedSwitchCount > 0);
+    }
+}
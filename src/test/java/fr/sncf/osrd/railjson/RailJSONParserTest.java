@@ -0,0 +1,130 @@
+package fr.sncf.osrd.railjson;
+
+import static fr.sncf.osrd.Helpers.getBaseInfra;
+import static fr.sncf.osrd.Helpers.getResourcePath;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import fr.sncf.osrd.infra.Infra;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
+import fr.sncf.osrd.utils.UnionFind;
+import okio.Buffer;
+import okio.Okio;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class RailJSONParserTest {
+    private static void assertSameInfra(Infra expected, Infra infra) {
+        assertEquals(expected.trackGraph.trackSectionMap.keySet(), infra.trackGraph.trackSectionMap.keySet());
+        assertEquals(expected.trackGraph.getNodeCount(), infra.trackGraph.getNodeCount());
+        assertEquals(expected.routeGraph.routeMap.keySet(), infra.routeGraph.routeMap.keySet());
+        assertEquals(expected.tvdSections.keySet(), infra.tvdSections.keySet());
+        assertEquals(expected.aspects.keySet(), infra.aspects.keySet());
+        assertEquals(expected.signals.size(), infra.signals.size());
+        assertEquals(expected.switches.size(), infra.switches.size());
+        for (var trackSection : expected.trackGraph.iterEdges()) {
+            var other = infra.trackGraph.trackSectionMap.get(trackSection.id);
+            var neighbors = new HashSet<String>();
+            for (var neighbor : other.endNeighbors)
+                neighbors.add(neighbor.id);
+            var expectedNeighbors = new HashSet<String>();
+            for (var neighbor : trackSection.endNeighbors)
+                expectedNeighbors.add(neighbor.id);
+            assertEquals(expectedNeighbors, neighbors);
+
+            // node identifiers are visible from outside the infra, and must not depend on the order of parts
+            assertEquals(trackSection.startNode, other.startNode);
+            assertEquals(trackSection.endNode, other.endNode);
+        }
+        for (int i = 0; i < expected.trackGraph.getNodeCount(); i++) {
+            var expectedNode = expected.trackGraph.getNode(i);
+            var node = infra.trackGraph.getNode(i);
+            assertEquals(expectedNode.getClass(), node.getClass());
+            assertEquals(expectedNode.id, node.id);
+        }
+    }
+
+    /** Writes the parts of the tiny infra in the given order, followed by all other parts */
+    @SuppressWarnings("unchecked")
+    private static Buffer reorderParts(String... firstParts) throws IOException {
+        Map<String, Object> document;
+        try (var source = Okio.buffer(Okio.source(getResourcePath("tiny_infra/infra.json")))) {
+            document = (Map<String, Object>) JsonReader.of(source).readJsonValue();
+        }
+        assertNotNull(document);
+
+        var parts = new ArrayList<>(Arrays.asList(firstParts));
+        for (var part : document.keySet())
+            if (!parts.contains(part))
+                parts.add(part);
+
+        var buffer = new Buffer();
+        try (var writer = JsonWriter.of(buffer)) {
+            writer.beginObject();
+            for (var part : parts)
+                writer.name(part).jsonValue(document.get(part));
+            writer.endObject();
+        }
+        return buffer;
+    }
+
+    @Test
+    public void streamingMatchesParsedDocument() throws InvalidInfraException, IOException {
+        var expected = RailJSONParser.parse(getBaseInfra());
+
+        // keys are sorted in the file, which puts links before track sections
+        try (var source = Okio.buffer(Okio.source(getResourcePath("tiny_infra/infra.json")))) {
+            assertSameInfra(expected, RailJSONParser.parse(source, false));
+        }
+
+        // track sections and tvd sections have to wait for links and aspects
+        var document = reorderParts("track_sections", "tvd_sections", "script_functions",
+                "track_section_links", "aspects");
+        assertSameInfra(expected, RailJSONParser.parse(document, false));
+    }
+
+    @Test
+    public void nodeIDsFollowTrackSectionOrder() throws InvalidInfraException {
+        var rjsInfra = getBaseInfra();
+        var infra = RailJSONParser.parse(rjsInfra);
+
+        // number nodes by creating a group per endpoint, in the order of track sections
+        var uf = new UnionFind();
+        var endpointGroups = new HashMap<RJSTrackSection.EndpointID, Integer>();
+        for (var trackSection : rjsInfra.trackSections) {
+            endpointGroups.put(trackSection.beginEndpoint(), uf.newGroup());
+            endpointGroups.put(trackSection.endEndpoint(), uf.newGroup());
+        }
+        for (var link : rjsInfra.trackSectionLinks)
+            uf.union(endpointGroups.get(link.begin), endpointGroups.get(link.end));
+        var nodeIDs = new ArrayList<Integer>();
+        assertEquals(uf.minimize(nodeIDs), infra.trackGraph.getNodeCount());
+
+        for (var trackSection : rjsInfra.trackSections) {
+            var infraTrackSection = infra.trackGraph.trackSectionMap.get(trackSection.id);
+            var startNode = (int) nodeIDs.get(endpointGroups.get(trackSection.beginEndpoint()));
+            var endNode = (int) nodeIDs.get(endpointGroups.get(trackSection.endEndpoint()));
+            assertEquals(startNode, infraTrackSection.startNode);
+            assertEquals(endNode, infraTrackSection.endNode);
+        }
+    }
+
+    @Test
+    public void streamingRejectsInvalidDocuments() {
+        assertThrows(InvalidInfraException.class,
+                () -> RailJSONParser.parse(new Buffer().writeUtf8("null"), false));
+        assertThrows(InvalidInfraException.class,
+                () -> RailJSONParser.parse(new Buffer().writeUtf8("{\"routes\": [], \"routes\": []}"), false));
+    }
+}
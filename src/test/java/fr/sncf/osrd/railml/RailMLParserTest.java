@@ -0,0 +1,111 @@
+package fr.sncf.osrd.railml;
+
+import static fr.sncf.osrd.Helpers.getBaseInfra;
+import static fr.sncf.osrd.Helpers.getResourcePath;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fr.sncf.osrd.railjson.schema.infra.RJSInfra;
+import fr.sncf.osrd.railjson.schema.infra.RJSTrackSectionLink;
+import fr.sncf.osrd.railjson.schema.infra.RJSTrackSection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class RailMLParserTest {
+    private static List<String> sorted(List<String> values) {
+        Collections.sort(values);
+        return values;
+    }
+
+    private static String endpointID(RJSTrackSection.EndpointID endpoint) {
+        return endpoint.section.id + ":" + endpoint.endpoint;
+    }
+
+    private static List<String> linkIDs(RJSInfra infra) {
+        var res = new ArrayList<String>();
+        for (RJSTrackSectionLink link : infra.trackSectionLinks)
+            res.add(endpointID(link.begin) + " -> " + endpointID(link.end) + " " + link.navigability);
+        return sorted(res);
+    }
+
+    private static List<String> signalIDs(RJSInfra infra) {
+        var res = new ArrayList<String>();
+        for (var trackSection : infra.trackSections)
+            for (var signal : trackSection.signals)
+                res.add(trackSection.id + ":" + signal.id);
+        return sorted(res);
+    }
+
+    /** Checks that both infrastructures have the same track sections, links, signals, TVD sections and routes */
+    private static void assertSameEntities(RJSInfra expected, RJSInfra infra) {
+        var trackSectionIDs = new ArrayList<String>();
+        for (var trackSection : infra.trackSections)
+            trackSectionIDs.add(trackSection.id + " " + trackSection.length);
+        var expectedTrackSectionIDs = new ArrayList<String>();
+        for (var trackSection : expected.trackSections)
+            expectedTrackSectionIDs.add(trackSection.id + " " + trackSection.length);
+        assertEquals(sorted(expectedTrackSectionIDs), sorted(trackSectionIDs));
+
+        assertEquals(linkIDs(expected), linkIDs(infra));
+        assertEquals(signalIDs(expected), signalIDs(infra));
+
+        var tvdSectionIDs = new ArrayList<String>();
+        for (var tvdSection : infra.tvdSections)
+            tvdSectionIDs.add(tvdSection.id);
+        var expectedTvdSectionIDs = new ArrayList<String>();
+        for (var tvdSection : expected.tvdSections)
+            expectedTvdSectionIDs.add(tvdSection.id);
+        assertEquals(sorted(expectedTvdSectionIDs), sorted(tvdSectionIDs));
+
+        var routeIDs = new ArrayList<String>();
+        for (var route : infra.routes)
+            routeIDs.add(route.id);
+        var expectedRouteIDs = new ArrayList<String>();
+        for (var route : expected.routes)
+            expectedRouteIDs.add(route.id);
+        assertEquals(sorted(expectedRouteIDs), sorted(routeIDs));
+    }
+
+    @Test
+    public void convertsTinyInfra() throws Exception {
+        var infra = RailMLParser.parse(getResourcePath("tiny_infra/infra.xml").toString());
+        assertEquals(4, infra.trackSections.size());
+        assertEquals(3, infra.trackSectionLinks.size());
+        assertEquals(7, signalIDs(infra).size());
+        assertEquals(5, infra.tvdSections.size());
+        assertEquals(9, infra.routes.size());
+        assertSameEntities(getBaseInfra(), infra);
+    }
+
+    /** Puts all the railML elements and their attributes in a prefixed namespace */
+    private static String prefixNames(String document) {
+        var declarationEnd = document.indexOf("?>") + 2;
+        var body = document.substring(declarationEnd);
+        body = body.replace("xmlns=\"", "xmlns:rml=\"");
+        // elements and attributes which already are in some namespace are left as is
+        body = Pattern.compile("<(/?)([A-Za-z][\\w.-]*)(?![\\w.:-])").matcher(body).replaceAll("<$1rml:$2");
+        body = Pattern.compile("(\\s)([A-Za-z][\\w.-]*)=\"").matcher(body).replaceAll("$1rml:$2=\"");
+        return document.substring(0, declarationEnd) + body;
+    }
+
+    @Test
+    public void convertsNamespacedDocuments(@TempDir Path dir) throws Exception {
+        var documentPath = getResourcePath("tiny_infra/infra.xml");
+        var document = Files.readString(documentPath, StandardCharsets.UTF_8);
+        var namespacedDocument = prefixNames(document);
+        assert namespacedDocument.contains("<rml:netElement rml:id=");
+        var namespacedPath = dir.resolve("infra.xml");
+        Files.writeString(namespacedPath, namespacedDocument, StandardCharsets.UTF_8);
+
+        var infra = RailMLParser.parse(namespacedPath.toString());
+        assertSameEntities(RailMLParser.parse(documentPath.toString()), infra);
+        assertEquals("il.switch_foo", infra.switches.iterator().next().id);
+    }
+}
@@ -0,0 +1,56 @@
+package fr.sncf.osrd.simulation;
+
+import static fr.sncf.osrd.Helpers.getBaseConfig;
+import static fr.sncf.osrd.Helpers.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import fr.sncf.osrd.simulation.changelog.ArrayChangeLog;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumerMultiplexer;
+import fr.sncf.osrd.simulation.changelog.ChangeLogReader;
+import fr.sncf.osrd.simulation.changelog.ChangeLogWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+public class ChangeLogWriterTest {
+    private static void checkChangeLog(Path path, boolean compress, int queueCapacity) throws IOException {
+        var config = getBaseConfig();
+        var changelog = new ArrayChangeLog();
+        try (var writer = ChangeLogWriter.open(path, compress, queueCapacity)) {
+            var consumers = new ArrayList<ChangeConsumer>();
+            consumers.add(changelog);
+            consumers.add(writer);
+            var multiplexer = new ChangeConsumerMultiplexer(consumers);
+            var sim = Simulation.createFromInfraAndSuccessions(config.infra, config.switchSuccessions, 0, multiplexer);
+            run(sim, config);
+            assertEquals(changelog.size(), writer.size());
+        }
+        assertTrue(changelog.size() > 0);
+
+        try (var reader = ChangeLogReader.open(path)) {
+            for (var change : changelog) {
+                var entry = reader.next();
+                assertEquals(change.getClass().getSimpleName(), entry.changeType);
+                assertTrue(entry.json.startsWith("{"));
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void writtenChangesCanBeReadBack(@TempDir Path dir) throws IOException {
+        checkChangeLog(dir.resolve("changelog.ndjson"), false, ChangeLogWriter.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void compressedChangesCanBeReadBack(@TempDir Path dir) throws IOException {
+        // a single slot queue makes the simulation wait for the writer thread
+        checkChangeLog(dir.resolve("changelog.ndjson.gz"), true, 1);
+    }
+}
@@ -0,0 +1,52 @@
+package fr.sncf.osrd.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fr.sncf.osrd.speedcontroller.SpeedController;
+import fr.sncf.osrd.train.phases.PhaseState;
+import io.github.classgraph.ClassGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ChangeSerializerTest {
+    /** Finds the concrete subclasses of some class, among the main classes of the project */
+    private static Set<String> scanSubtypes(Class<?> baseClass) throws URISyntaxException {
+        // test classes are skipped, as they aren't serialized
+        var mainClasses = new File(Change.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        var res = new HashSet<String>();
+        try (var scanResult = new ClassGraph().enableClassInfo().acceptPackages("fr.sncf.osrd").scan()) {
+            for (var subclassInfo : scanResult.getSubclasses(baseClass.getName())) {
+                if (subclassInfo.isAbstract() || !subclassInfo.getClasspathElementFile().equals(mainClasses))
+                    continue;
+                res.add(subclassInfo.getName());
+            }
+        }
+        return res;
+    }
+
+    private static <T> void checkSubtypes(
+            Class<T> baseClass,
+            ChangeSerializer.SubtypeCollection<T> subtypes
+    ) throws URISyntaxException {
+        var registeredTypes = new HashSet<String>();
+        var labels = new HashSet<String>();
+        for (var subtype : subtypes) {
+            registeredTypes.add(subtype.type.getName());
+            labels.add(subtype.label);
+        }
+        assertEquals(scanSubtypes(baseClass), registeredTypes,
+                String.format("the serializer doesn't list all the subtypes of %s", baseClass.getSimpleName()));
+        assertEquals(registeredTypes.size(), labels.size(), "some subtypes have the same label");
+    }
+
+    @Test
+    public void allSubtypesAreRegistered() throws URISyntaxException {
+        checkSubtypes(Change.class, ChangeSerializer.changeSubtypes);
+        checkSubtypes(PhaseState.class, ChangeSerializer.phaseStateSubtypes);
+        checkSubtypes(SpeedController.class, ChangeSerializer.speedControllerSubtypes);
+    }
+}
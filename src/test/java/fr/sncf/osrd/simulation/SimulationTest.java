@@ -1,13 +1,19 @@
 package fr.sncf.osrd.simulation;
 
 import static fr.sncf.osrd.Helpers.TestEvent;
+import static fr.sncf.osrd.Helpers.getBaseConfig;
 import static org.junit.jupiter.api.Assertions.*;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import fr.sncf.osrd.infra.trackgraph.SwitchPosition;
+import fr.sncf.osrd.infra_state.SwitchState;
+import fr.sncf.osrd.simulation.changelog.ChangeConsumer;
 import fr.sncf.osrd.simulation.changelog.ChangeConsumerMultiplexer;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.function.BiConsumer;
 
 @SuppressWarnings("MissingJavadocMethod")
@@ -22,6 +28,14 @@ public class SimulationTest {
         assertEquals(sim.getTime(), 1.0 + 42.0, 0.00001);
     }
 
+    @Test
+    public void stepEmptyTimeline() {
+        for (var timeline : new Timeline[] { new HeapTimeline(), new TreeMapTimeline() }) {
+            var sim = Simulation.createWithoutInfra(0.0, null, timeline);
+            assertThrows(NoSuchElementException.class, sim::step);
+        }
+    }
+
     @Test
     @SuppressFBWarnings(value = {"SIC_INNER_SHOULD_BE_STATIC_ANON", "DLS_DEAD_LOCAL_STORE"})
     public void testEventOrder() throws SimulationError {
@@ -55,4 +69,164 @@ public class SimulationTest {
         assertEquals(sim.getTime(), 4.5, 0.0);
         assertTrue(sim.isSimulationOver());
     }
+
+    @Test
+    public void replayCheckSampling() throws SimulationError {
+        var multiplexer = new ChangeConsumerMultiplexer(new ArrayList<>());
+        var sim = Simulation.createWithoutInfra(0.0, multiplexer);
+        var eventChecker = ChangeReplayChecker.from(sim);
+        var periodicChecker = ChangeReplayChecker.from(sim, 2);
+        multiplexer.add(eventChecker);
+        multiplexer.add(periodicChecker);
+
+        TestEvent.plan(sim, 1.0, "a", (_sim, event) -> TestEvent.plan(_sim, 1.5, "a response"));
+        var cancelled = TestEvent.plan(sim, 2.0, "b");
+        TestEvent.plan(sim, 3.0, "c");
+        sim.cancel(cancelled);
+        while (!sim.isSimulationOver())
+            sim.step();
+
+        assertTrue(eventChecker.isConsistent());
+        assertTrue(periodicChecker.isConsistent());
+    }
+
+    /** Forwards changes to some consumer, unless muted */
+    private static final class MutableChangeConsumer extends ChangeConsumer {
+        private final ChangeConsumer consumer;
+        boolean muted = false;
+
+        MutableChangeConsumer(ChangeConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void changeCreationCallback(Change change) {
+            if (!muted)
+                consumer.changeCreationCallback(change);
+        }
+
+        @Override
+        public void changePublishedCallback(Change change) {
+            if (!muted)
+                consumer.changePublishedCallback(change);
+        }
+    }
+
+    /** A change which claims to update a switch, but doesn't */
+    private static final class SwitchTouched extends EntityChange<SwitchState, Void> {
+        private final int switchIndex;
+
+        SwitchTouched(Simulation sim, int switchIndex) {
+            super(sim);
+            this.switchIndex = switchIndex;
+        }
+
+        @Override
+        public Void apply(Simulation sim, SwitchState entity) {
+            return null;
+        }
+
+        @Override
+        public SwitchState getEntity(Simulation sim) {
+            return sim.infraState.getSwitchState(switchIndex);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SwitchTouched { switch: %d }", switchIndex);
+        }
+    }
+
+    @Test
+    public void replayCheckDetectsInconsistencies() throws SimulationError {
+        var config = getBaseConfig();
+        var multiplexer = new ChangeConsumerMultiplexer(new ArrayList<>());
+        var consumer = new MutableChangeConsumer(multiplexer);
+        var sim = Simulation.createFromInfraAndSuccessions(config.infra, config.switchSuccessions, 0, consumer);
+        var touchedChecker = ChangeReplayChecker.from(sim, Integer.MAX_VALUE);
+        var periodicChecker = ChangeReplayChecker.from(sim, 2);
+        multiplexer.add(touchedChecker);
+        multiplexer.add(periodicChecker);
+
+        // move a switch without the checkers knowing about it
+        consumer.muted = true;
+        sim.infraState.getSwitchState(0).setPosition(sim, SwitchPosition.RIGHT);
+        consumer.muted = false;
+
+        // the touched state is consistent, but the whole simulations aren't
+        TestEvent.plan(sim, 1.0, "a");
+        assertTrue(touchedChecker.isConsistent());
+        assertTrue(periodicChecker.isConsistent());
+        TestEvent.plan(sim, 2.0, "b");
+        assertTrue(touchedChecker.isConsistent());
+        assertFalse(periodicChecker.isConsistent());
+
+        // once the switch is touched, comparing it is enough to find the difference
+        sim.publishChange(new SwitchTouched(sim, 0));
+        assertFalse(touchedChecker.isConsistent());
+        assertFalse(periodicChecker.isConsistent());
+    }
+
+    private static void checkCancellation(Simulation sim) throws SimulationError {
+        TestEvent.plan(sim, 1.0, "a");
+        var cancelledEvent = TestEvent.plan(sim, 2.0, "b");
+        TestEvent.plan(sim, 2.0, "c");
+        TestEvent.plan(sim, 0.5, "d");
+
+        sim.cancel(cancelledEvent);
+        assertEquals(cancelledEvent.getState(), TimelineEvent.State.CANCELLED);
+        assertEquals("d", sim.step().toString());
+        assertEquals("a", sim.step().toString());
+        assertEquals("c", sim.step().toString());
+        assertTrue(sim.isSimulationOver());
+    }
+
+    @Test
+    public void testCancellationWithReplay() throws SimulationError {
+        for (var timeline : new Timeline[] { new HeapTimeline(), new TreeMapTimeline() }) {
+            var multiplexer = new ChangeConsumerMultiplexer(new ArrayList<>());
+            var sim = Simulation.createWithoutInfra(0.0, multiplexer, timeline);
+            multiplexer.add(ChangeReplayChecker.from(sim));
+            checkCancellation(sim);
+        }
+    }
+
+    @Test
+    public void testCancellationWithoutTimelineChanges() throws SimulationError {
+        for (var timeline : new Timeline[] { new HeapTimeline(), new TreeMapTimeline() })
+            checkCancellation(Simulation.createWithoutInfra(0.0, null, timeline));
+    }
+
+    private static ArrayList<String> runShuffledEvents(Timeline timeline) throws SimulationError {
+        var sim = Simulation.createWithoutInfra(0.0, null, timeline);
+        var random = new Random(42);
+        var events = new ArrayList<TestEvent>();
+        for (int i = 0; i < 500; i++)
+            events.add(TestEvent.plan(sim, random.nextInt(100), String.valueOf(i)));
+
+        // cancel events from anywhere in the timeline, some of them with the same time as others
+        for (int i = 0; i < events.size(); i += 3)
+            sim.cancel(events.get(i));
+        for (int i = 0; i < events.size(); i++) {
+            var event = events.get(i);
+            var pendingEvent = timeline.get(event.eventId);
+            if (i % 3 == 0)
+                assertNull(pendingEvent);
+            else
+                assertSame(event, pendingEvent);
+        }
+
+        var order = new ArrayList<String>();
+        while (!sim.isSimulationOver())
+            order.add(sim.step().toString());
+        assertTrue(timeline.isEmpty());
+        return order;
+    }
+
+    @Test
+    public void testHeapTimelineOrder() throws SimulationError {
+        var heapOrder = runShuffledEvents(new HeapTimeline());
+        assertEquals(runShuffledEvents(new TreeMapTimeline()), heapOrder);
+        assertEquals(333, heapOrder.size());
+    }
 }
@@ -0,0 +1,47 @@
+package fr.sncf.osrd.speedcontroller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class SpeedControllerIndexTest {
+    private static Set<SpeedController> makeControllers() {
+        var controllers = new HashSet<SpeedController>();
+        controllers.add(new MaxSpeedController(80, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        controllers.add(new MaxSpeedController(30, 1000, 2000));
+        controllers.add(LimitAnnounceSpeedController.create(80, 30, 1000, 0.5));
+        controllers.add(new MaxSpeedController(20, 1500, 1800));
+        controllers.add(LimitAnnounceSpeedController.create(30, 20, 1500, 0.5));
+        controllers.add(new CoastingSpeedController(2500, 2700));
+        controllers.add(LimitAnnounceSpeedController.create(80, 0, 4000, 0.5));
+        controllers.add(new MaxSpeedController(0, 4000, Double.POSITIVE_INFINITY));
+        return controllers;
+    }
+
+    @Test
+    public void sameDirectivesAsControllers() {
+        var controllers = makeControllers();
+        var index = new SpeedControllerIndex(controllers);
+        var cursor = index.cursor();
+        for (double position = -100; position < 4500; position += 0.5) {
+            var expected = SpeedController.getDirective(controllers, position).allowedSpeed;
+            assertEquals(expected, index.getDirective(position).allowedSpeed);
+            assertEquals(expected, cursor.getDirective(position).allowedSpeed);
+
+            final var pathPosition = position;
+            var expectedActive = controllers.stream()
+                    .filter(controller -> controller.isActive(pathPosition))
+                    .collect(Collectors.toSet());
+            assertEquals(expectedActive, new HashSet<>(index.getActiveControllers(position)));
+        }
+
+        // cursors can also go backward
+        for (double position = 4500; position > -100; position -= 0.5)
+            assertEquals(SpeedController.getDirective(controllers, position).allowedSpeed,
+                    cursor.getDirective(position).allowedSpeed);
+    }
+}
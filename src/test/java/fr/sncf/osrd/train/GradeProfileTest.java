@@ -0,0 +1,55 @@
+package fr.sncf.osrd.train;
+
+import static fr.sncf.osrd.Helpers.getBaseConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.utils.PointValue;
+import fr.sncf.osrd.utils.graph.EdgeDirection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+
+public class GradeProfileTest {
+    @Test
+    public void sameGradesAsTracker() {
+        var config = getBaseConfig();
+        var schedule = config.trainSchedules.get(0);
+        var path = schedule.plannedPath;
+
+        // tiny_infra has no slopes, add some along the path. They are half way between the positions the train
+        // is checked at, as both ways of computing positions don't round the same way
+        var grade = 1.;
+        double offset = 0;
+        for (var range : path.trackSectionPath) {
+            var slopes = range.edge.slope.data;
+            for (double pathPosition = 75.5; pathPosition < offset + range.length(); pathPosition += 150) {
+                if (pathPosition < offset)
+                    continue;
+                var trackPosition = range.getBeginPosition() + (pathPosition - offset);
+                if (range.direction == EdgeDirection.STOP_TO_START)
+                    trackPosition = range.getBeginPosition() - (pathPosition - offset);
+                slopes.add(new PointValue<>(trackPosition, grade));
+                grade = (grade * 7) % 11;
+            }
+            slopes.sort(Comparator.comparingDouble(slope -> slope.position));
+            offset += range.length();
+        }
+
+        var trainLength = schedule.rollingStock.length;
+        var profile = GradeProfile.from(path, trainLength);
+        var cursor = profile.cursor();
+
+        var sim = Simulation.createFromInfraAndEmptySuccessions(config.infra, 0, null);
+        var location = Train.getInitialLocation(schedule, sim);
+        location.ignoreInfraState = true;
+        final var step = 1.;
+        while (location.getPathPosition() + step < path.length) {
+            var position = location.getPathPosition();
+            var expected = location.maxTrainGrade();
+            assertEquals(expected, profile.getMaxGrade(position));
+            assertEquals(expected, cursor.getMaxGrade(position));
+            location.updatePosition(trainLength, step);
+        }
+    }
+}
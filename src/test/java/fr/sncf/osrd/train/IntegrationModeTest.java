@@ -0,0 +1,144 @@
+package fr.sncf.osrd.train;
+
+import static fr.sncf.osrd.Helpers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import fr.sncf.osrd.config.Config;
+import fr.sncf.osrd.infra.InvalidInfraException;
+import fr.sncf.osrd.infra.trackgraph.SwitchPosition;
+import fr.sncf.osrd.railjson.parser.RailJSONParser;
+import fr.sncf.osrd.railjson.schema.common.ID;
+import fr.sncf.osrd.railjson.schema.common.RJSTrackLocation;
+import fr.sncf.osrd.railjson.schema.schedule.RJSTrainPhase;
+import fr.sncf.osrd.simulation.Simulation;
+import fr.sncf.osrd.simulation.TimelineEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+public class IntegrationModeTest {
+    private static ArrayList<TimelineEvent> runWithMode(Config config, IntegrationMode mode, Simulation sim) {
+        config.trainSchedules.forEach(schedule -> schedule.integrationMode = mode);
+        return run(sim, config);
+    }
+
+    @Test
+    public void fastForwardMatchesFixedStep() throws Exception {
+        final var infra = getBaseInfra();
+
+        var simFixed = Simulation.createFromInfraAndEmptySuccessions(RailJSONParser.parse(infra), 0, null);
+        var eventsFixed = runWithMode(getBaseConfigNoAllowance(), IntegrationMode.FIXED_STEP, simFixed);
+
+        var simFast = Simulation.createFromInfraAndEmptySuccessions(RailJSONParser.parse(infra), 0, null);
+        var eventsFast = runWithMode(getBaseConfigNoAllowance(), IntegrationMode.FAST_FORWARD, simFast);
+
+        // skipped steps are identical to the integrated ones, up to rounding errors
+        assertEquals(simFixed.getTime(), simFast.getTime(), 1E-6);
+        assertEquals(eventsFixed.size(), eventsFast.size());
+        var expectedTimePerPosition = getTimePerPosition(eventsFixed);
+        var timePerPosition = getTimePerPosition(eventsFast);
+        for (double t = expectedTimePerPosition.firstKey(); t < expectedTimePerPosition.lastKey(); t += 1)
+            assertEquals(expectedTimePerPosition.interpolate(t), timePerPosition.interpolate(t), 1E-6);
+        assertSameSpeedPerPosition(eventsFixed, eventsFast);
+    }
+
+    private static double[] eventTimes(ArrayList<TimelineEvent> events) {
+        return events.stream().mapToDouble(event -> event.eventId.scheduledTime).toArray();
+    }
+
+    /** Runs a simulation in both modes, and checks events happen at the same time, up to rounding errors */
+    private static void checkModesMatch(Supplier<Config> configSupplier, Callable<Simulation> simSupplier)
+            throws Exception {
+        var simFixed = simSupplier.call();
+        var eventsFixed = runWithMode(configSupplier.get(), IntegrationMode.FIXED_STEP, simFixed);
+
+        var simFast = simSupplier.call();
+        var eventsFast = runWithMode(configSupplier.get(), IntegrationMode.FAST_FORWARD, simFast);
+
+        assertEquals(simFixed.getTime(), simFast.getTime(), 1E-6);
+        assertArrayEquals(eventTimes(eventsFixed), eventTimes(eventsFast), 1E-6);
+    }
+
+    private static Simulation makeSimulation() throws InvalidInfraException {
+        return Simulation.createFromInfraAndEmptySuccessions(RailJSONParser.parse(getBaseInfra()), 0, null);
+    }
+
+    /** A schedule whose only phase ends at the buffer stop, where the track ends */
+    private static Config getDeadEndConfig() {
+        var phases = loadRJSPhases("tiny_infra/simulation_several_phases.json");
+        var phase = phases[1];
+        phase.endLocation = new RJSTrackLocation(new ID<>("ne.micro.bar_a"), 200);
+        return makeConfigWithGivenPhases(new RJSTrainPhase[] { phase },
+                "tiny_infra/config_railjson_several_phases.json");
+    }
+
+    @Test
+    public void allowancesUseFixedSteps() {
+        var configFixed = getBaseConfig();
+        var simFixed = Simulation.createFromInfraAndEmptySuccessions(configFixed.infra, 0, null);
+        var eventsFixed = runWithMode(configFixed, IntegrationMode.FIXED_STEP, simFixed);
+
+        var configFast = getBaseConfig();
+        var simFast = Simulation.createFromInfraAndEmptySuccessions(configFast.infra, 0, null);
+        var eventsFast = runWithMode(configFast, IntegrationMode.FAST_FORWARD, simFast);
+
+        // the speed of trains with allowances depends on whether they're late, so no step is skipped
+        assertEquals(simFixed.getTime(), simFast.getTime());
+        assertArrayEquals(eventTimes(eventsFixed), eventTimes(eventsFast));
+    }
+
+    @Test
+    public void fastForwardStops() throws Exception {
+        // the train stops at the end of its first phase, and starts again
+        checkModesMatch(() -> getBaseConfig("tiny_infra/config_railjson_several_phases.json"),
+                IntegrationModeTest::makeSimulation);
+    }
+
+    @Test
+    public void fastForwardToDeadEnd() throws Exception {
+        checkModesMatch(IntegrationModeTest::getDeadEndConfig, IntegrationModeTest::makeSimulation);
+
+        // once the train waited for the switch, skipped steps end within rounding errors of the dead end
+        checkModesMatch(() -> getBaseConfig("tiny_infra/config_railjson_several_phases.json"), () -> {
+            var infra = getBaseInfra();
+            infra.switches.iterator().next().positionChangeDelay = 42;
+            var sim = Simulation.createFromInfraAndEmptySuccessions(RailJSONParser.parse(infra), 0, null);
+            sim.infraState.getSwitchState(0).setPosition(sim, SwitchPosition.RIGHT);
+            return sim;
+        });
+    }
+
+    @Test
+    public void fixedStepMatchesBaseline() {
+        // events times given by the simulation before steps could be skipped
+        var config = getBaseConfigNoAllowance();
+        var sim = Simulation.createFromInfraAndEmptySuccessions(config.infra, 0, null);
+        var events = runWithMode(config, IntegrationMode.FIXED_STEP, sim);
+        assertArrayEquals(new double[] {
+                0.0, 0.0, 0.0, 20.247904332694493, 24.80375474364362, 28.646251395566427, 32.03294761509504,
+                62.55614445630541, 65.78050945709222, 471.2571612032876, 482.21106835993845, 503.2379105259176,
+                526.4216145697229, 528.7517566528388, 542.0981813097992, 546.6167927509317,
+        }, eventTimes(events), 1E-9);
+
+        config = getBaseConfig();
+        sim = Simulation.createFromInfraAndEmptySuccessions(config.infra, 0, null);
+        events = runWithMode(config, IntegrationMode.FIXED_STEP, sim);
+        assertArrayEquals(new double[] {
+                0.0, 0.0, 0.0, 21.27146413008247, 26.048736682986263, 30.08820194984524, 33.648156357087814,
+                65.72700093688452, 69.1152744135915, 495.38565252224316, 506.9042669654077, 529.0193508912755,
+                553.4264460092207, 555.8847169889658, 570.6112551351673, 575.5979136805258,
+        }, eventTimes(events), 1E-9);
+
+        config = getDeadEndConfig();
+        sim = Simulation.createFromInfraAndEmptySuccessions(config.infra, 0, null);
+        events = runWithMode(config, IntegrationMode.FIXED_STEP, sim);
+        assertArrayEquals(new double[] {
+                0.0, 0.0, 0.0, 20.247904332694493, 24.80375474364362, 28.646251395566427, 32.03294761509504,
+                62.55614445630541, 65.78050945709222, 471.2571612032876, 481.91086598152697, 501.7019619927009,
+                521.4638689683051, 523.159363068207, 531.3414157012284, 544.6873398431323,
+        }, eventTimes(events), 1E-9);
+    }
+}